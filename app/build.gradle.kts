@@ -69,6 +69,11 @@ android {
         }
     }
 
+    androidResources {
+        // dictionaries are memory-mapped directly from the APK, which requires them to be uncompressed
+        noCompress += "dict"
+    }
+
     testOptions {
         unitTests {
             isIncludeAndroidResources = true
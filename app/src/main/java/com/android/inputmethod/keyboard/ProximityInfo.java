@@ -33,6 +33,8 @@ public class ProximityInfo {
     @NonNull
     private static final List<Key> EMPTY_KEY_LIST = Collections.emptyList();
     private static final float DEFAULT_TOUCH_POSITION_CORRECTION_RADIUS = 0.15f;
+    // ArrayList with its backing array, for the few neighbors of a typical grid cell
+    private static final int ESTIMATED_LIST_BYTES = 64;
 
     private final int mGridWidth;
     private final int mGridHeight;
@@ -48,6 +50,8 @@ public class ProximityInfo {
     private final List<Key> mSortedKeys;
     @NonNull
     private final List<Key>[] mGridNeighbors;
+    @NonNull
+    private final TouchPositionCorrection mTouchPositionCorrection;
 
     @SuppressWarnings("unchecked")
     public ProximityInfo(final int gridWidth, final int gridHeight, final int minWidth, final int height,
@@ -65,6 +69,7 @@ public class ProximityInfo {
         mMostCommonKeyWidth = mostCommonKeyWidth;
         mSortedKeys = sortedKeys;
         mGridNeighbors = new List[mGridSize];
+        mTouchPositionCorrection = touchPositionCorrection;
         if (minWidth == 0 || height == 0) {
             // No proximity required. Keyboard might be popup keys keyboard.
             return;
@@ -74,6 +79,9 @@ public class ProximityInfo {
     }
 
     private long mNativeProximityInfo;
+    // Native code using mNativeProximityInfo, it is only released when this is 0.
+    private int mNativeProximityInfoUsers;
+    private boolean mNativeProximityInfoReleaseRequested;
     static {
         JniUtils.loadNativeLibrary();
     }
@@ -215,17 +223,67 @@ public class ProximityInfo {
                 sweetSpotCenterXs, sweetSpotCenterYs, sweetSpotRadii);
     }
 
-    public long getNativeProximityInfo() {
+    /**
+     * Gets the native proximity info for use in native code, it is not released until
+     * {@link #unlockNativeProximityInfo()} is called. If it was released before, it is created
+     * again.
+     */
+    public synchronized long lockNativeProximityInfo() {
+        if (mNativeProximityInfo == 0 && mKeyboardMinWidth != 0 && mKeyboardHeight != 0) {
+            mNativeProximityInfo = createNativeProximityInfo(mTouchPositionCorrection);
+        }
+        mNativeProximityInfoReleaseRequested = false;
+        mNativeProximityInfoUsers++;
         return mNativeProximityInfo;
     }
 
+    public synchronized void unlockNativeProximityInfo() {
+        mNativeProximityInfoUsers--;
+        if (mNativeProximityInfoUsers == 0 && mNativeProximityInfoReleaseRequested) {
+            releaseNativeProximityInfo();
+        }
+    }
+
+    /**
+     * Releases the native proximity info without waiting for finalization, or when it's unlocked
+     * if native code is currently using it.
+     */
+    public synchronized void releaseNativeMemory() {
+        if (mNativeProximityInfoUsers > 0) {
+            mNativeProximityInfoReleaseRequested = true;
+        } else {
+            releaseNativeProximityInfo();
+        }
+    }
+
+    private void releaseNativeProximityInfo() {
+        mNativeProximityInfoReleaseRequested = false;
+        if (mNativeProximityInfo != 0) {
+            releaseProximityInfoNative(mNativeProximityInfo);
+            mNativeProximityInfo = 0;
+        }
+    }
+
+    /**
+     * @return the approximate memory used by the proximity grid and the native proximity info,
+     *         in bytes
+     */
+    public int getEstimatedMemorySize() {
+        if (mKeyboardMinWidth == 0 || mKeyboardHeight == 0) {
+            return 0;
+        }
+        // neighbor lists of the grid, and the same as code points in native proximity chars
+        final int gridBytes = mGridSize * (ESTIMATED_LIST_BYTES
+                + MAX_PROXIMITY_CHARS_SIZE * Integer.BYTES);
+        // key coordinates, sizes, codes and sweet spots in native code
+        final int nativeKeyBytes = mSortedKeys.size() * 8 * Integer.BYTES;
+        return gridBytes + nativeKeyBytes;
+    }
+
     @Override
     protected void finalize() throws Throwable {
         try {
-            if (mNativeProximityInfo != 0) {
-                releaseProximityInfoNative(mNativeProximityInfo);
-                mNativeProximityInfo = 0;
-            }
+            releaseNativeProximityInfo();
         } finally {
             super.finalize();
         }
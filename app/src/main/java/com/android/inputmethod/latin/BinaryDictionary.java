@@ -30,11 +30,13 @@ import helium314.keyboard.latin.utils.JniUtils;
 import com.android.inputmethod.latin.utils.WordInputEventForPersonalization;
 
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Implements a static, compacted, binary dictionary of standard words.
@@ -81,6 +83,13 @@ public final class BinaryDictionary extends Dictionary {
     private final boolean mUseFullEditDistance;
     private final boolean mIsUpdatable;
     private boolean mHasUpdated;
+    // Incremented on every modification, so traverse sessions know when their continuation state
+    // is outdated. Reopening the dictionary creates new sessions anyway.
+    private int mUpdateCount;
+    // Number of typing lookups that could resume an earlier search, and that had to restart at
+    // the root of the dictionary.
+    private final AtomicInteger mContinuedSearchCount = new AtomicInteger();
+    private final AtomicInteger mRestartedSearchCount = new AtomicInteger();
 
     private final SparseArray<DicTraverseSession> mDicTraverseSessions = new SparseArray<>();
 
@@ -177,13 +186,13 @@ public final class BinaryDictionary extends Dictionary {
     private static native int getNextWordNative(long dict, int token, int[] outCodePoints,
             boolean[] outIsBeginningOfSentence);
     private static native void getSuggestionsNative(long dict, long proximityInfo,
-            long traverseSession, int[] xCoordinates, int[] yCoordinates, int[] times,
-            int[] pointerIds, int[] inputCodePoints, int inputSize, int[] suggestOptions,
+            long traverseSession, ByteBuffer inputPointers, int[] inputCodePoints,
+            int inputSize, int[] suggestOptions,
             int[][] prevWordCodePointArrays, boolean[] isBeginningOfSentenceArray,
             int prevWordCount, int[] outputSuggestionCount, int[] outputCodePoints,
             int[] outputScores, int[] outputIndices, int[] outputTypes,
             int[] outputAutoCommitFirstWordConfidence,
-            float[] inOutWeightOfLangModelVsSpatialModel);
+            float[] inOutWeightOfLangModelVsSpatialModel, int[] outputSearchContinuation);
     private static native boolean addUnigramEntryNative(long dict, int[] word, int probability,
             int[] shortcutTarget, int shortcutProbability, boolean isBeginningOfSentence,
             boolean isNotAWord, boolean isPossiblyOffensive, int timestamp);
@@ -253,10 +262,25 @@ public final class BinaryDictionary extends Dictionary {
             final SettingsValuesForSuggestion settingsValuesForSuggestion,
             final int sessionId, final float weightForLocale,
             final float[] inOutWeightOfLangModelVsSpatialModel) {
+        return getSuggestions(composedData, ngramContext, proximityInfoHandle,
+                settingsValuesForSuggestion, sessionId, weightForLocale,
+                inOutWeightOfLangModelVsSpatialModel, NO_SCORE_THRESHOLD);
+    }
+
+    @Override
+    public ArrayList<SuggestedWordInfo> getSuggestions(final ComposedData composedData,
+            final NgramContext ngramContext, final long proximityInfoHandle,
+            final SettingsValuesForSuggestion settingsValuesForSuggestion,
+            final int sessionId, final float weightForLocale,
+            final float[] inOutWeightOfLangModelVsSpatialModel, final int minScore) {
         if (!isValidDictionary()) {
             return null;
         }
         final DicTraverseSession session = getTraverseSession(sessionId);
+        if (session.mDictionaryUpdateCount != mUpdateCount) {
+            session.resetContinuation();
+            session.mDictionaryUpdateCount = mUpdateCount;
+        }
         Arrays.fill(session.mInputCodePoints, Constants.NOT_A_CODE);
         ngramContext.outputToArray(session.mPrevWordCodePointArrays,
                 session.mIsBeginningOfSentenceArray);
@@ -279,6 +303,7 @@ public final class BinaryDictionary extends Dictionary {
             session.mNativeSuggestOptions.setIsSpaceAwareGesture(settingsValuesForSuggestion.mSpaceAwareGesture);
         session.mNativeSuggestOptions.setBlockOffensiveWords(settingsValuesForSuggestion.mBlockPotentiallyOffensive);
         session.mNativeSuggestOptions.setWeightForLocale(weightForLocale);
+        session.mNativeSuggestOptions.setRequestGeneration(composedData.mRequestGeneration);
         if (inOutWeightOfLangModelVsSpatialModel != null) {
             session.mInputOutputWeightOfLangModelVsSpatialModel[0] =
                     inOutWeightOfLangModelVsSpatialModel[0];
@@ -288,22 +313,34 @@ public final class BinaryDictionary extends Dictionary {
         }
         // TOOD: Pass multiple previous words information for n-gram.
         getSuggestionsNative(mNativeDict, proximityInfoHandle,
-                getTraverseSession(sessionId).getSession(), inputPointers.getXCoordinates(),
-                inputPointers.getYCoordinates(), inputPointers.getTimes(),
-                inputPointers.getPointerIds(), session.mInputCodePoints, inputSize,
+                session.getSession(), inputPointers.getPointerBuffer(),
+                session.mInputCodePoints, inputSize,
                 session.mNativeSuggestOptions.getOptions(), session.mPrevWordCodePointArrays,
                 session.mIsBeginningOfSentenceArray, ngramContext.getPrevWordCount(),
                 session.mOutputSuggestionCount, session.mOutputCodePoints, session.mOutputScores,
                 session.mSpaceIndices, session.mOutputTypes,
                 session.mOutputAutoCommitFirstWordConfidence,
-                session.mInputOutputWeightOfLangModelVsSpatialModel);
+                session.mInputOutputWeightOfLangModelVsSpatialModel,
+                session.mOutputSearchContinuation);
         if (inOutWeightOfLangModelVsSpatialModel != null) {
             inOutWeightOfLangModelVsSpatialModel[0] =
                     session.mInputOutputWeightOfLangModelVsSpatialModel[0];
         }
+        if (!isGesture && inputSize > 0) {
+            if (session.mOutputSearchContinuation[0] == DicTraverseSession.SEARCH_RESTARTED)
+                mRestartedSearchCount.incrementAndGet();
+            else
+                mContinuedSearchCount.incrementAndGet();
+        }
         final int count = session.mOutputSuggestionCount[0];
-        final ArrayList<SuggestedWordInfo> suggestions = new ArrayList<>();
+        final ArrayList<SuggestedWordInfo> suggestions = new ArrayList<>(count);
         for (int j = 0; j < count; ++j) {
+            // Scores stay in the session's output array, words are only created for
+            // suggestions the caller is still interested in.
+            final int score = (int)(session.mOutputScores[j] * weightForLocale);
+            if (score < minScore) {
+                continue;
+            }
             final int start = j * DICTIONARY_MAX_WORD_LENGTH;
             int len = 0;
             while (len < DICTIONARY_MAX_WORD_LENGTH
@@ -314,7 +351,7 @@ public final class BinaryDictionary extends Dictionary {
                 suggestions.add(new SuggestedWordInfo(
                         new String(session.mOutputCodePoints, start, len),
                         "" /* prevWordsContext */,
-                        (int)(session.mOutputScores[j] * weightForLocale),
+                        score,
                         session.mOutputTypes[j],
                         this /* sourceDict */,
                         session.mSpaceIndices[j] /* indexOfTouchPointOfSecondWord */,
@@ -328,6 +365,16 @@ public final class BinaryDictionary extends Dictionary {
         return mNativeDict != 0;
     }
 
+    @Override
+    public int getContinuedSearchCount() {
+        return mContinuedSearchCount.get();
+    }
+
+    @Override
+    public int getRestartedSearchCount() {
+        return mRestartedSearchCount.get();
+    }
+
     public int getFormatVersion() {
         return getFormatVersionNative(mNativeDict);
     }
@@ -443,6 +490,7 @@ public final class BinaryDictionary extends Dictionary {
             return false;
         }
         mHasUpdated = true;
+        mUpdateCount++;
         return true;
     }
 
@@ -456,6 +504,7 @@ public final class BinaryDictionary extends Dictionary {
             return false;
         }
         mHasUpdated = true;
+        mUpdateCount++;
         return true;
     }
 
@@ -474,6 +523,25 @@ public final class BinaryDictionary extends Dictionary {
             return false;
         }
         mHasUpdated = true;
+        mUpdateCount++;
+        return true;
+    }
+
+    // Remove an n-gram entry from the binary dictionary in native code.
+    public boolean removeNgramEntry(final NgramContext ngramContext, final String word) {
+        if (!ngramContext.isValid() || TextUtils.isEmpty(word)) {
+            return false;
+        }
+        final int[][] prevWordCodePointArrays = new int[ngramContext.getPrevWordCount()][];
+        final boolean[] isBeginningOfSentenceArray = new boolean[ngramContext.getPrevWordCount()];
+        ngramContext.outputToArray(prevWordCodePointArrays, isBeginningOfSentenceArray);
+        final int[] wordCodePoints = StringUtils.toCodePointArray(word);
+        if (!removeNgramEntryNative(mNativeDict, prevWordCodePointArrays,
+                isBeginningOfSentenceArray, wordCodePoints)) {
+            return false;
+        }
+        mHasUpdated = true;
+        mUpdateCount++;
         return true;
     }
 
@@ -492,6 +560,7 @@ public final class BinaryDictionary extends Dictionary {
             return false;
         }
         mHasUpdated = true;
+        mUpdateCount++;
         return true;
     }
 
@@ -507,6 +576,7 @@ public final class BinaryDictionary extends Dictionary {
             processedEventCount = updateEntriesForInputEventsNative(mNativeDict, inputEvents,
                     processedEventCount);
             mHasUpdated = true;
+            mUpdateCount++;
             if (processedEventCount <= 0) {
                 return;
             }
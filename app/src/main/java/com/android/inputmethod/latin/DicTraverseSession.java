@@ -18,6 +18,11 @@ public final class DicTraverseSession {
     }
     // Must be equal to MAX_RESULTS in native/jni/src/defines.h
     private static final int MAX_RESULTS = 18;
+    // How the native search for the last suggestions was started.
+    // Must be equal to the SEARCH_* constants in native/jni/src/suggest/core/session/dic_traverse_session.h
+    public static final int SEARCH_RESTARTED = 0;
+    public static final int SEARCH_CONTINUED = 1;
+    public static final int SEARCH_RESTORED_FROM_SNAPSHOT = 2;
     public final int[] mInputCodePoints =
             new int[DecoderSpecificConstants.DICTIONARY_MAX_WORD_LENGTH];
     public final int[][] mPrevWordCodePointArrays =
@@ -33,12 +38,18 @@ public final class DicTraverseSession {
     // Only one result is ever used
     public final int[] mOutputAutoCommitFirstWordConfidence = new int[1];
     public final float[] mInputOutputWeightOfLangModelVsSpatialModel = new float[1];
+    public final int[] mOutputSearchContinuation = new int[1];
+    // Update count of the dictionary when this session was last used, see resetContinuation()
+    public int mDictionaryUpdateCount;
 
     public final NativeSuggestOptions mNativeSuggestOptions = new NativeSuggestOptions();
 
     private static native long setDicTraverseSessionNative(String locale, long dictSize);
     private static native void initDicTraverseSessionNative(long nativeDicTraverseSession,
             long dictionary, int[] previousWord, int previousWordLength);
+    private static native void setLatestRequestGenerationNative(int requestGeneration);
+    private static native void resetDicTraverseSessionContinuationNative(
+            long nativeDicTraverseSession);
     private static native void releaseDicTraverseSessionNative(long nativeDicTraverseSession);
 
     private long mNativeDicTraverseSession;
@@ -62,6 +73,23 @@ public final class DicTraverseSession {
                 mNativeDicTraverseSession, dictionary, previousWord, previousWordLength);
     }
 
+    /**
+     * Cancels running native searches for all requests older than the given generation. Searches
+     * without a request generation are not affected.
+     * @see helium314.keyboard.latin.common.ComposedData#mRequestGeneration
+     */
+    public static void setLatestRequestGeneration(final int requestGeneration) {
+        setLatestRequestGenerationNative(requestGeneration);
+    }
+
+    /**
+     * Drops the search state kept for continuing suggestions, which must not be used any more
+     * once the dictionary has been modified.
+     */
+    public void resetContinuation() {
+        resetDicTraverseSessionContinuationNative(mNativeDicTraverseSession);
+    }
+
     private static long createNativeDicTraverseSession(String locale, long dictSize) {
         return setDicTraverseSessionNative(locale, dictSize);
     }
@@ -197,49 +197,50 @@ class HangulCombiner : Combiner {
             override val modern: Boolean get() = codePoint in 0x1100 .. 0x1112
             val ordinal: Int get() = codePoint - 0x1100
             fun toConsonant(): Consonant? {
-                val codePoint = COMPAT_CONSONANTS.getOrNull(CONVERT_INITIALS.indexOf(codePoint.toChar())) ?: return null
-                if(codePoint.code == 0) return null
-                return Consonant(codePoint.code)
+                val codePoint = HangulJamoTables.initialToCompat(codePoint)
+                if(codePoint == 0) return null
+                return Consonant(codePoint)
             }
         }
         data class Medial(override val codePoint: Int) : HangulJamo() {
             override val modern: Boolean get() = codePoint in 1161 .. 0x1175
             val ordinal: Int get() = codePoint - 0x1161
             fun toVowel(): Vowel? {
-                val codePoint = COMPAT_VOWELS.getOrNull(CONVERT_MEDIALS.indexOf(codePoint.toChar())) ?: return null
-                return Vowel(codePoint.code)
+                val codePoint = HangulJamoTables.medialToCompat(codePoint)
+                if(codePoint == 0) return null
+                return Vowel(codePoint)
             }
         }
         data class Final(override val codePoint: Int, val combinationPair: Pair<Int, Int>? = null) : HangulJamo() {
             override val modern: Boolean get() = codePoint in 0x11a8 .. 0x11c2
             val ordinal: Int get() = codePoint - 0x11a7
             fun toConsonant(): Consonant? {
-                val codePoint = COMPAT_CONSONANTS.getOrNull(CONVERT_FINALS.indexOf(codePoint.toChar())) ?: return null
-                if(codePoint.code == 0) return null
-                return Consonant(codePoint.code)
+                val codePoint = HangulJamoTables.finalToCompat(codePoint)
+                if(codePoint == 0) return null
+                return Consonant(codePoint)
             }
         }
         data class Consonant(override val codePoint: Int) : HangulJamo() {
             override val modern: Boolean get() = codePoint in 0x3131 .. 0x314e
             val ordinal: Int get() = codePoint - 0x3131
             fun toInitial(): Initial? {
-                val codePoint = CONVERT_INITIALS.getOrNull(COMPAT_CONSONANTS.indexOf(codePoint.toChar())) ?: return null
-                if(codePoint.code == 0) return null
-                return Initial(codePoint.code)
+                val codePoint = HangulJamoTables.compatToInitial(codePoint)
+                if(codePoint == 0) return null
+                return Initial(codePoint)
             }
             fun toFinal(): Final? {
-                val codePoint = CONVERT_FINALS.getOrNull(COMPAT_CONSONANTS.indexOf(codePoint.toChar())) ?: return null
-                if(codePoint.code == 0) return null
-                return Final(codePoint.code)
+                val codePoint = HangulJamoTables.compatToFinal(codePoint)
+                if(codePoint == 0) return null
+                return Final(codePoint)
             }
         }
         data class Vowel(override val codePoint: Int) : HangulJamo() {
             override val modern: Boolean get() = codePoint in 0x314f .. 0x3163
             val ordinal: Int get() = codePoint - 0x314f1
             fun toMedial(): Medial? {
-                val codePoint = CONVERT_MEDIALS.getOrNull(COMPAT_VOWELS.indexOf(codePoint.toChar())) ?: return null
-                if(codePoint.code == 0) return null
-                return Medial(codePoint.code)
+                val codePoint = HangulJamoTables.compatToMedial(codePoint)
+                if(codePoint == 0) return null
+                return Medial(codePoint)
             }
         }
         companion object {
@@ -267,9 +268,8 @@ class HangulCombiner : Combiner {
             val final: HangulJamo.Final? = null
     ) {
         val combinable: Boolean get() = (initial?.modern ?: false) && (medial?.modern ?: false) && (final?.modern ?: true)
-        val combined: String get() = (0xac00 + (initial?.ordinal ?: 0) * 21 * 28
-                + (medial?.ordinal ?: 0) * 28
-                + (final?.ordinal ?: 0)).toChar().toString()
+        val combined: String get() = HangulJamoTables.composeSyllable(initial?.ordinal ?: 0,
+                medial?.ordinal ?: 0, final?.ordinal ?: 0).toChar().toString()
         val uncombined: String get() = (initial?.string ?: "") + (medial?.string ?: "") + (final?.string ?: "")
         val uncombinedCompat: String get() = (initial?.toConsonant()?.string ?: "") +
                 (medial?.toVowel()?.string ?: "") + (final?.toConsonant()?.string ?: "")
@@ -0,0 +1,216 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.event
+
+import java.text.Normalizer
+
+/**
+ * Lookup tables for converting between Hangul syllables, conjoining jamo and compatibility jamo,
+ * shared by [HangulCombiner] and the Korean dictionary.
+ * Decomposition and composition of Hangul text are done arithmetically and with these tables in a
+ * single pass, [Normalizer] is only used for text that contains other characters it may change.
+ */
+object HangulJamoTables {
+    const val SYLLABLE_BASE = 0xac00
+    const val SYLLABLE_LAST = 0xd7a3
+    const val INITIAL_BASE = 0x1100
+    const val INITIAL_LAST = 0x1112
+    const val MEDIAL_BASE = 0x1161
+    const val MEDIAL_LAST = 0x1175
+    // there is no final for index 0, which means the syllable has no final
+    const val FINAL_BASE = 0x11a7
+    const val FINAL_LAST = 0x11c2
+    private const val MEDIAL_COUNT = 21
+    private const val FINAL_COUNT = 28
+    private const val INITIAL_STRIDE = MEDIAL_COUNT * FINAL_COUNT
+
+    const val COMPAT_CONSONANT_FIRST = 0x3131
+    const val COMPAT_CONSONANT_LAST = 0x314e
+    const val COMPAT_VOWEL_FIRST = 0x314f
+    const val COMPAT_VOWEL_LAST = 0x3163
+    private const val CONJOINING_JAMO_FIRST = 0x1100
+    private const val CONJOINING_JAMO_LAST = 0x11ff
+    private const val COMPAT_JAMO_LAST = 0x318e
+
+    // Characters below this have no canonical decomposition and are never changed by composition.
+    private const val FIRST_DECOMPOSABLE_CHAR = 0xc0
+    private const val FIRST_COMBINING_CHAR = 0x300
+
+    // Indexed by compatibility jamo - COMPAT_CONSONANT_FIRST, 0 if there is no such jamo.
+    private val COMPAT_TO_INITIAL = IntArray(COMPAT_CONSONANT_LAST - COMPAT_CONSONANT_FIRST + 1)
+    private val COMPAT_TO_FINAL = IntArray(COMPAT_CONSONANT_LAST - COMPAT_CONSONANT_FIRST + 1)
+    // What the dictionaries store for compatibility jamo: initials for consonants, medials for vowels.
+    private val COMPAT_TO_DICTIONARY = CharArray(COMPAT_VOWEL_LAST - COMPAT_CONSONANT_FIRST + 1)
+    // Indexed by initial - INITIAL_BASE and final - FINAL_BASE, 0 if there is no such consonant.
+    private val INITIAL_TO_COMPAT = IntArray(INITIAL_LAST - INITIAL_BASE + 1)
+    private val FINAL_TO_COMPAT = IntArray(FINAL_LAST - FINAL_BASE + 1)
+
+    init {
+        val consonants = HangulCombiner.HangulJamo.COMPAT_CONSONANTS
+        val initials = HangulCombiner.HangulJamo.CONVERT_INITIALS
+        val finals = HangulCombiner.HangulJamo.CONVERT_FINALS
+        for (i in consonants.indices) {
+            val index = consonants[i].code - COMPAT_CONSONANT_FIRST
+            val initial = initials[i].code
+            val final = finals[i].code
+            COMPAT_TO_INITIAL[index] = initial
+            COMPAT_TO_FINAL[index] = final
+            COMPAT_TO_DICTIONARY[index] = initials[i]
+            if (initial != 0) INITIAL_TO_COMPAT[initial - INITIAL_BASE] = consonants[i].code
+            if (final != 0) FINAL_TO_COMPAT[final - FINAL_BASE] = consonants[i].code
+        }
+        val vowels = HangulCombiner.HangulJamo.COMPAT_VOWELS
+        val medials = HangulCombiner.HangulJamo.CONVERT_MEDIALS
+        for (i in vowels.indices) {
+            COMPAT_TO_DICTIONARY[vowels[i].code - COMPAT_CONSONANT_FIRST] = medials[i]
+        }
+    }
+
+    /** Returns the initial for a compatibility consonant, or 0 if there is none. */
+    fun compatToInitial(codePoint: Int): Int =
+        if (codePoint in COMPAT_CONSONANT_FIRST..COMPAT_CONSONANT_LAST) COMPAT_TO_INITIAL[codePoint - COMPAT_CONSONANT_FIRST] else 0
+
+    /** Returns the final for a compatibility consonant, or 0 if there is none. */
+    fun compatToFinal(codePoint: Int): Int =
+        if (codePoint in COMPAT_CONSONANT_FIRST..COMPAT_CONSONANT_LAST) COMPAT_TO_FINAL[codePoint - COMPAT_CONSONANT_FIRST] else 0
+
+    /** Returns the medial for a compatibility vowel, or 0 if there is none. */
+    fun compatToMedial(codePoint: Int): Int =
+        if (codePoint in COMPAT_VOWEL_FIRST..COMPAT_VOWEL_LAST) MEDIAL_BASE + codePoint - COMPAT_VOWEL_FIRST else 0
+
+    /** Returns the compatibility consonant for an initial, or 0 if there is none. */
+    fun initialToCompat(codePoint: Int): Int =
+        if (codePoint in INITIAL_BASE..INITIAL_LAST) INITIAL_TO_COMPAT[codePoint - INITIAL_BASE] else 0
+
+    /** Returns the compatibility vowel for a medial, or 0 if there is none. */
+    fun medialToCompat(codePoint: Int): Int =
+        if (codePoint in MEDIAL_BASE..MEDIAL_LAST) COMPAT_VOWEL_FIRST + codePoint - MEDIAL_BASE else 0
+
+    /** Returns the compatibility consonant for a final, or 0 if there is none. */
+    fun finalToCompat(codePoint: Int): Int =
+        if (codePoint in FINAL_BASE + 1..FINAL_LAST) FINAL_TO_COMPAT[codePoint - FINAL_BASE] else 0
+
+    /** Composes a syllable from jamo ordinals, [finalOrdinal] is 0 for syllables without final. */
+    fun composeSyllable(initialOrdinal: Int, medialOrdinal: Int, finalOrdinal: Int): Int =
+        SYLLABLE_BASE + initialOrdinal * INITIAL_STRIDE + medialOrdinal * FINAL_COUNT + finalOrdinal
+
+    /**
+     * Decomposes the text to the form used in Korean dictionaries: syllables are split into
+     * conjoining jamo and compatibility jamo are converted to conjoining jamo.
+     * Same as NFD normalization followed by the jamo conversion.
+     */
+    @JvmStatic
+    fun decomposeForDictionary(text: CharSequence): String {
+        val sb = StringBuilder(text.length * 3)
+        for (i in text.indices) {
+            val c = text[i]
+            val code = c.code
+            when {
+                code < FIRST_DECOMPOSABLE_CHAR -> sb.append(c)
+                code in SYLLABLE_BASE..SYLLABLE_LAST -> {
+                    val index = code - SYLLABLE_BASE
+                    sb.append((INITIAL_BASE + index / INITIAL_STRIDE).toChar())
+                    sb.append((MEDIAL_BASE + index % INITIAL_STRIDE / FINAL_COUNT).toChar())
+                    val final = index % FINAL_COUNT
+                    if (final != 0) sb.append((FINAL_BASE + final).toChar())
+                }
+                code in COMPAT_CONSONANT_FIRST..COMPAT_VOWEL_LAST ->
+                    sb.append(COMPAT_TO_DICTIONARY[code - COMPAT_CONSONANT_FIRST])
+                code in CONJOINING_JAMO_FIRST..CONJOINING_JAMO_LAST -> sb.append(c)
+                else -> return decomposeWithNormalizer(text)
+            }
+        }
+        return sb.toString()
+    }
+
+    private fun decomposeWithNormalizer(text: CharSequence): String {
+        val normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+        val sb = StringBuilder(normalized.length)
+        for (c in normalized) {
+            if (c.code in COMPAT_CONSONANT_FIRST..COMPAT_VOWEL_LAST)
+                sb.append(COMPAT_TO_DICTIONARY[c.code - COMPAT_CONSONANT_FIRST])
+            else sb.append(c)
+        }
+        return sb.toString()
+    }
+
+    /**
+     * Composes conjoining jamo to syllables where possible, same as NFC normalization.
+     */
+    @JvmStatic
+    fun compose(text: String): String {
+        var sb: StringBuilder? = null
+        for (i in text.indices) {
+            val code = text[i].code
+            if (code >= FIRST_COMBINING_CHAR && code !in CONJOINING_JAMO_FIRST..CONJOINING_JAMO_LAST
+                    && code !in SYLLABLE_BASE..SYLLABLE_LAST && code !in COMPAT_CONSONANT_FIRST..COMPAT_JAMO_LAST)
+                return Normalizer.normalize(text, Normalizer.Form.NFC)
+            val last = if (sb == null) (if (i == 0) -1 else text[i - 1].code) else if (sb.isEmpty()) -1 else sb[sb.length - 1].code
+            val composed = composePair(last, code)
+            if (composed == -1) {
+                sb?.append(text[i])
+                continue
+            }
+            if (sb == null) sb = StringBuilder(text.length).append(text, 0, i - 1)
+            else sb.setLength(sb.length - 1)
+            sb.append(composed.toChar())
+        }
+        return sb?.toString() ?: text
+    }
+
+    // Returns the syllable composed from the two code points, or -1 if they don't compose.
+    private fun composePair(first: Int, second: Int): Int {
+        if (first in INITIAL_BASE..INITIAL_LAST && second in MEDIAL_BASE..MEDIAL_LAST)
+            return composeSyllable(first - INITIAL_BASE, second - MEDIAL_BASE, 0)
+        if (first in SYLLABLE_BASE..SYLLABLE_LAST && (first - SYLLABLE_BASE) % FINAL_COUNT == 0
+                && second in FINAL_BASE + 1..FINAL_LAST)
+            return first + second - FINAL_BASE
+        return -1
+    }
+
+    /**
+     * Returns whether the first [length] chars of [word] and [other] are the same after
+     * [decomposeForDictionary], without creating the decomposed strings.
+     */
+    @JvmStatic
+    fun sameDecomposed(word: CharArray, length: Int, other: CharSequence): Boolean {
+        val a = DecomposedChars(word, length)
+        val b = DecomposedChars(other)
+        while (true) {
+            val ca = a.next()
+            if (ca != b.next()) return false
+            if (ca == -1) return true
+        }
+    }
+
+    // Iterates over the chars of the dictionary form of Hangul text, -1 at the end.
+    private class DecomposedChars(private val chars: CharArray?, private val text: CharSequence?, private val length: Int) {
+        constructor(chars: CharArray, length: Int) : this(chars, null, length)
+        constructor(text: CharSequence) : this(null, text, text.length)
+
+        private var index = 0
+        private val pending = IntArray(2)
+        private var pendingCount = 0
+        private var pendingIndex = 0
+
+        fun next(): Int {
+            if (pendingIndex < pendingCount) return pending[pendingIndex++]
+            if (index >= length) return -1
+            val code = (chars?.get(index) ?: text!![index]).code
+            index++
+            return when (code) {
+                in SYLLABLE_BASE..SYLLABLE_LAST -> {
+                    val syllable = code - SYLLABLE_BASE
+                    pendingIndex = 0
+                    pending[0] = MEDIAL_BASE + syllable % INITIAL_STRIDE / FINAL_COUNT
+                    val final = syllable % FINAL_COUNT
+                    pendingCount = 1
+                    if (final != 0) pending[pendingCount++] = FINAL_BASE + final
+                    INITIAL_BASE + syllable / INITIAL_STRIDE
+                }
+                in COMPAT_CONSONANT_FIRST..COMPAT_VOWEL_LAST -> COMPAT_TO_DICTIONARY[code - COMPAT_CONSONANT_FIRST].code
+                else -> code
+            }
+        }
+    }
+}
@@ -633,6 +633,10 @@ public class Key implements Comparable<Key> {
         return ((mLabelFlags | defaultFlags) & LABEL_FLAGS_ALIGN_HINT_LABEL_TO_BOTTOM) != 0;
     }
 
+    final int getLabelFlags() {
+        return mLabelFlags;
+    }
+
     public final boolean isAlignIconToBottom() {
         return (mLabelFlags & LABEL_FLAGS_ALIGN_ICON_TO_BOTTOM) != 0;
     }
@@ -833,6 +837,10 @@ public class Key implements Comparable<Key> {
         mPressed = false;
     }
 
+    final boolean isPressed() {
+        return mPressed;
+    }
+
     public final boolean isEnabled() {
         return mEnabled;
     }
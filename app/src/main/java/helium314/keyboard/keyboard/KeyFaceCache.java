@@ -0,0 +1,181 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.keyboard;
+
+import android.graphics.Bitmap;
+import android.text.TextUtils;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import helium314.keyboard.keyboard.internal.KeyDrawParams;
+import helium314.keyboard.keyboard.internal.KeyVisualAttributes;
+
+/**
+ * Rendered key faces (background and top visuals) of a {@link KeyboardView}, so keys that look
+ * the same are only measured and drawn once and then copied to the keyboard.
+ * Faces are identified by the key attributes that affect drawing, not by the key itself, so
+ * e.g. the keys of the shifted and unshifted keyboard share faces where they look the same.
+ */
+final class KeyFaceCache {
+    private static final int MAX_CACHE_BYTES = 8 * 1024 * 1024;
+
+    static final class KeyFace {
+        @NonNull
+        final Bitmap mBitmap;
+        // Position of the bitmap relative to the top left corner of the key.
+        final int mLeft;
+        final int mTop;
+
+        KeyFace(@NonNull final Bitmap bitmap, final int left, final int top) {
+            mBitmap = bitmap;
+            mLeft = left;
+            mTop = top;
+        }
+    }
+
+    private static final class FaceKey {
+        String mLabel;
+        String mHintLabel;
+        String mIconName;
+        int mCode;
+        int mLabelFlags;
+        int mBackgroundType;
+        int mWidth;
+        int mHeight;
+        int mVariant;
+        boolean mPressed;
+        boolean mEnabled;
+        boolean mHasPopupKeys;
+        // Compared by identity, instances are shared by the keys of a layout.
+        KeyVisualAttributes mVisualAttributes;
+
+        void set(@NonNull final Key key, final int variant) {
+            mLabel = key.getLabel();
+            mHintLabel = key.getHintLabel();
+            mIconName = key.getIconName();
+            mCode = key.getCode();
+            mLabelFlags = key.getLabelFlags();
+            mBackgroundType = key.getBackgroundType();
+            mWidth = key.getDrawWidth();
+            mHeight = key.getHeight();
+            mVariant = variant;
+            mPressed = key.isPressed();
+            mEnabled = key.isEnabled();
+            mHasPopupKeys = key.getPopupKeys() != null;
+            mVisualAttributes = key.getVisualAttributes();
+        }
+
+        @NonNull
+        FaceKey copy() {
+            final FaceKey copy = new FaceKey();
+            copy.mLabel = mLabel;
+            copy.mHintLabel = mHintLabel;
+            copy.mIconName = mIconName;
+            copy.mCode = mCode;
+            copy.mLabelFlags = mLabelFlags;
+            copy.mBackgroundType = mBackgroundType;
+            copy.mWidth = mWidth;
+            copy.mHeight = mHeight;
+            copy.mVariant = mVariant;
+            copy.mPressed = mPressed;
+            copy.mEnabled = mEnabled;
+            copy.mHasPopupKeys = mHasPopupKeys;
+            copy.mVisualAttributes = mVisualAttributes;
+            return copy;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof FaceKey other)) return false;
+            return mCode == other.mCode && mLabelFlags == other.mLabelFlags
+                    && mBackgroundType == other.mBackgroundType && mWidth == other.mWidth
+                    && mHeight == other.mHeight && mVariant == other.mVariant
+                    && mPressed == other.mPressed && mEnabled == other.mEnabled
+                    && mHasPopupKeys == other.mHasPopupKeys
+                    && mVisualAttributes == other.mVisualAttributes
+                    && TextUtils.equals(mLabel, other.mLabel)
+                    && TextUtils.equals(mHintLabel, other.mHintLabel)
+                    && TextUtils.equals(mIconName, other.mIconName);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mCode;
+            result = 31 * result + (mLabel == null ? 0 : mLabel.hashCode());
+            result = 31 * result + (mHintLabel == null ? 0 : mHintLabel.hashCode());
+            result = 31 * result + (mIconName == null ? 0 : mIconName.hashCode());
+            result = 31 * result + mLabelFlags;
+            result = 31 * result + mBackgroundType;
+            result = 31 * result + mWidth;
+            result = 31 * result + mHeight;
+            result = 31 * result + mVariant;
+            result = 31 * result + (mPressed ? 1 : 0);
+            result = 31 * result + (mEnabled ? 2 : 0);
+            result = 31 * result + (mHasPopupKeys ? 4 : 0);
+            return result;
+        }
+    }
+
+    private final LruCache<FaceKey, KeyFace> mFaces;
+    // Reused for lookups, so drawing a cached face does not allocate.
+    private final FaceKey mLookupKey = new FaceKey();
+
+    // State of the view the cached faces were drawn with.
+    @Nullable
+    private KeyDrawParams mDrawParams;
+    private float mFontSizeMultiplier;
+    private float mKeyScaleForText;
+    private float mIconScaleFactor;
+    private boolean mShowsHints;
+
+    KeyFaceCache() {
+        final int maxBytes = (int) Math.min(MAX_CACHE_BYTES, Runtime.getRuntime().maxMemory() / 32);
+        mFaces = new LruCache<>(maxBytes) {
+            @Override
+            protected int sizeOf(final FaceKey key, final KeyFace face) {
+                return face.mBitmap.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * Drops all faces if the view state they were drawn with has changed.
+     */
+    void validate(@NonNull final KeyDrawParams params, final float fontSizeMultiplier,
+            final float keyScaleForText, final float iconScaleFactor, final boolean showsHints) {
+        if (mDrawParams != null && mDrawParams.hasSameAppearance(params)
+                && mFontSizeMultiplier == fontSizeMultiplier
+                && mKeyScaleForText == keyScaleForText && mIconScaleFactor == iconScaleFactor
+                && mShowsHints == showsHints) {
+            return;
+        }
+        mFaces.evictAll();
+        mDrawParams = params.copy();
+        mFontSizeMultiplier = fontSizeMultiplier;
+        mKeyScaleForText = keyScaleForText;
+        mIconScaleFactor = iconScaleFactor;
+        mShowsHints = showsHints;
+    }
+
+    /**
+     * @param variant distinguishes faces of keys that look different on different keyboards,
+     *        e.g. the shift key.
+     */
+    @Nullable
+    KeyFace get(@NonNull final Key key, final int variant) {
+        mLookupKey.set(key, variant);
+        return mFaces.get(mLookupKey);
+    }
+
+    void put(@NonNull final Key key, final int variant, @NonNull final KeyFace face) {
+        mLookupKey.set(key, variant);
+        mFaces.put(mLookupKey.copy(), face);
+    }
+
+    void clear() {
+        mFaces.evictAll();
+        mDrawParams = null;
+    }
+}
@@ -0,0 +1,65 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.keyboard;
+
+import android.graphics.Canvas;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+import java.util.HashMap;
+
+/**
+ * Display lists of the keys of a hardware accelerated {@link KeyboardView}, one per key, so
+ * only keys that changed are recorded again and the others are replayed by the render thread.
+ */
+@RequiresApi(Build.VERSION_CODES.Q)
+final class KeyRenderNodes {
+    interface KeyDrawer {
+        /** Draws the key with the canvas origin at the top left corner of the key. */
+        void drawKey(@NonNull Key key, @NonNull Canvas canvas);
+    }
+
+    private final HashMap<Key, RenderNode> mNodes = new HashMap<>();
+
+    /**
+     * Draws the display list of the key to the canvas, recording it first if the key is new, has
+     * moved or {@code invalidated} is set.
+     */
+    void drawKey(@NonNull final Canvas canvas, @NonNull final Key key, final int x, final int y,
+            final boolean invalidated, @NonNull final KeyDrawer drawer) {
+        RenderNode node = mNodes.get(key);
+        if (node == null) {
+            node = new RenderNode(null);
+            // backgrounds and shadows may extend beyond the key
+            node.setClipToBounds(false);
+            mNodes.put(key, node);
+        }
+        final int right = x + key.getDrawWidth();
+        final int bottom = y + key.getHeight();
+        final boolean moved = node.getLeft() != x || node.getTop() != y
+                || node.getRight() != right || node.getBottom() != bottom;
+        if (moved) {
+            node.setPosition(x, y, right, bottom);
+        }
+        if (invalidated || moved || !node.hasDisplayList()) {
+            final RecordingCanvas recordingCanvas = node.beginRecording();
+            try {
+                drawer.drawKey(key, recordingCanvas);
+            } finally {
+                node.endRecording();
+            }
+        }
+        canvas.drawRenderNode(node);
+    }
+
+    void clear() {
+        for (final RenderNode node : mNodes.values()) {
+            node.discardDisplayList();
+        }
+        mNodes.clear();
+    }
+}
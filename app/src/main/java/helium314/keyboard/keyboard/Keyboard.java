@@ -43,6 +43,9 @@ import java.util.List;
  * </pre>
  */
 public class Keyboard {
+    // Key with its hit box, label and hint strings and drawing attributes
+    private static final int ESTIMATED_KEY_BYTES = 400;
+
     @NonNull
     public final KeyboardId mId;
     public final int mThemeId;
@@ -163,6 +166,13 @@ public class Keyboard {
         return mProximityInfo;
     }
 
+    /**
+     * @return the approximate memory used by this keyboard including its proximity info, in bytes
+     */
+    public int getEstimatedMemorySize() {
+        return mSortedKeys.size() * ESTIMATED_KEY_BYTES + mProximityInfo.getEstimatedMemorySize();
+    }
+
     @NonNull
     public KeyboardLayout getKeyboardLayout() {
         return mKeyboardLayout;
@@ -10,6 +10,7 @@ import android.app.KeyguardManager;
 import android.content.Context;
 import android.os.Build;
 import android.text.InputType;
+import android.util.LruCache;
 import android.view.inputmethod.EditorInfo;
 
 import helium314.keyboard.keyboard.internal.KeyboardBuilder;
@@ -28,8 +29,9 @@ import helium314.keyboard.latin.utils.ResourceUtils;
 import helium314.keyboard.latin.utils.ScriptUtils;
 import helium314.keyboard.latin.utils.SubtypeLocaleUtils;
 
-import java.lang.ref.SoftReference;
-import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -50,17 +52,35 @@ public final class KeyboardLayoutSet {
     private final Params mParams;
     public final LocaleKeyboardInfos mLocaleKeyboardInfos;
 
-    // How many layouts we forcibly keep in cache. This only includes ALPHABET (default) and
-    // ALPHABET_AUTOMATIC_SHIFTED layouts - other layouts may stay in memory in the map of
-    // soft-references, but we forcibly cache this many alphabetic/auto-shifted layouts.
-    private static final int FORCIBLE_CACHE_SIZE = 4;
-    // By construction of soft references, anything that is also referenced somewhere else
-    // will stay in the cache. So we forcibly keep some references in an array to prevent
-    // them from disappearing from sKeyboardCache.
-    private static final Keyboard[] sForcibleKeyboardCache = new Keyboard[FORCIBLE_CACHE_SIZE];
-    private static final HashMap<KeyboardId, SoftReference<Keyboard>> sKeyboardCache = new HashMap<>();
+    // Keyboards are cached up to this estimated size, or less on devices with little memory.
+    // A typical keyboard is around 50 kB, see Keyboard.getEstimatedMemorySize.
+    private static final int MAX_KEYBOARD_CACHE_BYTES = 4 * 1024 * 1024;
+    private static final int MIN_KEYBOARD_CACHE_BYTES = 512 * 1024;
+    // Evicted keyboards release their native proximity info right away instead of on
+    // finalization. It's created again if an evicted keyboard is still in use.
+    private static final LruCache<KeyboardId, Keyboard> sKeyboardCache =
+            new LruCache<>(getKeyboardCacheBytes()) {
+                @Override
+                protected int sizeOf(final KeyboardId id, final Keyboard keyboard) {
+                    return keyboard.getEstimatedMemorySize();
+                }
+
+                @Override
+                protected void entryRemoved(final boolean evicted, final KeyboardId id,
+                        final Keyboard oldKeyboard, final Keyboard newKeyboard) {
+                    if (oldKeyboard != newKeyboard) {
+                        oldKeyboard.getProximityInfo().releaseNativeMemory();
+                    }
+                }
+            };
     @NonNull
     private static final UniqueKeysCache sUniqueKeysCache = UniqueKeysCache.newInstance();
+    // Keyboards are also created by the spell checker on other threads. Only one keyboard is
+    // created at a time, as the layout caches used by the parsers are not thread safe.
+    private static final ReentrantLock sKeyboardCacheLock = new ReentrantLock();
+    // Incremented whenever the cache is cleared, layout sets created before are outdated.
+    private static volatile int sCacheGeneration;
+    private final int mCacheGeneration;
 
     public static final class KeyboardLayoutSetException extends RuntimeException {
         public final KeyboardId mKeyboardId;
@@ -103,16 +123,52 @@ public final class KeyboardLayoutSet {
         clearKeyboardCache();
     }
 
+    private static int getKeyboardCacheBytes() {
+        final long maxBytes = Runtime.getRuntime().maxMemory() / 64;
+        return (int) Math.max(MIN_KEYBOARD_CACHE_BYTES, Math.min(MAX_KEYBOARD_CACHE_BYTES, maxBytes));
+    }
+
+    /**
+     * @return size, hit and miss counts of the keyboard cache, for debugging and tuning the size
+     */
+    public static String getKeyboardCacheStatsForDebug() {
+        return String.format(Locale.ROOT, "Keyboard cache: %d keyboards, %d of %d kB, %d hits, %d misses, %d evictions",
+                sKeyboardCache.snapshot().size(), sKeyboardCache.size() / 1024, sKeyboardCache.maxSize() / 1024,
+                sKeyboardCache.hitCount(), sKeyboardCache.missCount(), sKeyboardCache.evictionCount());
+    }
+
+    /**
+     * @return a cached unshifted alphabet keyboard for the locale, or null if there is none
+     */
+    @Nullable
+    public static Keyboard getCachedAlphabetKeyboard(final Locale locale) {
+        // not locking sKeyboardCacheLock, the snapshot is enough and keyboards may be created meanwhile
+        for (final Map.Entry<KeyboardId, Keyboard> entry : sKeyboardCache.snapshot().entrySet()) {
+            final KeyboardId id = entry.getKey();
+            if (id.mElementId == KeyboardId.ELEMENT_ALPHABET && locale.equals(id.getLocale())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
     private static void clearKeyboardCache() {
-        sKeyboardCache.clear();
-        sUniqueKeysCache.clear();
-        LayoutParser.INSTANCE.clearCache();
-        KeyboardIconsSet.Companion.setNeedsReload(true);
+        sKeyboardCacheLock.lock();
+        try {
+            sCacheGeneration++;
+            sKeyboardCache.evictAll();
+            sUniqueKeysCache.clear();
+            LayoutParser.INSTANCE.clearCache();
+            KeyboardIconsSet.Companion.setNeedsReload(true);
+        } finally {
+            sKeyboardCacheLock.unlock();
+        }
     }
 
     KeyboardLayoutSet(final Context context, @NonNull final Params params) {
         mContext = context;
         mParams = params;
+        mCacheGeneration = sCacheGeneration;
         mLocaleKeyboardInfos = LocaleKeyboardInfosKt.getOrCreate(context, params.mSubtype.getLocale());
     }
 
@@ -147,10 +203,43 @@ public final class KeyboardLayoutSet {
         }
     }
 
+    /**
+     * Creates the keyboard for the given element if it is not cached yet, so switching to it does
+     * not need to wait for parsing the layout. Does nothing if the keyboard cache was cleared, as
+     * this layout set is outdated then.
+     * @return false if the keyboard was not created because another keyboard is being created,
+     * e.g. by the spell checker, so the caller should try again later instead of waiting for it
+     */
+    boolean prewarmKeyboard(final int baseKeyboardLayoutSetElementId) {
+        if (isOutdated()) return true;
+        if (!sKeyboardCacheLock.tryLock()) return false;
+        try {
+            getKeyboard(baseKeyboardLayoutSetElementId);
+        } catch (final KeyboardLayoutSetException e) {
+            // already logged, and the keyboard is created again when it's actually needed
+        } finally {
+            sKeyboardCacheLock.unlock();
+        }
+        return true;
+    }
+
+    boolean isOutdated() {
+        return mCacheGeneration != sCacheGeneration;
+    }
+
     @NonNull
     private Keyboard getKeyboard(final KeyboardId id) {
-        final SoftReference<Keyboard> ref = sKeyboardCache.get(id);
-        final Keyboard cachedKeyboard = (ref == null) ? null : ref.get();
+        sKeyboardCacheLock.lock();
+        try {
+            return getKeyboardLocked(id);
+        } finally {
+            sKeyboardCacheLock.unlock();
+        }
+    }
+
+    @NonNull
+    private Keyboard getKeyboardLocked(final KeyboardId id) {
+        final Keyboard cachedKeyboard = sKeyboardCache.get(id);
         if (cachedKeyboard != null) {
             if (DEBUG_CACHE) {
                 Log.d(TAG, "keyboard cache size=" + sKeyboardCache.size() + ": HIT  id=" + id);
@@ -166,22 +255,9 @@ public final class KeyboardLayoutSet {
             builder.disableTouchPositionCorrectionDataForTest();
         }
         final Keyboard keyboard = builder.build();
-        sKeyboardCache.put(id, new SoftReference<>(keyboard));
-        if ((id.mElementId == KeyboardId.ELEMENT_ALPHABET
-                || id.mElementId == KeyboardId.ELEMENT_ALPHABET_AUTOMATIC_SHIFTED)
-                && !mParams.mIsSpellChecker) {
-            // We only forcibly cache the primary, "ALPHABET", layouts.
-            for (int i = sForcibleKeyboardCache.length - 1; i >= 1; --i) {
-                sForcibleKeyboardCache[i] = sForcibleKeyboardCache[i - 1];
-            }
-            sForcibleKeyboardCache[0] = keyboard;
-            if (DEBUG_CACHE) {
-                Log.d(TAG, "forcing caching of keyboard with id=" + id);
-            }
-        }
+        sKeyboardCache.put(id, keyboard);
         if (DEBUG_CACHE) {
-            Log.d(TAG, "keyboard cache size=" + sKeyboardCache.size() + ": "
-                    + ((ref == null) ? "LOAD" : "GCed") + " id=" + id);
+            Log.d(TAG, "keyboard cache size=" + sKeyboardCache.size() + ": LOAD id=" + id);
         }
         return keyboard;
     }
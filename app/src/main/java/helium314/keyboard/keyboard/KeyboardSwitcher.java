@@ -13,6 +13,8 @@ import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.view.ContextThemeWrapper;
 import android.view.Gravity;
 import android.view.LayoutInflater;
@@ -54,8 +56,17 @@ import helium314.keyboard.latin.utils.SubtypeUtilsAdditional;
 
 public final class KeyboardSwitcher implements KeyboardState.SwitchActions {
     private static final String TAG = KeyboardSwitcher.class.getSimpleName();
+    private static final int[] PREWARMED_ELEMENT_IDS = new int[] {
+            KeyboardId.ELEMENT_ALPHABET_AUTOMATIC_SHIFTED,
+            KeyboardId.ELEMENT_SYMBOLS,
+            KeyboardId.ELEMENT_ALPHABET_MANUAL_SHIFTED,
+            KeyboardId.ELEMENT_SYMBOLS_SHIFTED,
+            KeyboardId.ELEMENT_ALPHABET_SHIFT_LOCKED,
+            KeyboardId.ELEMENT_NUMPAD
+    };
 
     private InputView mCurrentInputView;
+    private MessageQueue.IdleHandler mKeyboardPrewarmer;
     private KeyboardWrapperView mKeyboardViewWrapper;
     private View mMainKeyboardFrame;
     private MainKeyboardView mKeyboardView;
@@ -141,36 +152,17 @@ public final class KeyboardSwitcher implements KeyboardState.SwitchActions {
 
     public void loadKeyboard(final EditorInfo editorInfo, final SettingsValues settingsValues,
             final int currentAutoCapsState, final int currentRecapitalizeState) {
-        final KeyboardLayoutSet.Builder builder = new KeyboardLayoutSet.Builder(
-                mThemeContext, editorInfo);
-        final int keyboardWidth = ResourceUtils.getKeyboardWidth(mThemeContext, settingsValues);
-        final int keyboardHeight = ResourceUtils.getKeyboardHeight(mThemeContext.getResources(), settingsValues);
         final boolean oneHandedModeEnabled = settingsValues.mOneHandedModeEnabled;
-        mKeyboardLayoutSet = builder.setKeyboardGeometry(keyboardWidth, keyboardHeight)
-                .setSubtype(mRichImm.getCurrentSubtype())
-                .setVoiceInputKeyEnabled(settingsValues.mShowsVoiceInputKey)
-                .setNumberRowEnabled(settingsValues.mShowsNumberRow)
-                .setLanguageSwitchKeyEnabled(settingsValues.isLanguageSwitchKeyEnabled())
-                .setEmojiKeyEnabled(settingsValues.mShowsEmojiKey)
-                .setSplitLayoutEnabled(settingsValues.mIsSplitKeyboardEnabled)
-                .setOneHandedModeEnabled(oneHandedModeEnabled)
-                .build();
+        mKeyboardLayoutSet = newKeyboardLayoutSet(mThemeContext, editorInfo, settingsValues, mRichImm.getCurrentSubtype());
         try {
             mState.onLoadKeyboard(currentAutoCapsState, currentRecapitalizeState, oneHandedModeEnabled);
+            prewarmKeyboards(mKeyboardLayoutSet, editorInfo, settingsValues);
         } catch (KeyboardLayoutSetException e) {
             Log.e(TAG, "loading keyboard failed: " + e.mKeyboardId, e.getCause());
             try {
                 final InputMethodSubtype qwerty = SubtypeUtilsAdditional.INSTANCE
                         .createEmojiCapableAdditionalSubtype(mRichImm.getCurrentSubtypeLocale(), SubtypeLocaleUtils.QWERTY, true);
-                mKeyboardLayoutSet = builder.setKeyboardGeometry(keyboardWidth, keyboardHeight)
-                        .setSubtype(RichInputMethodSubtype.Companion.get(qwerty))
-                        .setVoiceInputKeyEnabled(settingsValues.mShowsVoiceInputKey)
-                        .setNumberRowEnabled(settingsValues.mShowsNumberRow)
-                        .setLanguageSwitchKeyEnabled(settingsValues.isLanguageSwitchKeyEnabled())
-                        .setEmojiKeyEnabled(settingsValues.mShowsEmojiKey)
-                        .setSplitLayoutEnabled(settingsValues.mIsSplitKeyboardEnabled)
-                        .setOneHandedModeEnabled(oneHandedModeEnabled)
-                        .build();
+                mKeyboardLayoutSet = newKeyboardLayoutSet(mThemeContext, editorInfo, settingsValues, RichInputMethodSubtype.Companion.get(qwerty));
                 mState.onLoadKeyboard(currentAutoCapsState, currentRecapitalizeState, oneHandedModeEnabled);
                 showToast("error loading the keyboard, falling back to qwerty", false);
             } catch (KeyboardLayoutSetException e2) {
@@ -179,6 +171,71 @@ public final class KeyboardSwitcher implements KeyboardState.SwitchActions {
         }
     }
 
+    private static KeyboardLayoutSet newKeyboardLayoutSet(final Context themeContext, final EditorInfo editorInfo,
+            final SettingsValues settingsValues, @NonNull final RichInputMethodSubtype subtype) {
+        final int keyboardWidth = ResourceUtils.getKeyboardWidth(themeContext, settingsValues);
+        final int keyboardHeight = ResourceUtils.getKeyboardHeight(themeContext.getResources(), settingsValues);
+        return new KeyboardLayoutSet.Builder(themeContext, editorInfo)
+                .setKeyboardGeometry(keyboardWidth, keyboardHeight)
+                .setSubtype(subtype)
+                .setVoiceInputKeyEnabled(settingsValues.mShowsVoiceInputKey)
+                .setNumberRowEnabled(settingsValues.mShowsNumberRow)
+                .setLanguageSwitchKeyEnabled(settingsValues.isLanguageSwitchKeyEnabled())
+                .setEmojiKeyEnabled(settingsValues.mShowsEmojiKey)
+                .setSplitLayoutEnabled(settingsValues.mIsSplitKeyboardEnabled)
+                .setOneHandedModeEnabled(settingsValues.mOneHandedModeEnabled)
+                .build();
+    }
+
+    /**
+     * Creates the keyboards the user is likely to switch to next while the UI thread is idle, one
+     * keyboard per idle pass, so the first switch to them does not need to parse the layout.
+     * They are not created in the background, because parsing reads settings and icons that are
+     * only safe to use on the UI thread.
+     */
+    private void prewarmKeyboards(final KeyboardLayoutSet layoutSet, final EditorInfo editorInfo,
+            final SettingsValues settingsValues) {
+        final InputMethodSubtype nextSubtype = mRichImm.hasMultipleEnabledSubtypesInThisIme(false)
+                ? mRichImm.getNextSubtypeInThisIme(true) : null;
+        final Context themeContext = mThemeContext;
+        final MessageQueue queue = Looper.myQueue();
+        if (mKeyboardPrewarmer != null) {
+            queue.removeIdleHandler(mKeyboardPrewarmer);
+        }
+        mKeyboardPrewarmer = new MessageQueue.IdleHandler() {
+            private int mIndex;
+            private KeyboardLayoutSet mNextSubtypeLayoutSet;
+
+            @Override
+            public boolean queueIdle() {
+                if (layoutSet.isOutdated()) {
+                    mKeyboardPrewarmer = null;
+                    return false;
+                }
+                // if a keyboard is being created elsewhere, the same keyboard is tried again
+                // on the next idle pass instead of blocking the UI thread
+                if (mIndex < PREWARMED_ELEMENT_IDS.length) {
+                    if (layoutSet.prewarmKeyboard(PREWARMED_ELEMENT_IDS[mIndex])) {
+                        mIndex++;
+                    }
+                    return true;
+                }
+                if (nextSubtype != null) {
+                    if (mNextSubtypeLayoutSet == null) {
+                        mNextSubtypeLayoutSet = newKeyboardLayoutSet(themeContext, editorInfo,
+                                settingsValues, RichInputMethodSubtype.Companion.get(nextSubtype));
+                    }
+                    if (!mNextSubtypeLayoutSet.prewarmKeyboard(KeyboardId.ELEMENT_ALPHABET)) {
+                        return true;
+                    }
+                }
+                mKeyboardPrewarmer = null;
+                return false;
+            }
+        };
+        queue.addIdleHandler(mKeyboardPrewarmer);
+    }
+
     public void saveKeyboardState() {
         if (getKeyboard() != null || isShowingEmojiPalettes() || isShowingClipboardHistory()) {
             mState.onSaveKeyboardState();
@@ -715,6 +772,15 @@ public final class KeyboardSwitcher implements KeyboardState.SwitchActions {
         mLatinIME.switchToSubtype(subtype);
     }
 
+    // used for emoji search
+    public String getWordBeforeCursor() {
+        return mLatinIME.getWordBeforeCursor();
+    }
+
+    public void deleteWordBeforeCursor(final String word) {
+        mLatinIME.deleteWordBeforeCursor(word);
+    }
+
     // used for debug
     public String getLocaleAndConfidenceInfo() {
         return mLatinIME.getLocaleAndConfidenceInfo();
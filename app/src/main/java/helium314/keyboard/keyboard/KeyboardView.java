@@ -15,11 +15,13 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Paint.Align;
+import android.graphics.Point;
 import android.graphics.PorterDuff;
 import android.graphics.Rect;
 import android.graphics.Typeface;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.NinePatchDrawable;
+import android.os.Build;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.view.View;
@@ -93,6 +95,18 @@ public class KeyboardView extends View {
     /** The canvas for the above mutable keyboard bitmap */
     @NonNull
     private final Canvas mOffscreenCanvas = new Canvas();
+    /** Rendered faces of keys that only change with their own state, see {@link #canCacheKeyFace} */
+    @Nullable
+    private KeyFaceCache mKeyFaceCache;
+    /** The canvas for drawing a key face into its cached bitmap */
+    @NonNull
+    private final Canvas mKeyFaceCanvas = new Canvas();
+    private final Rect mKeyFaceBounds = new Rect();
+    private final Point mKeyBackgroundOffset = new Point();
+    /** Display lists of the keys when drawing hardware accelerated, null before API 29 */
+    @Nullable
+    private final KeyRenderNodes mKeyRenderNodes;
+    private final KeyRenderNodes.KeyDrawer mKeyDrawer = (key, canvas) -> onDrawKeyContent(key, canvas, mPaint);
     @NonNull
     private final Paint mPaint = new Paint();
     private final Paint.FontMetrics mFontMetrics = new Paint.FontMetrics();
@@ -147,6 +161,7 @@ public class KeyboardView extends View {
 
         mPaint.setAntiAlias(true);
         mTypeface = Settings.getInstance().getCustomTypeface();
+        mKeyRenderNodes = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q ? new KeyRenderNodes() : null;
     }
 
     @Nullable
@@ -162,6 +177,8 @@ public class KeyboardView extends View {
 
     public void setHardwareAcceleratedDrawingEnabled(final boolean enabled) {
         if (!enabled) return;
+        // with a display list per key redrawing is cheap, a full size layer only costs memory
+        if (mKeyRenderNodes != null) return;
         // TODO: Should use LAYER_TYPE_SOFTWARE when hardware acceleration is off?
         setLayerType(LAYER_TYPE_HARDWARE, null);
     }
@@ -183,6 +200,9 @@ public class KeyboardView extends View {
             setBackgroundColor(Color.TRANSPARENT);
         }
 
+        if (mKeyRenderNodes != null && keyboard != mKeyboard) {
+            mKeyRenderNodes.clear();
+        }
         mKeyboard = keyboard;
         mKeyScaleForText = (float) Math.sqrt(1 / Settings.getInstance().getCurrent().mKeyboardHeightScale);
         final int scaledKeyHeight = (int) ((keyboard.mMostCommonKeyHeight - keyboard.mVerticalGap) * mKeyScaleForText);
@@ -284,13 +304,26 @@ public class KeyboardView extends View {
         mShowsHints = Settings.getInstance().getCurrent().mShowsHints;
         final float scale = Settings.getInstance().getCurrent().mKeyboardHeightScale;
         mIconScaleFactor = scale < 0.8f ? scale + 0.2f : 1f;
+        if (mKeyFaceCache != null) {
+            mKeyFaceCache.validate(mKeyDrawParams, mFontSizeMultiplier, mKeyScaleForText,
+                    mIconScaleFactor, mShowsHints);
+        }
         final Paint paint = mPaint;
         final Drawable background = getBackground();
         // Calculate clip region and set.
         final boolean drawAllKeys = mInvalidateAllKeys || mInvalidatedKeys.isEmpty();
         final boolean isHardwareAccelerated = canvas.isHardwareAccelerated();
-        // TODO: Confirm if it's really required to draw all keys when hardware acceleration is on.
-        if (drawAllKeys || isHardwareAccelerated) {
+        if (isHardwareAccelerated && mKeyRenderNodes != null) {
+            // Only invalidated keys are recorded again, the others replay their display lists.
+            final int paddingLeft = getPaddingLeft();
+            final int paddingTop = getPaddingTop();
+            for (final Key key : keyboard.getSortedKeys()) {
+                final boolean invalidated = mInvalidateAllKeys || mInvalidatedKeys.contains(key);
+                mKeyRenderNodes.drawKey(canvas, key, key.getDrawX() + paddingLeft,
+                        key.getY() + paddingTop, invalidated, mKeyDrawer);
+            }
+        } else if (drawAllKeys || isHardwareAccelerated) {
+            // TODO: Confirm if it's really required to draw all keys when hardware acceleration is on.
             if (!isHardwareAccelerated && background != null) {
                 // Need to draw keyboard background on {@link #mOffscreenBuffer}.
                 canvas.drawColor(Color.BLACK, PorterDuff.Mode.CLEAR);
@@ -329,25 +362,99 @@ public class KeyboardView extends View {
         final int keyDrawX = key.getDrawX() + getPaddingLeft();
         final int keyDrawY = key.getY() + getPaddingTop();
         canvas.translate(keyDrawX, keyDrawY);
+        onDrawKeyContent(key, canvas, paint);
+        canvas.translate(-keyDrawX, -keyDrawY);
+    }
 
+    // Draws the key with the canvas origin at the top left corner of the key.
+    private void onDrawKeyContent(@NonNull final Key key, @NonNull final Canvas canvas,
+            @NonNull final Paint paint) {
         final KeyVisualAttributes attr = key.getVisualAttributes();
         // don't use the raw key height, linear font scaling with height is too extreme
         final KeyDrawParams params = mKeyDrawParams.mayCloneAndUpdateParams((int) (key.getHeight() * mKeyScaleForText), attr);
         params.mAnimAlpha = Constants.Color.ALPHA_OPAQUE;
 
+        if (canCacheKeyFace(key)) {
+            onDrawCachedKeyFace(key, canvas, paint, params);
+        } else {
+            onDrawKeyFace(key, canvas, paint, params);
+        }
+    }
+
+    private void onDrawKeyFace(@NonNull final Key key, @NonNull final Canvas canvas,
+            @NonNull final Paint paint, @NonNull final KeyDrawParams params) {
         if (!key.isSpacer()) {
-            final Drawable background = key.selectBackgroundDrawable(
-                    mKeyBackground, mFunctionalKeyBackground, mSpacebarBackground, mActionKeyBackground);
-            onDrawKeyBackground(key, canvas, background);
+            onDrawKeyBackground(key, canvas, selectKeyBackground(key));
         }
         onDrawKeyTopVisuals(key, canvas, paint, params);
+    }
 
-        canvas.translate(-keyDrawX, -keyDrawY);
+    // Draws the key face from the cache, rendering it first if this is the first key looking like this.
+    private void onDrawCachedKeyFace(@NonNull final Key key, @NonNull final Canvas canvas,
+            @NonNull final Paint paint, @NonNull final KeyDrawParams params) {
+        if (mKeyFaceCache == null) {
+            mKeyFaceCache = new KeyFaceCache();
+            mKeyFaceCache.validate(mKeyDrawParams, mFontSizeMultiplier, mKeyScaleForText,
+                    mIconScaleFactor, mShowsHints);
+        }
+        // the shift key icon is colored depending on the keyboard
+        final int variant = key.isShift() && mKeyboard != null ? mKeyboard.mId.mElementId : 0;
+        KeyFaceCache.KeyFace face = mKeyFaceCache.get(key, variant);
+        if (face == null) {
+            final Rect bounds = mKeyFaceBounds;
+            getKeyFaceBounds(key, bounds);
+            if (bounds.isEmpty()) {
+                onDrawKeyFace(key, canvas, paint, params);
+                return;
+            }
+            final Bitmap bitmap = Bitmap.createBitmap(bounds.width(), bounds.height(),
+                    Bitmap.Config.ARGB_8888);
+            mKeyFaceCanvas.setBitmap(bitmap);
+            mKeyFaceCanvas.translate(-bounds.left, -bounds.top);
+            onDrawKeyFace(key, mKeyFaceCanvas, paint, params);
+            mKeyFaceCanvas.setBitmap(null);
+            mKeyFaceCanvas.setMatrix(null);
+            face = new KeyFaceCache.KeyFace(bitmap, bounds.left, bounds.top);
+            mKeyFaceCache.put(key, variant, face);
+        }
+        canvas.drawBitmap(face.mBitmap, face.mLeft, face.mTop, null);
     }
 
-    // Draw key background.
-    protected void onDrawKeyBackground(@NonNull final Key key, @NonNull final Canvas canvas,
-            @NonNull final Drawable background) {
+    // Area relative to the key that may be drawn on by the key background and top visuals.
+    private void getKeyFaceBounds(@NonNull final Key key, @NonNull final Rect outBounds) {
+        outBounds.set(0, 0, key.getDrawWidth(), key.getHeight());
+        if (!key.isSpacer()) {
+            final Drawable background = selectKeyBackground(key);
+            setKeyBackgroundBounds(key, background);
+            final Rect bgBounds = background.getBounds();
+            final int bgX = mKeyBackgroundOffset.x;
+            final int bgY = mKeyBackgroundOffset.y;
+            outBounds.union(bgX, bgY, bgX + bgBounds.width(), bgY + bgBounds.height());
+        }
+        // leave room for the text shadow
+        if (mKeyTextShadowRadius > 0.0f) {
+            final int shadow = (int) Math.ceil(mKeyTextShadowRadius);
+            outBounds.inset(-shadow, -shadow);
+        }
+    }
+
+    /**
+     * Returns whether the face of the key only depends on the key's own state, so it can be drawn
+     * once and reused for all keys that look the same. Keys with content that changes, or views
+     * with keys that rarely look the same, should not be cached.
+     */
+    protected boolean canCacheKeyFace(@NonNull final Key key) {
+        return false;
+    }
+
+    @NonNull
+    private Drawable selectKeyBackground(@NonNull final Key key) {
+        return key.selectBackgroundDrawable(
+                mKeyBackground, mFunctionalKeyBackground, mSpacebarBackground, mActionKeyBackground);
+    }
+
+    // Sets the bounds of the key background and its offset from the key into mKeyBackgroundOffset.
+    private void setKeyBackgroundBounds(@NonNull final Key key, @NonNull final Drawable background) {
         final int keyWidth = key.getDrawWidth();
         final int keyHeight = key.getHeight();
         final int bgWidth, bgHeight, bgX, bgY;
@@ -366,6 +473,15 @@ public class KeyboardView extends View {
             bgX = -padding.left;
         }
         background.setBounds(0, 0, bgWidth, bgHeight);
+        mKeyBackgroundOffset.set(bgX, bgY);
+    }
+
+    // Draw key background.
+    protected void onDrawKeyBackground(@NonNull final Key key, @NonNull final Canvas canvas,
+            @NonNull final Drawable background) {
+        setKeyBackgroundBounds(key, background);
+        final int bgX = mKeyBackgroundOffset.x;
+        final int bgY = mKeyBackgroundOffset.y;
         canvas.translate(bgX, bgY);
         background.draw(canvas);
         canvas.translate(-bgX, -bgY);
@@ -603,10 +719,26 @@ public class KeyboardView extends View {
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
         freeOffscreenBuffer();
+        freeKeyFaceCache();
+        freeKeyRenderNodes();
     }
 
     public void deallocateMemory() {
         freeOffscreenBuffer();
+        freeKeyFaceCache();
+        freeKeyRenderNodes();
+    }
+
+    private void freeKeyRenderNodes() {
+        if (mKeyRenderNodes != null) {
+            mKeyRenderNodes.clear();
+        }
+    }
+
+    private void freeKeyFaceCache() {
+        if (mKeyFaceCache != null) {
+            mKeyFaceCache.clear();
+        }
     }
 
     private void setKeyIconColor(Key key, Drawable icon, Keyboard keyboard) {
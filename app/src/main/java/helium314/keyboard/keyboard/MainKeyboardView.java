@@ -690,6 +690,15 @@ public final class MainKeyboardView extends KeyboardView implements DrawingProxy
         invalidateKey(mSpaceKey);
     }
 
+    @Override
+    protected boolean canCacheKeyFace(@NonNull final Key key) {
+        // the space bar shows the language, the language switch key depends on the enabled
+        // subtypes, and alt code keys fade while typing
+        final int code = key.getCode();
+        return code != Constants.CODE_SPACE && code != KeyCode.LANGUAGE_SWITCH
+                && !key.altCodeWhileTyping();
+    }
+
     @Override
     protected void onDrawKeyTopVisuals(@NonNull final Key key, @NonNull final Canvas canvas,
             @NonNull final Paint paint, @NonNull final KeyDrawParams params) {
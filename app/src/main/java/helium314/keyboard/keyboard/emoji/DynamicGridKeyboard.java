@@ -147,9 +147,37 @@ final class DynamicGridKeyboard extends Keyboard {
         addKey(usedKey, false);
     }
 
+    /** Adds the keys like {@link #addKeyLast(Key)}, but lays out the grid only once. */
+    public void addKeysLast(final List<Key> usedKeys) {
+        synchronized (mLock) {
+            for (final Key usedKey : usedKeys) {
+                insertKey(usedKey, false);
+            }
+            updateKeyCoordinates();
+        }
+    }
+
+    /** Adds keys for the emojis like {@link #addKeysLast(List)}, without popup keys. */
+    public void addEmojisLast(final List<String> emojis) {
+        final ArrayList<Key> keys = new ArrayList<>(emojis.size());
+        for (final String emoji : emojis) {
+            keys.add(emoji.codePointCount(0, emoji.length()) == 1
+                    ? createKey(emoji.codePointAt(0), null) : createKey(0, emoji));
+        }
+        addKeysLast(keys);
+    }
+
     private void addKey(final Key usedKey, final boolean addFirst) {
+        synchronized (mLock) {
+            if (insertKey(usedKey, addFirst)) {
+                updateKeyCoordinates();
+            }
+        }
+    }
+
+    private boolean insertKey(final Key usedKey, final boolean addFirst) {
         if (usedKey == null) {
-            return;
+            return false;
         }
         synchronized (mLock) {
             mCachedGridKeys = null;
@@ -174,6 +202,12 @@ final class DynamicGridKeyboard extends Keyboard {
             while (mGridKeys.size() > mMaxKeyCount) {
                 mGridKeys.removeLast();
             }
+            return true;
+        }
+    }
+
+    private void updateKeyCoordinates() {
+        synchronized (mLock) {
             int index = 0;
             for (final GridKey gridKey : mGridKeys) {
                 while (mEmptyColumnIndices.contains(index % mColumnsNum)) {
@@ -213,7 +247,7 @@ final class DynamicGridKeyboard extends Keyboard {
         }
 
         // fall back to creating the key
-        return new Key(getTemplateKey(TEMPLATE_KEY_CODE_0), null, null, Key.BACKGROUND_TYPE_EMPTY, code, null);
+        return createKey(code, null);
     }
 
     private Key getKeyByOutputText(final Collection<DynamicGridKeyboard> keyboards,
@@ -227,7 +261,11 @@ final class DynamicGridKeyboard extends Keyboard {
         }
 
         // fall back to creating the key
-        return new Key(getTemplateKey(TEMPLATE_KEY_CODE_0), null, null, Key.BACKGROUND_TYPE_EMPTY, 0, outputText);
+        return createKey(0, outputText);
+    }
+
+    private Key createKey(final int code, @Nullable final String outputText) {
+        return new Key(getTemplateKey(TEMPLATE_KEY_CODE_0), null, null, Key.BACKGROUND_TYPE_EMPTY, code, outputText);
     }
 
     public void loadRecentKeys(final Collection<DynamicGridKeyboard> keyboards) {
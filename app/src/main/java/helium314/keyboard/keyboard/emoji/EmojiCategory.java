@@ -10,15 +10,16 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
-import android.graphics.Paint;
 import android.graphics.Rect;
+import android.os.Looper;
+import android.os.MessageQueue;
 
 import helium314.keyboard.latin.common.DefaultColors;
 import helium314.keyboard.latin.settings.Defaults;
 import helium314.keyboard.latin.utils.KtxKt;
 import helium314.keyboard.latin.utils.Log;
 
-import androidx.core.graphics.PaintCompat;
+import androidx.annotation.Nullable;
 import helium314.keyboard.keyboard.Key;
 import helium314.keyboard.keyboard.Keyboard;
 import helium314.keyboard.keyboard.KeyboardId;
@@ -28,11 +29,10 @@ import helium314.keyboard.latin.settings.Settings;
 import helium314.keyboard.latin.utils.ResourceUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
 
 final class EmojiCategory {
     private final String TAG = EmojiCategory.class.getSimpleName();
@@ -51,6 +51,7 @@ final class EmojiCategory {
     private static final int ID_EMOTICONS = 10;
 
     private static final int MAX_LINE_COUNT_PER_PAGE = 3;
+    private static final int MAX_CACHED_PAGE_COUNT = 8;
 
     public final class CategoryProperties {
         public final int mCategoryId;
@@ -125,10 +126,20 @@ final class EmojiCategory {
     private final HashMap<String, Integer> mCategoryNameToIdMap = new HashMap<>();
     private final int[] mCategoryTabIconId = new int[sCategoryName.length];
     private final ArrayList<CategoryProperties> mShownCategories = new ArrayList<>();
-    private final ConcurrentHashMap<Long, DynamicGridKeyboard> mCategoryKeyboardMap = new ConcurrentHashMap<>();
+    // pages are built when shown or when prefetched for scrolling, and only the recent ones are kept
+    private final EmojiPageCache mCategoryPageCache = new EmojiPageCache(MAX_CACHED_PAGE_COUNT, this::buildPage);
+    // keys of each category in the order they are shown, for building pages
+    private final HashMap<Integer, Key[]> mSortedCategoryKeys = new HashMap<>();
+    private DynamicGridKeyboard mRecentsKeyboard;
+    private int mMaxKeyCountPerPage = -1;
+    @Nullable
+    private MessageQueue.IdleHandler mPagePrefetcher;
 
     private int mCurrentCategoryId = EmojiCategory.ID_UNSPECIFIED;
     private int mCurrentCategoryPageId = 0;
+    // shown instead of the current category while not null
+    @Nullable
+    private DynamicGridKeyboard mSearchResultsKeyboard;
 
     public EmojiCategory(final Context ctx, final KeyboardLayoutSet layoutSet, final TypedArray emojiPaletteViewAttr) {
         mPrefs = KtxKt.prefs(ctx);
@@ -174,7 +185,12 @@ final class EmojiCategory {
     }
 
     public void clearKeyboardCache() {
-        mCategoryKeyboardMap.clear();
+        cancelPrefetch();
+        mCategoryPageCache.clear();
+        mSortedCategoryKeys.clear();
+        mRecentsKeyboard = null;
+        mMaxKeyCountPerPage = -1;
+        mSearchResultsKeyboard = null;
         for (CategoryProperties props: mShownCategories)
             props.mPageCount = -1; // reset page count in case size (number of keys per row) changed
     }
@@ -220,6 +236,7 @@ final class EmojiCategory {
     }
 
     public int getCurrentCategoryPageCount() {
+        if (mSearchResultsKeyboard != null) return 1;
         return getCategoryPageCount(mCurrentCategoryId);
     }
 
@@ -235,6 +252,7 @@ final class EmojiCategory {
     }
 
     public void setCurrentCategoryId(final int categoryId) {
+        mSearchResultsKeyboard = null;
         mCurrentCategoryId = categoryId;
         mPrefs.edit().putInt(Settings.PREF_LAST_SHOWN_EMOJI_CATEGORY_ID, categoryId).apply();
     }
@@ -249,7 +267,46 @@ final class EmojiCategory {
     }
 
     public boolean isInRecentTab() {
-        return mCurrentCategoryId == EmojiCategory.ID_RECENTS;
+        return mCurrentCategoryId == EmojiCategory.ID_RECENTS && mSearchResultsKeyboard == null;
+    }
+
+    public boolean isSearching() {
+        return mSearchResultsKeyboard != null;
+    }
+
+    /**
+     * Shows the emojis with names matching the query instead of the current category. Keys are
+     * created from the search results, so no category keyboards need to be built for searching.
+     * @return whether search results are shown, false if nothing matches
+     */
+    public boolean showSearchResults(final EmojiSearchIndex searchIndex, final String query) {
+        mSearchResultsKeyboard = null;
+        final int maxKeyCount = getMaxKeyCountPerPage();
+        final ArrayList<String> emojis = new ArrayList<>();
+        // search for more than needed, some results may have no glyph
+        for (final String emoji : searchIndex.search(query, maxKeyCount * 2)) {
+            if (!EmojiSearchIndex.hasGlyph(emoji)) {
+                continue;
+            }
+            emojis.add(emoji);
+            if (emojis.size() >= maxKeyCount) {
+                break;
+            }
+        }
+        if (emojis.isEmpty()) {
+            return false;
+        }
+        final DynamicGridKeyboard resultsKeyboard = new DynamicGridKeyboard(mPrefs,
+                mLayoutSet.getKeyboard(KeyboardId.ELEMENT_EMOJI_RECENTS), maxKeyCount,
+                EmojiCategory.ID_UNSPECIFIED, ResourceUtils.getKeyboardWidth(mContext, Settings.getInstance().getCurrent()));
+        resultsKeyboard.addEmojisLast(emojis);
+        mSearchResultsKeyboard = resultsKeyboard;
+        return true;
+    }
+
+    /** Shows the current category again instead of search results. */
+    public void clearSearchResults() {
+        mSearchResultsKeyboard = null;
     }
 
     public int getTabIdFromCategoryId(final int categoryId) {
@@ -282,11 +339,14 @@ final class EmojiCategory {
 
     private int computeCategoryPageCount(final int categoryId) {
         final Keyboard keyboard = mLayoutSet.getKeyboard(sCategoryElementId[categoryId]);
-        return (keyboard.getSortedKeys().size() - 1) / computeMaxKeyCountPerPage() + 1;
+        return (keyboard.getSortedKeys().size() - 1) / getMaxKeyCountPerPage() + 1;
     }
 
     // Returns a keyboard from the recycler view's adapter position.
     public DynamicGridKeyboard getKeyboardFromAdapterPosition(final int position) {
+        if (mSearchResultsKeyboard != null) {
+            return position == 0 ? mSearchResultsKeyboard : null;
+        }
         if (position >= 0 && position < getCurrentCategoryPageCount()) {
             return getKeyboard(mCurrentCategoryId, position);
         }
@@ -294,52 +354,111 @@ final class EmojiCategory {
         return null;
     }
 
-    private static Long getCategoryKeyboardMapKey(final int categoryId, final int id) {
-        return (((long) categoryId) << Integer.SIZE) | id;
-    }
-
     public DynamicGridKeyboard getKeyboard(final int categoryId, final int id) {
-        synchronized (mCategoryKeyboardMap) {
-            final Long categoryKeyboardMapKey = getCategoryKeyboardMapKey(categoryId, id);
-            if (mCategoryKeyboardMap.containsKey(categoryKeyboardMapKey)) {
-                return mCategoryKeyboardMap.get(categoryKeyboardMapKey);
-            }
+        if (categoryId == EmojiCategory.ID_RECENTS) {
+            return getRecentsKeyboard();
+        }
+        return mCategoryPageCache.getPage(categoryId, id);
+    }
 
-            final int currentWidth = ResourceUtils.getKeyboardWidth(mContext, Settings.getInstance().getCurrent());
-            if (categoryId == EmojiCategory.ID_RECENTS) {
-                final DynamicGridKeyboard kbd = new DynamicGridKeyboard(mPrefs,
-                        mLayoutSet.getKeyboard(KeyboardId.ELEMENT_EMOJI_RECENTS),
-                        mMaxRecentsKeyCount, categoryId, currentWidth);
-                mCategoryKeyboardMap.put(categoryKeyboardMapKey, kbd);
-                kbd.loadRecentKeys(mCategoryKeyboardMap.values());
-                return kbd;
-            }
+    // builds only the requested page of the category
+    @Nullable
+    private DynamicGridKeyboard buildPage(final int categoryId, final int id) {
+        final Key[] sortedKeys = getSortedCategoryKeys(categoryId);
+        final int keyCountPerPage = getMaxKeyCountPerPage();
+        final int firstKeyIndex = id * keyCountPerPage;
+        if (id < 0 || (id > 0 && firstKeyIndex >= sortedKeys.length)) {
+            Log.w(TAG, "invalid page " + id + " for categoryId : " + categoryId);
+            return null;
+        }
+        final DynamicGridKeyboard keyboard = new DynamicGridKeyboard(mPrefs,
+                mLayoutSet.getKeyboard(KeyboardId.ELEMENT_EMOJI_RECENTS),
+                keyCountPerPage, categoryId, ResourceUtils.getKeyboardWidth(mContext, Settings.getInstance().getCurrent()));
+        keyboard.addKeysLast(Arrays.asList(sortedKeys).subList(firstKeyIndex,
+                Math.min(firstKeyIndex + keyCountPerPage, sortedKeys.length)));
+        return keyboard;
+    }
 
-            final Keyboard keyboard = mLayoutSet.getKeyboard(sCategoryElementId[categoryId]);
-            final int keyCountPerPage = computeMaxKeyCountPerPage();
-            final Key[][] sortedKeysPages = sortKeysGrouped(
-                    keyboard.getSortedKeys(), keyCountPerPage);
-            for (int pageId = 0; pageId < sortedKeysPages.length; ++pageId) {
-                final DynamicGridKeyboard tempKeyboard = new DynamicGridKeyboard(mPrefs,
-                        mLayoutSet.getKeyboard(KeyboardId.ELEMENT_EMOJI_RECENTS),
-                        keyCountPerPage, categoryId, currentWidth);
-                for (final Key emojiKey : sortedKeysPages[pageId]) {
-                    if (emojiKey == null) {
-                        break;
+    /**
+     * Builds the pages next to the given adapter position when the UI thread is idle, so
+     * scrolling to them doesn't need to wait for building them.
+     * One page is built per idle pass, so input is not delayed by more than building one page.
+     */
+    public void prefetchPagesAround(final int position) {
+        cancelPrefetch();
+        if (mSearchResultsKeyboard != null || mCurrentCategoryId == EmojiCategory.ID_RECENTS) {
+            return;
+        }
+        final int categoryId = mCurrentCategoryId;
+        final int[] pageIds = { position + 1, position - 1 };
+        mPagePrefetcher = new MessageQueue.IdleHandler() {
+            private int mIndex;
+
+            @Override
+            public boolean queueIdle() {
+                // stop if the shown pages changed in the meantime
+                if (mSearchResultsKeyboard != null || categoryId != mCurrentCategoryId) {
+                    mPagePrefetcher = null;
+                    return false;
+                }
+                while (mIndex < pageIds.length) {
+                    final int pageId = pageIds[mIndex++];
+                    if (pageId < 0 || pageId >= getCategoryPageCount(categoryId)
+                            || mCategoryPageCache.containsPage(categoryId, pageId)) {
+                        continue;
+                    }
+                    getKeyboard(categoryId, pageId);
+                    if (mIndex < pageIds.length) {
+                        return true;
                     }
-                    tempKeyboard.addKeyLast(emojiKey);
                 }
-                mCategoryKeyboardMap.put(getCategoryKeyboardMapKey(categoryId, pageId), tempKeyboard);
+                mPagePrefetcher = null;
+                return false;
             }
-            return mCategoryKeyboardMap.get(categoryKeyboardMapKey);
+        };
+        Looper.myQueue().addIdleHandler(mPagePrefetcher);
+    }
+
+    private void cancelPrefetch() {
+        if (mPagePrefetcher != null) {
+            Looper.myQueue().removeIdleHandler(mPagePrefetcher);
+            mPagePrefetcher = null;
         }
     }
 
-    private int computeMaxKeyCountPerPage() {
-        final DynamicGridKeyboard tempKeyboard = new DynamicGridKeyboard(mPrefs,
-                mLayoutSet.getKeyboard(KeyboardId.ELEMENT_EMOJI_RECENTS),
-                0, 0, ResourceUtils.getKeyboardWidth(mContext, Settings.getInstance().getCurrent()));
-        return MAX_LINE_COUNT_PER_PAGE * tempKeyboard.getColumnsCount();
+    private DynamicGridKeyboard getRecentsKeyboard() {
+        if (mRecentsKeyboard == null) {
+            final DynamicGridKeyboard kbd = new DynamicGridKeyboard(mPrefs,
+                    mLayoutSet.getKeyboard(KeyboardId.ELEMENT_EMOJI_RECENTS),
+                    mMaxRecentsKeyCount, EmojiCategory.ID_RECENTS,
+                    ResourceUtils.getKeyboardWidth(mContext, Settings.getInstance().getCurrent()));
+            kbd.loadRecentKeys(mCategoryPageCache.getCachedPages());
+            mRecentsKeyboard = kbd;
+        }
+        return mRecentsKeyboard;
+    }
+
+    private Key[] getSortedCategoryKeys(final int categoryId) {
+        final Key[] cachedKeys = mSortedCategoryKeys.get(categoryId);
+        if (cachedKeys != null) {
+            return cachedKeys;
+        }
+        final ArrayList<Key> keys = new ArrayList<>(mLayoutSet.getKeyboard(sCategoryElementId[categoryId]).getSortedKeys());
+        Collections.sort(keys, EMOJI_KEY_COMPARATOR);
+        final Key[] sortedKeys = keys.toArray(new Key[0]);
+        mSortedCategoryKeys.put(categoryId, sortedKeys);
+        return sortedKeys;
+    }
+
+    // the number only depends on the keyboard width, so the template keyboard is created only once
+    private int getMaxKeyCountPerPage() {
+        if (mMaxKeyCountPerPage < 0) {
+            final DynamicGridKeyboard tempKeyboard = new DynamicGridKeyboard(mPrefs,
+                    mLayoutSet.getKeyboard(KeyboardId.ELEMENT_EMOJI_RECENTS),
+                    0, 0, ResourceUtils.getKeyboardWidth(mContext, Settings.getInstance().getCurrent()));
+            mMaxKeyCountPerPage = MAX_LINE_COUNT_PER_PAGE * tempKeyboard.getColumnsCount();
+        }
+        return mMaxKeyCountPerPage;
     }
 
     private static final Comparator<Key> EMOJI_KEY_COMPARATOR = (lhs, rhs) -> {
@@ -361,21 +480,9 @@ final class EmojiCategory {
         return lhs.getCode() < rhs.getCode() ? -1 : 1;
     };
 
-    private static Key[][] sortKeysGrouped(final List<Key> inKeys, final int maxPageCount) {
-        final ArrayList<Key> keys = new ArrayList<>(inKeys);
-        Collections.sort(keys, EMOJI_KEY_COMPARATOR);
-        final int pageCount = (keys.size() - 1) / maxPageCount + 1;
-        final Key[][] retval = new Key[pageCount][maxPageCount];
-        for (int i = 0; i < keys.size(); ++i) {
-            retval[i / maxPageCount][i % maxPageCount] = keys.get(i);
-        }
-        return retval;
-    }
-
     private static boolean canShowFlagEmoji() {
-        Paint paint = new Paint();
         String switzerland = "\uD83C\uDDE8\uD83C\uDDED"; //  U+1F1E8 U+1F1ED Flag for Switzerland
-        return PaintCompat.hasGlyph(paint, switzerland);
+        return EmojiSearchIndex.hasGlyph(switzerland);
     }
 
 }
@@ -0,0 +1,59 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.keyboard.emoji;
+
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+
+import java.util.Collection;
+
+/**
+ * Keeps the recently used emoji category pages. Pages are built on demand by the builder,
+ * so an evicted page is simply built again when it's needed.
+ */
+final class EmojiPageCache {
+    interface PageBuilder {
+        /** Returns the page of the category, or null if there is no such page. */
+        @Nullable
+        DynamicGridKeyboard buildPage(int categoryId, int pageId);
+    }
+
+    private final LruCache<Long, DynamicGridKeyboard> mPages;
+    private final PageBuilder mPageBuilder;
+
+    EmojiPageCache(final int maxPageCount, final PageBuilder pageBuilder) {
+        mPages = new LruCache<>(maxPageCount);
+        mPageBuilder = pageBuilder;
+    }
+
+    private static Long getKey(final int categoryId, final int pageId) {
+        return (((long) categoryId) << Integer.SIZE) | pageId;
+    }
+
+    @Nullable
+    synchronized DynamicGridKeyboard getPage(final int categoryId, final int pageId) {
+        final Long key = getKey(categoryId, pageId);
+        final DynamicGridKeyboard cachedPage = mPages.get(key);
+        if (cachedPage != null) {
+            return cachedPage;
+        }
+        final DynamicGridKeyboard page = mPageBuilder.buildPage(categoryId, pageId);
+        if (page != null) {
+            mPages.put(key, page);
+        }
+        return page;
+    }
+
+    synchronized boolean containsPage(final int categoryId, final int pageId) {
+        return mPages.snapshot().containsKey(getKey(categoryId, pageId));
+    }
+
+    synchronized Collection<DynamicGridKeyboard> getCachedPages() {
+        return mPages.snapshot().values();
+    }
+
+    synchronized void clear() {
+        mPages.evictAll();
+    }
+}
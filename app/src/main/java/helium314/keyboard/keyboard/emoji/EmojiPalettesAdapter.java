@@ -182,6 +182,8 @@ final class EmojiPalettesAdapter extends RecyclerView.Adapter<EmojiPalettesAdapt
         holder.getKeyboardView().setOnKeyEventListener(mListener);
         //parent.addView(keyboardView);
         mActiveKeyboardViews.put(position, holder.getKeyboardView());
+        // pages are built on demand, so prepare the ones the user is likely to scroll to
+        mEmojiCategory.prefetchPagesAround(position);
 
         /*if (mActivePosition == position) {
             return;
@@ -18,6 +18,7 @@ import android.widget.ImageView;
 import android.widget.LinearLayout;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import helium314.keyboard.keyboard.Key;
@@ -30,6 +31,7 @@ import helium314.keyboard.keyboard.KeyboardView;
 import helium314.keyboard.keyboard.MainKeyboardView;
 import helium314.keyboard.keyboard.PointerTracker;
 import helium314.keyboard.keyboard.internal.KeyDrawParams;
+import helium314.keyboard.keyboard.internal.KeyboardIconsSet;
 import helium314.keyboard.keyboard.internal.KeyVisualAttributes;
 import helium314.keyboard.keyboard.internal.keyboard_parser.floris.KeyCode;
 import helium314.keyboard.latin.AudioAndHapticFeedbackManager;
@@ -78,6 +80,10 @@ public final class EmojiPalettesView extends LinearLayout
     private final EmojiCategory mEmojiCategory;
 
     private ImageView mCurrentTab = null;
+    private ImageView mSearchTab;
+    // the word the shown search results were found for, replaced by the first emoji chosen from them
+    @Nullable
+    private String mSearchQuery;
 
     public EmojiPalettesView(final Context context, final AttributeSet attrs) {
         this(context, attrs, R.attr.emojiPalettesViewStyle);
@@ -141,11 +147,26 @@ public final class EmojiPalettesView extends LinearLayout
         iconView.setOnClickListener(this);
     }
 
+    private void addSearchTab(final LinearLayout host) {
+        mSearchTab = new ImageView(getContext());
+        mColors.setBackground(mSearchTab, ColorType.STRIP_BACKGROUND);
+        mColors.setColor(mSearchTab, ColorType.EMOJI_CATEGORY);
+        mSearchTab.setScaleType(ImageView.ScaleType.CENTER);
+        mSearchTab.setImageDrawable(KeyboardIconsSet.Companion.getInstance().getNewDrawable(KeyboardIconsSet.NAME_SEARCH_KEY, getContext()));
+        mSearchTab.setContentDescription(getContext().getString(R.string.label_search_key));
+        host.addView(mSearchTab);
+        mSearchTab.setLayoutParams(new LinearLayout.LayoutParams(0, ViewGroup.LayoutParams.MATCH_PARENT, 1f));
+        mSearchTab.setOnClickListener(this);
+    }
+
     @SuppressLint("ClickableViewAccessibility")
     public void initialize() { // needs to be delayed for access to EmojiTabStrip, which is not a child of this view
         if (initialized) return;
         mEmojiCategory.initialize();
+        // load the names in the background, searching is only possible when they are loaded
+        EmojiSearchIndex.loadInBackground(getContext());
         mTabStrip = (LinearLayout) KeyboardSwitcher.getInstance().getEmojiTabStrip();
+        addSearchTab(mTabStrip);
         for (final EmojiCategory.CategoryProperties properties : mEmojiCategory.getShownCategories()) {
             addTab(mTabStrip, properties.mCategoryId);
         }
@@ -188,6 +209,7 @@ public final class EmojiPalettesView extends LinearLayout
                 final float b = percentage * currentCategorySize - a;
                 mEmojiCategoryPageIndicatorView.setCategoryPageId(currentCategorySize, a, b);
 
+                if (mEmojiCategory.isSearching()) return; // don't overwrite the page of the category
                 final int firstCompleteVisibleBoard = mEmojiLayoutManager.findFirstCompletelyVisibleItemPosition();
                 final int firstVisibleBoard = mEmojiLayoutManager.findFirstVisibleItemPosition();
                 mEmojiCategory.setCurrentCategoryPageId(
@@ -214,17 +236,46 @@ public final class EmojiPalettesView extends LinearLayout
      */
     @Override
     public void onClick(View v) {
+        if (v == mSearchTab) {
+            AudioAndHapticFeedbackManager.getInstance().performHapticAndAudioFeedback(KeyCode.NOT_SPECIFIED, this);
+            searchWordBeforeCursor();
+            return;
+        }
         final Object tag = v.getTag();
         if (tag instanceof Long) {
             AudioAndHapticFeedbackManager.getInstance().performHapticAndAudioFeedback(KeyCode.NOT_SPECIFIED, this);
             final int categoryId = ((Long) tag).intValue();
-            if (categoryId != mEmojiCategory.getCurrentCategoryId()) {
+            if (mEmojiCategory.isSearching()) {
+                // any tab leaves the search results, also the one of the current category
+                setCurrentCategoryAndPageId(categoryId, 0, true);
+                updateEmojiCategoryPageIdView();
+            } else if (categoryId != mEmojiCategory.getCurrentCategoryId()) {
                 setCurrentCategoryAndPageId(categoryId, 0, false);
                 updateEmojiCategoryPageIdView();
             }
         }
     }
 
+    /** Shows the emojis with names matching the word before the cursor, if there are any. */
+    private void searchWordBeforeCursor() {
+        final EmojiSearchIndex searchIndex = EmojiSearchIndex.getLoadedInstance();
+        if (searchIndex == null) {
+            return;
+        }
+        final String query = KeyboardSwitcher.getInstance().getWordBeforeCursor();
+        if (query.isEmpty() || !mEmojiCategory.showSearchResults(searchIndex, query)) {
+            return;
+        }
+        mSearchQuery = query;
+        mEmojiPalettesAdapter.notifyDataSetChanged();
+        mEmojiRecyclerView.scrollToPosition(0);
+        final View current = mTabStrip.findViewWithTag((long) mEmojiCategory.getCurrentCategoryId());
+        if (current instanceof ImageView)
+            mColors.setColor((ImageView) current, ColorType.EMOJI_CATEGORY);
+        mColors.setColor(mSearchTab, ColorType.EMOJI_CATEGORY_SELECTED);
+        updateEmojiCategoryPageIdView();
+    }
+
     /**
      * Called from {@link EmojiPageKeyboardView} through
      * {@link helium314.keyboard.keyboard.emoji.OnKeyEventListener}
@@ -245,6 +296,11 @@ public final class EmojiPalettesView extends LinearLayout
     @Override
     public void onReleaseKey(final Key key) {
         mEmojiPalettesAdapter.addRecentKey(key);
+        if (mSearchQuery != null) {
+            // the emoji replaces the word it was found with, further emojis are added after it
+            KeyboardSwitcher.getInstance().deleteWordBeforeCursor(mSearchQuery);
+            mSearchQuery = null;
+        }
         final int code = key.getCode();
         if (code == KeyCode.MULTIPLE_CODE_POINTS) {
             mKeyboardActionListener.onTextInput(key.getOutputText());
@@ -314,6 +370,11 @@ public final class EmojiPalettesView extends LinearLayout
         if (!initialized) return;
         mEmojiPalettesAdapter.releaseCurrentKey(true);
         mEmojiPalettesAdapter.flushPendingRecentKeys();
+        if (mEmojiCategory.isSearching()) {
+            // show the last category again when the palettes are started
+            mEmojiCategory.clearSearchResults();
+            setCurrentCategoryAndPageId(mEmojiCategory.getCurrentCategoryId(), mEmojiCategory.getCurrentCategoryPageId(), true);
+        }
         mEmojiRecyclerView.setAdapter(null);
     }
 
@@ -342,6 +403,9 @@ public final class EmojiPalettesView extends LinearLayout
         }
 
         if (force || oldCategoryId != categoryId || oldCategoryPageId != categoryPageId) {
+            // also leaves search results
+            mSearchQuery = null;
+            mColors.setColor(mSearchTab, ColorType.EMOJI_CATEGORY);
             mEmojiCategory.setCurrentCategoryId(categoryId);
             mEmojiCategory.setCurrentCategoryPageId(categoryPageId);
             mEmojiPalettesAdapter.notifyDataSetChanged();
@@ -0,0 +1,227 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.keyboard.emoji;
+
+import android.content.Context;
+import android.graphics.Paint;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.core.graphics.PaintCompat;
+
+import helium314.keyboard.latin.utils.ExecutorUtils;
+import helium314.keyboard.latin.utils.Log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Index of the emoji names from assets/emoji/emoji_names.txt (written by tools/make-emoji-keys),
+ * for finding emojis by a prefix of the words in their names.
+ * The words of all names are kept sorted, so the words starting with a prefix are found with a
+ * binary search and are next to each other.
+ */
+final class EmojiSearchIndex {
+    private static final String TAG = EmojiSearchIndex.class.getSimpleName();
+    private static final String NAMES_ASSET = "emoji/emoji_names.txt";
+
+    // a posting is the emoji index shifted left by this, and the position of the word in the name
+    private static final int POSITION_BITS = 3;
+    private static final int MAX_POSITION = (1 << POSITION_BITS) - 1;
+    // a prefix match ranks behind an exact match at any position
+    private static final int PREFIX_MATCH_PENALTY = MAX_POSITION + 1;
+    private static final int NO_MATCH = -1;
+
+    private static volatile EmojiSearchIndex sInstance;
+    private static final AtomicBoolean sLoadStarted = new AtomicBoolean(false);
+
+    // whether the font can draw an emoji doesn't change while the process runs
+    private static final ConcurrentHashMap<String, Boolean> sHasGlyphCache = new ConcurrentHashMap<>();
+    private static final Paint sGlyphPaint = new Paint();
+
+    private final String[] mEmojis;
+    private final int[] mNameLengths;
+    private final String[] mWords;
+    private final int[][] mPostings;
+
+    private EmojiSearchIndex(final String[] emojis, final int[] nameLengths, final String[] words,
+            final int[][] postings) {
+        mEmojis = emojis;
+        mNameLengths = nameLengths;
+        mWords = words;
+        mPostings = postings;
+    }
+
+    /**
+     * Loads the index in the background, if it's not loaded or being loaded already.
+     * If loading fails, it's tried again on the next call.
+     */
+    static void loadInBackground(final Context context) {
+        if (!sLoadStarted.compareAndSet(false, true)) return;
+        final Context appContext = context.getApplicationContext();
+        try {
+            ExecutorUtils.getBackgroundExecutor(ExecutorUtils.MAINTENANCE).execute(() -> {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        appContext.getAssets().open(NAMES_ASSET), StandardCharsets.UTF_8))) {
+                    sInstance = fromNames(reader);
+                } catch (IOException | NumberFormatException e) {
+                    Log.e(TAG, "could not read emoji names", e);
+                } finally {
+                    if (sInstance == null) sLoadStarted.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "could not start loading emoji names", e);
+            sLoadStarted.set(false);
+        }
+    }
+
+    /** Returns the index, or null if it's not loaded yet. Does not wait for loading. */
+    @Nullable
+    static EmojiSearchIndex getLoadedInstance() {
+        return sInstance;
+    }
+
+    /** Returns whether the default font can draw the emoji, the result is cached. */
+    static boolean hasGlyph(final String emoji) {
+        final Boolean cached = sHasGlyphCache.get(emoji);
+        if (cached != null) return cached;
+        final boolean hasGlyph;
+        synchronized (sGlyphPaint) {
+            hasGlyph = PaintCompat.hasGlyph(sGlyphPaint, emoji);
+        }
+        sHasGlyphCache.put(emoji, hasGlyph);
+        return hasGlyph;
+    }
+
+    /**
+     * Returns the emojis with names containing words that start with each word of the query,
+     * best matches first: exact words before prefixes, words near the start of the name first,
+     * then shorter names, and then the order of the emoji palettes.
+     */
+    @NonNull
+    List<String> search(final String query, final int maxResults) {
+        final String[] queryWords = splitWords(query);
+        if (queryWords.length == 0 || maxResults <= 0) return new ArrayList<>();
+        int[] scores = null;
+        for (final String queryWord : queryWords) {
+            final int[] wordScores = scoreWord(queryWord);
+            if (scores == null) {
+                scores = wordScores;
+                continue;
+            }
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] = scores[i] == NO_MATCH || wordScores[i] == NO_MATCH
+                        ? NO_MATCH : scores[i] + wordScores[i];
+            }
+        }
+        final ArrayList<Integer> matches = new ArrayList<>();
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] != NO_MATCH) matches.add(i);
+        }
+        final int[] finalScores = scores;
+        Collections.sort(matches, (lhs, rhs) -> {
+            if (finalScores[lhs] != finalScores[rhs])
+                return Integer.compare(finalScores[lhs], finalScores[rhs]);
+            if (mNameLengths[lhs] != mNameLengths[rhs])
+                return Integer.compare(mNameLengths[lhs], mNameLengths[rhs]);
+            return Integer.compare(lhs, rhs);
+        });
+        final ArrayList<String> results = new ArrayList<>(Math.min(matches.size(), maxResults));
+        for (final int index : matches) {
+            if (results.size() >= maxResults) break;
+            results.add(mEmojis[index]);
+        }
+        return results;
+    }
+
+    // best score of each emoji for the query word, or NO_MATCH
+    private int[] scoreWord(final String queryWord) {
+        final int[] scores = new int[mEmojis.length];
+        Arrays.fill(scores, NO_MATCH);
+        int wordIndex = Arrays.binarySearch(mWords, queryWord);
+        if (wordIndex < 0) wordIndex = -wordIndex - 1;
+        for (; wordIndex < mWords.length && mWords[wordIndex].startsWith(queryWord); wordIndex++) {
+            final int penalty = mWords[wordIndex].length() == queryWord.length() ? 0 : PREFIX_MATCH_PENALTY;
+            for (final int posting : mPostings[wordIndex]) {
+                final int emojiIndex = posting >>> POSITION_BITS;
+                final int score = penalty + (posting & MAX_POSITION);
+                if (scores[emojiIndex] == NO_MATCH || score < scores[emojiIndex])
+                    scores[emojiIndex] = score;
+            }
+        }
+        return scores;
+    }
+
+    private static String[] splitWords(final String text) {
+        final ArrayList<String> words = new ArrayList<>();
+        final String lowerCase = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lowerCase.length(); i++) {
+            final boolean isWordChar = i < lowerCase.length() && Character.isLetterOrDigit(lowerCase.charAt(i));
+            if (isWordChar && start < 0) {
+                start = i;
+            } else if (!isWordChar && start >= 0) {
+                words.add(lowerCase.substring(start, i));
+                start = -1;
+            }
+        }
+        return words.toArray(new String[0]);
+    }
+
+    /** Creates the index from lines of comma separated hex code points, a semicolon and the name. */
+    @VisibleForTesting
+    static EmojiSearchIndex fromNames(final BufferedReader reader) throws IOException {
+        final ArrayList<String> emojis = new ArrayList<>();
+        final ArrayList<Integer> nameLengths = new ArrayList<>();
+        final HashMap<String, ArrayList<Integer>> postingsByWord = new HashMap<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            final int separator = line.indexOf(';');
+            if (separator < 0) continue;
+            final StringBuilder emoji = new StringBuilder();
+            for (final String codePoint : line.substring(0, separator).split(",")) {
+                emoji.appendCodePoint(Integer.parseInt(codePoint, 16));
+            }
+            final int emojiIndex = emojis.size();
+            final String name = line.substring(separator + 1);
+            emojis.add(emoji.toString());
+            nameLengths.add(name.length());
+            final String[] words = splitWords(name);
+            for (int position = 0; position < words.length; position++) {
+                final ArrayList<Integer> postings = postingsByWord.computeIfAbsent(words[position], k -> new ArrayList<>());
+                final int posting = (emojiIndex << POSITION_BITS) | Math.min(position, MAX_POSITION);
+                // keep only the first position of a word appearing more than once in a name
+                if (postings.isEmpty() || postings.get(postings.size() - 1) >>> POSITION_BITS != emojiIndex)
+                    postings.add(posting);
+            }
+        }
+        final String[] words = postingsByWord.keySet().toArray(new String[0]);
+        Arrays.sort(words);
+        final int[][] postings = new int[words.length][];
+        for (int i = 0; i < words.length; i++) {
+            final ArrayList<Integer> wordPostings = postingsByWord.get(words[i]);
+            postings[i] = new int[wordPostings.size()];
+            for (int j = 0; j < postings[i].length; j++) {
+                postings[i][j] = wordPostings.get(j);
+            }
+        }
+        final int[] lengths = new int[nameLengths.size()];
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = nameLengths.get(i);
+        }
+        return new EmojiSearchIndex(emojis.toArray(new String[0]), lengths, words, postings);
+    }
+}
@@ -71,6 +71,38 @@ public final class KeyDrawParams {
         mAnimAlpha = copyFrom.mAnimAlpha;
     }
 
+    @NonNull
+    public KeyDrawParams copy() {
+        return new KeyDrawParams(this);
+    }
+
+    /**
+     * Returns whether keys drawn with these params look the same as with {@code other}.
+     * {@link #mAnimAlpha} is not compared, it is set for every key that is drawn.
+     */
+    public boolean hasSameAppearance(@NonNull final KeyDrawParams other) {
+        return mTypeface.equals(other.mTypeface)
+                && mLetterSize == other.mLetterSize
+                && mLabelSize == other.mLabelSize
+                && mLargeLetterSize == other.mLargeLetterSize
+                && mHintLetterSize == other.mHintLetterSize
+                && mShiftedLetterHintSize == other.mShiftedLetterHintSize
+                && mHintLabelSize == other.mHintLabelSize
+                && mPreviewTextSize == other.mPreviewTextSize
+                && mTextColor == other.mTextColor
+                && mTextInactivatedColor == other.mTextInactivatedColor
+                && mTextShadowColor == other.mTextShadowColor
+                && mFunctionalTextColor == other.mFunctionalTextColor
+                && mHintLetterColor == other.mHintLetterColor
+                && mHintLabelColor == other.mHintLabelColor
+                && mShiftedLetterHintInactivatedColor == other.mShiftedLetterHintInactivatedColor
+                && mShiftedLetterHintActivatedColor == other.mShiftedLetterHintActivatedColor
+                && mPreviewTextColor == other.mPreviewTextColor
+                && mHintLabelVerticalAdjustment == other.mHintLabelVerticalAdjustment
+                && mLabelOffCenterRatio == other.mLabelOffCenterRatio
+                && mHintLabelOffCenterRatio == other.mHintLabelOffCenterRatio;
+    }
+
     public void updateParams(final int keyHeight, @Nullable final KeyVisualAttributes attr) {
         if (attr == null) {
             return;
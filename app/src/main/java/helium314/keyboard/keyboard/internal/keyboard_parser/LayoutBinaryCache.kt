@@ -0,0 +1,329 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package helium314.keyboard.keyboard.internal.keyboard_parser
+
+import android.content.Context
+import androidx.annotation.VisibleForTesting
+import helium314.keyboard.keyboard.internal.keyboard_parser.floris.AbstractKeyData
+import helium314.keyboard.keyboard.internal.keyboard_parser.floris.AutoTextKeyData
+import helium314.keyboard.keyboard.internal.keyboard_parser.floris.CaseSelector
+import helium314.keyboard.keyboard.internal.keyboard_parser.floris.CharWidthSelector
+import helium314.keyboard.keyboard.internal.keyboard_parser.floris.KanaSelector
+import helium314.keyboard.keyboard.internal.keyboard_parser.floris.KeyData
+import helium314.keyboard.keyboard.internal.keyboard_parser.floris.KeyType
+import helium314.keyboard.keyboard.internal.keyboard_parser.floris.KeyboardStateSelector
+import helium314.keyboard.keyboard.internal.keyboard_parser.floris.LayoutDirectionSelector
+import helium314.keyboard.keyboard.internal.keyboard_parser.floris.MultiTextKeyData
+import helium314.keyboard.keyboard.internal.keyboard_parser.floris.PopupSet
+import helium314.keyboard.keyboard.internal.keyboard_parser.floris.ShiftStateSelector
+import helium314.keyboard.keyboard.internal.keyboard_parser.floris.SimplePopups
+import helium314.keyboard.keyboard.internal.keyboard_parser.floris.TextKeyData
+import helium314.keyboard.keyboard.internal.keyboard_parser.floris.VariationSelector
+import helium314.keyboard.latin.BuildConfig
+import helium314.keyboard.latin.utils.ExecutorUtils
+import helium314.keyboard.latin.utils.Log
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Binary form of parsed json layouts, cached on disk so layouts are not decoded from json again
+ * when the layout cache is cleared or on app start.
+ * Cached files are read into memory in the background by [load], so keyboards created on the UI
+ * thread don't wait for file IO. Files are named by hash code and length of the layout text, and
+ * contain the layout text for checking that the cached layout really belongs to it. The cache
+ * directory depends on format and app version, as the key data classes may change with the app.
+ */
+object LayoutBinaryCache {
+    private const val TAG = "LayoutBinaryCache"
+    private const val DIR_PREFIX = "layouts_"
+    private const val MAGIC = 0x48424c59 // HBLY
+    // increase when changing the format
+    private const val FORMAT_VERSION = 2
+    private const val MAX_CACHED_FILES = 100
+    private const val TEMP_FILE_SUFFIX = ".tmp"
+
+    private const val NODE_NULL = 0
+    private const val NODE_TEXT_KEY = 1
+    private const val NODE_AUTO_TEXT_KEY = 2
+    private const val NODE_MULTI_TEXT_KEY = 3
+    private const val NODE_CASE_SELECTOR = 4
+    private const val NODE_SHIFT_STATE_SELECTOR = 5
+    private const val NODE_VARIATION_SELECTOR = 6
+    private const val NODE_KEYBOARD_STATE_SELECTOR = 7
+    private const val NODE_LAYOUT_DIRECTION_SELECTOR = 8
+    private const val NODE_CHAR_WIDTH_SELECTOR = 9
+    private const val NODE_KANA_SELECTOR = 10
+
+    private const val POPUP_SIMPLE = 0
+    private const val POPUP_SET = 1
+
+    // file contents by file name
+    private val cachedLayouts = ConcurrentHashMap<String, ByteBuffer>()
+    private val loadStarted = AtomicBoolean(false)
+
+    /**
+     * Reads the cached layouts into memory in the background. Should be called early, layouts are
+     * parsed from json until this is done.
+     */
+    fun load(context: Context) {
+        if (!loadStarted.compareAndSet(false, true)) return
+        ExecutorUtils.getBackgroundExecutor(ExecutorUtils.MAINTENANCE).execute {
+            getCacheDir(context).listFiles()?.forEach { file ->
+                if (file.name.endsWith(TEMP_FILE_SUFFIX)) return@forEach
+                try {
+                    cachedLayouts.putIfAbsent(file.name, ByteBuffer.wrap(file.readBytes()))
+                } catch (e: IOException) {
+                    Log.w(TAG, "could not read cached layout ${file.name}", e)
+                }
+            }
+        }
+    }
+
+    /** Returns the cached layout for the layout text, or null if it's not cached or not loaded yet. */
+    fun read(context: Context, layoutText: String): List<List<AbstractKeyData>>? {
+        load(context)
+        val name = getFileName(layoutText)
+        val buffer = cachedLayouts[name] ?: return null
+        return try {
+            decodeLayout(buffer.duplicate(), layoutText)
+        } catch (e: Exception) {
+            Log.w(TAG, "could not read cached layout $name", e)
+            cachedLayouts.remove(name)
+            ExecutorUtils.getBackgroundExecutor(ExecutorUtils.MAINTENANCE).execute { File(getCacheDir(context), name).delete() }
+            null
+        }
+    }
+
+    /**
+     * Caches the layout parsed from the layout text. It's encoded right away because the parsed
+     * key data may be modified when creating keyboards, and written in the background.
+     */
+    fun write(context: Context, layoutText: String, layout: List<List<AbstractKeyData>>) {
+        val name = getFileName(layoutText)
+        val bytes = try {
+            encodeLayout(layout, layoutText)
+        } catch (e: IllegalArgumentException) {
+            Log.w(TAG, "could not encode layout", e)
+            return
+        }
+        cachedLayouts[name] = ByteBuffer.wrap(bytes)
+        ExecutorUtils.getBackgroundExecutor(ExecutorUtils.MAINTENANCE).execute {
+            val dir = getCacheDir(context)
+            try {
+                if (!dir.isDirectory) {
+                    // remove caches of other versions
+                    context.cacheDir.listFiles { f -> f.name.startsWith(DIR_PREFIX) }?.forEach { it.deleteRecursively() }
+                    dir.mkdirs()
+                }
+                val files = dir.listFiles()
+                if (files != null && files.size >= MAX_CACHED_FILES)
+                    files.minByOrNull { it.lastModified() }?.let {
+                        cachedLayouts.remove(it.name)
+                        it.delete()
+                    }
+                val tempFile = File(dir, name + TEMP_FILE_SUFFIX)
+                tempFile.writeBytes(bytes)
+                if (!tempFile.renameTo(File(dir, name)))
+                    tempFile.delete()
+            } catch (e: IOException) {
+                Log.w(TAG, "could not write cached layout $name", e)
+            }
+        }
+    }
+
+    /** Forgets the layouts read into memory, so they are read from the files again. */
+    @VisibleForTesting
+    internal fun clearLoaded() {
+        cachedLayouts.clear()
+        loadStarted.set(false)
+    }
+
+    private fun getCacheDir(context: Context) =
+        File(context.cacheDir, "$DIR_PREFIX${FORMAT_VERSION}_${BuildConfig.VERSION_CODE}")
+
+    // cheap to compute, collisions are detected by comparing the layout text stored in the file
+    private fun getFileName(layoutText: String) = "${Integer.toHexString(layoutText.hashCode())}_${layoutText.length}"
+
+    private fun encodeLayout(layout: List<List<AbstractKeyData>>, layoutText: String): ByteArray {
+        val bytes = ByteArrayOutputStream()
+        DataOutputStream(bytes).use { out ->
+            out.writeInt(MAGIC)
+            out.writeInt(FORMAT_VERSION)
+            out.writeString(layoutText)
+            out.writeInt(layout.size)
+            layout.forEach { row ->
+                out.writeInt(row.size)
+                row.forEach { out.writeNode(it) }
+            }
+        }
+        return bytes.toByteArray()
+    }
+
+    // returns null if the layout was cached for a different layout text with the same file name
+    private fun decodeLayout(buffer: ByteBuffer, layoutText: String): List<List<AbstractKeyData>>? {
+        if (buffer.int != MAGIC || buffer.int != FORMAT_VERSION)
+            throw IOException("not a layout file of format version $FORMAT_VERSION")
+        if (buffer.readString() != layoutText) return null
+        return List(buffer.int) {
+            List(buffer.int) { buffer.readNode() ?: throw IOException("null key in layout") }
+        }
+    }
+
+    private fun DataOutputStream.writeNode(node: AbstractKeyData?) {
+        when (node) {
+            null -> writeByte(NODE_NULL)
+            is TextKeyData -> {
+                writeByte(NODE_TEXT_KEY)
+                writeKeyData(node)
+            }
+            is AutoTextKeyData -> {
+                writeByte(NODE_AUTO_TEXT_KEY)
+                writeKeyData(node)
+            }
+            is MultiTextKeyData -> {
+                writeByte(NODE_MULTI_TEXT_KEY)
+                writeKeyData(node)
+            }
+            is CaseSelector -> {
+                writeByte(NODE_CASE_SELECTOR)
+                writeNodes(node.lower, node.upper)
+            }
+            is ShiftStateSelector -> {
+                writeByte(NODE_SHIFT_STATE_SELECTOR)
+                writeNodes(node.unshifted, node.shifted, node.shiftedManual, node.shiftedAutomatic,
+                    node.capsLock, node.default, node.manualOrLocked)
+            }
+            is VariationSelector -> {
+                writeByte(NODE_VARIATION_SELECTOR)
+                writeNodes(node.default, node.email, node.uri, node.normal, node.password, node.date,
+                    node.time, node.datetime)
+            }
+            is KeyboardStateSelector -> {
+                writeByte(NODE_KEYBOARD_STATE_SELECTOR)
+                writeNodes(node.emojiKeyEnabled, node.languageKeyEnabled, node.symbols, node.moreSymbols,
+                    node.alphabet, node.default)
+            }
+            is LayoutDirectionSelector -> {
+                writeByte(NODE_LAYOUT_DIRECTION_SELECTOR)
+                writeNodes(node.ltr, node.rtl)
+            }
+            is CharWidthSelector -> {
+                writeByte(NODE_CHAR_WIDTH_SELECTOR)
+                writeNodes(node.full, node.half)
+            }
+            is KanaSelector -> {
+                writeByte(NODE_KANA_SELECTOR)
+                writeNodes(node.hira, node.kata)
+            }
+            else -> throw IllegalArgumentException("unknown key data ${node::class.simpleName}")
+        }
+    }
+
+    private fun DataOutputStream.writeNodes(vararg nodes: AbstractKeyData?) {
+        nodes.forEach { writeNode(it) }
+    }
+
+    private fun DataOutputStream.writeKeyData(keyData: KeyData) {
+        writeInt(keyData.type?.ordinal ?: -1)
+        if (keyData is MultiTextKeyData) {
+            writeInt(keyData.codePoints.size)
+            keyData.codePoints.forEach { writeInt(it) }
+        } else {
+            writeInt(keyData.code)
+        }
+        writeString(keyData.label)
+        writeInt(keyData.groupId)
+        writePopup(keyData.popup)
+        writeFloat(keyData.width)
+        writeInt(keyData.labelFlags)
+    }
+
+    private fun DataOutputStream.writePopup(popup: PopupSet<*>) {
+        if (popup is SimplePopups) {
+            writeByte(POPUP_SIMPLE)
+            val popupKeys = popup.popupKeys
+            writeInt(popupKeys?.size ?: -1)
+            popupKeys?.forEach { writeString(it) }
+        } else {
+            if (popup::class != PopupSet::class)
+                throw IllegalArgumentException("unknown popup set ${popup::class.simpleName}")
+            writeByte(POPUP_SET)
+            writeNode(popup.main)
+            val relevant = popup.relevant
+            writeInt(relevant?.size ?: -1)
+            relevant?.forEach { writeNode(it) }
+        }
+        writeString(popup.numberLabel)
+        writeString(popup.symbol)
+    }
+
+    private fun DataOutputStream.writeString(string: String?) {
+        if (string == null) {
+            writeInt(-1)
+            return
+        }
+        writeInt(string.length)
+        writeChars(string)
+    }
+
+    private fun ByteBuffer.readNode(): AbstractKeyData? = when (val nodeType = get().toInt()) {
+        NODE_NULL -> null
+        NODE_TEXT_KEY -> {
+            val type = readKeyType()
+            TextKeyData(type, int, readString()!!, int, readPopup(), float, int)
+        }
+        NODE_AUTO_TEXT_KEY -> {
+            val type = readKeyType()
+            AutoTextKeyData(type, int, readString()!!, int, readPopup(), float, int)
+        }
+        NODE_MULTI_TEXT_KEY -> {
+            val type = readKeyType()
+            val codePoints = IntArray(int) { int }
+            MultiTextKeyData(type, codePoints, readString()!!, int, readPopup(), float, int)
+        }
+        NODE_CASE_SELECTOR -> CaseSelector(readNode()!!, readNode()!!)
+        NODE_SHIFT_STATE_SELECTOR ->
+            ShiftStateSelector(readNode(), readNode(), readNode(), readNode(), readNode(), readNode(), readNode())
+        NODE_VARIATION_SELECTOR ->
+            VariationSelector(readNode(), readNode(), readNode(), readNode(), readNode(), readNode(), readNode(), readNode())
+        NODE_KEYBOARD_STATE_SELECTOR ->
+            KeyboardStateSelector(readNode(), readNode(), readNode(), readNode(), readNode(), readNode())
+        NODE_LAYOUT_DIRECTION_SELECTOR -> LayoutDirectionSelector(readNode()!!, readNode()!!)
+        NODE_CHAR_WIDTH_SELECTOR -> CharWidthSelector(readNode(), readNode())
+        NODE_KANA_SELECTOR -> KanaSelector(readNode()!!, readNode()!!)
+        else -> throw IOException("unknown node type $nodeType")
+    }
+
+    private fun ByteBuffer.readKeyType(): KeyType? {
+        val ordinal = int
+        return if (ordinal == -1) null else KeyType.values()[ordinal]
+    }
+
+    private fun ByteBuffer.readPopup(): PopupSet<out AbstractKeyData> {
+        val popup = when (val popupType = get().toInt()) {
+            POPUP_SIMPLE -> {
+                val size = int
+                SimplePopups(if (size == -1) null else List(size) { readString()!! })
+            }
+            POPUP_SET -> {
+                val main = readNode()
+                val size = int
+                PopupSet(main, if (size == -1) null else List(size) { readNode()!! })
+            }
+            else -> throw IOException("unknown popup type $popupType")
+        }
+        popup.numberLabel = readString()
+        popup.symbol = readString()
+        return popup
+    }
+
+    private fun ByteBuffer.readString(): String? {
+        val length = int
+        if (length == -1) return null
+        return String(CharArray(length) { char })
+    }
+}
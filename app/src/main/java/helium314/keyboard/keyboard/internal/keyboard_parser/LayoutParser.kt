@@ -77,7 +77,8 @@ object LayoutParser {
         val layoutFileContent = getLayoutFileContent(layoutType, layoutName.substringBefore("+"), context).trimStart()
         if (layoutFileContent.startsWith("[") || (LayoutUtilsCustom.isCustomLayout(layoutName) && layoutFileContent.startsWith("/"))) {
             try {
-                val florisKeyData = parseJsonString(layoutFileContent, false)
+                val florisKeyData = LayoutBinaryCache.read(context, layoutFileContent)
+                    ?: parseJsonString(layoutFileContent, false).also { LayoutBinaryCache.write(context, layoutFileContent, it) }
                 return { params ->
                     florisKeyData.mapTo(mutableListOf()) { row ->
                         row.mapNotNullTo(mutableListOf()) { it.compute(params) }
@@ -14,6 +14,7 @@ import helium314.keyboard.latin.settings.Settings
 import helium314.keyboard.latin.utils.SubtypeLocaleUtils
 import java.io.InputStream
 import java.util.Locale
+import java.util.concurrent.ConcurrentHashMap
 
 class LocaleKeyboardInfos(dataStream: InputStream?, locale: Locale) {
     private val popupKeys = hashMapOf<String, MutableCollection<String>>()
@@ -243,7 +244,8 @@ private fun getLocaleTlds(locale: Locale): LinkedHashSet<String> {
 fun clearCache() = localeKeyboardInfosCache.clear()
 
 // cache the texts, so they don't need to be read over and over
-private val localeKeyboardInfosCache = hashMapOf<String, LocaleKeyboardInfos>()
+// concurrent because keyboards are also created in the background
+private val localeKeyboardInfosCache = ConcurrentHashMap<String, LocaleKeyboardInfos>()
 
 private const val READER_MODE_NONE = 0
 private const val READER_MODE_POPUP_KEYS = 1
@@ -0,0 +1,82 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.latin;
+
+import androidx.annotation.NonNull;
+
+import com.android.inputmethod.latin.BinaryDictionary;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Read only binary dictionaries opened in this process, so the keyboard and the spell checker
+ * share the native dictionary instead of each mapping the same file.
+ * Dictionaries are reference counted and closed when the last user releases them.
+ * Users of the same dictionary must use different session ids for getting suggestions.
+ */
+final class BinaryDictionaryRegistry {
+    private static final class Entry {
+        @NonNull
+        final BinaryDictionary mDictionary;
+        int mReferences;
+
+        Entry(@NonNull final BinaryDictionary dictionary) {
+            mDictionary = dictionary;
+        }
+    }
+
+    private static final HashMap<String, Entry> sEntries = new HashMap<>();
+
+    private BinaryDictionaryRegistry() {
+        // This utility class is not publicly instantiable.
+    }
+
+    /**
+     * Returns the dictionary for the file, opening it if it's not open yet. It must be released
+     * with {@link #release(BinaryDictionary)} instead of being closed.
+     */
+    @NonNull
+    static synchronized BinaryDictionary acquire(final String filename, final long offset,
+            final long length, final boolean useFullEditDistance, final Locale locale,
+            final String dictType) {
+        // a replaced file gets a new entry, users of the old one keep their dictionary
+        final String key = filename + ":" + offset + ":" + length + ":"
+                + new File(filename).lastModified() + ":" + useFullEditDistance + ":" + locale
+                + ":" + dictType;
+        Entry entry = sEntries.get(key);
+        if (entry == null) {
+            final BinaryDictionary dictionary = new BinaryDictionary(filename, offset, length,
+                    useFullEditDistance, locale, dictType, false /* isUpdatable */);
+            if (!dictionary.isValidDictionary()) {
+                // not shared, invalid dictionaries are closed right away by their users
+                return dictionary;
+            }
+            entry = new Entry(dictionary);
+            sEntries.put(key, entry);
+        }
+        entry.mReferences++;
+        return entry.mDictionary;
+    }
+
+    /**
+     * Releases a dictionary returned by {@link #acquire}, and closes it if it's not used any more.
+     */
+    static synchronized void release(@NonNull final BinaryDictionary dictionary) {
+        final Iterator<Entry> iterator = sEntries.values().iterator();
+        while (iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (entry.mDictionary != dictionary) {
+                continue;
+            }
+            if (--entry.mReferences > 0) {
+                return;
+            }
+            iterator.remove();
+            break;
+        }
+        dictionary.close();
+    }
+}
@@ -8,9 +8,9 @@ package helium314.keyboard.latin;
 
 import android.Manifest;
 import android.content.Context;
-import android.net.Uri;
 import android.provider.ContactsContract;
 import android.provider.ContactsContract.Contacts;
+import android.util.Pair;
 import helium314.keyboard.latin.utils.Log;
 
 import androidx.annotation.Nullable;
@@ -22,7 +22,7 @@ import helium314.keyboard.latin.common.StringUtils;
 import helium314.keyboard.latin.permissions.PermissionsUtil;
 
 import java.io.File;
-import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Locale;
 
 public class ContactsBinaryDictionary extends ExpandableBinaryDictionary
@@ -38,6 +38,11 @@ public class ContactsBinaryDictionary extends ExpandableBinaryDictionary
      */
     private final boolean mUseFirstLastBigrams;
     private final ContactsManager mContactsManager;
+    /**
+     * The names the dictionary contains, null if it was loaded from file. Guarded by the lock.
+     */
+    @Nullable
+    private HashSet<String> mNames;
 
     protected ContactsBinaryDictionary(final Context context, final Locale locale,
             final File dictFile, final String name) {
@@ -67,69 +72,152 @@ public class ContactsBinaryDictionary extends ExpandableBinaryDictionary
      */
     @Override
     public void loadInitialContentsLocked() {
-        loadDictionaryForUriLocked(ContactsContract.Profile.CONTENT_URI);
-        // TODO: Switch this URL to the newer ContactsContract too
-        loadDictionaryForUriLocked(Contacts.CONTENT_URI);
+        final long lastUpdatedTimestamp = mContactsManager.getLastUpdatedTimestamp();
+        final HashSet<String> names = getValidNamesLocked();
+        if (names == null) {
+            return;
+        }
+        final NameEntries entries = new NameEntries();
+        for (final String name : names) {
+            entries.addName(name);
+        }
+        runGCIfRequiredLocked(true /* mindsBlockByGC */);
+        for (final String word : entries.mUnigrams) {
+            addUnigramLocked(word);
+        }
+        for (final Pair<NgramContext, String> ngram : entries.mNgrams) {
+            addNgramEntryLocked(ngram.first, ngram.second);
+        }
+        mNames = names;
+        // Since we were able to add content successfully, update the local
+        // state of the manager.
+        mContactsManager.updateLocalState(lastUpdatedTimestamp);
+    }
+
+    /**
+     * Applies the changes of the contacts since the last update to the dictionary: only the
+     * words and n-grams of added or removed names are changed.
+     */
+    private void syncContentsLocked() {
+        if (mNames == null) {
+            // the dictionary was loaded from file, so the names in it are not known
+            createNewDictionaryLocked();
+            return;
+        }
+        final long lastUpdatedTimestamp = mContactsManager.getLastUpdatedTimestamp();
+        final HashSet<String> names = getValidNamesLocked();
+        if (names == null) {
+            return;
+        }
+        final NameEntries oldEntries = new NameEntries();
+        for (final String name : mNames) {
+            oldEntries.addName(name);
+        }
+        final NameEntries newEntries = new NameEntries();
+        for (final String name : names) {
+            newEntries.addName(name);
+        }
+        runGCIfRequiredLocked(true /* mindsBlockByGC */);
+        boolean hasChanged = false;
+        for (final Pair<NgramContext, String> ngram : oldEntries.mNgrams) {
+            if (!newEntries.mNgrams.contains(ngram)) {
+                removeNgramEntryLocked(ngram.first, ngram.second);
+                hasChanged = true;
+            }
+        }
+        for (final String word : oldEntries.mUnigrams) {
+            if (!newEntries.mUnigrams.contains(word)) {
+                removeUnigramLocked(word);
+                hasChanged = true;
+            }
+        }
+        for (final String word : newEntries.mUnigrams) {
+            if (!oldEntries.mUnigrams.contains(word)) {
+                addUnigramLocked(word);
+                hasChanged = true;
+            }
+        }
+        for (final Pair<NgramContext, String> ngram : newEntries.mNgrams) {
+            if (!oldEntries.mNgrams.contains(ngram)) {
+                addNgramEntryLocked(ngram.first, ngram.second);
+                hasChanged = true;
+            }
+        }
+        if (hasChanged) {
+            // Write the changes right away like a newly created dictionary, the dictionary file
+            // is loaded again after a restart and must not bring back removed names.
+            getBinaryDictionary().flushWithGCIfHasUpdated();
+        }
+        if (DEBUG) {
+            Log.d(TAG, "syncContentsLocked: " + mNames.size() + " -> " + names.size() + " names");
+        }
+        mNames = names;
+        mContactsManager.updateLocalState(lastUpdatedTimestamp);
     }
 
     /**
-     * Loads data within content providers to the dictionary.
+     * Returns the valid names of the profile and the contacts, or null without permission.
      */
-    private void loadDictionaryForUriLocked(final Uri uri) {
+    @Nullable
+    private HashSet<String> getValidNamesLocked() {
         if (!PermissionsUtil.checkAllPermissionsGranted(
                 mContext, Manifest.permission.READ_CONTACTS)) {
             Log.i(TAG, "No permission to read contacts. Not loading the Dictionary.");
+            return null;
         }
+        final HashSet<String> names = new HashSet<>(
+                mContactsManager.getValidNames(ContactsContract.Profile.CONTENT_URI));
+        // TODO: Switch this URL to the newer ContactsContract too
+        names.addAll(mContactsManager.getValidNames(Contacts.CONTENT_URI));
+        return names;
+    }
 
-        final ArrayList<String> validNames = mContactsManager.getValidNames(uri);
-        for (final String name : validNames) {
-            addNameLocked(name);
-        }
-        if (uri.equals(Contacts.CONTENT_URI)) {
-            // Since we were able to add content successfully, update the local
-            // state of the manager.
-            mContactsManager.updateLocalState(validNames);
-        }
+    private void addUnigramLocked(final String word) {
+        addUnigramLocked(word, ContactsDictionaryConstants.FREQUENCY_FOR_CONTACTS,
+                null /* shortcut */, 0 /* shortcutFreq */, false /* isNotAWord */,
+                false /* isPossiblyOffensive */, BinaryDictionary.NOT_A_VALID_TIMESTAMP);
+    }
+
+    private void addNgramEntryLocked(final NgramContext ngramContext, final String word) {
+        addNgramEntryLocked(ngramContext, word,
+                ContactsDictionaryConstants.FREQUENCY_FOR_CONTACTS_BIGRAM,
+                BinaryDictionary.NOT_A_VALID_TIMESTAMP);
     }
 
     /**
-     * Adds the words in a name (e.g., firstname/lastname) to the binary dictionary along with their
-     * bigrams depending on locale.
+     * The words in names (e.g., firstname/lastname) along with their n-grams depending on locale.
      */
-    private void addNameLocked(final String name) {
-        int len = StringUtils.codePointCount(name);
-        NgramContext ngramContext = NgramContext.getEmptyPrevWordsContext(
-                BinaryDictionary.MAX_PREV_WORD_COUNT_FOR_N_GRAM);
-        // TODO: Better tokenization for non-Latin writing systems
-        for (int i = 0; i < len; i++) {
-            if (Character.isLetter(name.codePointAt(i))) {
-                int end = ContactsDictionaryUtils.getWordEndPosition(name, len, i);
-                String word = name.substring(i, end);
-                if (DEBUG_DUMP) {
-                    Log.d(TAG, "addName word = " + word);
-                }
-                i = end - 1;
-                // Don't add single letter words, possibly confuses
-                // capitalization of i.
-                final int wordLen = StringUtils.codePointCount(word);
-                if (wordLen <= MAX_WORD_LENGTH && wordLen > 1) {
-                    if (DEBUG) {
-                        Log.d(TAG, "addName " + name + ", " + word + ", "  + ngramContext);
+    private final class NameEntries {
+        final HashSet<String> mUnigrams = new HashSet<>();
+        final HashSet<Pair<NgramContext, String>> mNgrams = new HashSet<>();
+
+        void addName(final String name) {
+            int len = StringUtils.codePointCount(name);
+            NgramContext ngramContext = NgramContext.getEmptyPrevWordsContext(
+                    BinaryDictionary.MAX_PREV_WORD_COUNT_FOR_N_GRAM);
+            // TODO: Better tokenization for non-Latin writing systems
+            for (int i = 0; i < len; i++) {
+                if (Character.isLetter(name.codePointAt(i))) {
+                    int end = ContactsDictionaryUtils.getWordEndPosition(name, len, i);
+                    String word = name.substring(i, end);
+                    if (DEBUG_DUMP) {
+                        Log.d(TAG, "addName word = " + word);
                     }
-                    runGCIfRequiredLocked(true /* mindsBlockByGC */);
-                    addUnigramLocked(word, ContactsDictionaryConstants.FREQUENCY_FOR_CONTACTS,
-                            null /* shortcut */, 0 /* shortcutFreq */, false /* isNotAWord */,
-                            false /* isPossiblyOffensive */,
-                            BinaryDictionary.NOT_A_VALID_TIMESTAMP);
-                    if (ngramContext.isValid() && mUseFirstLastBigrams) {
-                        runGCIfRequiredLocked(true /* mindsBlockByGC */);
-                        addNgramEntryLocked(ngramContext,
-                                word,
-                                ContactsDictionaryConstants.FREQUENCY_FOR_CONTACTS_BIGRAM,
-                                BinaryDictionary.NOT_A_VALID_TIMESTAMP);
+                    i = end - 1;
+                    // Don't add single letter words, possibly confuses
+                    // capitalization of i.
+                    final int wordLen = StringUtils.codePointCount(word);
+                    if (wordLen <= MAX_WORD_LENGTH && wordLen > 1) {
+                        if (DEBUG) {
+                            Log.d(TAG, "addName " + name + ", " + word + ", "  + ngramContext);
+                        }
+                        mUnigrams.add(word);
+                        if (ngramContext.isValid() && mUseFirstLastBigrams) {
+                            mNgrams.add(Pair.create(ngramContext, word));
+                        }
+                        ngramContext = ngramContext.getNextNgramContext(
+                                new NgramContext.WordInfo(word));
                     }
-                    ngramContext = ngramContext.getNextNgramContext(
-                            new NgramContext.WordInfo(word));
                 }
             }
         }
@@ -137,6 +225,6 @@ public class ContactsBinaryDictionary extends ExpandableBinaryDictionary
 
     @Override
     public void onContactsChange() {
-        setNeedsToRecreate();
+        updateDictionaryWithWriteLock(this::syncContentsLocked);
     }
 }
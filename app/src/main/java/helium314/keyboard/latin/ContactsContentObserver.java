@@ -19,7 +19,6 @@ import helium314.keyboard.latin.define.DebugFlags;
 import helium314.keyboard.latin.permissions.PermissionsUtil;
 import helium314.keyboard.latin.utils.ExecutorUtils;
 
-import java.util.ArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -55,8 +54,9 @@ public class ContactsContentObserver implements Runnable {
         mContentObserver = new ContentObserver(null /* handler */) {
             @Override
             public void onChange(boolean self) {
-                ExecutorUtils.getBackgroundExecutor(ExecutorUtils.KEYBOARD)
-                        .execute(ContactsContentObserver.this);
+                // changes often come in bursts, checking once for all of them is enough
+                ExecutorUtils.executeCoalesced(ExecutorUtils.MAINTENANCE,
+                        ContactsContentObserver.this, ContactsContentObserver.this);
             }
         };
         final ContentResolver contentResolver = mContext.getContentResolver();
@@ -109,8 +109,11 @@ public class ContactsContentObserver implements Runnable {
             }
             return true;
         }
-        final ArrayList<String> names = mManager.getValidNames(Contacts.CONTENT_URI);
-        if (names.hashCode() != mManager.getHashCodeAtLastRebuild()) {
+        final long lastUpdatedTimestamp = mManager.getLastUpdatedTimestamp();
+        if (lastUpdatedTimestamp > mManager.getLastUpdatedTimestampAtLastRebuild()) {
+            if (DebugFlags.DEBUG_ENABLED) {
+                Log.d(TAG, "haveContentsChanged() : Contacts updated at " + lastUpdatedTimestamp);
+            }
             return true;
         }
         if (DebugFlags.DEBUG_ENABLED) {
@@ -16,6 +16,8 @@ public class ContactsDictionaryConstants {
     public static final String[] PROJECTION = { BaseColumns._ID, Contacts.DISPLAY_NAME,
             Contacts.TIMES_CONTACTED, Contacts.LAST_TIME_CONTACTED, Contacts.IN_VISIBLE_GROUP };
     public static final String[] PROJECTION_ID_ONLY = { BaseColumns._ID };
+    public static final String[] PROJECTION_LAST_UPDATED_TIMESTAMP_ONLY =
+            { Contacts.CONTACT_LAST_UPDATED_TIMESTAMP };
 
     /**
      * Frequency for contacts information into the dictionary
@@ -10,6 +10,7 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteException;
 import android.net.Uri;
+import android.provider.ContactsContract;
 import android.provider.ContactsContract.Contacts;
 import android.text.TextUtils;
 import helium314.keyboard.latin.utils.Log;
@@ -22,6 +23,7 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Manages all interactions with Contacts DB.
@@ -104,10 +106,10 @@ public class ContactsManager {
     private final AtomicInteger mContactCountAtLastRebuild = new AtomicInteger(0);
 
     /**
-     * The hash code of list of valid contacts names in the most recent dictionary
-     * rebuild.
+     * The latest {@link Contacts#CONTACT_LAST_UPDATED_TIMESTAMP} of the contacts in the most
+     * recent dictionary update.
      */
-    private final AtomicInteger mHashCodeAtLastRebuild = new AtomicInteger(0);
+    private final AtomicLong mLastUpdatedTimestampAtLastRebuild = new AtomicLong(0);
 
     private final Context mContext;
     private final ContactsContentObserver mObserver;
@@ -126,13 +128,13 @@ public class ContactsManager {
         return mContactCountAtLastRebuild.get();
     }
 
-    public int getHashCodeAtLastRebuild() {
-        return mHashCodeAtLastRebuild.get();
+    public long getLastUpdatedTimestampAtLastRebuild() {
+        return mLastUpdatedTimestampAtLastRebuild.get();
     }
 
     /**
      * Returns all the valid names in the Contacts DB. Callers should also
-     * call {@link #updateLocalState(ArrayList)} after they are done with result
+     * call {@link #updateLocalState(long)} after they are done with result
      * so that the manager can cache local state for determining updates.
      * <p>
      * These names are sorted by their affinity to the user, with favorite
@@ -196,6 +198,26 @@ public class ContactsManager {
         return 0;
     }
 
+    /**
+     * Returns the time the most recently changed contact was updated, or 0 if there are no
+     * contacts. Changed contacts can't be found by their names, so this is used to detect changes.
+     */
+    public long getLastUpdatedTimestamp() {
+        final Uri uri = Contacts.CONTENT_URI.buildUpon()
+                .appendQueryParameter(ContactsContract.LIMIT_PARAM_KEY, "1").build();
+        try (Cursor cursor = mContext.getContentResolver().query(uri,
+                ContactsDictionaryConstants.PROJECTION_LAST_UPDATED_TIMESTAMP_ONLY, null, null,
+                Contacts.CONTACT_LAST_UPDATED_TIMESTAMP + " DESC")
+        ) {
+            if (cursor == null || !cursor.moveToFirst())
+                return 0;
+            return cursor.getLong(0);
+        } catch (final SQLiteException e) {
+            Log.e(TAG, "SQLiteException in the remote Contacts process.", e);
+        }
+        return 0;
+    }
+
     private static boolean isValidName(final String name) {
         if (TextUtils.isEmpty(name) || name.indexOf(Constants.CODE_COMMERCIAL_AT) != -1) {
             return false;
@@ -212,10 +234,12 @@ public class ContactsManager {
     /**
      * Updates the local state of the manager. This should be called when the callers
      * are done with all the updates of the content provider successfully.
+     * @param lastUpdatedTimestamp the result of {@link #getLastUpdatedTimestamp()} from before
+     *        the names were read, so changes made while reading are not missed.
      */
-    public void updateLocalState(final ArrayList<String> names) {
+    public void updateLocalState(final long lastUpdatedTimestamp) {
         mContactCountAtLastRebuild.set(getContactCount());
-        mHashCodeAtLastRebuild.set(names.hashCode());
+        mLastUpdatedTimestampAtLastRebuild.set(lastUpdatedTimestamp);
     }
 
     /**
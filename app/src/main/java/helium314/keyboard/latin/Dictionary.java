@@ -22,6 +22,7 @@ import java.util.Locale;
 public abstract class Dictionary {
     public static final int NOT_A_PROBABILITY = -1;
     public static final float NOT_A_WEIGHT_OF_LANG_MODEL_VS_SPATIAL_MODEL = -1.0f;
+    public static final int NO_SCORE_THRESHOLD = Integer.MIN_VALUE;
 
     // The following types do not actually come from real dictionary instances, so we create
     // corresponding instances.
@@ -91,6 +92,23 @@ public abstract class Dictionary {
             final int sessionId, final float weightForLocale,
             final float[] inOutWeightOfLangModelVsSpatialModel);
 
+    /**
+     * Same as {@link #getSuggestions(ComposedData, NgramContext, long, SettingsValuesForSuggestion,
+     * int, float, float[])}, but suggestions with a score below minScore may be left out, so no
+     * objects need to be created for suggestions the caller would drop anyway.
+     * @param minScore the lowest score still of interest, or {@link #NO_SCORE_THRESHOLD}
+     * @return the list of suggestions (possibly null if none)
+     */
+    public ArrayList<SuggestedWordInfo> getSuggestions(final ComposedData composedData,
+            final NgramContext ngramContext, final long proximityInfoHandle,
+            final SettingsValuesForSuggestion settingsValuesForSuggestion,
+            final int sessionId, final float weightForLocale,
+            final float[] inOutWeightOfLangModelVsSpatialModel, final int minScore) {
+        return getSuggestions(composedData, ngramContext, proximityInfoHandle,
+                settingsValuesForSuggestion, sessionId, weightForLocale,
+                inOutWeightOfLangModelVsSpatialModel);
+    }
+
     /**
      * Checks if the given word has to be treated as a valid word. Please note that some
      * dictionaries have entries that should be treated as invalid words.
@@ -142,6 +160,22 @@ public abstract class Dictionary {
         return true;
     }
 
+    /**
+     * Number of typing lookups that could continue the search of an earlier lookup in the same
+     * session instead of traversing the dictionary from the root, e.g. when typing or after
+     * backspace. Only dictionaries doing a native search count these.
+     */
+    public int getContinuedSearchCount() {
+        return 0;
+    }
+
+    /**
+     * Number of typing lookups that had to traverse the dictionary from the root.
+     */
+    public int getRestartedSearchCount() {
+        return 0;
+    }
+
     /**
      * Override to clean up any resources.
      */
@@ -24,6 +24,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 public final class DictionaryCollection extends Dictionary {
     private final String TAG = DictionaryCollection.class.getSimpleName();
     protected final CopyOnWriteArrayList<Dictionary> mDictionaries;
+    private boolean mIsClosed = false;
 
     public DictionaryCollection(final String dictType, final Locale locale) {
         super(dictType, locale);
@@ -54,19 +55,30 @@ public final class DictionaryCollection extends Dictionary {
             final SettingsValuesForSuggestion settingsValuesForSuggestion,
             final int sessionId, final float weightForLocale,
             final float[] inOutWeightOfLangModelVsSpatialModel) {
+        return getSuggestions(composedData, ngramContext, proximityInfoHandle,
+                settingsValuesForSuggestion, sessionId, weightForLocale,
+                inOutWeightOfLangModelVsSpatialModel, NO_SCORE_THRESHOLD);
+    }
+
+    @Override
+    public ArrayList<SuggestedWordInfo> getSuggestions(final ComposedData composedData,
+            final NgramContext ngramContext, final long proximityInfoHandle,
+            final SettingsValuesForSuggestion settingsValuesForSuggestion,
+            final int sessionId, final float weightForLocale,
+            final float[] inOutWeightOfLangModelVsSpatialModel, final int minScore) {
         final CopyOnWriteArrayList<Dictionary> dictionaries = mDictionaries;
         if (dictionaries.isEmpty()) return null;
         // To avoid creating unnecessary objects, we get the list out of the first
         // dictionary and add the rest to it if not null, hence the get(0)
         ArrayList<SuggestedWordInfo> suggestions = dictionaries.get(0).getSuggestions(composedData,
                 ngramContext, proximityInfoHandle, settingsValuesForSuggestion, sessionId,
-                weightForLocale, inOutWeightOfLangModelVsSpatialModel);
+                weightForLocale, inOutWeightOfLangModelVsSpatialModel, minScore);
         if (null == suggestions) suggestions = new ArrayList<>();
         final int length = dictionaries.size();
         for (int i = 1; i < length; ++ i) {
             final ArrayList<SuggestedWordInfo> sugg = dictionaries.get(i).getSuggestions(
                     composedData, ngramContext, proximityInfoHandle, settingsValuesForSuggestion,
-                    sessionId, weightForLocale, inOutWeightOfLangModelVsSpatialModel);
+                    sessionId, weightForLocale, inOutWeightOfLangModelVsSpatialModel, minScore);
             if (null != sugg) suggestions.addAll(sugg);
         }
         return suggestions;
@@ -99,20 +111,42 @@ public final class DictionaryCollection extends Dictionary {
         return maxFreq;
     }
 
+    @Override
+    public int getContinuedSearchCount() {
+        int count = 0;
+        for (final Dictionary dict : mDictionaries)
+            count += dict.getContinuedSearchCount();
+        return count;
+    }
+
+    @Override
+    public int getRestartedSearchCount() {
+        int count = 0;
+        for (final Dictionary dict : mDictionaries)
+            count += dict.getRestartedSearchCount();
+        return count;
+    }
+
     @Override
     public boolean isInitialized() {
         return !mDictionaries.isEmpty();
     }
 
     @Override
-    public void close() {
+    public synchronized void close() {
+        mIsClosed = true;
         for (final Dictionary dict : mDictionaries)
             dict.close();
     }
 
-    // Warning: this is not thread-safe. Take necessary precaution when calling.
-    public void addDictionary(final Dictionary newDict) {
+    // Dictionaries may be added from a background thread while loading, so a dictionary added
+    // after closing the collection is closed instead.
+    public synchronized void addDictionary(final Dictionary newDict) {
         if (null == newDict) return;
+        if (mIsClosed) {
+            newDict.close();
+            return;
+        }
         if (mDictionaries.contains(newDict)) {
             Log.w(TAG, "This collection already contains this dictionary: " + newDict);
         }
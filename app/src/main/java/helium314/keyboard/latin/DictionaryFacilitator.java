@@ -61,6 +61,22 @@ public interface DictionaryFacilitator {
         void onUpdateMainDictionaryAvailability(boolean isMainDictionaryAvailable);
     }
 
+    interface DictionaryContentListener {
+        /**
+         * Called after words were added to or removed from dictionaries, or dictionaries were
+         * replaced. May be called on any thread.
+         *
+         * @param word the word that was learned, or null if any words may have changed
+         * @param ngramContext the context the word was learned in, or null if any words may have changed
+         */
+        void onDictionaryContentChanged(@Nullable String word, @Nullable NgramContext ngramContext);
+    }
+
+    /**
+     * Sets the listener that is notified when content of any of the dictionaries changes.
+     */
+    void setDictionaryContentListener(@Nullable DictionaryContentListener listener);
+
     /**
      * Called every time {@link LatinIME} starts on a new text field.
      * <p>
@@ -84,6 +100,9 @@ public interface DictionaryFacilitator {
     // useful for multilingual typing
     Locale getCurrentLocale();
 
+    // locales of all dictionary groups, main locale first
+    @NonNull List<Locale> getLocales();
+
     boolean usesSameSettings(
             @NonNull final List<Locale> locales,
             final boolean contacts,
@@ -21,6 +21,8 @@ import android.view.inputmethod.InputMethodSubtype;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.android.inputmethod.keyboard.ProximityInfo;
+
 import helium314.keyboard.keyboard.Keyboard;
 import helium314.keyboard.latin.NgramContext.WordInfo;
 import helium314.keyboard.latin.SuggestedWords.SuggestedWordInfo;
@@ -31,15 +33,13 @@ import helium314.keyboard.latin.permissions.PermissionsUtil;
 import helium314.keyboard.latin.personalization.UserHistoryDictionary;
 import helium314.keyboard.latin.settings.Settings;
 import helium314.keyboard.latin.settings.SettingsValuesForSuggestion;
+import helium314.keyboard.latin.utils.BlacklistFile;
 import helium314.keyboard.latin.utils.ExecutorUtils;
 import helium314.keyboard.latin.utils.SubtypeSettings;
 import helium314.keyboard.latin.utils.SubtypeUtilsKt;
 import helium314.keyboard.latin.utils.SuggestionResults;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -47,9 +47,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Scanner;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -68,6 +67,10 @@ public class DictionaryFacilitatorImpl implements DictionaryFacilitator {
     // dictionary.
     private static final int CAPITALIZED_FORM_MAX_PROBABILITY_FOR_INSERT = 140;
 
+    @Nullable private volatile DictionaryContentListener mDictionaryContentListener;
+    // added to all sub dictionaries, so the listener can be changed without touching them
+    private final DictionaryContentListener mContentForwarder = this::notifyDictionaryContentChanged;
+
     private ArrayList<DictionaryGroup> mDictionaryGroups = new ArrayList<>() {{ add(new DictionaryGroup()); }};
     private volatile CountDownLatch mLatchForWaitingLoadingMainDictionaries = new CountDownLatch(0);
     // To synchronize assigning mDictionaryGroup to ensure closing dictionaries.
@@ -131,8 +134,12 @@ public class DictionaryFacilitatorImpl implements DictionaryFacilitator {
         private int mConfidence = 1;
 
         // words cannot be removed from main dictionary, so we use a blacklist instead
-        public String blacklistFileName = null;
-        public Set<String> blacklist = new HashSet<>();
+        // the blacklist file checks a Bloom filter first, so most words don't need to be looked up
+        public BlacklistFile blacklist = new BlacklistFile();
+
+        public boolean isBlacklisted(final String word) {
+            return blacklist.contains(word);
+        }
 
         // allow to go above max confidence, for better determination of currently preferred language
         // when decreasing confidence or getting weight factor, limit to maximum
@@ -170,16 +177,21 @@ public class DictionaryFacilitatorImpl implements DictionaryFacilitator {
         public final ConcurrentHashMap<String, ExpandableBinaryDictionary> mSubDictMap =
                 new ConcurrentHashMap<>();
 
+        // added to the sub dictionaries while they are in this group
+        @Nullable private final DictionaryContentListener mContentListener;
+
         public DictionaryGroup() {
-            this(new Locale(""), null, null, Collections.emptyMap());
+            this(new Locale(""), null, null, Collections.emptyMap(), null);
         }
 
         public DictionaryGroup(@NonNull final Locale locale,
                 @Nullable final Dictionary mainDict,
                 @Nullable final String account,
-                @NonNull final Map<String, ExpandableBinaryDictionary> subDicts) {
+                @NonNull final Map<String, ExpandableBinaryDictionary> subDicts,
+                @Nullable final DictionaryContentListener contentListener) {
             mLocale = locale;
             mAccount = account;
+            mContentListener = contentListener;
             // The main dictionary can be asynchronously loaded.
             setMainDict(mainDict);
             for (final Map.Entry<String, ExpandableBinaryDictionary> entry : subDicts.entrySet()) {
@@ -189,6 +201,9 @@ public class DictionaryFacilitatorImpl implements DictionaryFacilitator {
 
         private void setSubDict(@NonNull final String dictType, @NonNull final ExpandableBinaryDictionary dict) {
             mSubDictMap.put(dictType, dict);
+            if (mContentListener != null) {
+                dict.addContentListener(mContentListener);
+            }
         }
 
         public void setMainDict(@Nullable final Dictionary mainDict) {
@@ -231,6 +246,9 @@ public class DictionaryFacilitatorImpl implements DictionaryFacilitator {
                 dict = mMainDict;
             } else {
                 dict = mSubDictMap.remove(dictType);
+                if (dict != null && mContentListener != null) {
+                    ((ExpandableBinaryDictionary) dict).removeContentListener(mContentListener);
+                }
             }
             if (dict != null) {
                 dict.close();
@@ -241,6 +259,19 @@ public class DictionaryFacilitatorImpl implements DictionaryFacilitator {
     public DictionaryFacilitatorImpl() {
     }
 
+    @Override
+    public void setDictionaryContentListener(@Nullable final DictionaryContentListener listener) {
+        mDictionaryContentListener = listener;
+    }
+
+    private void notifyDictionaryContentChanged(@Nullable final String word,
+            @Nullable final NgramContext ngramContext) {
+        final DictionaryContentListener listener = mDictionaryContentListener;
+        if (listener != null) {
+            listener.onDictionaryContentChanged(word, ngramContext);
+        }
+    }
+
     @Override
     public void onStartInput() {
     }
@@ -271,6 +302,16 @@ public class DictionaryFacilitatorImpl implements DictionaryFacilitator {
         return getCurrentlyPreferredDictionaryGroup().mLocale;
     }
 
+    @Override
+    @NonNull
+    public List<Locale> getLocales() {
+        final ArrayList<Locale> locales = new ArrayList<>(mDictionaryGroups.size());
+        for (final DictionaryGroup dictionaryGroup : mDictionaryGroups) {
+            locales.add(dictionaryGroup.mLocale);
+        }
+        return locales;
+    }
+
     public boolean usesContacts() {
         return mDictionaryGroups.get(0).getSubDict(Dictionary.TYPE_CONTACTS) != null;
     }
@@ -418,19 +459,20 @@ public class DictionaryFacilitatorImpl implements DictionaryFacilitator {
                 }
                 subDicts.put(subDictType, subDict);
             }
-            DictionaryGroup newDictGroup = new DictionaryGroup(locale, mainDict, account, subDicts);
+            DictionaryGroup newDictGroup = new DictionaryGroup(locale, mainDict, account, subDicts, mContentForwarder);
             newDictionaryGroups.add(newDictGroup);
 
             // load blacklist
             if (noExistingDictsForThisLocale) {
-                newDictGroup.blacklistFileName = context.getFilesDir().getAbsolutePath() + File.separator + "blacklists" + File.separator + locale.toLanguageTag() + ".txt";
-                if (!new File(newDictGroup.blacklistFileName).exists())
-                    new File(context.getFilesDir().getAbsolutePath() + File.separator + "blacklists").mkdirs();
-                newDictGroup.blacklist.addAll(readBlacklistFile(newDictGroup.blacklistFileName));
+                final File blacklistDir = new File(context.getFilesDir(), "blacklists");
+                if (!blacklistDir.exists())
+                    blacklistDir.mkdirs();
+                // text files were used before, and may still come from restoring a backup
+                newDictGroup.blacklist = BlacklistFile.getInstance(new File(blacklistDir, locale.toLanguageTag() + ".bin"),
+                        new File(blacklistDir, locale.toLanguageTag() + ".txt"));
             } else {
                 // re-use if possible
-                newDictGroup.blacklistFileName = oldDictionaryGroupForLocale.blacklistFileName;
-                newDictGroup.blacklist.addAll(oldDictionaryGroupForLocale.blacklist);
+                newDictGroup.blacklist = oldDictionaryGroupForLocale.blacklist;
             }
         }
 
@@ -445,6 +487,7 @@ public class DictionaryFacilitatorImpl implements DictionaryFacilitator {
             }
         }
 
+        notifyDictionaryContentChanged(null, null);
         if (listener != null) {
             listener.onUpdateMainDictionaryAvailability(hasAtLeastOneInitializedMainDictionary());
         }
@@ -479,6 +522,7 @@ public class DictionaryFacilitatorImpl implements DictionaryFacilitator {
             final CountDownLatch latchForWaitingLoadingMainDictionary) {
         final Dictionary[] mainDicts = new Dictionary[locales.size()];
         final ArrayList<DictionaryGroup> dictionaryGroups = new ArrayList<>();
+        final ConcurrentLinkedQueue<Integer> pendingIndices = new ConcurrentLinkedQueue<>();
         for (int i = 0; i < locales.size(); i++) {
             Locale locale = locales.get(i);
             DictionaryGroup dictionaryGroup = findDictionaryGroupWithLocale(mDictionaryGroups, locale);
@@ -493,7 +537,30 @@ public class DictionaryFacilitatorImpl implements DictionaryFacilitator {
                 mainDicts[i] = null;
                 continue;
             }
-            mainDicts[i] = DictionaryFactoryKt.createMainDictionary(context, dictionaryGroup.mLocale);
+            pendingIndices.add(i);
+        }
+
+        // Main dictionaries of different locales are independent, so they are loaded in parallel.
+        // This thread takes part in loading, so it never waits for tasks that did not start.
+        final CountDownLatch waitForMainDicts = new CountDownLatch(pendingIndices.size());
+        final Runnable loadPendingMainDicts = () -> {
+            Integer i;
+            while ((i = pendingIndices.poll()) != null) {
+                try {
+                    mainDicts[i] = DictionaryFactoryKt.createMainDictionary(context, dictionaryGroups.get(i).mLocale);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Could not load main dictionary for " + dictionaryGroups.get(i).mLocale, e);
+                } finally {
+                    waitForMainDicts.countDown();
+                }
+            }
+        };
+        ExecutorUtils.executeHelpers(ExecutorUtils.KEYBOARD, pendingIndices.size() - 1, loadPendingMainDicts);
+        loadPendingMainDicts.run();
+        try {
+            waitForMainDicts.await();
+        } catch (InterruptedException e) {
+            Log.w(TAG, "Interrupted while loading main dictionaries", e);
         }
 
         synchronized (mLock) {
@@ -509,6 +576,7 @@ public class DictionaryFacilitatorImpl implements DictionaryFacilitator {
                 }
             }
         }
+        notifyDictionaryContentChanged(null, null);
         if (listener != null) {
             listener.onUpdateMainDictionaryAvailability(hasAtLeastOneInitializedMainDictionary());
         }
@@ -592,8 +660,10 @@ public class DictionaryFacilitatorImpl implements DictionaryFacilitator {
 
             // remove manually entered blacklisted words from blacklist
             for (DictionaryGroup dictionaryGroup : mDictionaryGroups) {
-                if (dictionaryGroup.blacklist.remove(currentWord))
-                    removeWordFromBlacklistFile(currentWord, dictionaryGroup.blacklistFileName);
+                if (dictionaryGroup.blacklist.remove(currentWord)) {
+                    // the word may now be suggested after any context
+                    notifyDictionaryContentChanged(null, null);
+                }
             }
         }
     }
@@ -645,7 +715,7 @@ public class DictionaryFacilitatorImpl implements DictionaryFacilitator {
         if (userHistoryDict.getFrequency(word) > 120) {
             if (userDict.isInDictionary(word)) // is this check necessary?
                 return;
-            ExecutorUtils.getBackgroundExecutor(ExecutorUtils.KEYBOARD).execute(() ->
+            ExecutorUtils.getBackgroundExecutor(ExecutorUtils.MAINTENANCE).execute(() ->
                     UserDictionary.Words.addWord(userDict.mContext, word,
                     250 /*FREQUENCY_FOR_USER_DICTIONARY_ADDS*/, null, dictionaryGroup.mLocale));
         }
@@ -794,12 +864,25 @@ public class DictionaryFacilitatorImpl implements DictionaryFacilitator {
 
     // TODO: Revise the way to fusion suggestion results.
     @Override
-    @SuppressWarnings("unchecked")
     @NonNull public SuggestionResults getSuggestionResults(ComposedData composedData,
             NgramContext ngramContext, @NonNull final Keyboard keyboard,
             SettingsValuesForSuggestion settingsValuesForSuggestion, int sessionId,
             int inputStyle) {
-        long proximityInfoHandle = keyboard.getProximityInfo().getNativeProximityInfo();
+        final ProximityInfo proximityInfo = keyboard.getProximityInfo();
+        // the keyboard may be evicted from the cache while getting suggestions, so keep its
+        // native proximity info until all dictionaries are done
+        final long proximityInfoHandle = proximityInfo.lockNativeProximityInfo();
+        try {
+            return getSuggestionResults(composedData, ngramContext, settingsValuesForSuggestion,
+                    sessionId, proximityInfoHandle);
+        } finally {
+            proximityInfo.unlockNativeProximityInfo();
+        }
+    }
+
+    @NonNull private SuggestionResults getSuggestionResults(ComposedData composedData,
+            NgramContext ngramContext, SettingsValuesForSuggestion settingsValuesForSuggestion,
+            int sessionId, final long proximityInfoHandle) {
         final SuggestionResults suggestionResults = new SuggestionResults(
                 SuggestedWords.MAX_SUGGESTIONS, ngramContext.isBeginningOfSentenceContext(),
                 false /* firstSuggestionExceedsConfidenceThreshold */);
@@ -807,42 +890,49 @@ public class DictionaryFacilitatorImpl implements DictionaryFacilitator {
                 new float[] { Dictionary.NOT_A_WEIGHT_OF_LANG_MODEL_VS_SPATIAL_MODEL };
 
         // start getting suggestions for non-main locales first, but in background
-        final ArrayList<SuggestedWordInfo>[] otherDictionarySuggestions = (ArrayList<SuggestedWordInfo>[]) new ArrayList[mDictionaryGroups.size() - 1];
+        // if the executor is busy, this thread looks them up after the main locale
+        final SuggestionResults[] otherDictionarySuggestions = new SuggestionResults[mDictionaryGroups.size() - 1];
         final CountDownLatch waitForOtherDictionaries;
+        final Runnable lookUpOtherDictionaries;
         if (mDictionaryGroups.size() > 1) {
             waitForOtherDictionaries = new CountDownLatch(mDictionaryGroups.size() - 1);
-            for (int i = 1; i < mDictionaryGroups.size(); i ++) {
-                final DictionaryGroup dictionaryGroup = mDictionaryGroups.get(i);
-                final int index = i - 1;
-                ExecutorUtils.getBackgroundExecutor(ExecutorUtils.KEYBOARD).execute(() -> {
-                    otherDictionarySuggestions[index] = getSuggestions(composedData,
+            final List<DictionaryGroup> dictionaryGroups = mDictionaryGroups;
+            final ConcurrentLinkedQueue<Integer> pendingIndices = new ConcurrentLinkedQueue<>();
+            for (int i = 1; i < dictionaryGroups.size(); i ++) {
+                pendingIndices.add(i);
+            }
+            lookUpOtherDictionaries = () -> {
+                Integer i;
+                while ((i = pendingIndices.poll()) != null) {
+                    otherDictionarySuggestions[i - 1] = getSuggestions(composedData,
                             ngramContext, settingsValuesForSuggestion, sessionId, proximityInfoHandle,
-                            weightOfLangModelVsSpatialModel, dictionaryGroup);
+                            weightOfLangModelVsSpatialModel, dictionaryGroups.get(i));
                     waitForOtherDictionaries.countDown();
-                });
-            }
-        } else
+                }
+            };
+            ExecutorUtils.executeHelpers(ExecutorUtils.KEYBOARD, mDictionaryGroups.size() - 1, lookUpOtherDictionaries);
+        } else {
             waitForOtherDictionaries = null;
+            lookUpOtherDictionaries = null;
+        }
 
         // get main locale suggestions
-        final ArrayList<SuggestedWordInfo> dictionarySuggestions = getSuggestions(composedData,
+        final SuggestionResults dictionarySuggestions = getSuggestions(composedData,
                 ngramContext, settingsValuesForSuggestion, sessionId, proximityInfoHandle,
                 weightOfLangModelVsSpatialModel, mDictionaryGroups.get(0));
         suggestionResults.addAll(dictionarySuggestions);
         if (null != suggestionResults.mRawSuggestions) {
-            suggestionResults.mRawSuggestions.addAll(dictionarySuggestions);
+            suggestionResults.mRawSuggestions.addAll(dictionarySuggestions.mRawSuggestions);
         }
 
         // wait for other locale suggestions
         if (waitForOtherDictionaries != null) {
-            try { waitForOtherDictionaries.await(); }
-            catch (InterruptedException e) {
-                Log.w(TAG, "Interrupted while trying to get secondary locale suggestions", e);
-            }
+            lookUpOtherDictionaries.run();
+            awaitUninterruptibly(waitForOtherDictionaries);
             for (int i = 1; i < mDictionaryGroups.size(); i ++) {
                 suggestionResults.addAll(otherDictionarySuggestions[i - 1]);
                 if (null != suggestionResults.mRawSuggestions) {
-                    suggestionResults.mRawSuggestions.addAll(otherDictionarySuggestions[i - 1]);
+                    suggestionResults.mRawSuggestions.addAll(otherDictionarySuggestions[i - 1].mRawSuggestions);
                 }
             }
         }
@@ -850,49 +940,127 @@ public class DictionaryFacilitatorImpl implements DictionaryFacilitator {
         return suggestionResults;
     }
 
-    private ArrayList<SuggestedWordInfo> getSuggestions(ComposedData composedData,
+    // Suggestions are collected in bounded results, as only the best ones of each group can make
+    // it into the merged results. Once full, dictionaries can skip everything scoring lower.
+    private SuggestionResults getSuggestions(ComposedData composedData,
                 NgramContext ngramContext, SettingsValuesForSuggestion settingsValuesForSuggestion,
                 int sessionId, long proximityInfoHandle, float[] weightOfLangModelVsSpatialModel,
                 DictionaryGroup dictGroup) {
-        final ArrayList<SuggestedWordInfo> suggestions = new ArrayList<>();
-        float weightForLocale = composedData.mIsBatchMode
+        final SuggestionResults suggestions = new SuggestionResults(SuggestedWords.MAX_SUGGESTIONS,
+                ngramContext.isBeginningOfSentenceContext(), false);
+        final float weightForLocale = composedData.mIsBatchMode
                 ? dictGroup.getWeightForGesturingInLocale(mDictionaryGroups)
                 : dictGroup.getWeightForTypingInLocale(mDictionaryGroups);
+        final ArrayList<String> dictTypes = new ArrayList<>();
         for (final String dictType : ALL_DICTIONARY_TYPES) {
-            final Dictionary dictionary = dictGroup.getDict(dictType);
-            if (null == dictionary) continue;
-            final ArrayList<SuggestedWordInfo> dictionarySuggestions =
-                    dictionary.getSuggestions(composedData, ngramContext,
-                            proximityInfoHandle, settingsValuesForSuggestion, sessionId,
-                            weightForLocale, weightOfLangModelVsSpatialModel);
-            if (null == dictionarySuggestions) continue;
-
-            // for some reason, garbage words are produced when glide typing
-            // for user history and main dictionary we can filter them out by checking whether the
-            // dictionary actually contains the word
-            // but personal dictionary and addon dictionaries may contain shortcuts, which do not
-            // pass an isInDictionary check (e.g. emojis)
-            // (if the main dict contains shortcuts to non-words, this will break)
-            final boolean checkForGarbage = composedData.mIsBatchMode && (dictType.equals(Dictionary.TYPE_USER_HISTORY) || dictType.equals(Dictionary.TYPE_MAIN));
-            for (SuggestedWordInfo info : dictionarySuggestions) {
-                final String word = info.getWord();
-                if (!isBlacklisted(word)) { // don't add blacklisted words
-                    if (checkForGarbage
-                            // only check history and "main main dictionary"
-                            // consider the user might use custom main dictionary containing shortcuts
-                            //  assume this is unlikely to happen, and take care about common shortcuts that are not actual words (emoji, symbols)
-                            && word.length() > 2 // should exclude most symbol shortcuts
-                            && info.mSourceDict.mDictType.equals(dictType) // dictType is always main, but info.mSourceDict.mDictType contains the actual dict (main dict is a dictionary group)
-                            && !StringUtils.mightBeEmoji(word) // emojis often have more than 2 chars; simplified check for performance reasons
-                            && !dictionary.isInDictionary(word))
-                        continue;
-                    suggestions.add(info);
-                }
-             }
-        }
+            if (null != dictGroup.getDict(dictType)) dictTypes.add(dictType);
+        }
+        // Gesture lookups stay sequential, as the first dictionary may set the weight of language
+        // model vs spatial model that is used by the following ones.
+        if (composedData.mIsBatchMode || dictTypes.size() < 2) {
+            for (final String dictType : dictTypes) {
+                addSuggestions(composedData, ngramContext, settingsValuesForSuggestion, sessionId,
+                        proximityInfoHandle, weightOfLangModelVsSpatialModel, dictGroup, dictType,
+                        weightForLocale, suggestions);
+            }
+            return suggestions;
+        }
+
+        // Typing lookups in the dictionaries are independent, so they run in parallel. The first
+        // dictionary (usually main) is always done on this thread, the others are taken by
+        // background tasks or by this thread, whichever is free first. So this never waits for a
+        // task that did not start because the executor is busy, e.g. with other locales.
+        // All lookups must be finished before returning: they use the session of this request and
+        // the native proximity info, which is only locked until the request is done.
+        final ConcurrentLinkedQueue<String> pendingDictTypes =
+                new ConcurrentLinkedQueue<>(dictTypes.subList(1, dictTypes.size()));
+        final CountDownLatch waitForDictionaries = new CountDownLatch(pendingDictTypes.size());
+        final Runnable lookUpPendingDictionaries = () -> {
+            String dictType;
+            while ((dictType = pendingDictTypes.poll()) != null) {
+                addSuggestions(composedData, ngramContext, settingsValuesForSuggestion, sessionId,
+                        proximityInfoHandle, weightOfLangModelVsSpatialModel, dictGroup, dictType,
+                        weightForLocale, suggestions);
+                waitForDictionaries.countDown();
+            }
+        };
+        ExecutorUtils.executeHelpers(ExecutorUtils.KEYBOARD, dictTypes.size() - 1, lookUpPendingDictionaries);
+        addSuggestions(composedData, ngramContext, settingsValuesForSuggestion, sessionId,
+                proximityInfoHandle, weightOfLangModelVsSpatialModel, dictGroup, dictTypes.get(0),
+                weightForLocale, suggestions);
+        lookUpPendingDictionaries.run();
+        awaitUninterruptibly(waitForDictionaries);
         return suggestions;
     }
 
+    // Lookups can't be stopped once started, so this waits for them even if interrupted, and
+    // restores the interrupt afterwards.
+    private static void awaitUninterruptibly(final CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    // Adds the suggestions of the given dictionary to the group's suggestions.
+    // Synchronized on suggestions, as dictionaries may be searched in parallel.
+    private void addSuggestions(ComposedData composedData, NgramContext ngramContext,
+                SettingsValuesForSuggestion settingsValuesForSuggestion, int sessionId,
+                long proximityInfoHandle, float[] weightOfLangModelVsSpatialModel,
+                DictionaryGroup dictGroup, String dictType, float weightForLocale,
+                SuggestionResults suggestions) {
+        final Dictionary dictionary = dictGroup.getDict(dictType);
+        if (null == dictionary) return;
+        final int minScore;
+        synchronized (suggestions) {
+            // raw suggestions are meant to contain everything
+            minScore = suggestions.size() < SuggestedWords.MAX_SUGGESTIONS
+                    || suggestions.mRawSuggestions != null
+                    ? Dictionary.NO_SCORE_THRESHOLD : suggestions.last().mScore;
+        }
+        final ArrayList<SuggestedWordInfo> dictionarySuggestions =
+                dictionary.getSuggestions(composedData, ngramContext,
+                        proximityInfoHandle, settingsValuesForSuggestion, sessionId,
+                        weightForLocale, weightOfLangModelVsSpatialModel, minScore);
+        if (null == dictionarySuggestions) return;
+
+        // for some reason, garbage words are produced when glide typing
+        // for user history and main dictionary we can filter them out by checking whether the
+        // dictionary actually contains the word
+        // but personal dictionary and addon dictionaries may contain shortcuts, which do not
+        // pass an isInDictionary check (e.g. emojis)
+        // (if the main dict contains shortcuts to non-words, this will break)
+        final boolean checkForGarbage = composedData.mIsBatchMode && (dictType.equals(Dictionary.TYPE_USER_HISTORY) || dictType.equals(Dictionary.TYPE_MAIN));
+        final ArrayList<SuggestedWordInfo> validSuggestions = new ArrayList<>(dictionarySuggestions.size());
+        for (SuggestedWordInfo info : dictionarySuggestions) {
+            final String word = info.getWord();
+            if (!isBlacklisted(word)) { // don't add blacklisted words
+                if (checkForGarbage
+                        // only check history and "main main dictionary"
+                        // consider the user might use custom main dictionary containing shortcuts
+                        //  assume this is unlikely to happen, and take care about common shortcuts that are not actual words (emoji, symbols)
+                        && word.length() > 2 // should exclude most symbol shortcuts
+                        && info.mSourceDict.mDictType.equals(dictType) // dictType is always main, but info.mSourceDict.mDictType contains the actual dict (main dict is a dictionary group)
+                        && !StringUtils.mightBeEmoji(word) // emojis often have more than 2 chars; simplified check for performance reasons
+                        && !dictionary.isInDictionary(word))
+                    continue;
+                validSuggestions.add(info);
+            }
+        }
+        synchronized (suggestions) {
+            suggestions.addAll(validSuggestions);
+            if (null != suggestions.mRawSuggestions) {
+                suggestions.mRawSuggestions.addAll(validSuggestions);
+            }
+        }
+    }
+
     // Spell checker is using this, and has its own instance of DictionaryFacilitatorImpl,
     // meaning that it always has default mConfidence. So we cannot choose to only check preferred
     // locale, and instead simply return true if word is in any of the available dictionaries
@@ -940,7 +1108,7 @@ public class DictionaryFacilitatorImpl implements DictionaryFacilitator {
 
     private boolean isBlacklisted(final String word) {
         for (DictionaryGroup dictionaryGroup : mDictionaryGroups) {
-            if (dictionaryGroup.blacklist.contains(word))
+            if (dictionaryGroup.isBlacklisted(word))
                 return true;
         }
         return false;
@@ -951,6 +1119,8 @@ public class DictionaryFacilitatorImpl implements DictionaryFacilitator {
         for (DictionaryGroup dictionaryGroup : mDictionaryGroups) {
             removeWordFromGroup(word, dictionaryGroup);
         }
+        // the blacklist is not a dictionary, so it doesn't notify on changes
+        notifyDictionaryContentChanged(null, null);
     }
 
     private void removeWordFromGroup(String word, DictionaryGroup group) {
@@ -969,67 +1139,20 @@ public class DictionaryFacilitatorImpl implements DictionaryFacilitator {
         if (contactsDict != null) {
             if (contactsDict.isInDictionary(word)) {
                 contactsDict.removeUnigramEntryDynamically(word); // will be gone until next reload of dict
-                addToBlacklist(word, group);
+                group.blacklist.add(word);
                 return;
             }
         }
         if (!group.hasDict(Dictionary.TYPE_MAIN, null))
             return;
         if (group.getDict(Dictionary.TYPE_MAIN).isValidWord(word)) {
-            addToBlacklist(word, group);
+            group.blacklist.add(word);
             return;
         }
         final String lowercase = word.toLowerCase(group.mLocale);
         if (group.getDict(Dictionary.TYPE_MAIN).isValidWord(lowercase)) {
-            addToBlacklist(lowercase, group);
-        }
-    }
-
-    private void addToBlacklist(final String word, final DictionaryGroup group) {
-        if (!group.blacklist.add(word))
-            return;
-        ExecutorUtils.getBackgroundExecutor(ExecutorUtils.KEYBOARD).execute(() -> {
-            try {
-                FileOutputStream fos = new FileOutputStream(group.blacklistFileName, true);
-                fos.write((word + "\n").getBytes(StandardCharsets.UTF_8));
-                fos.close();
-            } catch (IOException e) {
-                Log.e(TAG, "Exception while trying to write blacklist", e);
-            }
-        });
-    }
-
-    private ArrayList<String> readBlacklistFile(final String filename) {
-        final ArrayList<String> blacklist = new ArrayList<>();
-        if (filename == null) return blacklist;
-        File blacklistFile = new File(filename);
-        if (!blacklistFile.exists()) return blacklist;
-        try {
-            final Scanner scanner = new Scanner(blacklistFile, StandardCharsets.UTF_8.name()).useDelimiter("\n");
-            while (scanner.hasNext()) {
-                blacklist.add(scanner.next());
-            }
-        } catch (IOException e) {
-            Log.e(TAG, "Exception while reading blacklist", e);
+            group.blacklist.add(lowercase);
         }
-        return blacklist;
-    }
-
-    private void removeWordFromBlacklistFile(String word, String filename) {
-        ExecutorUtils.getBackgroundExecutor(ExecutorUtils.KEYBOARD).execute(() -> {
-            try {
-                ArrayList<String> blacklist = readBlacklistFile(filename);
-                blacklist.remove(word);
-                FileOutputStream fos = new FileOutputStream(filename);
-                for (String entry : blacklist) {
-                    fos.write((entry + "\n").getBytes(StandardCharsets.UTF_8));
-                }
-                fos.close();
-            } catch (IOException e) {
-                Log.e(TAG, "Exception while trying to write blacklist" + filename, e);
-            }
-        });
-
     }
 
     @Override
@@ -1081,6 +1204,17 @@ public class DictionaryFacilitatorImpl implements DictionaryFacilitator {
 
     @Override
     public String dump(final Context context) {
-        return "";
+        final StringBuilder sb = new StringBuilder();
+        for (final DictionaryGroup dictGroup : mDictionaryGroups) {
+            for (final String dictType : ALL_DICTIONARY_TYPES) {
+                final Dictionary dict = dictGroup.getDict(dictType);
+                if (dict == null) continue;
+                sb.append(dictGroup.mLocale).append(" ").append(dictType)
+                        .append(": continued searches ").append(dict.getContinuedSearchCount())
+                        .append(", restarted searches ").append(dict.getRestartedSearchCount())
+                        .append("\n");
+            }
+        }
+        return sb.toString();
     }
 }
@@ -7,6 +7,9 @@
 package helium314.keyboard.latin;
 
 import android.content.Context;
+
+import androidx.annotation.Nullable;
+
 import helium314.keyboard.latin.utils.Log;
 
 import java.util.Locale;
@@ -77,6 +80,11 @@ public class DictionaryFacilitatorLruCache {
         }
     }
 
+    public void setDictionaryContentListener(
+            @Nullable final DictionaryFacilitator.DictionaryContentListener listener) {
+        mDictionaryFacilitator.setDictionaryContentListener(listener);
+    }
+
     public DictionaryFacilitator get(final Locale locale) {
         synchronized (mLock) {
             if (!mDictionaryFacilitator.isForLocale(locale)) {
@@ -6,15 +6,18 @@
 package helium314.keyboard.latin
 
 import android.content.Context
+import androidx.annotation.VisibleForTesting
 import helium314.keyboard.latin.common.FileUtils
 import helium314.keyboard.latin.common.LocaleUtils
 import helium314.keyboard.latin.common.LocaleUtils.constructLocale
 import helium314.keyboard.latin.settings.USER_DICTIONARY_SUFFIX
 import helium314.keyboard.latin.utils.DictionaryInfoUtils
+import helium314.keyboard.latin.utils.ExecutorUtils
 import helium314.keyboard.latin.utils.Log
 import java.io.File
-import java.util.LinkedList
+import java.io.IOException
 import java.util.Locale
+import java.util.concurrent.RejectedExecutionException
 
 /**
  * Initializes a main dictionary collection from a dictionary pack, with explicit flags.
@@ -27,65 +30,131 @@ import java.util.Locale
  * @return an initialized instance of DictionaryCollection
  */
 fun createMainDictionary(context: Context, locale: Locale): DictionaryCollection {
-    val cacheDir = DictionaryInfoUtils.getAndCreateCacheDirectoryForLocale(locale, context)
-    val dictList = LinkedList<Dictionary>()
-    // get cached dict files
+    // user dicts first, so extracted dicts of the same type are only used if the user dict can't be loaded
     val (userDicts, extractedDicts) = DictionaryInfoUtils.getCachedDictsForLocale(locale, context)
         .partition { it.name.endsWith(USER_DICTIONARY_SUFFIX) }
-    // add user dicts to list
-    userDicts.forEach { checkAndAddDictionaryToListIfNotExisting(it, dictList, locale) }
-    // add extracted dicts to list (after userDicts, to skip extracted dicts of same type)
-    extractedDicts.forEach { checkAndAddDictionaryToListIfNotExisting(it, dictList, locale) }
-    if (dictList.any { it.mDictType == Dictionary.TYPE_MAIN })
-        return DictionaryCollection(Dictionary.TYPE_MAIN, locale, dictList)
+    val cachedDicts = (userDicts + extractedDicts).mapNotNull { file ->
+        if (!file.isFile) return@mapNotNull null
+        val header = DictionaryInfoUtils.getDictionaryFileHeaderOrNull(file)
+        if (header == null) {
+            killDictionary(file)
+            return@mapNotNull null
+        }
+        header.mIdString.split(":").first() to file
+    }
+    return createMainDictionary(locale, cachedDicts,
+        { findAssetDictionaries(context, locale) },
+        { file, dictType -> createDictionaryFromFile(file, dictType, locale) },
+        { assetName, dictType -> createDictionaryFromAssets(context, assetName, dictType, locale) }
+    )
+}
+
+/**
+ * Creates the collection from [cachedDicts] (dictionary type and file, in order of preference).
+ * For each type, the first file that can be loaded is used. Like when all dictionaries were
+ * extracted, dictionaries from [assetDicts] are only used if no cached main dictionary can be
+ * loaded, and then only for types without a cached dictionary that can be loaded.
+ * The main dictionary is needed for suggestions right away, other types are opened in the
+ * background and added to the collection once ready.
+ */
+@VisibleForTesting
+internal fun createMainDictionary(
+    locale: Locale,
+    cachedDicts: List<Pair<String, File>>,
+    assetDicts: () -> Map<String, String>,
+    openFile: (File, String) -> Dictionary?,
+    openAsset: (String, String) -> Dictionary?
+): DictionaryCollection {
+    val filesByType = cachedDicts.groupBy({ it.first }, { it.second })
+    fun openCached(dictType: String) = filesByType[dictType]?.firstNotNullOfOrNull { openFile(it, dictType) }
+
+    val cachedMainDict = openCached(Dictionary.TYPE_MAIN)
+    val assets = if (cachedMainDict == null) assetDicts() else emptyMap()
+    val mainDict = cachedMainDict ?: assets[Dictionary.TYPE_MAIN]?.let { openAsset(it, Dictionary.TYPE_MAIN) }
+    val collection = DictionaryCollection(Dictionary.TYPE_MAIN, locale, listOfNotNull(mainDict))
 
-    // no main dict found -> check assets
-    val assetsDicts = DictionaryInfoUtils.getAssetsDictionaryList(context)
+    val otherTypes = (filesByType.keys + assets.keys) - Dictionary.TYPE_MAIN
+    if (otherTypes.isNotEmpty()) {
+        val loadOtherTypes = Runnable {
+            otherTypes.forEach { dictType ->
+                collection.addDictionary(openCached(dictType) ?: assets[dictType]?.let { openAsset(it, dictType) })
+            }
+        }
+        // the lane queue is unbounded, so the task is only rejected while the executor is shut down
+        try {
+            ExecutorUtils.getBackgroundExecutor(ExecutorUtils.MAINTENANCE).execute(loadOtherTypes)
+        } catch (e: RejectedExecutionException) {
+            Log.w("DictionaryFactory", "could not load dictionaries in background, loading them now", e)
+            loadOtherTypes.run()
+        }
+    }
+    // If the collection is empty, that means we should not use any dictionary (for example, the user
+    // explicitly disabled the main dictionary), so this is okay.
+    return collection
+}
+
+/** Returns the asset dictionary best matching [locale] for each dictionary type. */
+private fun findAssetDictionaries(context: Context, locale: Locale): Map<String, String> {
     // file name is <type>_<language tag>.dict
-    val dictsByType = assetsDicts?.groupBy { it.substringBefore("_") }
-    // for each type find the best match
-    dictsByType?.forEach { (dictType, dicts) ->
+    val dictsByType = DictionaryInfoUtils.getAssetsDictionaryList(context)?.groupBy { it.substringBefore("_") }
+        ?: return emptyMap()
+    return dictsByType.mapNotNull { (dictType, dicts) ->
         val bestMatch = LocaleUtils.getBestMatch(locale, dicts) { it.substringAfter("_")
-            .substringBefore(".").constructLocale() } ?: return@forEach
-        // extract dict and add extracted file
-        val targetFile = File(cacheDir, "$dictType.dict")
-        FileUtils.copyStreamToNewFile(
-            context.assets.open(DictionaryInfoUtils.ASSETS_DICTIONARY_FOLDER + File.separator + bestMatch),
-            targetFile
-        )
-        checkAndAddDictionaryToListIfNotExisting(targetFile, dictList, locale)
+            .substringBefore(".").constructLocale() } ?: return@mapNotNull null
+        dictType to bestMatch
+    }.toMap()
+}
+
+/**
+ * Open the asset dictionary [assetName] directly from the APK, which is possible as dictionaries
+ * are stored uncompressed. Falls back to extracting it to the cache directory if it's compressed.
+ */
+private fun createDictionaryFromAssets(context: Context, assetName: String, dictType: String, locale: Locale): Dictionary? {
+    val assetPath = DictionaryInfoUtils.ASSETS_DICTIONARY_FOLDER + File.separator + assetName
+    val apkFd = try {
+        context.assets.openFd(assetPath)
+    } catch (e: IOException) {
+        null // thrown if the asset is compressed
+    }
+    if (apkFd != null) {
+        val (offset, length) = apkFd.use { it.startOffset to it.length }
+        val apk = File(context.applicationInfo.sourceDir)
+        val dict = ReadOnlyBinaryDictionary(apk.absolutePath, offset, length, false, locale, dictType)
+        if (dict.isValidDictionary)
+            return if (locale.language == "ko") KoreanDictionary(dict) else dict
+        dict.close()
+        Log.w("DictionaryFactory", "could not load dictionary $assetName from APK, extracting")
+    }
+    val targetFile = File(DictionaryInfoUtils.getAndCreateCacheDirectoryForLocale(locale, context), "$dictType.dict")
+    try {
+        FileUtils.copyStreamToNewFile(context.assets.open(assetPath), targetFile)
+    } catch (e: IOException) {
+        Log.e("DictionaryFactory", "could not extract dictionary $assetName", e)
+        return null
     }
-    // If the list is empty, that means we should not use any dictionary (for example, the user
-    // explicitly disabled the main dictionary), so the following is okay. dictList is never
-    // null, but if for some reason it is, DictionaryCollection handles it gracefully.
-    return DictionaryCollection(Dictionary.TYPE_MAIN, locale, dictList)
+    return createDictionaryFromFile(targetFile, dictType, locale)
 }
 
 /**
- * add dictionary created from [file] to [dicts]
+ * create dictionary of [dictType] from [file]
  * if [file] cannot be loaded it is deleted
- * if the dictionary type already exists in [dicts], the [file] is skipped
  */
-private fun checkAndAddDictionaryToListIfNotExisting(file: File, dicts: MutableList<Dictionary>, locale: Locale) {
-    if (!file.isFile) return
-    val header = DictionaryInfoUtils.getDictionaryFileHeaderOrNull(file) ?: return killDictionary(file)
-    val dictType = header.mIdString.split(":").first()
-    if (dicts.any { it.mDictType == dictType }) return
+private fun createDictionaryFromFile(file: File, dictType: String, locale: Locale): Dictionary? {
     val readOnlyBinaryDictionary = ReadOnlyBinaryDictionary(
         file.absolutePath, 0, file.length(), false, locale, dictType
     )
 
     if (readOnlyBinaryDictionary.isValidDictionary) {
-        if (locale.language == "ko") {
+        return if (locale.language == "ko") {
             // Use KoreanDictionary for Korean locale
-            dicts.add(KoreanDictionary(readOnlyBinaryDictionary))
+            KoreanDictionary(readOnlyBinaryDictionary)
         } else {
-            dicts.add(readOnlyBinaryDictionary)
+            readOnlyBinaryDictionary
         }
-    } else {
-        readOnlyBinaryDictionary.close()
-        killDictionary(file)
     }
+    readOnlyBinaryDictionary.close()
+    killDictionary(file)
+    return null
 }
 
 private fun killDictionary(file: File) {
@@ -7,12 +7,14 @@
 package helium314.keyboard.latin;
 
 import android.content.Context;
+import android.util.Pair;
 import helium314.keyboard.latin.utils.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.android.inputmethod.latin.BinaryDictionary;
+import com.android.inputmethod.latin.utils.WordInputEventForPersonalization;
 
 import helium314.keyboard.latin.SuggestedWords.SuggestedWordInfo;
 import helium314.keyboard.latin.common.ComposedData;
@@ -33,6 +35,7 @@ import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -89,10 +92,14 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
     private final AtomicBoolean mIsReloading;
 
     /** Indicates whether the current dictionary needs to be recreated. */
-    private boolean mNeedsToRecreate;
+    private volatile boolean mNeedsToRecreate;
 
     private final ReentrantReadWriteLock mLock;
 
+    /** Notified after the content of the dictionary changed, the dictionary may be shared by several facilitators. */
+    private final CopyOnWriteArraySet<DictionaryFacilitator.DictionaryContentListener> mContentListeners =
+            new CopyOnWriteArraySet<>();
+
     /* A extension for a binary dictionary file. */
     protected static final String DICT_FILE_EXTENSION = ".dict";
 
@@ -154,14 +161,25 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
     }
 
     private static void asyncExecuteTaskWithLock(final Lock lock, final Runnable task) {
-        ExecutorUtils.getBackgroundExecutor(ExecutorUtils.KEYBOARD).execute(() -> {
-            lock.lock();
-            try {
-                task.run();
-            } finally {
-                lock.unlock();
-            }
-        });
+        ExecutorUtils.getBackgroundExecutor(ExecutorUtils.MAINTENANCE).execute(() ->
+                runWithLock(lock, task));
+    }
+
+    // Like asyncExecuteTaskWithWriteLock, but the task is skipped if the same kind of task is
+    // submitted again before it starts, e.g. for flushing or GC.
+    private void asyncExecuteCoalescedTaskWithWriteLock(final String kind, final Runnable task) {
+        final Lock lock = mLock.writeLock();
+        ExecutorUtils.executeCoalesced(ExecutorUtils.MAINTENANCE, Pair.create(this, kind), () ->
+                runWithLock(lock, task));
+    }
+
+    private static void runWithLock(final Lock lock, final Runnable task) {
+        lock.lock();
+        try {
+            task.run();
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Nullable
@@ -232,6 +250,7 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
         asyncExecuteTaskWithWriteLock(() -> {
             removeBinaryDictionaryLocked();
             createOnMemoryBinaryDictionaryLocked();
+            notifyContentChanged(null, null);
         });
     }
 
@@ -239,7 +258,7 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
      * Check whether GC is needed and run GC if required.
      */
     public void runGCIfRequired(final boolean mindsBlockByGC) {
-        asyncExecuteTaskWithWriteLock(() -> {
+        asyncExecuteCoalescedTaskWithWriteLock("gc" + mindsBlockByGC, () -> {
             if (getBinaryDictionary() == null) {
                 return;
             }
@@ -253,7 +272,33 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
         }
     }
 
-    private void updateDictionaryWithWriteLock(@NonNull final Runnable updateTask) {
+    /**
+     * Runs the update task with the write lock once the dictionary is loaded, so several changes
+     * can be done with a single lock acquisition.
+     */
+    protected void updateDictionaryWithWriteLock(@NonNull final Runnable updateTask) {
+        updateDictionaryWithWriteLock(updateTask, null, null);
+    }
+
+    /**
+     * Like {@link #updateDictionaryWithWriteLock(Runnable)}, but the task is skipped if the same
+     * kind of update is submitted again before it starts. Then only the later task runs, so it
+     * has to apply all changes made until it starts. Listeners are not notified.
+     */
+    protected void updateDictionaryWithWriteLockCoalesced(@NonNull final String kind,
+            @NonNull final Runnable updateTask) {
+        reloadDictionaryIfRequired();
+        asyncExecuteCoalescedTaskWithWriteLock(kind, () -> {
+            if (getBinaryDictionary() == null) {
+                return;
+            }
+            runGCIfRequiredLocked(true /* mindsBlockByGC */);
+            updateTask.run();
+        });
+    }
+
+    private void updateDictionaryWithWriteLock(@NonNull final Runnable updateTask,
+            @Nullable final String changedWord, @Nullable final NgramContext ngramContext) {
         reloadDictionaryIfRequired();
         asyncExecuteTaskWithWriteLock(() -> {
             if (getBinaryDictionary() == null) {
@@ -261,9 +306,29 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
             }
             runGCIfRequiredLocked(true /* mindsBlockByGC */);
             updateTask.run();
+            notifyContentChanged(changedWord, ngramContext);
         });
     }
 
+    /**
+     * Adds a listener notified after the content of this dictionary changed, on the thread
+     * that changed it.
+     */
+    public void addContentListener(@NonNull final DictionaryFacilitator.DictionaryContentListener listener) {
+        mContentListeners.add(listener);
+    }
+
+    public void removeContentListener(@NonNull final DictionaryFacilitator.DictionaryContentListener listener) {
+        mContentListeners.remove(listener);
+    }
+
+    protected void notifyContentChanged(@Nullable final String changedWord,
+            @Nullable final NgramContext ngramContext) {
+        for (final DictionaryFacilitator.DictionaryContentListener listener : mContentListeners) {
+            listener.onDictionaryContentChanged(changedWord, ngramContext);
+        }
+    }
+
     /**
      * Adds unigram information of a word to the dictionary. May overwrite an existing entry.
      */
@@ -283,6 +348,14 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
         }
     }
 
+    protected void removeUnigramLocked(final String word) {
+        if (!mBinaryDictionary.removeUnigramEntry(word)) {
+            if (DEBUG) {
+                Log.i(TAG, "Cannot remove unigram entry: " + word);
+            }
+        }
+    }
+
     /**
      * Dynamically remove the unigram entry from the dictionary.
      */
@@ -299,6 +372,7 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
                     Log.i(TAG, "Cannot remove unigram entry: " + word);
                 }
             }
+            notifyContentChanged(null, null);
         });
     }
 
@@ -314,6 +388,7 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
             }
             runGCIfRequiredLocked(true /* mindsBlockByGC */);
             addNgramEntryLocked(ngramContext, word, frequency, timestamp);
+            notifyContentChanged(word, ngramContext);
         });
     }
 
@@ -327,6 +402,16 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
         }
     }
 
+    protected void removeNgramEntryLocked(@NonNull final NgramContext ngramContext,
+            final String word) {
+        if (!mBinaryDictionary.removeNgramEntry(ngramContext, word)) {
+            if (DEBUG) {
+                Log.i(TAG, "Cannot remove n-gram entry.");
+                Log.i(TAG, "  NgramContext: " + ngramContext + ", word: " + word);
+            }
+        }
+    }
+
     /**
      * Update dictionary for the word with the ngramContext.
      */
@@ -344,7 +429,16 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
                             + " context: " + ngramContext);
                 }
             }
-        });
+        }, word, ngramContext);
+    }
+
+    /**
+     * Update dictionary for several words with a single native call, like
+     * {@link #updateEntriesForWord} with a count of 1 for each of them.
+     */
+    protected void updateEntriesForInputEventsLocked(
+            @NonNull final WordInputEventForPersonalization[] inputEvents) {
+        mBinaryDictionary.updateEntriesForInputEvents(inputEvents);
     }
 
     @Override
@@ -352,6 +446,17 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
             final NgramContext ngramContext, final long proximityInfoHandle,
             final SettingsValuesForSuggestion settingsValuesForSuggestion, final int sessionId,
             final float weightForLocale, final float[] inOutWeightOfLangModelVsSpatialModel) {
+        return getSuggestions(composedData, ngramContext, proximityInfoHandle,
+                settingsValuesForSuggestion, sessionId, weightForLocale,
+                inOutWeightOfLangModelVsSpatialModel, NO_SCORE_THRESHOLD);
+    }
+
+    @Override
+    public ArrayList<SuggestedWordInfo> getSuggestions(final ComposedData composedData,
+            final NgramContext ngramContext, final long proximityInfoHandle,
+            final SettingsValuesForSuggestion settingsValuesForSuggestion, final int sessionId,
+            final float weightForLocale, final float[] inOutWeightOfLangModelVsSpatialModel,
+            final int minScore) {
         reloadDictionaryIfRequired();
         boolean lockAcquired = false;
         try {
@@ -364,7 +469,7 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
                 final ArrayList<SuggestedWordInfo> suggestions =
                         mBinaryDictionary.getSuggestions(composedData, ngramContext,
                                 proximityInfoHandle, settingsValuesForSuggestion, sessionId,
-                                weightForLocale, inOutWeightOfLangModelVsSpatialModel);
+                                weightForLocale, inOutWeightOfLangModelVsSpatialModel, minScore);
                 if (mBinaryDictionary.isCorrupted()) {
                     Log.i(TAG, "Dictionary (" + mDictName +") is corrupted. "
                             + "Remove and regenerate it.");
@@ -382,6 +487,18 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
         return null;
     }
 
+    @Override
+    public int getContinuedSearchCount() {
+        final BinaryDictionary binaryDictionary = mBinaryDictionary;
+        return binaryDictionary == null ? 0 : binaryDictionary.getContinuedSearchCount();
+    }
+
+    @Override
+    public int getRestartedSearchCount() {
+        final BinaryDictionary binaryDictionary = mBinaryDictionary;
+        return binaryDictionary == null ? 0 : binaryDictionary.getRestartedSearchCount();
+    }
+
     @Override
     public boolean isInDictionary(final String word) {
         reloadDictionaryIfRequired();
@@ -520,7 +637,10 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
         final File dictFile = mDictFile;
         asyncExecuteTaskWithWriteLock(() -> {
             try {
-                if (!dictFile.exists() || isNeededToRecreate()) {
+                // cleared before creating the dictionary, so changes while creating it are not lost
+                final boolean needsToRecreate = isNeededToRecreate();
+                clearNeedsToRecreate();
+                if (!dictFile.exists() || needsToRecreate) {
                     // If the dictionary file does not exist or contents have been updated,
                     // generate a new one.
                     createNewDictionaryLocked();
@@ -537,10 +657,14 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
                         createNewDictionaryLocked();
                     }
                 }
-                clearNeedsToRecreate();
+                notifyContentChanged(null, null);
             } finally {
                 isReloading.set(false);
             }
+            if (isNeededToRecreate()) {
+                // changed while creating the dictionary
+                asyncReloadDictionary();
+            }
         });
     }
 
@@ -549,7 +673,7 @@ abstract public class ExpandableBinaryDictionary extends Dictionary {
      */
     @Override
     public void onFinishInput() {
-        asyncExecuteTaskWithWriteLock(() -> {
+        asyncExecuteCoalescedTaskWithWriteLock("flush", () -> {
             final BinaryDictionary binaryDictionary = getBinaryDictionary();
             if (binaryDictionary == null) {
                 return;
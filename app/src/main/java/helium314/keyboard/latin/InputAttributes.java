@@ -8,6 +8,7 @@ package helium314.keyboard.latin;
 
 import android.os.Build;
 import android.text.InputType;
+import android.text.TextUtils;
 import android.view.inputmethod.EditorInfo;
 
 import helium314.keyboard.latin.common.StringUtilsKt;
@@ -147,6 +148,30 @@ public final class InputAttributes {
                 && (mEditorInfo.imeOptions & EditorInfo.IME_FLAG_FORCE_ASCII) == (editorInfo.imeOptions & EditorInfo.IME_FLAG_FORCE_ASCII);
     }
 
+    /**
+     * Whether the other attributes are the same as these for everything the settings depend on,
+     * i.e. settings created for them can be used for this input field.
+     */
+    public boolean isEquivalentTo(@NonNull final InputAttributes other) {
+        return mInputType == other.mInputType
+                && mInputTypeShouldAutoCorrect == other.mInputTypeShouldAutoCorrect
+                && mIsPasswordField == other.mIsPasswordField
+                && mShouldShowSuggestions == other.mShouldShowSuggestions
+                && mMayOverrideShowingSuggestions == other.mMayOverrideShowingSuggestions
+                && mApplicationSpecifiedCompletionOn == other.mApplicationSpecifiedCompletionOn
+                && mShouldInsertSpacesAutomatically == other.mShouldInsertSpacesAutomatically
+                && mShouldShowVoiceInputKey == other.mShouldShowVoiceInputKey
+                && mNoLearning == other.mNoLearning
+                && mDisableGestureFloatingPreviewText == other.mDisableGestureFloatingPreviewText
+                && mIsGeneralTextInput == other.mIsGeneralTextInput
+                && getForceAsciiFlag(mEditorInfo) == getForceAsciiFlag(other.mEditorInfo)
+                && TextUtils.equals(mTargetApplicationPackageName, other.mTargetApplicationPackageName);
+    }
+
+    private static int getForceAsciiFlag(final EditorInfo editorInfo) {
+        return editorInfo == null ? 0 : editorInfo.imeOptions & EditorInfo.IME_FLAG_FORCE_ASCII;
+    }
+
     private boolean hasNoMicrophoneKeyOption() {
         return InputAttributes.inPrivateImeOptions(mPackageNameForPrivateImeOptions, NO_MICROPHONE, mEditorInfo);
     }
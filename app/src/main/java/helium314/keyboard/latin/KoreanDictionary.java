@@ -2,42 +2,50 @@
 
 package helium314.keyboard.latin;
 
-import helium314.keyboard.event.HangulCombiner;
+import android.util.Pair;
+
+import helium314.keyboard.event.HangulJamoTables;
 import helium314.keyboard.latin.common.ComposedData;
 import helium314.keyboard.latin.settings.SettingsValuesForSuggestion;
 
-import java.text.Normalizer;
 import java.util.ArrayList;
 
 /*
  * For Korean dictionary, there are too many cases of characters to store on dictionary, which makes it slow.
- * To solve that, Unicode normalization is used to decompose Hangul syllables into Hangul jamos.
+ * To solve that, Hangul syllables are decomposed into Hangul jamos, see HangulJamoTables.
  */
 public class KoreanDictionary extends Dictionary {
 
-    private static final String COMPAT_JAMO = HangulCombiner.HangulJamo.COMPAT_CONSONANTS + HangulCombiner.HangulJamo.COMPAT_VOWELS;
-    private static final String STANDARD_JAMO = HangulCombiner.HangulJamo.CONVERT_INITIALS + HangulCombiner.HangulJamo.CONVERT_MEDIALS;
-
     private final Dictionary mDictionary;
 
+    // The typed word and its decomposition, which is used by all lookups for the same input.
+    private volatile Pair<String, String> mLastTypedWord;
+
     public KoreanDictionary(Dictionary dictionary) {
         super(dictionary.mDictType, dictionary.mLocale);
         mDictionary = dictionary;
     }
 
     private String processInput(String input) {
-        String normalized = Normalizer.normalize(input, Normalizer.Form.NFD);
-        StringBuilder result = new StringBuilder();
-        for (char c : normalized.toCharArray()) {
-            int index = COMPAT_JAMO.indexOf(c);
-            if (index == -1) result.append(c);
-            else result.append(STANDARD_JAMO.charAt(index));
+        final Pair<String, String> lastTypedWord = mLastTypedWord;
+        if (lastTypedWord != null && lastTypedWord.first.equals(input)) {
+            return lastTypedWord.second;
+        }
+        return HangulJamoTables.decomposeForDictionary(input);
+    }
+
+    private String processTypedWord(String typedWord) {
+        final Pair<String, String> lastTypedWord = mLastTypedWord;
+        if (lastTypedWord != null && lastTypedWord.first.equals(typedWord)) {
+            return lastTypedWord.second;
         }
-        return result.toString();
+        final String decomposed = HangulJamoTables.decomposeForDictionary(typedWord);
+        mLastTypedWord = new Pair<>(typedWord, decomposed);
+        return decomposed;
     }
 
     private String processOutput(String output) {
-        return Normalizer.normalize(output, Normalizer.Form.NFC);
+        return HangulJamoTables.compose(output);
     }
 
     @Override
@@ -45,11 +53,12 @@ public class KoreanDictionary extends Dictionary {
                   NgramContext ngramContext, long proximityInfoHandle, SettingsValuesForSuggestion settingsValuesForSuggestion,
                   int sessionId, float weightForLocale, float[] inOutWeightOfLangModelVsSpatialModel) {
         composedData = new ComposedData(composedData.mInputPointers,
-                composedData.mIsBatchMode, processInput(composedData.mTypedWord));
+                composedData.mIsBatchMode, processTypedWord(composedData.mTypedWord),
+                composedData.mRequestGeneration);
         ArrayList<SuggestedWords.SuggestedWordInfo> suggestions = mDictionary.getSuggestions(composedData,
                 ngramContext, proximityInfoHandle, settingsValuesForSuggestion, sessionId,
                 weightForLocale, inOutWeightOfLangModelVsSpatialModel);
-        ArrayList<SuggestedWords.SuggestedWordInfo> result = new ArrayList<>();
+        ArrayList<SuggestedWords.SuggestedWordInfo> result = new ArrayList<>(suggestions.size());
         for (SuggestedWords.SuggestedWordInfo info : suggestions) {
             result.add(new SuggestedWords.SuggestedWordInfo(processOutput(info.mWord), info.mPrevWordsContext,
                     info.mScore, info.mKindAndFlags, info.mSourceDict, info.mIndexOfTouchPointOfSecondWord, info.mAutoCommitFirstWordConfidence));
@@ -74,9 +83,7 @@ public class KoreanDictionary extends Dictionary {
 
     @Override
     protected boolean same(char[] word, int length, String typedWord) {
-        word = processInput(new String(word)).toCharArray();
-        typedWord = processInput(typedWord);
-        return mDictionary.same(word, length, typedWord);
+        return HangulJamoTables.sameDecomposed(word, length, typedWord);
     }
 
     @Override
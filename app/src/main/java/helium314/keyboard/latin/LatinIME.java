@@ -46,6 +46,7 @@ import helium314.keyboard.compat.EditorInfoCompatUtils;
 import helium314.keyboard.keyboard.KeyboardActionListener;
 import helium314.keyboard.keyboard.KeyboardActionListenerImpl;
 import helium314.keyboard.keyboard.internal.KeyboardIconsSet;
+import helium314.keyboard.keyboard.internal.keyboard_parser.LayoutBinaryCache;
 import helium314.keyboard.keyboard.internal.keyboard_parser.floris.KeyCode;
 import helium314.keyboard.latin.common.InsetsOutlineProvider;
 import helium314.keyboard.dictionarypack.DictionaryPackConstants;
@@ -78,6 +79,7 @@ import helium314.keyboard.latin.suggestions.SuggestionStripView;
 import helium314.keyboard.latin.suggestions.SuggestionStripViewAccessor;
 import helium314.keyboard.latin.touchinputconsumer.GestureConsumer;
 import helium314.keyboard.latin.utils.ColorUtilKt;
+import helium314.keyboard.latin.utils.ExecutorUtils;
 import helium314.keyboard.latin.utils.InlineAutofillUtils;
 import helium314.keyboard.latin.utils.InputMethodPickerKt;
 import helium314.keyboard.latin.utils.JniUtils;
@@ -117,6 +119,8 @@ public class LatinIME extends InputMethodService implements
 
     private static final int EXTENDED_TOUCHABLE_REGION_HEIGHT = 100;
     private static final int PERIOD_FOR_AUDIO_AND_HAPTIC_FEEDBACK_IN_KEY_REPEAT = 2;
+    // long enough for any word in emoji names
+    private static final int MAX_WORD_BEFORE_CURSOR_LENGTH = 48;
     private static final int PENDING_IMS_CALLBACK_DURATION_MILLIS = 800;
     static final long DELAY_WAIT_FOR_DICTIONARY_LOAD_MILLIS = TimeUnit.SECONDS.toMillis(2);
     static final long DELAY_DEALLOCATE_MEMORY_MILLIS = TimeUnit.SECONDS.toMillis(10);
@@ -571,6 +575,7 @@ public class LatinIME extends InputMethodService implements
     @Override
     public void onCreate() {
         KeyboardIconsSet.Companion.getInstance().loadIcons(this);
+        LayoutBinaryCache.INSTANCE.load(this);
         mRichImm = RichInputMethodManager.getInstance();
         AudioAndHapticFeedbackManager.init(this);
         AccessibilityUtils.init(this);
@@ -616,7 +621,7 @@ public class LatinIME extends InputMethodService implements
         final EditorInfo editorInfo = getCurrentInputEditorInfo();
         final InputAttributes inputAttributes = new InputAttributes(
                 editorInfo, isFullscreenMode(), getPackageName());
-        mSettings.loadSettings(this, locale, inputAttributes);
+        mSettings.loadSettingsIfChanged(this, locale, inputAttributes);
         final SettingsValues currentSettingsValues = mSettings.getCurrent();
         AudioAndHapticFeedbackManager.getInstance().onSettingsChanged(currentSettingsValues);
         // This method is called on startup and language switch, before the new layout has
@@ -626,7 +631,6 @@ public class LatinIME extends InputMethodService implements
             resetDictionaryFacilitatorIfNecessary();
         }
         refreshPersonalizationDictionarySession(currentSettingsValues);
-        mInputLogic.mSuggest.clearNextWordSuggestionsCache();
         mStatsUtilsManager.onLoadSettings(this, currentSettingsValues);
     }
 
@@ -1369,6 +1373,29 @@ public class LatinIME extends InputMethodService implements
         return mInputLogic.getCurrentRecapitalizeState();
     }
 
+    /** Returns the letters directly before the cursor, e.g. for searching emojis by name. */
+    @NonNull
+    public String getWordBeforeCursor() {
+        final CharSequence textBeforeCursor = mInputLogic.mConnection.getTextBeforeCursor(MAX_WORD_BEFORE_CURSOR_LENGTH, 0);
+        if (textBeforeCursor == null) return "";
+        int start = textBeforeCursor.length();
+        while (start > 0) {
+            final int codePoint = Character.codePointBefore(textBeforeCursor, start);
+            if (!Character.isLetter(codePoint)) break;
+            start -= Character.charCount(codePoint);
+        }
+        return textBeforeCursor.subSequence(start, textBeforeCursor.length()).toString();
+    }
+
+    /**
+     * Deletes the word directly before the cursor if it's the given word, e.g. to replace the
+     * query of an emoji search with the chosen emoji.
+     */
+    public void deleteWordBeforeCursor(@NonNull final String word) {
+        if (word.isEmpty() || !word.equals(getWordBeforeCursor())) return;
+        mInputLogic.deleteTextBeforeCursor(word.length());
+    }
+
     /**
      * @param codePoints code points to get coordinates for.
      * @return x,y coordinates for this keyboard, as a flattened array.
@@ -1618,6 +1645,7 @@ public class LatinIME extends InputMethodService implements
 
     // TODO[IL]: Move this out of LatinIME.
     public void getSuggestedWords(final int inputStyle, final int sequenceNumber,
+                                  final int requestGeneration,
                                   final OnGetSuggestedWordsCallback callback) {
         final Keyboard keyboard = mKeyboardSwitcher.getKeyboard();
         if (keyboard == null) {
@@ -1625,7 +1653,8 @@ public class LatinIME extends InputMethodService implements
             return;
         }
         mInputLogic.getSuggestedWords(mSettings.getCurrent(), keyboard,
-                mKeyboardSwitcher.getKeyboardShiftMode(), inputStyle, sequenceNumber, callback);
+                mKeyboardSwitcher.getKeyboardShiftMode(), inputStyle, sequenceNumber,
+                requestGeneration, callback);
     }
 
     @Override
@@ -1907,9 +1936,12 @@ public class LatinIME extends InputMethodService implements
         final Keyboard keyboard = mKeyboardSwitcher.getKeyboard();
         final int keyboardMode = keyboard != null ? keyboard.mId.mMode : -1;
         p.println("  Keyboard mode = " + keyboardMode);
+        p.println("  " + KeyboardLayoutSet.getKeyboardCacheStatsForDebug());
         final SettingsValues settingsValues = mSettings.getCurrent();
         p.println(settingsValues.dump());
         p.println(mDictionaryFacilitator.dump(this));
+        p.println("Executors :");
+        p.println(ExecutorUtils.getStatsForDebug());
     }
 
     // slightly modified from Simple Keyboard: https://github.com/rkkr/simple-keyboard/blob/master/app/src/main/java/rkr/simplekeyboard/inputmethod/latin/LatinIME.java
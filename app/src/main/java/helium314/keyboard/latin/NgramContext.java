@@ -69,7 +69,8 @@ public class NgramContext {
 
         @Override
         public int hashCode() {
-            return Arrays.hashCode(new Object[] { mWord, mIsBeginningOfSentence } );
+            // consistent with equals, which compares the content of mWord
+            return Arrays.hashCode(new Object[] { mWord == null ? null : mWord.toString(), mIsBeginningOfSentence } );
         }
 
         @Override
@@ -225,12 +226,14 @@ public class NgramContext {
 
     @Override
     public int hashCode() {
+        // empty entries are skipped, as trailing empty entries are ignored in equals
         int hashValue = 0;
-        for (final WordInfo wordInfo : mPrevWordsInfo) {
-            if (!WordInfo.EMPTY_WORD_INFO.equals(wordInfo)) {
-                break;
+        for (int i = 0; i < mPrevWordsCount; i++) {
+            final WordInfo wordInfo = mPrevWordsInfo[i];
+            if (wordInfo == null || WordInfo.EMPTY_WORD_INFO.equals(wordInfo)) {
+                continue;
             }
-            hashValue ^= wordInfo.hashCode();
+            hashValue ^= Integer.rotateLeft(wordInfo.hashCode(), i);
         }
         return hashValue;
     }
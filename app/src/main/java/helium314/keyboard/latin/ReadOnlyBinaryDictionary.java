@@ -20,6 +20,8 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * This class provides binary dictionary reading operations with locking. An instance of this class
  * can be used by multiple threads. Note that different session IDs must be used when multiple
  * threads get suggestions using this class.
+ * The native dictionary is shared with other instances for the same file, see
+ * {@link BinaryDictionaryRegistry}.
  */
 public final class ReadOnlyBinaryDictionary extends Dictionary {
     /**
@@ -29,12 +31,13 @@ public final class ReadOnlyBinaryDictionary extends Dictionary {
     private final ReentrantReadWriteLock mLock = new ReentrantReadWriteLock();
 
     private final BinaryDictionary mBinaryDictionary;
+    private boolean mClosed;
 
     public ReadOnlyBinaryDictionary(final String filename, final long offset, final long length,
             final boolean useFullEditDistance, final Locale locale, final String dictType) {
         super(dictType, locale);
-        mBinaryDictionary = new BinaryDictionary(filename, offset, length, useFullEditDistance,
-                locale, dictType, false /* isUpdatable */);
+        mBinaryDictionary = BinaryDictionaryRegistry.acquire(filename, offset, length,
+                useFullEditDistance, locale, dictType);
     }
 
     public boolean isValidDictionary() {
@@ -47,11 +50,22 @@ public final class ReadOnlyBinaryDictionary extends Dictionary {
             final SettingsValuesForSuggestion settingsValuesForSuggestion,
             final int sessionId, final float weightForLocale,
             final float[] inOutWeightOfLangModelVsSpatialModel) {
+        return getSuggestions(composedData, ngramContext, proximityInfoHandle,
+                settingsValuesForSuggestion, sessionId, weightForLocale,
+                inOutWeightOfLangModelVsSpatialModel, NO_SCORE_THRESHOLD);
+    }
+
+    @Override
+    public ArrayList<SuggestedWordInfo> getSuggestions(final ComposedData composedData,
+            final NgramContext ngramContext, final long proximityInfoHandle,
+            final SettingsValuesForSuggestion settingsValuesForSuggestion,
+            final int sessionId, final float weightForLocale,
+            final float[] inOutWeightOfLangModelVsSpatialModel, final int minScore) {
         if (mLock.readLock().tryLock()) {
             try {
                 return mBinaryDictionary.getSuggestions(composedData, ngramContext,
                         proximityInfoHandle, settingsValuesForSuggestion, sessionId,
-                        weightForLocale, inOutWeightOfLangModelVsSpatialModel);
+                        weightForLocale, inOutWeightOfLangModelVsSpatialModel, minScore);
             } finally {
                 mLock.readLock().unlock();
             }
@@ -111,7 +125,10 @@ public final class ReadOnlyBinaryDictionary extends Dictionary {
     public void close() {
         mLock.writeLock().lock();
         try {
-            mBinaryDictionary.close();
+            if (!mClosed) {
+                mClosed = true;
+                BinaryDictionaryRegistry.release(mBinaryDictionary);
+            }
         } finally {
             mLock.writeLock().unlock();
         }
@@ -6,6 +6,8 @@
 package helium314.keyboard.latin
 
 import android.text.TextUtils
+import android.util.LruCache
+import androidx.annotation.VisibleForTesting
 import com.android.inputmethod.latin.utils.BinaryDictionaryUtils
 import helium314.keyboard.keyboard.Keyboard
 import helium314.keyboard.latin.SuggestedWords.SuggestedWordInfo
@@ -31,10 +33,39 @@ import java.util.Locale
 class Suggest(private val mDictionaryFacilitator: DictionaryFacilitator) {
     private var mAutoCorrectionThreshold = 0f
     private val mPlausibilityThreshold = 0f
-    private val nextWordSuggestionsCache = HashMap<NgramContext, SuggestionResults>()
+    // size is the total number of cached suggestions, so contexts with few suggestions don't use up the cache
+    private val nextWordSuggestionsCache = object : LruCache<NextWordSuggestionsKey, SuggestionResults>(NEXT_WORD_SUGGESTIONS_CACHE_SIZE) {
+        override fun sizeOf(key: NextWordSuggestionsKey, value: SuggestionResults) = value.size + 1
+    }
+
+    // incremented whenever dictionary content changes, results looked up before a change are not cached
+    private var nextWordSuggestionsGeneration = 0
+
+    init {
+        // learning words may happen on a background thread after the input logic is done with a word,
+        // so the cache is invalidated by the dictionaries once the change is applied
+        mDictionaryFacilitator.setDictionaryContentListener { word, ngramContext ->
+            if (word == null || ngramContext == null) clearNextWordSuggestionsCache()
+            else invalidateNextWordSuggestions(ngramContext)
+        }
+    }
+
+    private fun clearNextWordSuggestionsCache() = synchronized(nextWordSuggestionsCache) {
+        nextWordSuggestionsGeneration++
+        nextWordSuggestionsCache.evictAll()
+    }
 
-    // cache cleared whenever LatinIME.loadSettings is called, notably on changing layout and switching input fields
-    fun clearNextWordSuggestionsCache() = nextWordSuggestionsCache.clear()
+    /**
+     * Remove cached next word suggestions that may change when a word is learned after [ngramContext],
+     * i.e. for all contexts ending with the same previous word.
+     */
+    private fun invalidateNextWordSuggestions(ngramContext: NgramContext) = synchronized(nextWordSuggestionsCache) {
+        nextWordSuggestionsGeneration++
+        for (key in nextWordSuggestionsCache.snapshot().keys) {
+            if (key.hasSamePrevWord(ngramContext))
+                nextWordSuggestionsCache.remove(key)
+        }
+    }
 
     /**
      * Set the normalized-score threshold for a suggestion to be considered strong enough that we
@@ -51,13 +82,14 @@ class Suggest(private val mDictionaryFacilitator: DictionaryFacilitator) {
 
     fun getSuggestedWords(wordComposer: WordComposer, ngramContext: NgramContext, keyboard: Keyboard,
                           settingsValuesForSuggestion: SettingsValuesForSuggestion, isCorrectionEnabled: Boolean,
-                          inputStyle: Int, sequenceNumber: Int, callback: OnGetSuggestedWordsCallback) {
+                          inputStyle: Int, sequenceNumber: Int, requestGeneration: Int,
+                          callback: OnGetSuggestedWordsCallback) {
         if (wordComposer.isBatchMode) {
             getSuggestedWordsForBatchInput(wordComposer, ngramContext, keyboard, settingsValuesForSuggestion,
                 inputStyle, sequenceNumber, callback)
         } else {
             getSuggestedWordsForNonBatchInput(wordComposer, ngramContext, keyboard, settingsValuesForSuggestion,
-                inputStyle, isCorrectionEnabled, sequenceNumber, callback)
+                inputStyle, isCorrectionEnabled, sequenceNumber, requestGeneration, callback)
         }
     }
 
@@ -65,12 +97,13 @@ class Suggest(private val mDictionaryFacilitator: DictionaryFacilitator) {
     // and calls the callback function with the suggestions.
     private fun getSuggestedWordsForNonBatchInput(wordComposer: WordComposer, ngramContext: NgramContext, keyboard: Keyboard,
                       settingsValuesForSuggestion: SettingsValuesForSuggestion, inputStyleIfNotPrediction: Int,
-                      isCorrectionEnabled: Boolean, sequenceNumber: Int, callback: OnGetSuggestedWordsCallback) {
+                      isCorrectionEnabled: Boolean, sequenceNumber: Int, requestGeneration: Int,
+                      callback: OnGetSuggestedWordsCallback) {
         val typedWordString = wordComposer.typedWord
         val resultsArePredictions = !wordComposer.isComposingWord
         val suggestionResults = if (typedWordString.isEmpty())
                 getNextWordSuggestions(ngramContext, keyboard, inputStyleIfNotPrediction, settingsValuesForSuggestion)
-            else mDictionaryFacilitator.getSuggestionResults(wordComposer.composedDataSnapshot, ngramContext, keyboard,
+            else mDictionaryFacilitator.getSuggestionResults(wordComposer.getComposedDataSnapshot(requestGeneration), ngramContext, keyboard,
                 settingsValuesForSuggestion, SESSION_ID_TYPING, inputStyleIfNotPrediction)
         val trailingSingleQuotesCount = StringUtils.getTrailingSingleQuotesCount(typedWordString)
         val suggestionsContainer = getTransformedSuggestedWordInfoList(wordComposer, suggestionResults,
@@ -368,16 +401,32 @@ class Suggest(private val mDictionaryFacilitator: DictionaryFacilitator) {
     }
 
     /** get suggestions based on the current ngram context, with an empty typed word (that's what next word suggestions do)  */
-    private fun getNextWordSuggestions(ngramContext: NgramContext, keyboard: Keyboard, inputStyle: Int,
-                                       settingsValuesForSuggestion: SettingsValuesForSuggestion): SuggestionResults {
-        val cachedResults = nextWordSuggestionsCache[ngramContext]
-        if (cachedResults != null) return cachedResults
+    @VisibleForTesting
+    internal fun getNextWordSuggestions(ngramContext: NgramContext, keyboard: Keyboard, inputStyle: Int,
+                                        settingsValuesForSuggestion: SettingsValuesForSuggestion): SuggestionResults {
+        val key = NextWordSuggestionsKey(mDictionaryFacilitator.locales, ngramContext,
+            settingsValuesForSuggestion.mBlockPotentiallyOffensive)
+        val generation = synchronized(nextWordSuggestionsCache) {
+            val cachedResults = nextWordSuggestionsCache[key]
+            if (cachedResults != null) return cachedResults
+            nextWordSuggestionsGeneration
+        }
         val newResults = mDictionaryFacilitator.getSuggestionResults(ComposedData(InputPointers(1),
             false, ""), ngramContext, keyboard, settingsValuesForSuggestion, SESSION_ID_TYPING, inputStyle)
-        nextWordSuggestionsCache[ngramContext] = newResults
+        synchronized(nextWordSuggestionsCache) {
+            if (generation == nextWordSuggestionsGeneration)
+                nextWordSuggestionsCache.put(key, newResults)
+        }
         return newResults
     }
 
+    private data class NextWordSuggestionsKey(val locales: List<Locale>, val ngramContext: NgramContext,
+                                              val blockPotentiallyOffensive: Boolean) {
+        fun hasSamePrevWord(other: NgramContext) =
+            TextUtils.equals(ngramContext.getNthPrevWord(1), other.getNthPrevWord(1))
+                    && ngramContext.isNthPrevWordBeginningOfSentence(1) == other.isNthPrevWordBeginningOfSentence(1)
+    }
+
     companion object {
         private val TAG: String = Suggest::class.java.simpleName
 
@@ -386,6 +435,9 @@ class Suggest(private val mDictionaryFacilitator: DictionaryFacilitator) {
         const val SESSION_ID_TYPING = 0
         const val SESSION_ID_GESTURE = 0
 
+        // roughly 200 contexts with full suggestion lists
+        private const val NEXT_WORD_SUGGESTIONS_CACHE_SIZE = 4000
+
         // Close to -2**31
         private const val SUPPRESS_SUGGEST_THRESHOLD = -2000000000
 
@@ -75,6 +75,9 @@ public class UserBinaryDictionary extends ExpandableBinaryDictionary {
             @Override
             public void onChange(final boolean self, final Uri uri) {
                 setNeedsToRecreate();
+                // reload now instead of on the next lookup, so content listeners like the spell
+                // checker with its cached results learn about the change
+                reloadDictionaryIfRequired();
             }
         };
         context.getContentResolver().registerContentObserver(Words.CONTENT_URI, true, mObserver);
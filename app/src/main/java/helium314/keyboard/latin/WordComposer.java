@@ -89,7 +89,12 @@ public final class WordComposer {
     }
 
     public ComposedData getComposedDataSnapshot() {
-        return new ComposedData(getInputPointers(), isBatchMode(), mTypedWordCache.toString());
+        return getComposedDataSnapshot(ComposedData.NOT_A_REQUEST_GENERATION);
+    }
+
+    public ComposedData getComposedDataSnapshot(final int requestGeneration) {
+        return new ComposedData(getInputPointers(), isBatchMode(), mTypedWordCache.toString(),
+                requestGeneration);
     }
 
     /**
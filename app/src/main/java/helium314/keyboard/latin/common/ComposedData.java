@@ -12,17 +12,29 @@ import androidx.annotation.NonNull;
  * An immutable class that encapsulates a snapshot of word composition data.
  */
 public class ComposedData {
+    // Must be equal to NOT_A_REQUEST_GENERATION in native/jni/src/defines.h
+    public static final int NOT_A_REQUEST_GENERATION = 0;
+
     @NonNull
     public final InputPointers mInputPointers;
     public final boolean mIsBatchMode;
     @NonNull
     public final String mTypedWord;
+    // Generation of the suggestion request this snapshot was taken for. Native lookups for a
+    // generation are cancelled once a newer request is made, see DicTraverseSession.
+    public final int mRequestGeneration;
 
     public ComposedData(@NonNull final InputPointers inputPointers, final boolean isBatchMode,
             @NonNull final String typedWord) {
+        this(inputPointers, isBatchMode, typedWord, NOT_A_REQUEST_GENERATION);
+    }
+
+    public ComposedData(@NonNull final InputPointers inputPointers, final boolean isBatchMode,
+            @NonNull final String typedWord, final int requestGeneration) {
         mInputPointers = inputPointers;
         mIsBatchMode = isBatchMode;
         mTypedWord = typedWord;
+        mRequestGeneration = requestGeneration;
     }
 
     /**
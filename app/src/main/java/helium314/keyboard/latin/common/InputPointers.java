@@ -8,69 +8,194 @@ package helium314.keyboard.latin.common;
 
 import androidx.annotation.NonNull;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Pointers of a touch or gesture input, stored in a direct buffer that is read in place by the
+ * native decoder.
+ * <p>
+ * The buffer holds one block of {@code capacity} ints per field, in the order x, y, pointer id and
+ * time, so the native code gets each field as an int array without copying.
+ * Stores are shared by {@link #set(InputPointers)} and {@link #copy(InputPointers)}. Appending
+ * after the last point of a store is done in place, any other change to a shared store first
+ * copies it, so the points seen by other holders never change. A store that only one instance
+ * holds is changed in place.
+ */
 // TODO: This class is not thread-safe.
 public final class InputPointers {
     private static final boolean DEBUG_TIME = false;
 
+    private static final int FIELD_X = 0;
+    private static final int FIELD_Y = 1;
+    private static final int FIELD_POINTER_ID = 2;
+    private static final int FIELD_TIME = 3;
+    private static final int FIELD_COUNT = 4;
+    private static final int BYTES_PER_POINT = FIELD_COUNT * Integer.SIZE / Byte.SIZE;
+
     private final int mDefaultCapacity;
-    private final ResizableIntArray mXCoordinates;
-    private final ResizableIntArray mYCoordinates;
-    private final ResizableIntArray mPointerIds;
-    private final ResizableIntArray mTimes;
+    // Allocated lazily, most instances only ever share the store of another one.
+    private PointerStore mStore;
+    private int mLength;
 
     public InputPointers(final int defaultCapacity) {
-        mDefaultCapacity = defaultCapacity;
-        mXCoordinates = new ResizableIntArray(defaultCapacity);
-        mYCoordinates = new ResizableIntArray(defaultCapacity);
-        mPointerIds = new ResizableIntArray(defaultCapacity);
-        mTimes = new ResizableIntArray(defaultCapacity);
+        mDefaultCapacity = Math.max(defaultCapacity, 1);
     }
 
-    private void fillWithLastTimeUntil(final int index) {
-        final int fromIndex = mTimes.getLength();
-        // Fill the gap with the latest time.
-        // See {@link #getTime(int)} and {@link #isValidTimeStamps()}.
-        if (fromIndex <= 0) {
+    private static final class PointerStore {
+        @NonNull
+        final ByteBuffer mBuffer;
+        @NonNull
+        final IntBuffer mInts;
+        final int mCapacity;
+        // The largest length any holder has written, appending is only in place at this length.
+        int mWrittenLength;
+        // Instances that dropped the store without a change or reset still count as holders.
+        int mHolderCount = 1;
+
+        PointerStore(final int capacity) {
+            mCapacity = capacity;
+            mBuffer = ByteBuffer.allocateDirect(capacity * BYTES_PER_POINT)
+                    .order(ByteOrder.nativeOrder());
+            mInts = mBuffer.asIntBuffer();
+        }
+
+        int get(final int field, final int index) {
+            return mInts.get(field * mCapacity + index);
+        }
+
+        void put(final int field, final int index, final int value) {
+            mInts.put(field * mCapacity + index, value);
+        }
+
+        void put(final int field, final int index, final int[] src, final int startPos,
+                final int length) {
+            final IntBuffer ints = mInts.duplicate();
+            ints.position(field * mCapacity + index);
+            ints.put(src, startPos, length);
+        }
+
+        void fill(final int field, final int fromIndex, final int toIndex, final int value) {
+            for (int i = fromIndex; i < toIndex; i++) {
+                put(field, i, value);
+            }
+        }
+
+        boolean isShared() {
+            return mHolderCount > 1;
+        }
+
+        void copyTo(@NonNull final PointerStore dest, final int srcIndex, final int length) {
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                final IntBuffer src = mInts.duplicate();
+                final int srcPos = field * mCapacity + srcIndex;
+                src.position(srcPos).limit(srcPos + length);
+                final IntBuffer dst = dest.mInts.duplicate();
+                dst.position(field * dest.mCapacity);
+                dst.put(src);
+            }
+        }
+
+        // Moves the points from srcIndex on to the start of each field.
+        void moveToStart(final int srcIndex, final int length) {
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                final int start = field * mCapacity;
+                for (int i = 0; i < length; i++) {
+                    mInts.put(start + i, mInts.get(start + srcIndex + i));
+                }
+            }
+        }
+    }
+
+    private void setStore(final PointerStore store) {
+        if (mStore == store) {
             return;
         }
-        final int fillLength = index - fromIndex + 1;
-        if (fillLength <= 0) {
+        if (mStore != null) {
+            mStore.mHolderCount--;
+        }
+        if (store != null) {
+            store.mHolderCount++;
+        }
+        mStore = store;
+    }
+
+    /**
+     * Prepares the store for writing the points from {@code fromIndex} up to {@code newLength}.
+     * Grows the store, or copies it if the write would change points other holders can see.
+     */
+    private PointerStore prepareWrite(final int fromIndex, final int newLength) {
+        final PointerStore store = mStore;
+        final boolean appendsInPlace = store != null
+                && (!store.isShared() || (fromIndex >= mLength && mLength == store.mWrittenLength));
+        if (appendsInPlace && newLength <= store.mCapacity) {
+            store.mWrittenLength = Math.max(store.mWrittenLength, newLength);
+            return store;
+        }
+        final int currentCapacity = store == null ? 0 : store.mCapacity;
+        final int capacity = newLength <= currentCapacity ? currentCapacity
+                : Math.max(Math.max(newLength, currentCapacity * 2), mDefaultCapacity);
+        final PointerStore newStore = new PointerStore(capacity);
+        if (store != null) {
+            store.copyTo(newStore, 0, mLength);
+        }
+        newStore.mWrittenLength = newLength;
+        mStore = newStore;
+        if (store != null) {
+            store.mHolderCount--;
+        }
+        return newStore;
+    }
+
+    private void fillWithLastTimeUntil(final PointerStore store, final int index) {
+        final int fromIndex = mLength;
+        // Fill the gap with the latest time.
+        // See {@link #getTime(int)} and {@link #isValidTimeStamps()}.
+        if (fromIndex <= 0 || index <= fromIndex) {
             return;
         }
-        final int lastTime = mTimes.get(fromIndex - 1);
-        mTimes.fill(lastTime, fromIndex, fillLength);
+        store.fill(FIELD_TIME, fromIndex, index, store.get(FIELD_TIME, fromIndex - 1));
     }
 
     public void addPointerAt(final int index, final int x, final int y, final int pointerId,
             final int time) {
-        mXCoordinates.addAt(index, x);
-        mYCoordinates.addAt(index, y);
-        mPointerIds.addAt(index, pointerId);
-        if (DEBUG_TIME) {
-            fillWithLastTimeUntil(index);
+        final int newLength = Math.max(mLength, index + 1);
+        final PointerStore store = prepareWrite(Math.min(index, mLength), newLength);
+        if (index > mLength) {
+            // Points that were skipped are zero, only times may be filled in for debugging.
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                store.fill(field, mLength, index, 0);
+            }
+            if (DEBUG_TIME) {
+                fillWithLastTimeUntil(store, index);
+            }
         }
-        mTimes.addAt(index, time);
+        store.put(FIELD_X, index, x);
+        store.put(FIELD_Y, index, y);
+        store.put(FIELD_POINTER_ID, index, pointerId);
+        store.put(FIELD_TIME, index, time);
+        mLength = newLength;
     }
 
     public void addPointer(final int x, final int y, final int pointerId, final int time) {
-        mXCoordinates.add(x);
-        mYCoordinates.add(y);
-        mPointerIds.add(pointerId);
-        mTimes.add(time);
+        addPointerAt(mLength, x, y, pointerId, time);
     }
 
+    /**
+     * Makes this hold the same points as {@code ip}, sharing its store.
+     */
     public void set(@NonNull final InputPointers ip) {
-        mXCoordinates.set(ip.mXCoordinates);
-        mYCoordinates.set(ip.mYCoordinates);
-        mPointerIds.set(ip.mPointerIds);
-        mTimes.set(ip.mTimes);
+        setStore(ip.mStore);
+        mLength = ip.mLength;
     }
 
+    /**
+     * Same as {@link #set(InputPointers)}: changes to a shared store are copy-on-write, so this
+     * does not need to copy the points.
+     */
     public void copy(@NonNull final InputPointers ip) {
-        mXCoordinates.copy(ip.mXCoordinates);
-        mYCoordinates.copy(ip.mYCoordinates);
-        mPointerIds.copy(ip.mPointerIds);
-        mTimes.copy(ip.mTimes);
+        set(ip);
     }
 
     /**
@@ -89,10 +214,13 @@ public final class InputPointers {
         if (length == 0) {
             return;
         }
-        mXCoordinates.append(xCoordinates, startPos, length);
-        mYCoordinates.append(yCoordinates, startPos, length);
-        mPointerIds.fill(pointerId, mPointerIds.getLength(), length);
-        mTimes.append(times, startPos, length);
+        final int index = mLength;
+        final PointerStore store = prepareWrite(index, index + length);
+        store.put(FIELD_X, index, xCoordinates.getPrimitiveArray(), startPos, length);
+        store.put(FIELD_Y, index, yCoordinates.getPrimitiveArray(), startPos, length);
+        store.fill(FIELD_POINTER_ID, index, index + length, pointerId);
+        store.put(FIELD_TIME, index, times.getPrimitiveArray(), startPos, length);
+        mLength = index + length;
     }
 
     /**
@@ -100,53 +228,93 @@ public final class InputPointers {
      * @param elementCount how many elements to shift.
      */
     public void shift(final int elementCount) {
-        mXCoordinates.shift(elementCount);
-        mYCoordinates.shift(elementCount);
-        mPointerIds.shift(elementCount);
-        mTimes.shift(elementCount);
+        final PointerStore store = mStore;
+        if (store == null || elementCount <= 0) {
+            return;
+        }
+        final int newLength = Math.max(mLength - elementCount, 0);
+        if (store.isShared()) {
+            // Other holders still use the points.
+            final PointerStore newStore = new PointerStore(store.mCapacity);
+            store.copyTo(newStore, elementCount, newLength);
+            newStore.mWrittenLength = newLength;
+            setStore(null);
+            mStore = newStore;
+        } else {
+            store.moveToStart(elementCount, newLength);
+            store.mWrittenLength = newLength;
+        }
+        mLength = newLength;
     }
 
     public void reset() {
-        final int defaultCapacity = mDefaultCapacity;
-        mXCoordinates.reset(defaultCapacity);
-        mYCoordinates.reset(defaultCapacity);
-        mPointerIds.reset(defaultCapacity);
-        mTimes.reset(defaultCapacity);
+        if (mStore != null && mStore.isShared()) {
+            // Other holders still use the points.
+            setStore(null);
+        } else if (mStore != null) {
+            mStore.mWrittenLength = 0;
+        }
+        mLength = 0;
     }
 
     public int getPointerSize() {
-        return mXCoordinates.getLength();
+        return mLength;
     }
 
+    /**
+     * Gets the direct buffer holding the points for native code, see the class comment for the
+     * layout. Its capacity is at least {@link #getPointerSize()} points.
+     */
     @NonNull
-    public int[] getXCoordinates() {
-        return mXCoordinates.getPrimitiveArray();
+    public ByteBuffer getPointerBuffer() {
+        if (mStore == null) {
+            mStore = new PointerStore(mDefaultCapacity);
+        }
+        return mStore.mBuffer;
     }
 
-    @NonNull
-    public int[] getYCoordinates() {
-        return mYCoordinates.getPrimitiveArray();
+    public int getX(final int index) {
+        return get(FIELD_X, index);
     }
 
-    @NonNull
-    public int[] getPointerIds() {
-        return mPointerIds.getPrimitiveArray();
+    public int getY(final int index) {
+        return get(FIELD_Y, index);
+    }
+
+    public int getPointerId(final int index) {
+        return get(FIELD_POINTER_ID, index);
     }
 
     /**
-     * Gets the time each point was registered, in milliseconds, relative to the first event in the
+     * Gets the time the point was registered, in milliseconds, relative to the first event in the
      * sequence.
-     * @return The time each point was registered, in milliseconds, relative to the first event in
-     * the sequence.
      */
-    @NonNull
-    public int[] getTimes() {
-        return mTimes.getPrimitiveArray();
+    public int getTime(final int index) {
+        return get(FIELD_TIME, index);
+    }
+
+    private int get(final int field, final int index) {
+        if (index < mLength) {
+            return mStore.get(field, index);
+        }
+        throw new ArrayIndexOutOfBoundsException("length=" + mLength + "; index=" + index);
     }
 
     @Override
     public String toString() {
-        return "size=" + getPointerSize() + " id=" + mPointerIds + " time=" + mTimes
-                + " x=" + mXCoordinates + " y=" + mYCoordinates;
+        return "size=" + getPointerSize() + " id=" + fieldToString(FIELD_POINTER_ID)
+                + " time=" + fieldToString(FIELD_TIME) + " x=" + fieldToString(FIELD_X)
+                + " y=" + fieldToString(FIELD_Y);
+    }
+
+    private String fieldToString(final int field) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < mLength; i++) {
+            if (i != 0) {
+                sb.append(",");
+            }
+            sb.append(mStore.get(field, i));
+        }
+        return "[" + sb + "]";
     }
 }
@@ -13,7 +13,8 @@ public class NativeSuggestOptions {
     private static final int BLOCK_OFFENSIVE_WORDS = 2;
     private static final int SPACE_AWARE_GESTURE_ENABLED = 3;
     private static final int WEIGHT_FOR_LOCALE_IN_THOUSANDS = 4;
-    private static final int OPTIONS_SIZE = 5;
+    private static final int REQUEST_GENERATION = 5;
+    private static final int OPTIONS_SIZE = 6;
 
     private final int[] mOptions;
 
@@ -43,6 +44,10 @@ public class NativeSuggestOptions {
         setIntegerOption(WEIGHT_FOR_LOCALE_IN_THOUSANDS, (int) (value * 1000));
     }
 
+    public void setRequestGeneration(final int value) {
+        setIntegerOption(REQUEST_GENERATION, value);
+    }
+
     public int[] getOptions() {
         return mOptions;
     }
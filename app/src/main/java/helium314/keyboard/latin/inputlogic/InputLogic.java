@@ -199,6 +199,21 @@ public final class InputLogic {
         mInputLogicHandler.reset();
     }
 
+    /**
+     * Deletes text before the cursor, after finishing the composing word.
+     * @param length the number of chars to delete.
+     */
+    public void deleteTextBeforeCursor(final int length) {
+        mConnection.beginBatchEdit();
+        if (mWordComposer.isComposingWord()) {
+            mConnection.finishComposingText();
+        }
+        resetComposingState(true /* alsoResetLastComposedWord */);
+        mConnection.deleteTextBeforeCursor(length);
+        mConnection.endBatchEdit();
+        mSpaceState = SpaceState.NONE;
+    }
+
     // Normally this class just gets out of scope after the process ends, but in unit tests, we
     // create several instances of LatinIME in the same process, which results in several
     // instances of InputLogic. This cleans up the associated handler so that tests don't leak
@@ -2397,7 +2412,8 @@ public final class InputLogic {
 
     public void getSuggestedWords(final SettingsValues settingsValues,
             final Keyboard keyboard, final int keyboardShiftMode, final int inputStyle,
-            final int sequenceNumber, final OnGetSuggestedWordsCallback callback) {
+            final int sequenceNumber, final int requestGeneration,
+            final OnGetSuggestedWordsCallback callback) {
         mWordComposer.adviseCapitalizedModeBeforeFetchingSuggestions(
                 getActualCapsMode(settingsValues, keyboardShiftMode));
         mSuggest.getSuggestedWords(mWordComposer,
@@ -2410,7 +2426,7 @@ public final class InputLogic {
                 keyboard,
                 settingsValues.mSettingsValuesForSuggestion,
                 settingsValues.mAutoCorrectEnabled,
-                inputStyle, sequenceNumber, callback);
+                inputStyle, sequenceNumber, requestGeneration, callback);
     }
 
     /**
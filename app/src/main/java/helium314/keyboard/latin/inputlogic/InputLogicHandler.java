@@ -10,11 +10,16 @@ import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Message;
 
+import com.android.inputmethod.latin.DicTraverseSession;
+
 import helium314.keyboard.latin.LatinIME;
 import helium314.keyboard.latin.Suggest.OnGetSuggestedWordsCallback;
 import helium314.keyboard.latin.SuggestedWords;
+import helium314.keyboard.latin.common.ComposedData;
 import helium314.keyboard.latin.common.InputPointers;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * A helper to manage deferred tasks for the input logic.
  */
@@ -25,6 +30,8 @@ class InputLogicHandler implements Handler.Callback {
     final InputLogic mInputLogic;
     private final Object mLock = new Object();
     private boolean mInBatchInput; // synchronized using {@link #mLock}.
+    // Generation of the latest suggestion request. Every request supersedes the ones before it.
+    private final AtomicInteger mSuggestionRequestGeneration = new AtomicInteger();
 
     private static final int MSG_GET_SUGGESTED_WORDS = 1;
 
@@ -82,8 +89,17 @@ class InputLogicHandler implements Handler.Callback {
     // Called on the Non-UI handler thread by the Handler code.
     @Override
     public boolean handleMessage(final Message msg) {
-        if (msg.what == MSG_GET_SUGGESTED_WORDS)
-            mLatinIME.getSuggestedWords(msg.arg1, msg.arg2, (OnGetSuggestedWordsCallback) msg.obj);
+        if (msg.what == MSG_GET_SUGGESTED_WORDS) {
+            final SuggestionRequest request = (SuggestionRequest) msg.obj;
+            // Don't start lookups that are outdated already.
+            if (request.isSuperseded())
+                return true;
+            mLatinIME.getSuggestedWords(msg.arg1, msg.arg2, request.getNativeRequestGeneration(),
+                    suggestedWords -> {
+                        if (!request.isSuperseded())
+                            request.mCallback.onGetSuggestedWords(suggestedWords);
+                    });
+        }
         return true;
     }
 
@@ -193,9 +209,46 @@ class InputLogicHandler implements Handler.Callback {
         updateBatchInput(batchPointers, sequenceNumber, true);
     }
 
+    /**
+     * Fetch suggestions for the current state of the word composer on the Non-UI handler thread.
+     * <p>
+     * Each call supersedes all earlier requests: queued requests are dropped, native lookups
+     * still running for typing are cancelled, and callbacks of superseded requests are not
+     * called. The only exception are tail batch requests, because the result of a gesture
+     * must always be committed.
+     */
+    // Called on the UI thread by InputLogic.
     public void getSuggestedWords(final int inputStyle, final int sequenceNumber,
             final OnGetSuggestedWordsCallback callback) {
-        mNonUIThreadHandler.obtainMessage(
-                MSG_GET_SUGGESTED_WORDS, inputStyle, sequenceNumber, callback).sendToTarget();
+        final int generation = mSuggestionRequestGeneration.incrementAndGet();
+        DicTraverseSession.setLatestRequestGeneration(generation);
+        mNonUIThreadHandler.obtainMessage(MSG_GET_SUGGESTED_WORDS, inputStyle, sequenceNumber,
+                new SuggestionRequest(generation, inputStyle, callback)).sendToTarget();
+    }
+
+    private final class SuggestionRequest {
+        final int mGeneration;
+        final int mInputStyle;
+        final OnGetSuggestedWordsCallback mCallback;
+
+        SuggestionRequest(final int generation, final int inputStyle,
+                final OnGetSuggestedWordsCallback callback) {
+            mGeneration = generation;
+            mInputStyle = inputStyle;
+            mCallback = callback;
+        }
+
+        boolean isSuperseded() {
+            return mInputStyle != SuggestedWords.INPUT_STYLE_TAIL_BATCH
+                    && mGeneration != mSuggestionRequestGeneration.get();
+        }
+
+        // Gesture lookups are not cancelled while running: updates may arrive faster than they
+        // can be decoded, and cancelling would leave the gesture preview without any result.
+        int getNativeRequestGeneration() {
+            return mInputStyle == SuggestedWords.INPUT_STYLE_UPDATE_BATCH
+                    || mInputStyle == SuggestedWords.INPUT_STYLE_TAIL_BATCH
+                    ? ComposedData.NOT_A_REQUEST_GENERATION : mGeneration;
+        }
     }
 }
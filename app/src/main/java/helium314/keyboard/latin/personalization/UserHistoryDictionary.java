@@ -12,12 +12,14 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.android.inputmethod.latin.BinaryDictionary;
+import com.android.inputmethod.latin.utils.WordInputEventForPersonalization;
 import helium314.keyboard.latin.Dictionary;
 import helium314.keyboard.latin.ExpandableBinaryDictionary;
 import helium314.keyboard.latin.NgramContext;
 import helium314.keyboard.latin.makedict.DictionaryHeader;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Locale;
 import java.util.Map;
 
@@ -29,6 +31,11 @@ import java.util.Map;
 public class UserHistoryDictionary extends ExpandableBinaryDictionary {
     static final String NAME = UserHistoryDictionary.class.getSimpleName();
 
+    /**
+     * Words that are learned, but not yet added to the dictionary. Guarded by itself.
+     */
+    private final ArrayList<LearnedWord> mLearnedWords = new ArrayList<>();
+
     // TODO: Make this constructor private
     UserHistoryDictionary(final Context context, final Locale locale,
             @Nullable final String account) {
@@ -66,8 +73,65 @@ public class UserHistoryDictionary extends ExpandableBinaryDictionary {
         if (word.length() > BinaryDictionary.DICTIONARY_MAX_WORD_LENGTH) {
             return;
         }
-        userHistoryDictionary.updateEntriesForWord(ngramContext, word,
-                isValid, 1 /* count */, timestamp);
+        if (userHistoryDictionary instanceof UserHistoryDictionary) {
+            ((UserHistoryDictionary) userHistoryDictionary).learnWord(
+                    new LearnedWord(ngramContext, word, isValid, timestamp));
+        } else {
+            userHistoryDictionary.updateEntriesForWord(ngramContext, word,
+                    isValid, 1 /* count */, timestamp);
+        }
+    }
+
+    // Words learned while the dictionary is busy, e.g. with suggestions, are added together
+    // by a single update, so the write lock is taken once for all of them.
+    private void learnWord(@NonNull final LearnedWord learnedWord) {
+        synchronized (mLearnedWords) {
+            mLearnedWords.add(learnedWord);
+        }
+        updateDictionaryWithWriteLockCoalesced(NAME, this::addLearnedWordsLocked);
+    }
+
+    private void addLearnedWordsLocked() {
+        final LearnedWord[] learnedWords;
+        synchronized (mLearnedWords) {
+            if (mLearnedWords.isEmpty()) {
+                return;
+            }
+            learnedWords = mLearnedWords.toArray(new LearnedWord[0]);
+            mLearnedWords.clear();
+        }
+        final WordInputEventForPersonalization[] inputEvents =
+                new WordInputEventForPersonalization[learnedWords.length];
+        for (int i = 0; i < learnedWords.length; i++) {
+            inputEvents[i] = learnedWords[i].mInputEvent;
+        }
+        updateEntriesForInputEventsLocked(inputEvents);
+        for (final LearnedWord learnedWord : learnedWords) {
+            notifyContentChanged(learnedWord.mWord, learnedWord.mNgramContext);
+        }
+    }
+
+    @Override
+    public void removeUnigramEntryDynamically(final String word) {
+        // a word learned just before must not be added again after it's removed
+        updateDictionaryWithWriteLock(this::addLearnedWordsLocked);
+        super.removeUnigramEntryDynamically(word);
+    }
+
+    @Override
+    public void clear() {
+        synchronized (mLearnedWords) {
+            mLearnedWords.clear();
+        }
+        super.clear();
+    }
+
+    @Override
+    public void close() {
+        // tasks run in order, so learned words are added and the file is written before the
+        // dictionary is closed
+        onFinishInput();
+        super.close();
     }
 
     @Override
@@ -90,4 +154,18 @@ public class UserHistoryDictionary extends ExpandableBinaryDictionary {
         // Strings out of this dictionary should not be considered existing words.
         return false;
     }
+
+    private static final class LearnedWord {
+        @NonNull final NgramContext mNgramContext;
+        final String mWord;
+        final WordInputEventForPersonalization mInputEvent;
+
+        LearnedWord(@NonNull final NgramContext ngramContext, final String word,
+                final boolean isValid, final int timestamp) {
+            mNgramContext = ngramContext;
+            mWord = word;
+            mInputEvent = new WordInputEventForPersonalization(word, ngramContext, isValid,
+                    timestamp);
+        }
+    }
 }
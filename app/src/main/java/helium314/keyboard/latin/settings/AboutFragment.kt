@@ -47,7 +47,7 @@ class AboutFragment : SubScreenFragment() {
     private val logFilePicker = registerForActivityResult(ActivityResultContracts.StartActivityForResult()) { result ->
         if (result.resultCode != Activity.RESULT_OK) return@registerForActivityResult
         val uri = result.data?.data ?: return@registerForActivityResult
-        ExecutorUtils.getBackgroundExecutor(ExecutorUtils.KEYBOARD).execute {
+        ExecutorUtils.getBackgroundExecutor(ExecutorUtils.MAINTENANCE).execute {
             activity?.contentResolver?.openOutputStream(uri)?.use { os ->
                 os.bufferedWriter().use { it.write(Log.getLog().joinToString("\n")) }
             }
@@ -25,6 +25,7 @@ import androidx.preference.PreferenceManager
 import kotlinx.serialization.json.Json
 import helium314.keyboard.dictionarypack.DictionaryPackConstants
 import helium314.keyboard.keyboard.KeyboardActionListener
+import helium314.keyboard.latin.utils.BlacklistFile
 import helium314.keyboard.latin.utils.ChecksumCalculator
 import helium314.keyboard.keyboard.KeyboardLayoutSet
 import helium314.keyboard.keyboard.KeyboardSwitcher
@@ -66,7 +67,7 @@ import java.util.zip.ZipOutputStream
 class AdvancedSettingsFragment : SubScreenFragment() {
     private val libfile by lazy { File(requireContext().filesDir.absolutePath + File.separator + JniUtils.JNI_LIB_IMPORT_FILE_NAME) }
     private val backupFilePatterns by lazy { listOf(
-        "blacklists/.*\\.txt".toRegex(),
+        "blacklists/.*\\.(txt|bin)".toRegex(),
 //        "layouts/$CUSTOM_LAYOUT_PREFIX+\\..{0,4}".toRegex(), // can't expect a period at the end, as this would break restoring older backups
         "dicts/.*/.*user\\.dict".toRegex(),
         "UserHistoryDictionary.*/UserHistoryDictionary.*\\.(body|header)".toRegex(),
@@ -315,7 +316,7 @@ class AdvancedSettingsFragment : SubScreenFragment() {
         }
         var error: String? = ""
         val wait = CountDownLatch(1)
-        ExecutorUtils.getBackgroundExecutor(ExecutorUtils.KEYBOARD).execute {
+        ExecutorUtils.getBackgroundExecutor(ExecutorUtils.MAINTENANCE).execute {
             try {
                 activity?.contentResolver?.openOutputStream(uri)?.use { os ->
                     // write files to zip
@@ -359,13 +360,14 @@ class AdvancedSettingsFragment : SubScreenFragment() {
     private fun restore(uri: Uri) {
         var error: String? = ""
         val wait = CountDownLatch(1)
-        ExecutorUtils.getBackgroundExecutor(ExecutorUtils.KEYBOARD).execute {
+        ExecutorUtils.getBackgroundExecutor(ExecutorUtils.MAINTENANCE).execute {
             try {
                 activity?.contentResolver?.openInputStream(uri)?.use { inputStream ->
                     ZipInputStream(inputStream).use { zip ->
                         var entry: ZipEntry? = zip.nextEntry
                         val filesDir = requireContext().filesDir?.path ?: return@execute
                         val deviceProtectedFilesDir = DeviceProtectedUtils.getFilesDir(requireContext()).path
+                        BlacklistFile.onFilesReplaced()
                         Settings.getInstance().stopListener()
                         while (entry != null) {
                             if (entry.name.startsWith("unprotected${File.separator}")) {
@@ -428,7 +430,7 @@ class AdvancedSettingsFragment : SubScreenFragment() {
             }
             originalName.startsWith("blacklists") -> {
                 // replace file name after switch to language tag
-                val fileName = originalName.substringAfter("blacklists${File.separator}").substringBefore(".txt")
+                val fileName = originalName.substringAfter("blacklists${File.separator}").substringBeforeLast(".")
                 originalName.replace(fileName, fileName.constructLocale().toLanguageTag())
             }
             originalName.startsWith("layouts") -> {
@@ -310,7 +310,7 @@ open class ColorsSettingsFragment : Fragment(R.layout.color_settings), MenuProvi
     }
 
     private fun reloadKeyboard(show: Boolean) {
-        ExecutorUtils.getBackgroundExecutor(ExecutorUtils.KEYBOARD).execute {
+        ExecutorUtils.getBackgroundExecutor(ExecutorUtils.MAINTENANCE).execute {
             KeyboardSwitcher.getInstance().forceUpdateKeyboardTheme(requireContext())
             if (!show) return@execute
             // for some reason showing again does not work when running with executor
@@ -15,6 +15,7 @@ import android.graphics.BitmapFactory;
 import android.graphics.Typeface;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
+import android.text.TextUtils;
 import android.view.ContextThemeWrapper;
 
 import androidx.annotation.NonNull;
@@ -171,8 +172,15 @@ public final class Settings implements SharedPreferences.OnSharedPreferenceChang
 
     private Context mContext;
     private SharedPreferences mPrefs;
-    private SettingsValues mSettingsValues;
+    // Immutable, replaced as a whole when settings change, so reading it does not need the lock.
+    private volatile SettingsValues mSettingsValues;
+    // Held while creating new settings values.
     private final ReentrantLock mSettingsValuesLock = new ReentrantLock();
+    // What the current settings values were created from, to check whether they can be reused.
+    private Context mSettingsValuesContext;
+    private Configuration mSettingsValuesConfiguration;
+    private String mSettingsValuesSubtype;
+    private boolean mPrefsChangedSinceLoad = true;
 
     // static cache for background images to avoid potentially slow reload on every settings reload
     private final static Drawable[] sCachedBackgroundImages = new Drawable[4];
@@ -226,6 +234,7 @@ public final class Settings implements SharedPreferences.OnSharedPreferenceChang
                 return;
             }
             ToolbarUtilsKt.clearCustomToolbarKeyCodes();
+            mPrefsChangedSinceLoad = true;
             loadSettings(mContext, mSettingsValues.mLocale, mSettingsValues.mInputAttributes);
             StatsUtils.onLoadSettings(mSettingsValues);
         } finally {
@@ -241,16 +250,65 @@ public final class Settings implements SharedPreferences.OnSharedPreferenceChang
         mSettingsValuesLock.lock();
         mContext = context;
         try {
-            final SharedPreferences prefs = mPrefs;
-            Log.i(TAG, "loadSettings");
-            mSettingsValues = RunInLocaleKt.runInLocale(context, locale,
-                    ctx -> new SettingsValues(ctx, prefs, ctx.getResources(), inputAttributes));
+            // colors may depend on things other than preferences, e.g. background images
+            createSettingsValues(context, locale, inputAttributes, false);
         } finally {
             mSettingsValuesLock.unlock();
         }
     }
 
+    /**
+     * Like {@link #loadSettings(Context, Locale, InputAttributes)}, but keeps the current settings
+     * values if they were created from the same state, which is usual when switching text fields.
+     */
+    public void loadSettingsIfChanged(final Context context, final Locale locale,
+                                      @NonNull final InputAttributes inputAttributes) {
+        mSettingsValuesLock.lock();
+        mContext = context;
+        try {
+            final SettingsValues current = mSettingsValues;
+            final boolean unchanged = !mPrefsChangedSinceLoad && current != null
+                    && current.mLocale.equals(locale) && hasSameContextAndConfiguration(context)
+                    && TextUtils.equals(mSettingsValuesSubtype, readSelectedSubtype(mPrefs));
+            if (unchanged && inputAttributes.isEquivalentTo(current.mInputAttributes))
+                return;
+            createSettingsValues(context, locale, inputAttributes, unchanged);
+        } finally {
+            mSettingsValuesLock.unlock();
+        }
+    }
+
+    // must be called with mSettingsValuesLock held
+    private void createSettingsValues(final Context context, final Locale locale,
+            @NonNull final InputAttributes inputAttributes, final boolean prefsUnchanged) {
+        final SharedPreferences prefs = mPrefs;
+        final SettingsValues previous = hasSameContextAndConfiguration(context) ? mSettingsValues : null;
+        Log.i(TAG, "loadSettings");
+        mSettingsValuesSubtype = readSelectedSubtype(prefs);
+        mSettingsValues = RunInLocaleKt.runInLocale(context, locale,
+                ctx -> new SettingsValues(ctx, prefs, ctx.getResources(), inputAttributes, previous, prefsUnchanged));
+        mSettingsValuesContext = context;
+        mSettingsValuesConfiguration = new Configuration(context.getResources().getConfiguration());
+        mPrefsChangedSinceLoad = false;
+    }
+
+    private boolean hasSameContextAndConfiguration(final Context context) {
+        return mSettingsValuesContext == context && mSettingsValuesConfiguration != null
+                && mSettingsValuesConfiguration.diff(context.getResources().getConfiguration()) == 0;
+    }
+
+    private static String readSelectedSubtype(final SharedPreferences prefs) {
+        return prefs.getString(PREF_SELECTED_SUBTYPE, Defaults.PREF_SELECTED_SUBTYPE);
+    }
+
     public void stopListener() {
+        mSettingsValuesLock.lock();
+        try {
+            // changes are not noticed until the listener is started again
+            mPrefsChangedSinceLoad = true;
+        } finally {
+            mSettingsValuesLock.unlock();
+        }
         mPrefs.unregisterOnSharedPreferenceChangeListener(this);
     }
 
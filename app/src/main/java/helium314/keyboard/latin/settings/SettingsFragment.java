@@ -58,7 +58,7 @@ public final class SettingsFragment extends PreferenceFragmentCompat {
             final Preference gesturePreference = findPreference(Settings.SCREEN_GESTURE);
             getPreferenceScreen().removePreference(gesturePreference);
         }
-        ExecutorUtils.getBackgroundExecutor(ExecutorUtils.KEYBOARD)
+        ExecutorUtils.getBackgroundExecutor(ExecutorUtils.MAINTENANCE)
                 .execute(() -> DictionaryUtilsKt.cleanUnusedMainDicts(requireContext()));
     }
 
@@ -124,7 +124,7 @@ public final class SettingsFragment extends PreferenceFragmentCompat {
         if (intent.getResultCode() != Activity.RESULT_OK || intent.getData() == null) return;
         final Uri uri = intent.getData().getData();
         if (uri != null)
-            ExecutorUtils.getBackgroundExecutor(ExecutorUtils.KEYBOARD).execute(() -> saveCrashReport(uri));
+            ExecutorUtils.getBackgroundExecutor(ExecutorUtils.MAINTENANCE).execute(() -> saveCrashReport(uri));
     });
 
     private void saveCrashReport(final Uri uri) {
@@ -155,6 +155,17 @@ public class SettingsValues {
     // creation of Colors and SpacingAndPunctuations are the slowest parts in here, but still ok
     public SettingsValues(final Context context, final SharedPreferences prefs, final Resources res,
                           @NonNull final InputAttributes inputAttributes) {
+        this(context, prefs, res, inputAttributes, null, false);
+    }
+
+    /**
+     * @param previous settings created with the same context and configuration, the slow to create
+     *        objects are taken from there if the values they depend on did not change
+     * @param prefsUnchanged whether no preference changed since {@code previous} was created
+     */
+    SettingsValues(final Context context, final SharedPreferences prefs, final Resources res,
+                   @NonNull final InputAttributes inputAttributes, @Nullable final SettingsValues previous,
+                   final boolean prefsUnchanged) {
         mLocale = ConfigurationCompatKt.locale(res.getConfiguration());
         mDisplayOrientation = res.getConfiguration().orientation;
         final InputMethodSubtype selectedSubtype = SubtypeSettings.INSTANCE.getSelectedSubtype(prefs);
@@ -253,7 +264,9 @@ public class SettingsValues {
         mShowMorePopupKeys = selectedSubtype.isAsciiCapable()
                 ? SubtypeUtilsKt.getMoreKeys(selectedSubtype, prefs)
                 : LocaleKeyboardInfosKt.POPUP_KEYS_NORMAL;
-        mColors = KeyboardTheme.getColorsForCurrentTheme(context);
+        mColors = previous != null && prefsUnchanged
+                ? previous.mColors
+                : KeyboardTheme.getColorsForCurrentTheme(context);
 
         mPopupKeyTypes = SubtypeUtilsKt.getPopupKeyTypes(selectedSubtype, prefs);
         mPopupKeyLabelSources = SubtypeUtilsKt.getPopupKeyLabelSources(selectedSubtype, prefs);
@@ -265,7 +278,10 @@ public class SettingsValues {
                 mBlockPotentiallyOffensive,
                 prefs.getBoolean(Settings.PREF_GESTURE_SPACE_AWARE, Defaults.PREF_GESTURE_SPACE_AWARE)
         );
-        mSpacingAndPunctuations = new SpacingAndPunctuations(res, mUrlDetectionEnabled);
+        mSpacingAndPunctuations = previous != null && previous.mLocale.equals(mLocale)
+                && previous.mUrlDetectionEnabled == mUrlDetectionEnabled
+                ? previous.mSpacingAndPunctuations
+                : new SpacingAndPunctuations(res, mUrlDetectionEnabled);
         mBottomPaddingScale = Settings.readBottomPaddingScale(prefs, isLandscape);
         mSidePaddingScale = Settings.readSidePaddingScale(prefs, isLandscape);
         mLongPressSymbolsForNumpad = prefs.getBoolean(Settings.PREFS_LONG_PRESS_SYMBOLS_FOR_NUMPAD, Defaults.PREFS_LONG_PRESS_SYMBOLS_FOR_NUMPAD);
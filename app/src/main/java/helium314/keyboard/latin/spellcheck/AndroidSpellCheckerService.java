@@ -25,6 +25,7 @@ import helium314.keyboard.latin.InputAttributes;
 import helium314.keyboard.latin.NgramContext;
 import helium314.keyboard.latin.R;
 import helium314.keyboard.latin.RichInputMethodSubtype;
+import helium314.keyboard.latin.Suggest;
 import helium314.keyboard.latin.SuggestedWords;
 import helium314.keyboard.latin.common.ComposedData;
 import helium314.keyboard.latin.settings.Defaults;
@@ -36,9 +37,12 @@ import helium314.keyboard.latin.utils.SubtypeUtilsAdditional;
 import helium314.keyboard.latin.utils.SuggestionResults;
 
 import java.util.Locale;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service for spell checking, using LatinIME's dictionaries and mechanisms.
@@ -53,8 +57,12 @@ public final class AndroidSpellCheckerService extends SpellCheckerService
 
     private static final String[] EMPTY_STRING_ARRAY = new String[0];
 
-    private final int MAX_NUM_OF_THREADS_READ_DICTIONARY = 2;
+    // enough for the parallel lookups of a session, see AndroidSpellCheckerSession
+    private static final int MAX_NUM_OF_THREADS_READ_DICTIONARY =
+            Math.max(Runtime.getRuntime().availableProcessors() / 2 + 1, 2);
     private final Semaphore mSemaphore = new Semaphore(MAX_NUM_OF_THREADS_READ_DICTIONARY, true);
+    // Main dictionaries are shared with the keyboard, which uses session id 0, see Suggest.
+    private static final int FIRST_SESSION_ID = Suggest.SESSION_ID_TYPING + 1;
     // TODO: Make each spell checker session has its own session id.
     private final ConcurrentLinkedQueue<Integer> mSessionIdPool = new ConcurrentLinkedQueue<>();
 
@@ -62,6 +70,14 @@ public final class AndroidSpellCheckerService extends SpellCheckerService
             new DictionaryFacilitatorLruCache(this, DICTIONARY_NAME_PREFIX);
     private final ConcurrentHashMap<Locale, Keyboard> mKeyboardCache = new ConcurrentHashMap<>();
 
+    // Increased whenever dictionaries or settings change in a way that may change spell check results.
+    private final AtomicInteger mDictionaryGeneration = new AtomicInteger();
+    // open sessions, notified when dictionaries were reloaded
+    private final CopyOnWriteArraySet<AndroidWordLevelSpellCheckerSession> mSessions =
+            new CopyOnWriteArraySet<>();
+    // shared by all sessions, to find out which words changed when the user dictionary is reloaded
+    private UserDictionaryWords mUserDictionaryWords;
+
     // The threshold for a suggestion to be considered "recommended".
     private float mRecommendedThreshold;
     private SettingsValuesForSuggestion mSettingsValuesForSuggestion;
@@ -72,13 +88,16 @@ public final class AndroidSpellCheckerService extends SpellCheckerService
     public AndroidSpellCheckerService() {
         super();
         for (int i = 0; i < MAX_NUM_OF_THREADS_READ_DICTIONARY; i++) {
-            mSessionIdPool.add(i);
+            mSessionIdPool.add(FIRST_SESSION_ID + i);
         }
     }
 
     @Override
     public void onCreate() {
         super.onCreate();
+        mUserDictionaryWords = new UserDictionaryWords(getContentResolver());
+        mDictionaryFacilitatorCache.setDictionaryContentListener(
+                (word, ngramContext) -> onDictionaryContentChanged());
         mRecommendedThreshold = Float.parseFloat(getString(R.string.spellchecker_recommended_threshold_value));
         final SharedPreferences prefs = KtxKt.prefs(this);
         prefs.registerOnSharedPreferenceChangeListener(this);
@@ -96,9 +115,44 @@ public final class AndroidSpellCheckerService extends SpellCheckerService
         if (Settings.PREF_USE_CONTACTS.equals(key)) {
             final boolean useContactsDictionary = prefs.getBoolean(Settings.PREF_USE_CONTACTS, Defaults.PREF_USE_CONTACTS);
             mDictionaryFacilitatorCache.setUseContactsDictionary(useContactsDictionary);
+            mDictionaryGeneration.incrementAndGet();
         } else if (Settings.PREF_BLOCK_POTENTIALLY_OFFENSIVE.equals(key)) {
             final boolean blockOffensive = prefs.getBoolean(Settings.PREF_BLOCK_POTENTIALLY_OFFENSIVE, Defaults.PREF_BLOCK_POTENTIALLY_OFFENSIVE);
             mSettingsValuesForSuggestion = new SettingsValuesForSuggestion(blockOffensive, false);
+            mDictionaryGeneration.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns a number that changes when spell check results may change, so sessions know when
+     * their cached results are outdated.
+     */
+    public int getDictionaryGeneration() {
+        return mDictionaryGeneration.get();
+    }
+
+    void addSession(final AndroidWordLevelSpellCheckerSession session) {
+        mSessions.add(session);
+    }
+
+    void removeSession(final AndroidWordLevelSpellCheckerSession session) {
+        mSessions.remove(session);
+    }
+
+    /**
+     * Called after a dictionary was loaded or reloaded, e.g. the user dictionary after it was
+     * edited. Lookups only return the new results from then on, so this and not the edit is
+     * where cached results become outdated.
+     */
+    private synchronized void onDictionaryContentChanged() {
+        final Set<String> changedWords = mUserDictionaryWords.update();
+        final int previousGeneration = mDictionaryGeneration.getAndIncrement();
+        // if no user dictionary words changed, another dictionary was reloaded
+        final Set<String> userDictionaryChanges =
+                changedWords == null || changedWords.isEmpty() ? null : changedWords;
+        for (final AndroidWordLevelSpellCheckerSession session : mSessions) {
+            session.onDictionaryContentChanged(userDictionaryChanges, previousGeneration,
+                    previousGeneration + 1);
         }
     }
 
@@ -172,6 +226,7 @@ public final class AndroidSpellCheckerService extends SpellCheckerService
         mSemaphore.acquireUninterruptibly(MAX_NUM_OF_THREADS_READ_DICTIONARY);
         try {
             mDictionaryFacilitatorCache.closeDictionaries();
+            mDictionaryGeneration.incrementAndGet();
         } finally {
             mSemaphore.release(MAX_NUM_OF_THREADS_READ_DICTIONARY);
         }
@@ -180,6 +235,13 @@ public final class AndroidSpellCheckerService extends SpellCheckerService
     }
 
     public Keyboard getKeyboardForLocale(final Locale locale) {
+        // Use the keyboard of the input method if there is one, so there is only one proximity
+        // info for this locale. Only the key positions relative to each other matter here.
+        final Keyboard imeKeyboard = KeyboardLayoutSet.getCachedAlphabetKeyboard(locale);
+        if (imeKeyboard != null) {
+            mKeyboardCache.remove(locale);
+            return imeKeyboard;
+        }
         Keyboard keyboard = mKeyboardCache.get(locale);
         if (keyboard == null) {
             keyboard = createKeyboardForLocale(locale);
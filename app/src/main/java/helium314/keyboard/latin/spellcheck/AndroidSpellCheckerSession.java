@@ -9,28 +9,122 @@ package helium314.keyboard.latin.spellcheck;
 import android.content.res.Resources;
 import android.os.Binder;
 import android.text.TextUtils;
+import android.util.LruCache;
 import android.view.textservice.SentenceSuggestionsInfo;
 import android.view.textservice.SuggestionsInfo;
 import android.view.textservice.TextInfo;
 
+import androidx.annotation.NonNull;
+
 import helium314.keyboard.latin.NgramContext;
 import helium314.keyboard.latin.common.LocaleUtils;
+import helium314.keyboard.latin.utils.ExecutorUtils;
 import helium314.keyboard.latin.utils.Log;
 import helium314.keyboard.latin.utils.SpannableStringUtils;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class AndroidSpellCheckerSession extends AndroidWordLevelSpellCheckerSession {
     private static final String TAG = AndroidSpellCheckerSession.class.getSimpleName();
     private static final boolean DBG = false;
+    // threads of the spelling executor, see ExecutorUtils
+    private static final int MAX_PARALLEL_LOOKUPS =
+            Math.max(Runtime.getRuntime().availableProcessors() / 2, 1);
+    // Texts are sent again after every edit, so results are cached for unchanged texts.
+    private static final int MAX_CACHED_SENTENCE_CHARS = 32 * 1024;
+    private final AndroidSpellCheckerService mService;
     private final Resources mResources;
     private SentenceLevelAdapter mSentenceLevelAdapter;
+    private final LruCache<String, CachedSentence> mSentenceCache =
+            new LruCache<>(MAX_CACHED_SENTENCE_CHARS) {
+                @Override
+                protected int sizeOf(final String text, final CachedSentence sentence) {
+                    return Math.max(text.length(), 1);
+                }
+            };
 
     public AndroidSpellCheckerSession(AndroidSpellCheckerService service) {
         super(service);
+        mService = service;
         mResources = service.getResources();
     }
 
+    /**
+     * Results for the words of a text, valid for the locale, dictionary generation and suggestions
+     * limit they were created with.
+     */
+    private static final class CachedSentence {
+        final SentenceLevelAdapter.SentenceTextInfoParams mParams;
+        // not changed, copied for each query
+        final SuggestionsInfo[] mResults;
+        final String mLocale;
+        // moved to the next generation if not affected by a change of the user dictionary
+        volatile int mDictionaryGeneration;
+        final int mSuggestionsLimit;
+
+        CachedSentence(final SentenceLevelAdapter.SentenceTextInfoParams params,
+                final SuggestionsInfo[] results, final String locale, final int dictionaryGeneration,
+                final int suggestionsLimit) {
+            mParams = params;
+            mResults = results;
+            mLocale = locale;
+            mDictionaryGeneration = dictionaryGeneration;
+            mSuggestionsLimit = suggestionsLimit;
+        }
+
+        boolean isValidFor(final String locale, final int dictionaryGeneration,
+                final int suggestionsLimit) {
+            return mDictionaryGeneration == dictionaryGeneration
+                    && mSuggestionsLimit == suggestionsLimit && TextUtils.equals(mLocale, locale);
+        }
+
+        /**
+         * Whether results may change with the user dictionary change: if one of the words has
+         * changed, or if there is a typo that may get other suggestions.
+         */
+        boolean isAffectedBy(final Set<String> changedWords) {
+            for (int i = 0; i < mResults.length; ++i) {
+                if ((mResults[i].getSuggestionsAttributes() & SuggestionsInfo.RESULT_ATTR_LOOKS_LIKE_TYPO) != 0) {
+                    return true;
+                }
+                final String word = mParams.mItems.get(i).mTextInfo.getText().toLowerCase(Locale.ROOT);
+                for (final String changedWord : changedWords) {
+                    // words may still contain quotes and punctuation removed for checking
+                    if (word.contains(changedWord)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        SentenceSuggestionsInfo toSentenceSuggestionsInfo(final TextInfo textInfo) {
+            final SuggestionsInfo[] results = new SuggestionsInfo[mResults.length];
+            for (int i = 0; i < results.length; ++i) {
+                // copies, as the cookie and sequence are set for each query
+                results[i] = copySuggestionsInfo(mResults[i]);
+            }
+            return SentenceLevelAdapter.reconstructSuggestions(mParams, results,
+                    textInfo.getCookie(), textInfo.getSequence());
+        }
+    }
+
+    @Override
+    protected void onUserDictionaryChanged(@NonNull final Set<String> changedWords,
+            final int previousGeneration, final int generation) {
+        for (final CachedSentence sentence : mSentenceCache.snapshot().values()) {
+            if (sentence.mDictionaryGeneration == previousGeneration
+                    && !sentence.isAffectedBy(changedWords)) {
+                sentence.mDictionaryGeneration = generation;
+            }
+        }
+    }
+
     private SentenceSuggestionsInfo fixWronglyInvalidatedWordWithSingleQuote(TextInfo ti,
             SentenceSuggestionsInfo ssi) {
         final CharSequence typedText = ti.getCharSequence();
@@ -129,6 +223,9 @@ public final class AndroidSpellCheckerSession extends AndroidWordLevelSpellCheck
      * This function will run on the incoming IPC thread.
      * So, this is not called on the main thread,
      * but will be called in series on another thread.
+     * Results of texts that were checked before are reused, see {@link CachedSentence}. In the
+     * other texts, words that occur multiple times are looked up only once, and the lookups are
+     * spread over the spelling executor.
      * @param textInfos an array of the text metadata
      * @param suggestionsLimit the maximum number of suggestions to be returned
      * @return an array of {@link SentenceSuggestionsInfo} returned by
@@ -152,25 +249,129 @@ public final class AndroidSpellCheckerSession extends AndroidWordLevelSpellCheck
         if (sentenceLevelAdapter == null) {
             return SentenceLevelAdapter.getEmptySentenceSuggestionsInfo();
         }
+        final String locale = getLocale();
+        final int dictionaryGeneration = mService.getDictionaryGeneration();
         final int infosSize = textInfos.length;
         final SentenceSuggestionsInfo[] retval = new SentenceSuggestionsInfo[infosSize];
+        // only set for texts that are not cached
+        final SentenceLevelAdapter.SentenceTextInfoParams[] textInfoParams =
+                new SentenceLevelAdapter.SentenceTextInfoParams[infosSize];
+        // Each word is looked up once for the whole batch, with the previous word of its first
+        // occurrence. Suggestions are cached by word alone as well, see SuggestionsCache.
+        final HashMap<String, Integer> lookupIndices = new HashMap<>();
+        final ArrayList<WordLookup> lookups = new ArrayList<>();
+        for (int i = 0; i < infosSize; ++i) {
+            final CachedSentence cachedSentence = mSentenceCache.get(textInfos[i].getText());
+            if (cachedSentence != null && cachedSentence.isValidFor(locale, dictionaryGeneration, suggestionsLimit)) {
+                retval[i] = cachedSentence.toSentenceSuggestionsInfo(textInfos[i]);
+                continue;
+            }
+            textInfoParams[i] = sentenceLevelAdapter.getSplitWords(textInfos[i]);
+            final ArrayList<SentenceLevelAdapter.SentenceWordItem> items = textInfoParams[i].mItems;
+            for (int j = 0; j < items.size(); ++j) {
+                final TextInfo textInfo = items.get(j).mTextInfo;
+                final String word = textInfo.getText();
+                if (lookupIndices.containsKey(word)) {
+                    continue;
+                }
+                final CharSequence prevWord = j > 0 ? items.get(j - 1).mTextInfo.getCharSequence() : null;
+                lookupIndices.put(word, lookups.size());
+                lookups.add(new WordLookup(textInfo, TextUtils.isEmpty(prevWord) ? null : prevWord));
+            }
+        }
+        if (lookups.isEmpty()) {
+            return retval;
+        }
+        final SuggestionsInfo[] lookupResults = lookUpWords(lookups, suggestionsLimit);
+
         for (int i = 0; i < infosSize; ++i) {
-            final SentenceLevelAdapter.SentenceTextInfoParams textInfoParams =
-                    sentenceLevelAdapter.getSplitWords(textInfos[i]);
-            final ArrayList<SentenceLevelAdapter.SentenceWordItem> mItems =
-                    textInfoParams.mItems;
-            final int itemsSize = mItems.size();
-            final TextInfo[] splitTextInfos = new TextInfo[itemsSize];
+            if (textInfoParams[i] == null) {
+                continue;
+            }
+            final ArrayList<SentenceLevelAdapter.SentenceWordItem> items = textInfoParams[i].mItems;
+            final int itemsSize = items.size();
+            final SuggestionsInfo[] results = new SuggestionsInfo[itemsSize];
+            boolean hasFailedLookups = false;
             for (int j = 0; j < itemsSize; ++j) {
-                splitTextInfos[j] = mItems.get(j).mTextInfo;
+                results[j] = lookupResults[lookupIndices.get(items.get(j).mTextInfo.getText())];
+                if (results[j] == null) {
+                    results[j] = AndroidSpellCheckerService.getNotInDictEmptySuggestions(false);
+                    hasFailedLookups = true;
+                }
+            }
+            final CachedSentence cachedSentence =
+                    new CachedSentence(textInfoParams[i], results, locale, dictionaryGeneration,
+                            suggestionsLimit);
+            // the words are looked up again next time
+            if (!hasFailedLookups) {
+                mSentenceCache.put(textInfos[i].getText(), cachedSentence);
             }
-            retval[i] = SentenceLevelAdapter.reconstructSuggestions(
-                    textInfoParams, onGetSuggestionsMultiple(
-                            splitTextInfos, suggestionsLimit, true));
+            retval[i] = cachedSentence.toSentenceSuggestionsInfo(textInfos[i]);
         }
         return retval;
     }
 
+    private static final class WordLookup {
+        final TextInfo mTextInfo;
+        final CharSequence mPrevWord;
+
+        WordLookup(final TextInfo textInfo, final CharSequence prevWord) {
+            mTextInfo = textInfo;
+            mPrevWord = prevWord;
+        }
+    }
+
+    /**
+     * Looks up the words in parallel on the spelling executor, with this thread helping.
+     * Threads take the next word not yet taken, so long and short lookups are spread evenly.
+     * @return the results, null for lookups that failed or were not done because of an interrupt
+     */
+    private SuggestionsInfo[] lookUpWords(final ArrayList<WordLookup> lookups,
+            final int suggestionsLimit) {
+        final int size = lookups.size();
+        final SuggestionsInfo[] results = new SuggestionsInfo[size];
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final CountDownLatch waitForLookups = new CountDownLatch(size);
+        final Runnable lookUpRemainingWords = () -> {
+            int index;
+            while ((index = nextIndex.getAndIncrement()) < size) {
+                try {
+                    final WordLookup lookup = lookups.get(index);
+                    results[index] = onGetSuggestionsInternal(lookup.mTextInfo,
+                            new NgramContext(new NgramContext.WordInfo(lookup.mPrevWord)),
+                            suggestionsLimit);
+                } finally {
+                    waitForLookups.countDown();
+                }
+            }
+        };
+        ExecutorUtils.executeHelpers(ExecutorUtils.SPELLING,
+                Math.min(size - 1, MAX_PARALLEL_LOOKUPS), lookUpRemainingWords);
+        final long ident = Binder.clearCallingIdentity();
+        try {
+            lookUpRemainingWords.run();
+        } finally {
+            Binder.restoreCallingIdentity(ident);
+        }
+        try {
+            waitForLookups.await();
+        } catch (InterruptedException e) {
+            // lookups not started yet are skipped, and running ones are not waited for
+            nextIndex.set(size);
+            Thread.currentThread().interrupt();
+        }
+        return results.clone();
+    }
+
+    private static SuggestionsInfo copySuggestionsInfo(final SuggestionsInfo si) {
+        final int count = si.getSuggestionsCount();
+        final String[] suggestions = count < 0 ? null : new String[count];
+        for (int i = 0; i < count; ++i) {
+            suggestions[i] = si.getSuggestionAt(i);
+        }
+        return new SuggestionsInfo(si.getSuggestionsAttributes(), suggestions);
+    }
+
     @Override
     public SuggestionsInfo[] onGetSuggestionsMultiple(TextInfo[] textInfos,
             int suggestionsLimit, boolean sequentialWords) {
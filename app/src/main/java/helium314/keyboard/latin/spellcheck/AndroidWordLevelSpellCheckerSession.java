@@ -6,14 +6,14 @@
 
 package helium314.keyboard.latin.spellcheck;
 
-import android.content.ContentResolver;
 import android.content.SharedPreferences;
-import android.database.ContentObserver;
 import android.os.Binder;
-import android.provider.UserDictionary.Words;
 import android.service.textservice.SpellCheckerService.Session;
 import android.text.TextUtils;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
 import helium314.keyboard.latin.utils.KtxKt;
 import helium314.keyboard.latin.utils.Log;
 import android.util.LruCache;
@@ -41,6 +41,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 public abstract class AndroidWordLevelSpellCheckerSession extends Session {
@@ -49,12 +50,12 @@ public abstract class AndroidWordLevelSpellCheckerSession extends Session {
     public final static String[] EMPTY_STRING_ARRAY = new String[0];
 
     // Immutable, but not available in the constructor.
-    private Locale mLocale;
+    // Volatile as words of a sentence may be checked on multiple threads.
+    private volatile Locale mLocale;
     // Cache this for performance
-    private String mScript;
+    private volatile String mScript;
     private final AndroidSpellCheckerService mService;
     protected final SuggestionsCache mSuggestionsCache = new SuggestionsCache();
-    private final ContentObserver mObserver;
 
     private static final String quotesRegexp =
             "(\\u0022|\\u0027|\\u0060|\\u00B4|\\u2018|\\u2018|\\u201C|\\u201D)";
@@ -108,13 +109,32 @@ public abstract class AndroidWordLevelSpellCheckerSession extends Session {
 
     AndroidWordLevelSpellCheckerSession(final AndroidSpellCheckerService service) {
         mService = service;
-        mObserver = new ContentObserver(null) {
-            @Override
-            public void onChange(boolean self) {
-                mSuggestionsCache.clearCache();
-            }
-        };
-        service.getContentResolver().registerContentObserver(Words.CONTENT_URI, true, mObserver);
+        service.addSession(this);
+    }
+
+    /**
+     * Called by the service after dictionaries were reloaded, and the results of lookups done
+     * before may have changed.
+     * @param changedWords the words that were added to or removed from the user dictionary in
+     *                     lower case, or null if any words may have changed
+     * @param previousGeneration the dictionary generation before the reload
+     * @param generation the dictionary generation after the reload
+     */
+    void onDictionaryContentChanged(@Nullable final Set<String> changedWords,
+            final int previousGeneration, final int generation) {
+        mSuggestionsCache.clearCache();
+        if (changedWords != null) {
+            onUserDictionaryChanged(changedWords, previousGeneration, generation);
+        }
+    }
+
+    /**
+     * Called when only words of the user dictionary have changed. Cached results of the previous
+     * generation that are not affected by the changed words can be kept for the new generation.
+     * @param changedWords the words that were added or removed in lower case
+     */
+    protected void onUserDictionaryChanged(@NonNull final Set<String> changedWords,
+            final int previousGeneration, final int generation) {
     }
 
     private void updateLocale() {
@@ -167,8 +187,7 @@ public abstract class AndroidWordLevelSpellCheckerSession extends Session {
 
     @Override
     public void onClose() {
-        final ContentResolver cres = mService.getContentResolver();
-        cres.unregisterContentObserver(mObserver);
+        mService.removeSession(this);
     }
 
     private static final int CHECKABILITY_CHECKABLE = 0;
@@ -139,17 +139,32 @@ public class SentenceLevelAdapter {
         return new SentenceTextInfoParams(originalTextInfo, wordItems);
     }
 
+    /**
+     * @param results the suggestions for the split words, in the same order as the words
+     */
     public static SentenceSuggestionsInfo reconstructSuggestions(
             SentenceTextInfoParams originalTextInfoParams, SuggestionsInfo[] results) {
+        if (originalTextInfoParams == null) {
+            return null;
+        }
+        return reconstructSuggestions(originalTextInfoParams, results,
+                originalTextInfoParams.mOriginalTextInfo.getCookie(),
+                originalTextInfoParams.mOriginalTextInfo.getSequence());
+    }
+
+    /**
+     * Same as {@link #reconstructSuggestions(SentenceTextInfoParams, SuggestionsInfo[])}, but
+     * with the cookie and sequence of another query for the same text.
+     */
+    public static SentenceSuggestionsInfo reconstructSuggestions(
+            SentenceTextInfoParams originalTextInfoParams, SuggestionsInfo[] results,
+            int originalCookie, int originalSequence) {
         if (results == null || results.length == 0) {
             return null;
         }
         if (originalTextInfoParams == null) {
             return null;
         }
-        final int originalCookie = originalTextInfoParams.mOriginalTextInfo.getCookie();
-        final int originalSequence =
-                originalTextInfoParams.mOriginalTextInfo.getSequence();
 
         final int querySize = originalTextInfoParams.mSize;
         final int[] offsets = new int[querySize];
@@ -157,13 +172,9 @@ public class SentenceLevelAdapter {
         final SuggestionsInfo[] reconstructedSuggestions = new SuggestionsInfo[querySize];
         for (int i = 0; i < querySize; ++i) {
             final SentenceWordItem item = originalTextInfoParams.mItems.get(i);
-            SuggestionsInfo result = null;
-            for (final SuggestionsInfo cur : results) {
-                if (cur != null && cur.getSequence() == item.mTextInfo.getSequence()) {
-                    result = cur;
-                    result.setCookieAndSequence(originalCookie, originalSequence);
-                    break;
-                }
+            final SuggestionsInfo result = i < results.length ? results[i] : null;
+            if (result != null) {
+                result.setCookieAndSequence(originalCookie, originalSequence);
             }
             offsets[i] = item.mStart;
             lengths[i] = item.mLength;
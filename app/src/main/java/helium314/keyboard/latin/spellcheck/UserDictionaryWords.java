@@ -0,0 +1,70 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.latin.spellcheck;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.provider.UserDictionary.Words;
+
+import androidx.annotation.Nullable;
+
+import helium314.keyboard.latin.utils.Log;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Snapshot of the words in the user dictionary, to find out which words changed when the
+ * user dictionary changes.
+ */
+final class UserDictionaryWords {
+    private static final String TAG = UserDictionaryWords.class.getSimpleName();
+
+    private final ContentResolver mResolver;
+    @Nullable
+    private HashSet<String> mWords;
+
+    UserDictionaryWords(final ContentResolver resolver) {
+        mResolver = resolver;
+    }
+
+    /**
+     * Reloads the words and returns the words that were added or removed, lower case,
+     * or null if this is not known.
+     */
+    @Nullable
+    synchronized Set<String> update() {
+        final HashSet<String> words = new HashSet<>();
+        try (final Cursor cursor = mResolver.query(Words.CONTENT_URI, new String[] { Words.WORD },
+                null, null, null)) {
+            if (cursor == null) {
+                mWords = null;
+                return null;
+            }
+            while (cursor.moveToNext()) {
+                final String word = cursor.getString(0);
+                if (word != null) {
+                    words.add(word.toLowerCase(Locale.ROOT));
+                }
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "could not read user dictionary", e);
+            mWords = null;
+            return null;
+        }
+        final HashSet<String> previousWords = mWords;
+        mWords = words;
+        if (previousWords == null) {
+            return null;
+        }
+        final HashSet<String> changedWords = new HashSet<>(words);
+        changedWords.removeAll(previousWords);
+        for (final String word : previousWords) {
+            if (!words.contains(word)) {
+                changedWords.add(word);
+            }
+        }
+        return changedWords;
+    }
+}
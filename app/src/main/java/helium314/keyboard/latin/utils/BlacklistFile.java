@@ -0,0 +1,404 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.latin.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Scanner;
+import java.util.zip.CRC32;
+
+/**
+ * Blacklisted words of a locale, stored in a memory-mapped binary file.
+ * <p>
+ * Loading only verifies the checksum, words are looked up by binary search in the mapped file.
+ * Removed words are marked in place, added words are kept in memory until the file is rewritten
+ * (compacted) in background, which also drops the removed words.
+ * <p>
+ * File format, all numbers big endian:
+ * <pre>
+ * int magic, int version, int entry count, int removed count, int checksum,
+ * int bloom filter size (in longs), long[] bloom filter,
+ * int[entry count] entry offsets (relative to first entry),
+ * entries sorted by their UTF-8 bytes, each as unsigned short length followed by UTF-8 bytes,
+ * byte[entry count] flags
+ * </pre>
+ * The checksum is a CRC32 over everything from the bloom filter size to the end of the entries.
+ * Removed count and flags are changed in place and thus not included.
+ * <p>
+ * There is only one instance per file, so changes made by all users of the blacklist end up in
+ * the file. When files are replaced from outside, e.g. when restoring a backup, the instances are
+ * discarded and don't write to the file any more.
+ */
+public final class BlacklistFile {
+    private static final String TAG = BlacklistFile.class.getSimpleName();
+    private static final int MAGIC = 0x48424C53; // "HBLS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+    private static final int REMOVED_COUNT_POSITION = 12;
+    private static final byte FLAG_REMOVED = 1;
+    // compact when at least this part of the entries is removed
+    private static final int COMPACTION_REMOVED_RATIO = 4;
+
+    // file path -> the instance for this file, also used as lock for replacing files
+    private static final HashMap<String, BlacklistFile> sInstances = new HashMap<>();
+
+    @Nullable private final File mFile;
+    // set when the file was replaced from outside, must be accessed while synchronized on sInstances
+    private boolean mIsReplaced = false;
+    @Nullable private MappedByteBuffer mBuffer;
+    private int mEntryCount = 0;
+    private int mRemovedCount = 0;
+    private int mOffsetsStart;
+    private int mEntriesStart;
+    private int mFlagsStart;
+    // added words that are not yet written to the file
+    private final HashSet<String> mPendingWords = new HashSet<>();
+    // words removed while compacting, to be removed from the new file too
+    private final ArrayList<String> mRemovedWhileCompacting = new ArrayList<>();
+    private boolean mIsCompacting = false;
+    private volatile BloomFilter mFilter = new BloomFilter(0);
+
+    /** Creates a blacklist that is only kept in memory. */
+    public BlacklistFile() {
+        mFile = null;
+    }
+
+    private BlacklistFile(@NonNull final File file, @Nullable final File legacyTextFile) {
+        mFile = file;
+        if (legacyTextFile != null && legacyTextFile.exists()) {
+            migrateTextFile(legacyTextFile);
+            return;
+        }
+        if (file.exists())
+            map();
+    }
+
+    /**
+     * Returns the blacklist stored in file, which is loaded only once per process. If
+     * legacyTextFile exists when loading, it is migrated to the binary format and deleted.
+     */
+    @NonNull
+    public static BlacklistFile getInstance(@NonNull final File file, @Nullable final File legacyTextFile) {
+        synchronized (sInstances) {
+            BlacklistFile instance = sInstances.get(file.getPath());
+            if (instance == null) {
+                instance = new BlacklistFile(file, legacyTextFile);
+                sInstances.put(file.getPath(), instance);
+            }
+            return instance;
+        }
+    }
+
+    public boolean contains(@NonNull final String word) {
+        if (!mFilter.mightContain(word)) return false;
+        synchronized (this) {
+            if (mPendingWords.contains(word)) return true;
+            final int index = findEntry(toBytes(word));
+            return index >= 0 && !isRemoved(index);
+        }
+    }
+
+    /** Returns whether the word was added, i.e. it was not already blacklisted. */
+    public boolean add(@NonNull final String word) {
+        synchronized (this) {
+            if (contains(word)) return false;
+            mPendingWords.add(word);
+            if (mFilter.isOverCapacity())
+                mFilter = BloomFilter.of(getWords());
+            else
+                mFilter.add(word);
+        }
+        scheduleCompaction();
+        return true;
+    }
+
+    /** Returns whether the word was removed, i.e. it was blacklisted. */
+    public boolean remove(@NonNull final String word) {
+        final boolean needsCompaction;
+        synchronized (this) {
+            if (!mFilter.mightContain(word)) return false;
+            final boolean removed;
+            if (mPendingWords.remove(word)) {
+                removed = true;
+            } else {
+                final int index = findEntry(toBytes(word));
+                removed = index >= 0 && !isRemoved(index);
+                if (removed) markRemoved(index);
+            }
+            if (!removed) return false;
+            if (mIsCompacting)
+                mRemovedWhileCompacting.add(word);
+            // the filter is not changed, removed words will be dropped from it on compaction
+            needsCompaction = mRemovedCount * COMPACTION_REMOVED_RATIO >= mEntryCount;
+        }
+        if (needsCompaction)
+            scheduleCompaction();
+        return true;
+    }
+
+    /**
+     * Must be called before blacklist files are replaced from outside, so pending compactions of
+     * the currently loaded blacklists don't overwrite the new files. The files are loaded again
+     * on the next {@link #getInstance}.
+     */
+    public static void onFilesReplaced() {
+        synchronized (sInstances) {
+            for (final BlacklistFile instance : sInstances.values())
+                instance.mIsReplaced = true;
+            sInstances.clear();
+        }
+    }
+
+    @NonNull
+    public synchronized List<String> getWords() {
+        final ArrayList<String> words = new ArrayList<>(mEntryCount - mRemovedCount + mPendingWords.size());
+        for (int i = 0; i < mEntryCount; i++) {
+            if (!isRemoved(i))
+                words.add(readWord(i));
+        }
+        words.addAll(mPendingWords);
+        return words;
+    }
+
+    // Called without holding the lock, the compaction is always done in background. Only one
+    // compaction runs for changes made before it starts.
+    private void scheduleCompaction() {
+        if (mFile == null) return;
+        ExecutorUtils.executeCoalesced(ExecutorUtils.MAINTENANCE, this, this::compact);
+    }
+
+    // Rewrites the file with all current words. Writing is done without holding the lock, changes
+    // in the meantime are applied after the new file is mapped.
+    private void compact() {
+        final List<String> words;
+        final HashSet<String> pendingWords;
+        synchronized (this) {
+            synchronized (sInstances) {
+                if (mIsReplaced) {
+                    Log.i(TAG, "Not compacting blacklist " + mFile + ", it was replaced");
+                    return;
+                }
+            }
+            mIsCompacting = true;
+            words = getWords();
+            pendingWords = new HashSet<>(mPendingWords);
+        }
+        boolean written = false;
+        try {
+            written = writeFile(words);
+        } finally {
+            synchronized (this) {
+                mIsCompacting = false;
+                if (written && map()) {
+                    mPendingWords.removeAll(pendingWords);
+                    for (final String word : mRemovedWhileCompacting) {
+                        final int index = findEntry(toBytes(word));
+                        if (index >= 0) markRemoved(index);
+                    }
+                } else if (written) {
+                    // the new file could not be loaded, keep all words in memory until the next compaction
+                    for (final String word : words) {
+                        if (!mRemovedWhileCompacting.contains(word))
+                            mPendingWords.add(word);
+                    }
+                    mFilter = BloomFilter.of(mPendingWords);
+                }
+                mRemovedWhileCompacting.clear();
+            }
+        }
+    }
+
+    private boolean writeFile(final List<String> words) {
+        final byte[][] entries = new byte[words.size()][];
+        int entriesSize = 0;
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = toBytes(words.get(i));
+            entriesSize += 2 + entries[i].length;
+        }
+        Arrays.sort(entries, BlacklistFile::compareBytes);
+        final BloomFilter filter = BloomFilter.of(words);
+        final long[] filterBits = filter.getBits();
+        final int checksummedSize = 4 + filterBits.length * 8 + entries.length * 4 + entriesSize;
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + checksummedSize + entries.length);
+        buffer.position(HEADER_SIZE);
+        buffer.putInt(filterBits.length);
+        for (final long bits : filterBits)
+            buffer.putLong(bits);
+        int offset = 0;
+        for (final byte[] entry : entries) {
+            buffer.putInt(offset);
+            offset += 2 + entry.length;
+        }
+        for (final byte[] entry : entries) {
+            buffer.putShort((short) entry.length);
+            buffer.put(entry);
+        }
+        // flags are all 0, as removed words are not written
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_SIZE, checksummedSize);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, entries.length);
+        buffer.putInt(REMOVED_COUNT_POSITION, 0);
+        buffer.putInt(16, (int) crc.getValue());
+
+        final File tempFile = new File(mFile.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tempFile)) {
+            fos.write(buffer.array());
+            fos.getFD().sync();
+        } catch (IOException e) {
+            Log.e(TAG, "Exception while trying to write blacklist " + mFile, e);
+            tempFile.delete();
+            return false;
+        }
+        synchronized (sInstances) {
+            if (mIsReplaced) {
+                Log.i(TAG, "Not writing blacklist " + mFile + ", it was replaced");
+                tempFile.delete();
+                return false;
+            }
+            if (!tempFile.renameTo(mFile)) {
+                Log.e(TAG, "Could not replace blacklist " + mFile);
+                tempFile.delete();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Maps the file and checks it, without reading the words. Corrupted files are deleted.
+    // Returns whether the file was loaded.
+    private boolean map() {
+        mBuffer = null;
+        mEntryCount = 0;
+        mRemovedCount = 0;
+        try (RandomAccessFile raf = new RandomAccessFile(mFile, "rw")) {
+            final MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+            if (buffer.capacity() < HEADER_SIZE + 4 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+                throw new IOException("invalid header");
+            final int entryCount = buffer.getInt(8);
+            final int filterLongCount = buffer.getInt(HEADER_SIZE);
+            final int offsetsStart = HEADER_SIZE + 4 + filterLongCount * 8;
+            final int entriesStart = offsetsStart + entryCount * 4;
+            final int flagsStart = buffer.capacity() - entryCount;
+            if (entryCount < 0 || filterLongCount < 0 || entriesStart > flagsStart)
+                throw new IOException("invalid sizes");
+            final CRC32 crc = new CRC32();
+            final byte[] chunk = new byte[4096];
+            buffer.position(HEADER_SIZE);
+            while (buffer.position() < flagsStart) {
+                final int length = Math.min(chunk.length, flagsStart - buffer.position());
+                buffer.get(chunk, 0, length);
+                crc.update(chunk, 0, length);
+            }
+            if ((int) crc.getValue() != buffer.getInt(16))
+                throw new IOException("checksum mismatch");
+            final long[] filterBits = new long[filterLongCount];
+            buffer.position(HEADER_SIZE + 4);
+            buffer.asLongBuffer().get(filterBits);
+            mFilter = BloomFilter.fromBits(filterBits, entryCount);
+            for (final String word : mPendingWords)
+                mFilter.add(word);
+            mBuffer = buffer;
+            mEntryCount = entryCount;
+            mRemovedCount = buffer.getInt(REMOVED_COUNT_POSITION);
+            mOffsetsStart = offsetsStart;
+            mEntriesStart = entriesStart;
+            mFlagsStart = flagsStart;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Could not load blacklist " + mFile + ", deleting it", e);
+            mFile.delete();
+            return false;
+        }
+    }
+
+    private void migrateTextFile(final File legacyTextFile) {
+        final ArrayList<String> words = new ArrayList<>();
+        try (Scanner scanner = new Scanner(legacyTextFile, StandardCharsets.UTF_8.name()).useDelimiter("\n")) {
+            while (scanner.hasNext()) {
+                words.add(scanner.next());
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Exception while reading blacklist " + legacyTextFile, e);
+            return;
+        }
+        if (writeFile(new ArrayList<>(new HashSet<>(words))) && map()) {
+            legacyTextFile.delete();
+        } else {
+            // keep the text file, and try writing again later
+            mPendingWords.addAll(words);
+            mFilter = BloomFilter.of(words);
+        }
+    }
+
+    // binary search in the sorted entries, returns the index or -1 if not found
+    private int findEntry(final byte[] word) {
+        int low = 0;
+        int high = mEntryCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int comparison = compareEntry(mid, word);
+            if (comparison < 0) low = mid + 1;
+            else if (comparison > 0) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    private int compareEntry(final int index, final byte[] word) {
+        final int position = mEntriesStart + mBuffer.getInt(mOffsetsStart + index * 4);
+        final int length = mBuffer.getShort(position) & 0xFFFF;
+        final int minLength = Math.min(length, word.length);
+        for (int i = 0; i < minLength; i++) {
+            final int difference = (mBuffer.get(position + 2 + i) & 0xFF) - (word[i] & 0xFF);
+            if (difference != 0) return difference;
+        }
+        return length - word.length;
+    }
+
+    private String readWord(final int index) {
+        final int position = mEntriesStart + mBuffer.getInt(mOffsetsStart + index * 4);
+        final byte[] bytes = new byte[mBuffer.getShort(position) & 0xFFFF];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = mBuffer.get(position + 2 + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean isRemoved(final int index) {
+        return mBuffer.get(mFlagsStart + index) == FLAG_REMOVED;
+    }
+
+    private void markRemoved(final int index) {
+        mBuffer.put(mFlagsStart + index, FLAG_REMOVED);
+        mRemovedCount++;
+        mBuffer.putInt(REMOVED_COUNT_POSITION, mRemovedCount);
+    }
+
+    private static byte[] toBytes(final String word) {
+        return word.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int compareBytes(final byte[] a, final byte[] b) {
+        final int minLength = Math.min(a.length, b.length);
+        for (int i = 0; i < minLength; i++) {
+            final int difference = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (difference != 0) return difference;
+        }
+        return a.length - b.length;
+    }
+}
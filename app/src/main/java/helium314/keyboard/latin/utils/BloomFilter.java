@@ -0,0 +1,96 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package helium314.keyboard.latin.utils;
+
+import java.util.Collection;
+
+/**
+ * A compact Bloom filter for strings, used to rule out that a word is contained in some set
+ * without looking into the set itself. False positives are possible, false negatives are not.
+ * Adding is not thread safe, but concurrent checks at worst give a false positive.
+ */
+public final class BloomFilter {
+    // about 1% false positives when the filter is at capacity
+    private static final int BITS_PER_ENTRY = 10;
+    private static final int HASH_COUNT = 7;
+    private static final int MIN_CAPACITY = 64;
+
+    private final long[] mBits;
+    private final int mBitMask;
+    private final int mCapacity;
+    private int mSize = 0;
+
+    public BloomFilter(final int expectedSize) {
+        mCapacity = Math.max(expectedSize, MIN_CAPACITY);
+        // use a power of 2 bits, so a mask can be used instead of modulo
+        final int bitCount = Integer.highestOneBit(mCapacity * BITS_PER_ENTRY - 1) << 1;
+        mBits = new long[bitCount >>> 6];
+        mBitMask = bitCount - 1;
+    }
+
+    private BloomFilter(final long[] bits, final int size) {
+        if (bits.length == 0 || Integer.bitCount(bits.length) != 1)
+            throw new IllegalArgumentException("invalid filter size " + bits.length);
+        mBits = bits;
+        mBitMask = (bits.length << 6) - 1;
+        mCapacity = (bits.length << 6) / BITS_PER_ENTRY;
+        mSize = size;
+    }
+
+    /** Creates a filter from bits previously obtained by {@link #getBits()}. */
+    public static BloomFilter fromBits(final long[] bits, final int size) {
+        return new BloomFilter(bits, size);
+    }
+
+    /** Creates a filter containing the given words, leaving room to add as many words again. */
+    public static BloomFilter of(final Collection<String> words) {
+        final BloomFilter filter = new BloomFilter(words.size() * 2);
+        for (final String word : words) {
+            filter.add(word);
+        }
+        return filter;
+    }
+
+    public void add(final String word) {
+        final int hash1 = word.hashCode();
+        final int hash2 = secondHash(hash1);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            final int bit = (hash1 + i * hash2) & mBitMask;
+            mBits[bit >>> 6] |= 1L << bit;
+        }
+        mSize++;
+    }
+
+    /** Returns false if the word was definitely not added, true if it may have been added. */
+    public boolean mightContain(final String word) {
+        if (mSize == 0) return false;
+        final int hash1 = word.hashCode();
+        final int hash2 = secondHash(hash1);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            final int bit = (hash1 + i * hash2) & mBitMask;
+            if ((mBits[bit >>> 6] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /** Returns the bits of this filter, e.g. for storing it. Must not be modified. */
+    public long[] getBits() {
+        return mBits;
+    }
+
+    /** Whether more words were added than expected, so the false positive rate is increasing. */
+    public boolean isOverCapacity() {
+        return mSize > mCapacity;
+    }
+
+    // finalizer of murmur3, odd so all bits can be reached
+    private static int secondHash(final int hash) {
+        int h = hash;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h | 1;
+    }
+}
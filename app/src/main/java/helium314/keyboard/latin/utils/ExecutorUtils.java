@@ -6,48 +6,187 @@
 
 package helium314.keyboard.latin.utils;
 
-import java.util.concurrent.Executors;
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Utilities to manage executors.
+ * <p>
+ * Work is split in lanes, so that latency sensitive work is not delayed by maintenance work:
+ * {@link #KEYBOARD} is the interactive lane for suggestions and anything the user is waiting for,
+ * {@link #MAINTENANCE} is for flushing and GC of dictionaries, file IO and other work that
+ * may be delayed. {@link #SPELLING} is used by the spell checker.
  */
 public class ExecutorUtils {
 
     private static final String TAG = "ExecutorUtils";
 
     public static final String KEYBOARD = "Keyboard";
+    public static final String MAINTENANCE = "Maintenance";
     public static final String SPELLING = "Spelling";
 
-    private static ScheduledExecutorService sKeyboardExecutorService = newExecutorService(KEYBOARD);
-    private static ScheduledExecutorService sSpellingExecutorService = newExecutorService(SPELLING);
+    private static LaneExecutor sKeyboardExecutorService = newExecutorService(KEYBOARD);
+    private static LaneExecutor sMaintenanceExecutorService = newExecutorService(MAINTENANCE);
+    private static LaneExecutor sSpellingExecutorService = newExecutorService(SPELLING);
+
+    // coalescing key -> the latest task submitted for this key
+    private static final ConcurrentHashMap<Object, Runnable> sLatestCoalescedTasks = new ConcurrentHashMap<>();
 
-    private static ScheduledExecutorService newExecutorService(final String name) {
+    private static LaneExecutor newExecutorService(final String name) {
         // use more than a single thread, to reduce the occasional wait (mostly relevant when using multiple languages)
         // limit number to cores / 2 to never interfere with whatever some other app is doing
         final int cores = Runtime.getRuntime().availableProcessors();
         final int threads = Math.max(cores / 2, 1);
-        return Executors.newScheduledThreadPool(threads, new ExecutorFactory(name));
+        if (MAINTENANCE.equals(name)) {
+            // maintenance work is mostly IO, so a single thread with lower priority is enough
+            return new LaneExecutor(name, 1, Process.THREAD_PRIORITY_BACKGROUND);
+        }
+        return new LaneExecutor(name, threads, Process.THREAD_PRIORITY_DEFAULT);
     }
 
     private static class ExecutorFactory implements ThreadFactory {
         private final String mName;
+        private final int mPriority;
 
-        private ExecutorFactory(final String name) {
+        private ExecutorFactory(final String name, final int priority) {
             mName = name;
+            mPriority = priority;
         }
 
         @Override
         public Thread newThread(final Runnable runnable) {
-            Thread thread = new Thread(runnable, TAG);
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(mPriority);
+                runnable.run();
+            }, TAG + "-" + mName);
             thread.setUncaughtExceptionHandler((thread1, ex) ->
                     Log.w(mName, runnable.getClass().getSimpleName(), ex));
             return thread;
         }
     }
 
+    /**
+     * A scheduled executor with some statistics on queue depth and on the time tasks wait in the
+     * queue. The queue is not bounded, as most tasks must not be lost, e.g. dictionary writes.
+     * Lanes only differ in thread count and priority.
+     */
+    private static class LaneExecutor extends ScheduledThreadPoolExecutor {
+        private final String mName;
+        private final AtomicLong mExecutedTasks = new AtomicLong();
+        private final AtomicLong mTotalWaitMillis = new AtomicLong();
+        private final AtomicLong mMaxWaitMillis = new AtomicLong();
+        private final AtomicLong mMaxQueueDepth = new AtomicLong();
+
+        private LaneExecutor(final String name, final int threads, final int priority) {
+            super(threads, new ExecutorFactory(name, priority));
+            mName = name;
+        }
+
+        @Override
+        protected <V> RunnableScheduledFuture<V> decorateTask(final Runnable runnable,
+                final RunnableScheduledFuture<V> task) {
+            return decorate(task);
+        }
+
+        @Override
+        protected <V> RunnableScheduledFuture<V> decorateTask(final Callable<V> callable,
+                final RunnableScheduledFuture<V> task) {
+            return decorate(task);
+        }
+
+        private <V> RunnableScheduledFuture<V> decorate(final RunnableScheduledFuture<V> task) {
+            updateMax(mMaxQueueDepth, getQueue().size() + 1);
+            return new LaneTask<>(task);
+        }
+
+        private static void updateMax(final AtomicLong max, final long value) {
+            long current;
+            while (value > (current = max.get()) && !max.compareAndSet(current, value)) { }
+        }
+
+        private String getStats() {
+            final long executed = mExecutedTasks.get();
+            return String.format(Locale.ROOT,
+                    "%s: queued %d (max %d), executed %d, wait avg %d ms (max %d ms)",
+                    mName, getQueue().size(), mMaxQueueDepth.get(), executed,
+                    executed == 0 ? 0 : mTotalWaitMillis.get() / executed, mMaxWaitMillis.get());
+        }
+
+        // records how long the task waited after it was due
+        private final class LaneTask<V> implements RunnableScheduledFuture<V> {
+            private final RunnableScheduledFuture<V> mTask;
+
+            private LaneTask(final RunnableScheduledFuture<V> task) {
+                mTask = task;
+            }
+
+            @Override
+            public void run() {
+                final long waitMillis = Math.max(0, -mTask.getDelay(TimeUnit.MILLISECONDS));
+                mExecutedTasks.incrementAndGet();
+                mTotalWaitMillis.addAndGet(waitMillis);
+                updateMax(mMaxWaitMillis, waitMillis);
+                mTask.run();
+            }
+
+            @Override
+            public boolean isPeriodic() {
+                return mTask.isPeriodic();
+            }
+
+            @Override
+            public long getDelay(@NonNull final TimeUnit unit) {
+                return mTask.getDelay(unit);
+            }
+
+            @Override
+            public int compareTo(final Delayed other) {
+                return mTask.compareTo(other instanceof LaneTask ? ((LaneTask<?>) other).mTask : other);
+            }
+
+            @Override
+            public boolean cancel(final boolean mayInterruptIfRunning) {
+                return mTask.cancel(mayInterruptIfRunning);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return mTask.isCancelled();
+            }
+
+            @Override
+            public boolean isDone() {
+                return mTask.isDone();
+            }
+
+            @Override
+            public V get() throws ExecutionException, InterruptedException {
+                return mTask.get();
+            }
+
+            @Override
+            public V get(final long timeout, @NonNull final TimeUnit unit)
+                    throws ExecutionException, InterruptedException, TimeoutException {
+                return mTask.get(timeout, unit);
+            }
+        }
+    }
+
     private static ScheduledExecutorService sExecutorServiceForTests;
 
     public static void setExecutorServiceForTests(
@@ -70,6 +209,8 @@ public class ExecutorUtils {
         switch (name) {
             case KEYBOARD:
                 return sKeyboardExecutorService;
+            case MAINTENANCE:
+                return sMaintenanceExecutorService;
             case SPELLING:
                 return sSpellingExecutorService;
             default:
@@ -77,6 +218,54 @@ public class ExecutorUtils {
         }
     }
 
+    /**
+     * Executes the task on the given executor, unless another task with the same key is submitted
+     * before this task starts. Then only the later task runs, so it's safe to use for tasks that
+     * need to run after some change, like flushing a dictionary.
+     * @param name Executor's name.
+     * @param key identifies tasks that are equivalent, compared using equals
+     * @param task the task to run
+     */
+    public static void executeCoalesced(final String name, final Object key, final Runnable task) {
+        final Runnable coalescedTask = new Runnable() {
+            @Override
+            public void run() {
+                if (sLatestCoalescedTasks.remove(key, this))
+                    task.run();
+            }
+        };
+        sLatestCoalescedTasks.put(key, coalescedTask);
+        getBackgroundExecutor(name).execute(coalescedTask);
+    }
+
+    /**
+     * Runs the task on up to count threads of the given executor, for work the calling thread
+     * takes part in. The caller should run the task too, and then wait for the work to be done,
+     * so the work is done even if the executor is busy or shut down.
+     * @param name Executor's name.
+     * @param count the number of threads that should run the task
+     * @param task the task to run, needs to be safe to run several times in parallel
+     */
+    public static void executeHelpers(final String name, final int count, final Runnable task) {
+        final ScheduledExecutorService executor = getBackgroundExecutor(name);
+        try {
+            for (int i = 0; i < count; i++) {
+                executor.execute(task);
+            }
+        } catch (RejectedExecutionException e) {
+            // only happens while the executor is shut down
+            Log.w(TAG, name + " is shut down, continuing with fewer threads");
+        }
+    }
+
+    /**
+     * @return queue depth and wait time statistics of all lanes, for debugging
+     */
+    public static String getStatsForDebug() {
+        return sKeyboardExecutorService.getStats() + "\n" + sMaintenanceExecutorService.getStats()
+                + "\n" + sSpellingExecutorService.getStats();
+    }
+
     public static void killTasks(final String name) {
         final ScheduledExecutorService executorService = getBackgroundExecutor(name);
         executorService.shutdownNow();
@@ -93,6 +282,9 @@ public class ExecutorUtils {
             case KEYBOARD:
                 sKeyboardExecutorService = newExecutorService(KEYBOARD);
                 break;
+            case MAINTENANCE:
+                sMaintenanceExecutorService = newExecutorService(MAINTENANCE);
+                break;
             case SPELLING:
                 sSpellingExecutorService = newExecutorService(SPELLING);
                 break;
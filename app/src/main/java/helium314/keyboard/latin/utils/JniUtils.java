@@ -98,6 +98,8 @@ public final class JniUtils {
             // try loading built-in library
             try {
                 System.loadLibrary(JNI_LIB_NAME);
+                // the built-in library comes with its own gesture suggest policy
+                sHaveGestureLib = true;
             } catch (UnsatisfiedLinkError ul) {
                 Log.w(TAG, "Could not load native library " + JNI_LIB_NAME, ul);
             }
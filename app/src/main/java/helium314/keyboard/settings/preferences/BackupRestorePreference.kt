@@ -26,6 +26,7 @@ import helium314.keyboard.latin.common.FileUtils
 import helium314.keyboard.latin.common.LocaleUtils.constructLocale
 import helium314.keyboard.latin.settings.Settings
 import helium314.keyboard.latin.settings.USER_DICTIONARY_SUFFIX
+import helium314.keyboard.latin.utils.BlacklistFile
 import helium314.keyboard.latin.utils.DeviceProtectedUtils
 import helium314.keyboard.latin.utils.ExecutorUtils
 import helium314.keyboard.latin.utils.LayoutUtilsCustom
@@ -56,7 +57,7 @@ fun BackupRestorePreference(setting: Setting) {
     val prefs = ctx.prefs()
     var error: String? by rememberSaveable { mutableStateOf(null) }
     val backupFilePatterns by lazy { listOf(
-        "blacklists/.*\\.txt".toRegex(),
+        "blacklists/.*\\.(txt|bin)".toRegex(),
         "layouts/${LayoutUtilsCustom.CUSTOM_LAYOUT_PREFIX}+\\..{0,4}".toRegex(), // can't expect a period at the end, as this would break restoring older backups
         "dicts/.*/.*user\\.dict".toRegex(),
         "UserHistoryDictionary.*/UserHistoryDictionary.*\\.(body|header)".toRegex(),
@@ -128,6 +129,7 @@ fun BackupRestorePreference(setting: Setting) {
                         var entry: ZipEntry? = zip.nextEntry
                         val filesDir = ctx.filesDir ?: return@execute
                         val deviceProtectedFilesDir = DeviceProtectedUtils.getFilesDir(ctx)
+                        BlacklistFile.onFilesReplaced()
                         filesDir.deleteRecursively()
                         deviceProtectedFilesDir.deleteRecursively()
                         LayoutUtilsCustom.onLayoutFileChanged()
@@ -267,7 +269,7 @@ private fun upgradeFileNames(originalName: String): String {
         }
         originalName.startsWith("blacklists") -> {
             // replace file name after switch to language tag
-            val fileName = originalName.substringAfter("blacklists${File.separator}").substringBefore(".txt")
+            val fileName = originalName.substringAfter("blacklists${File.separator}").substringBeforeLast(".")
             originalName.replace(fileName, fileName.constructLocale().toLanguageTag())
         }
         originalName.startsWith("layouts") -> {
@@ -30,6 +30,7 @@
 #include "jni_common.h"
 #include "suggest/core/dictionary/dictionary.h"
 #include "suggest/core/result/suggestion_results.h"
+#include "suggest/core/session/dic_traverse_session.h"
 #include "suggest/core/suggest_options.h"
 #include "utils/char_utils.h"
 #include "utils/int_array_view.h"
@@ -42,6 +43,9 @@ namespace latinime {
 
 class ProximityInfo;
 
+// Number of int fields per point in the buffer of InputPointers.
+static const int INPUT_POINTERS_FIELD_COUNT = 4;
+
 static jlong latinime_BinaryDictionary_open(JNIEnv *env, jclass clazz, jstring sourceDir,
         jlong dictOffset, jlong dictSize, jboolean isUpdatable) {
     PROF_INIT;
@@ -176,17 +180,18 @@ static int latinime_BinaryDictionary_getFormatVersion(JNIEnv *env, jclass clazz,
 }
 
 static void latinime_BinaryDictionary_getSuggestions(JNIEnv *env, jclass clazz, jlong dict,
-        jlong proximityInfo, jlong dicTraverseSession, jintArray xCoordinatesArray,
-        jintArray yCoordinatesArray, jintArray timesArray, jintArray pointerIdsArray,
+        jlong proximityInfo, jlong dicTraverseSession, jobject inputPointersBuffer,
         jintArray inputCodePointsArray, jint inputSize, jintArray suggestOptions,
         jobjectArray prevWordCodePointArrays, jbooleanArray isBeginningOfSentenceArray,
         jint prevWordCount, jintArray outSuggestionCount, jintArray outCodePointsArray,
         jintArray outScoresArray, jintArray outSpaceIndicesArray, jintArray outTypesArray,
         jintArray outAutoCommitFirstWordConfidenceArray,
-        jfloatArray inOutWeightOfLangModelVsSpatialModel) {
+        jfloatArray inOutWeightOfLangModelVsSpatialModel, jintArray outSearchContinuationArray) {
     Dictionary *dictionary = reinterpret_cast<Dictionary *>(dict);
     // Assign 0 to outSuggestionCount here in case of returning earlier in this method.
     JniDataUtils::putIntToArray(env, outSuggestionCount, 0 /* index */, 0);
+    JniDataUtils::putIntToArray(env, outSearchContinuationArray, 0 /* index */,
+            DicTraverseSession::SEARCH_RESTARTED);
     if (!dictionary) {
         return;
     }
@@ -197,16 +202,24 @@ static void latinime_BinaryDictionary_getSuggestions(JNIEnv *env, jclass clazz,
         return;
     }
     // Input values
-    int xCoordinates[inputSize];
-    int yCoordinates[inputSize];
-    int times[inputSize];
-    int pointerIds[inputSize];
+    // The input pointers are read in place from the direct buffer of InputPointers, which holds
+    // one block of ints per field: x-coordinates, y-coordinates, pointer ids and times.
+    int *const inputPointers =
+            static_cast<int *>(env->GetDirectBufferAddress(inputPointersBuffer));
+    const jlong inputPointersCapacity = env->GetDirectBufferCapacity(inputPointersBuffer)
+            / static_cast<jlong>(sizeof(int) * INPUT_POINTERS_FIELD_COUNT);
+    if (!inputPointers || inputPointersCapacity < inputSize) {
+        AKLOGE("Invalid input pointers: capacity %lld, input size %d",
+                static_cast<long long>(inputPointersCapacity), inputSize);
+        ASSERT(false);
+        return;
+    }
+    int *const xCoordinates = inputPointers;
+    int *const yCoordinates = inputPointers + inputPointersCapacity;
+    int *const pointerIds = inputPointers + 2 * inputPointersCapacity;
+    int *const times = inputPointers + 3 * inputPointersCapacity;
     const jsize inputCodePointsLength = env->GetArrayLength(inputCodePointsArray);
     int inputCodePoints[inputCodePointsLength];
-    env->GetIntArrayRegion(xCoordinatesArray, 0, inputSize, xCoordinates);
-    env->GetIntArrayRegion(yCoordinatesArray, 0, inputSize, yCoordinates);
-    env->GetIntArrayRegion(timesArray, 0, inputSize, times);
-    env->GetIntArrayRegion(pointerIdsArray, 0, inputSize, pointerIds);
     env->GetIntArrayRegion(inputCodePointsArray, 0, inputCodePointsLength, inputCodePoints);
 
     const jsize numberOfOptions = env->GetArrayLength(suggestOptions);
@@ -249,6 +262,8 @@ static void latinime_BinaryDictionary_getSuggestions(JNIEnv *env, jclass clazz,
         dictionary->getSuggestions(pInfo, traverseSession, xCoordinates, yCoordinates,
                 times, pointerIds, inputCodePoints, inputSize, &ngramContext,
                 &givenSuggestOptions, weightOfLangModelVsSpatialModel, &suggestionResults);
+        JniDataUtils::putIntToArray(env, outSearchContinuationArray, 0 /* index */,
+                traverseSession->getSearchContinuation());
     } else {
         dictionary->getPredictions(&ngramContext, &suggestionResults);
     }
@@ -498,12 +513,12 @@ static int latinime_BinaryDictionary_updateEntriesForInputEvents(JNIEnv *env, jc
         dictionary->updateEntriesForWordWithNgramContext(&ngramContext,
                 CodePointArrayView(wordCodePoints, wordLength), isValid,
                 HistoricalInfo(timestamp, 0 /* level */, 1 /* count */));
-        if (dictionary->needsToRunGC(true /* mindsBlockByGC */)) {
-            return i + 1;
-        }
         env->DeleteLocalRef(prevWordArray);
         env->DeleteLocalRef(isPrevWordBeginningOfSentenceArray);
         env->DeleteLocalRef(inputEvent);
+        if (dictionary->needsToRunGC(true /* mindsBlockByGC */)) {
+            return i + 1;
+        }
     }
     return inputEventCount;
 }
@@ -659,7 +674,7 @@ static const JNINativeMethod sMethods[] = {
     },
     {
         const_cast<char *>("getSuggestionsNative"),
-        const_cast<char *>("(JJJ[I[I[I[I[II[I[[I[ZI[I[I[I[I[I[I[F)V"),
+        const_cast<char *>("(JJJLjava/nio/ByteBuffer;[II[I[[I[ZI[I[I[I[I[I[I[F[I)V"),
         reinterpret_cast<void *>(latinime_BinaryDictionary_getSuggestions)
     },
     {
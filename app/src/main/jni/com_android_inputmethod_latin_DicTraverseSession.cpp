@@ -50,6 +50,20 @@ static void latinime_initDicTraverseSession(JNIEnv *env, jclass clazz, jlong tra
     ts->init(dict, &ngramContext, 0 /* suggestOptions */);
 }
 
+static void latinime_resetDicTraverseSessionContinuation(JNIEnv *env, jclass clazz,
+        jlong traverseSession) {
+    DicTraverseSession *ts = reinterpret_cast<DicTraverseSession *>(traverseSession);
+    if (!ts) {
+        return;
+    }
+    ts->resetContinuationSnapshots();
+}
+
+static void latinime_setLatestRequestGeneration(JNIEnv *env, jclass clazz,
+        jint requestGeneration) {
+    DicTraverseSession::setLatestRequestGeneration(requestGeneration);
+}
+
 static void latinime_releaseDicTraverseSession(JNIEnv *env, jclass clazz, jlong traverseSession) {
     DicTraverseSession *ts = reinterpret_cast<DicTraverseSession *>(traverseSession);
     DicTraverseSession::releaseSessionInstance(ts);
@@ -66,6 +80,16 @@ static const JNINativeMethod sMethods[] = {
         const_cast<char *>("(JJ[II)V"),
         reinterpret_cast<void *>(latinime_initDicTraverseSession)
     },
+    {
+        const_cast<char *>("resetDicTraverseSessionContinuationNative"),
+        const_cast<char *>("(J)V"),
+        reinterpret_cast<void *>(latinime_resetDicTraverseSessionContinuation)
+    },
+    {
+        const_cast<char *>("setLatestRequestGenerationNative"),
+        const_cast<char *>("(I)V"),
+        reinterpret_cast<void *>(latinime_setLatestRequestGeneration)
+    },
     {
         const_cast<char *>("releaseDicTraverseSessionNative"),
         const_cast<char *>("(J)V"),
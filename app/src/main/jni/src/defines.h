@@ -235,6 +235,7 @@ static inline void showStackTrace() {
 #define NOT_A_CODE_POINT (-1)
 #define NOT_A_DISTANCE (-1)
 #define NOT_A_COORDINATE (-1)
+#define NOT_A_REQUEST_GENERATION 0
 #define NOT_AN_INDEX (-1)
 #define NOT_A_PROBABILITY (-1)
 #define NOT_A_DICT_POS (S_INT_MIN)
@@ -338,5 +339,7 @@ typedef enum {
     CT_NEW_WORD_SPACE_OMISSION,
     // Create new word with space substitution
     CT_NEW_WORD_SPACE_SUBSTITUTION,
+    // Skip a gesture touch point without matching a letter
+    CT_SKIPPED_POINT,
 } CorrectionType;
 #endif // LATINIME_DEFINES_H
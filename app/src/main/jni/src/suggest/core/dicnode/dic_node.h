@@ -17,6 +17,8 @@
 #ifndef LATINIME_DIC_NODE_H
 #define LATINIME_DIC_NODE_H
 
+#include <algorithm>
+
 #include "defines.h"
 #include "suggest/core/dicnode/dic_node_profiler.h"
 #include "suggest/core/dicnode/dic_node_utils.h"
@@ -349,6 +351,13 @@ class DicNode {
                 == dicNode->mDicNodeProperties.getDicNodeCodePoint();
     }
 
+    AK_FORCE_INLINE bool isSameOutputWord(const DicNode *const dicNode) const {
+        const int codePointCount = getTotalNodeCodePointCount();
+        return codePointCount == dicNode->getTotalNodeCodePointCount()
+                && std::equal(getOutputWordBuf(), getOutputWordBuf() + codePointCount,
+                        dicNode->getOutputWordBuf());
+    }
+
     // TODO: remove
     // TODO: rename getNextInputIndex
     int16_t getInputIndex(int pointerId) const {
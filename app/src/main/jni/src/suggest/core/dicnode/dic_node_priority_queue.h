@@ -79,6 +79,34 @@ class DicNodePriorityQueue {
         mDicNodePool.placeBackInstance(pooledDicNode);
     }
 
+    // Like copyPush, but keeps at most one dicNode per output word: a queued dicNode of the same
+    // word is replaced if the new one is better, otherwise the new one is dropped.
+    AK_FORCE_INLINE void copyPushReplacingSameWord(const DicNode *const dicNode) {
+        std::vector<DicNode *> otherDicNodes;
+        otherDicNodes.reserve(mDicNodesQueue.size());
+        DicNode *sameWordDicNode = nullptr;
+        while (!mDicNodesQueue.empty()) {
+            DicNode *const queuedDicNode = mDicNodesQueue.top();
+            mDicNodesQueue.pop();
+            if (!sameWordDicNode && queuedDicNode->isSameOutputWord(dicNode)) {
+                sameWordDicNode = queuedDicNode;
+            } else {
+                otherDicNodes.push_back(queuedDicNode);
+            }
+        }
+        for (DicNode *const otherDicNode : otherDicNodes) {
+            mDicNodesQueue.push(otherDicNode);
+        }
+        if (!sameWordDicNode) {
+            copyPush(dicNode);
+        } else if (compareDicNode(dicNode, sameWordDicNode)) {
+            DicNodeUtils::initByCopy(dicNode, sameWordDicNode);
+            mDicNodesQueue.push(sameWordDicNode);
+        } else {
+            mDicNodesQueue.push(sameWordDicNode);
+        }
+    }
+
     AK_FORCE_INLINE void copyPop(DicNode *const dest) {
         if (mDicNodesQueue.empty()) {
             ASSERT(false);
@@ -92,6 +120,17 @@ class DicNodePriorityQueue {
         mDicNodesQueue.pop();
     }
 
+    // Copies all queued dicNodes into dest without modifying this queue.
+    AK_FORCE_INLINE void copyAllTo(std::vector<DicNode> *const dest) const {
+        DicNodesQueue queue(mDicNodesQueue);
+        dest->clear();
+        dest->reserve(queue.size());
+        while (!queue.empty()) {
+            dest->push_back(*queue.top());
+            queue.pop();
+        }
+    }
+
     AK_FORCE_INLINE void dump() {
         mDicNodePool.dump();
     }
@@ -18,6 +18,7 @@
 #define LATINIME_DIC_NODES_CACHE_H
 
 #include <algorithm>
+#include <vector>
 
 #include "defines.h"
 #include "suggest/core/dicnode/dic_node_priority_queue.h"
@@ -63,6 +64,28 @@ class DicNodesCache {
         restoreActiveDicNodesFromCache();
     }
 
+    // Restarts the search from dicNodes that were cached for continuous suggestion by an earlier
+    // search, e.g. before the user pressed backspace.
+    AK_FORCE_INLINE void restoreSearch(const std::vector<DicNode> &dicNodes,
+            const int cachedInputIndex) {
+        resetTemporaryCaches();
+        mCachedDicNodesForContinuousSuggestion->clear();
+        for (const DicNode &dicNode : dicNodes) {
+            mActiveDicNodes->copyPush(&dicNode);
+        }
+        mInputIndex = cachedInputIndex;
+        mLastCachedInputIndex = cachedInputIndex;
+    }
+
+    // Drops the state of a search that was stopped before completion. The cached dicNodes may be
+    // incomplete, so the next search has to restart.
+    AK_FORCE_INLINE void cancelSearch() {
+        resetTemporaryCaches();
+        mCachedDicNodesForContinuousSuggestion->clear();
+        mInputIndex = 0;
+        mLastCachedInputIndex = 0;
+    }
+
     AK_FORCE_INLINE void advanceActiveDicNodes() {
         if (DEBUG_DICT) {
             AKLOGI("Advance active %d nodes.", mNextActiveDicNodes->getSize());
@@ -89,6 +112,10 @@ class DicNodesCache {
         mTerminalDicNodes->copyPush(dicNode);
     }
 
+    AK_FORCE_INLINE void copyPushTerminalReplacingSameWord(DicNode *dicNode) {
+        mTerminalDicNodes->copyPushReplacingSameWord(dicNode);
+    }
+
     AK_FORCE_INLINE void copyPushActive(DicNode *dicNode) {
         mActiveDicNodes->copyPush(dicNode);
     }
@@ -114,10 +141,20 @@ class DicNodesCache {
                 && mCachedDicNodesForContinuousSuggestion->getSize() > 0;
     }
 
+    AK_FORCE_INLINE void copyCachedDicNodesForContinuousSuggestion(
+            std::vector<DicNode> *const outDicNodes) const {
+        mCachedDicNodesForContinuousSuggestion->copyAllTo(outDicNodes);
+    }
+
+    int getLastCachedInputIndex() const { return mLastCachedInputIndex; }
+
     AK_FORCE_INLINE bool isCacheBorderForTyping(const int inputSize) const {
         // TODO: Move this variable to header
         static const int CACHE_BACK_LENGTH = 3;
-        const int cacheInputIndex = inputSize - CACHE_BACK_LENGTH;
+        return isCacheBorder(inputSize - CACHE_BACK_LENGTH);
+    }
+
+    AK_FORCE_INLINE bool isCacheBorder(const int cacheInputIndex) const {
         const bool shouldCache = (cacheInputIndex == mInputIndex)
                 && (cacheInputIndex != mLastCachedInputIndex);
         return shouldCache;
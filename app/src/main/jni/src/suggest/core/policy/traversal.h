@@ -50,6 +50,9 @@ class Traversal {
             const DicNode *const parentDicNode, const DicNode *const dicNode) const = 0;
     virtual bool isGoodToTraverseNextWord(const DicNode *const dicNode,
             const int probability) const = 0;
+    virtual bool canSkipInputPoint(const DicTraverseSession *const traverseSession,
+            const DicNode *const dicNode) const = 0;
+    virtual bool keepsOnlyBestTerminalOfWord() const = 0;
 
  protected:
     Traversal() {}
@@ -134,6 +134,8 @@ static inline void profile(const CorrectionType correctionType, DicNode *const n
         return weighting->getInsertionCost(traverseSession, parentDicNode, dicNode);
     case CT_TRANSPOSITION:
         return weighting->getTranspositionCost(traverseSession, parentDicNode, dicNode);
+    case CT_SKIPPED_POINT:
+        return weighting->getSkippedPointCost(traverseSession, dicNode);
     default:
         return 0.0f;
     }
@@ -170,6 +172,8 @@ static inline void profile(const CorrectionType correctionType, DicNode *const n
         return 0.0f;
     case CT_TRANSPOSITION:
         return 0.0f;
+    case CT_SKIPPED_POINT:
+        return 0.0f;
     default:
         return 0.0f;
     }
@@ -199,6 +203,8 @@ static inline void profile(const CorrectionType correctionType, DicNode *const n
             return 2; /* look ahead + skip the current char */
         case CT_TRANSPOSITION:
             return 2; /* look ahead + skip the current char */
+        case CT_SKIPPED_POINT:
+            return 1;
         default:
             return 0;
     }
@@ -16,6 +16,9 @@
 
 #include "suggest/core/session/dic_traverse_session.h"
 
+#include <algorithm>
+#include <cstring>
+
 #include "defines.h"
 #include "dictionary/interface/dictionary_header_structure_policy.h"
 #include "dictionary/interface/dictionary_structure_with_buffer_policy.h"
@@ -24,6 +27,12 @@
 
 namespace latinime {
 
+const int DicTraverseSession::SEARCH_RESTARTED = 0;
+const int DicTraverseSession::SEARCH_CONTINUED = 1;
+const int DicTraverseSession::SEARCH_RESTORED_FROM_SNAPSHOT = 2;
+
+std::atomic<int> DicTraverseSession::sLatestRequestGeneration(NOT_A_REQUEST_GENERATION);
+
 // 256K bytes threshold is heuristically used to distinguish dictionaries containing many unigrams
 // (e.g. main dictionary) from small dictionaries (e.g. contacts...)
 const int DicTraverseSession::DICTIONARY_SIZE_THRESHOLD_TO_USE_LARGE_CACHE_FOR_SUGGESTION =
@@ -45,6 +54,13 @@ void DicTraverseSession::setupForGetSuggestions(const ProximityInfo *pInfo,
         const float maxSpatialDistance, const int maxPointerCount) {
     mProximityInfo = pInfo;
     mMaxPointerCount = maxPointerCount;
+    mSearchContinuation = SEARCH_RESTARTED;
+    if (maxPointerCount == MAX_POINTER_COUNT && inputSize <= MAX_WORD_LENGTH) {
+        invalidateContinuationSnapshots(inputCodePoints, inputXs, inputYs, inputSize);
+    } else {
+        // Snapshots are only taken for typing.
+        resetContinuationSnapshots();
+    }
     initializeProximityInfoStates(inputCodePoints, inputXs, inputYs, times, pointerIds, inputSize,
             maxSpatialDistance, maxPointerCount);
 }
@@ -60,6 +76,94 @@ void DicTraverseSession::resetCache(const int thresholdForNextActiveDicNodes, co
     mMultiBigramMap.clear();
 }
 
+/**
+ * Restores the search from the longest snapshot that is still valid for the current input, which
+ * is the case after backspace or when the previous search could not be continued.
+ */
+bool DicTraverseSession::restoreContinuationSnapshot() {
+    if (mContinuationSnapshotCount <= 0) {
+        return false;
+    }
+    const ContinuationSnapshot &snapshot = mContinuationSnapshots[mContinuationSnapshotCount - 1];
+    if (snapshot.mCachedInputIndex >= mInputSize || snapshot.mDicNodes.empty()) {
+        return false;
+    }
+    if (DEBUG_CACHE) {
+        AKLOGI("Restore snapshot of %zu nodes. inputIndex = %d, inputSize = %d",
+                snapshot.mDicNodes.size(), snapshot.mCachedInputIndex, mInputSize);
+    }
+    mDicNodesCache.restoreSearch(snapshot.mDicNodes, snapshot.mCachedInputIndex);
+    return true;
+}
+
+/**
+ * Keeps the dicNodes cached for continuous suggestion by the current search, so later searches can
+ * continue from them even when the input is shortened.
+ */
+void DicTraverseSession::saveContinuationSnapshot() {
+    if (mMaxPointerCount != MAX_POINTER_COUNT
+            || !mDicNodesCache.hasCachedDicNodesForContinuousSuggestion()) {
+        return;
+    }
+    // Snapshots taken with the same or a longer input are superseded by this one.
+    while (mContinuationSnapshotCount > 0
+            && mContinuationSnapshots[mContinuationSnapshotCount - 1].mInputSize >= mInputSize) {
+        --mContinuationSnapshotCount;
+    }
+    if (mContinuationSnapshotCount >= MAX_CONTINUATION_SNAPSHOT_COUNT) {
+        // Drop the oldest snapshot. Swapping keeps the allocated node vectors for reuse.
+        for (int i = 1; i < MAX_CONTINUATION_SNAPSHOT_COUNT; ++i) {
+            std::swap(mContinuationSnapshots[i - 1], mContinuationSnapshots[i]);
+        }
+        mContinuationSnapshotCount = MAX_CONTINUATION_SNAPSHOT_COUNT - 1;
+    }
+    ContinuationSnapshot *const snapshot = &mContinuationSnapshots[mContinuationSnapshotCount];
+    snapshot->mInputSize = mInputSize;
+    snapshot->mCachedInputIndex = mDicNodesCache.getLastCachedInputIndex();
+    mDicNodesCache.copyCachedDicNodesForContinuousSuggestion(&snapshot->mDicNodes);
+    ++mContinuationSnapshotCount;
+}
+
+void DicTraverseSession::resetContinuationSnapshots() {
+    mContinuationSnapshotCount = 0;
+    mLastInputSize = 0;
+}
+
+/**
+ * Drops all snapshots that cannot be used for the given input. Snapshots are bound to the
+ * dictionary and previous words they were taken with, and are valid only while the whole input they
+ * were taken with is a prefix of the new input.
+ */
+void DicTraverseSession::invalidateContinuationSnapshots(const int *const inputCodePoints,
+        const int *const inputXs, const int *const inputYs, const int inputSize) {
+    const WordIdArrayView prevWordIds = getPrevWordIds();
+    if (mSnapshotDictionary != mDictionary || prevWordIds.size() != mSnapshotPrevWordIdCount
+            || !std::equal(prevWordIds.begin(), prevWordIds.end(),
+                    mSnapshotPrevWordIdArray.begin())) {
+        resetContinuationSnapshots();
+        mSnapshotDictionary = mDictionary;
+        prevWordIds.copyToArray(&mSnapshotPrevWordIdArray, 0 /* offset */);
+        mSnapshotPrevWordIdCount = prevWordIds.size();
+    }
+    int commonPrefixLength = 0;
+    const int maxPrefixLength = std::min(inputSize, mLastInputSize);
+    while (commonPrefixLength < maxPrefixLength
+            && inputCodePoints[commonPrefixLength] == mLastInputCodePoints[commonPrefixLength]
+            && inputXs[commonPrefixLength] == mLastInputXs[commonPrefixLength]
+            && inputYs[commonPrefixLength] == mLastInputYs[commonPrefixLength]) {
+        ++commonPrefixLength;
+    }
+    while (mContinuationSnapshotCount > 0
+            && mContinuationSnapshots[mContinuationSnapshotCount - 1].mInputSize
+                    > commonPrefixLength) {
+        --mContinuationSnapshotCount;
+    }
+    memmove(mLastInputCodePoints, inputCodePoints, sizeof(int) * inputSize);
+    memmove(mLastInputXs, inputXs, sizeof(int) * inputSize);
+    memmove(mLastInputYs, inputYs, sizeof(int) * inputSize);
+    mLastInputSize = inputSize;
+}
+
 void DicTraverseSession::initializeProximityInfoStates(const int *const inputCodePoints,
         const int *const inputXs, const int *const inputYs, const int *const times,
         const int *const pointerIds, const int inputSize, const float maxSpatialDistance,
@@ -17,6 +17,7 @@
 #ifndef LATINIME_DIC_TRAVERSE_SESSION_H
 #define LATINIME_DIC_TRAVERSE_SESSION_H
 
+#include <atomic>
 #include <vector>
 
 #include "defines.h"
@@ -24,6 +25,7 @@
 #include "jni.h"
 #include "suggest/core/dicnode/dic_nodes_cache.h"
 #include "suggest/core/layout/proximity_info_state.h"
+#include "suggest/core/suggest_options.h"
 #include "utils/int_array_view.h"
 
 namespace latinime {
@@ -32,10 +34,14 @@ class Dictionary;
 class DictionaryStructureWithBufferPolicy;
 class NgramContext;
 class ProximityInfo;
-class SuggestOptions;
 
 class DicTraverseSession {
  public:
+    // How the last search was started. Must be equal to the SEARCH_* constants in
+    // DicTraverseSession.java.
+    static const int SEARCH_RESTARTED;
+    static const int SEARCH_CONTINUED;
+    static const int SEARCH_RESTORED_FROM_SNAPSHOT;
 
     // A factory method for DicTraverseSession
     static AK_FORCE_INLINE void *getSessionInstance(JNIEnv *env, jstring localeStr,
@@ -50,10 +56,18 @@ class DicTraverseSession {
         delete traverseSession;
     }
 
+    // Marks all cancellable searches for requests older than the given generation as cancelled.
+    static AK_FORCE_INLINE void setLatestRequestGeneration(const int requestGeneration) {
+        sLatestRequestGeneration.store(requestGeneration, std::memory_order_relaxed);
+    }
+
     AK_FORCE_INLINE DicTraverseSession(JNIEnv *env, jstring localeStr, bool usesLargeCache)
             : mPrevWordIdCount(0), mProximityInfo(nullptr), mDictionary(nullptr),
               mSuggestOptions(nullptr), mDicNodesCache(usesLargeCache), mMultiBigramMap(),
-              mInputSize(0), mMaxPointerCount(1), mMultiWordCostMultiplier(1.0f) {
+              mInputSize(0), mMaxPointerCount(1), mMultiWordCostMultiplier(1.0f),
+              mContinuationSnapshotCount(0), mSnapshotDictionary(nullptr),
+              mSnapshotPrevWordIdCount(0), mLastInputSize(0),
+              mSearchContinuation(SEARCH_RESTARTED) {
         // NOTE: mProximityInfoStates is an array of instances.
         // No need to initialize it explicitly here.
     }
@@ -69,6 +83,9 @@ class DicTraverseSession {
             const int *const times, const int *const pointerIds, const float maxSpatialDistance,
             const int maxPointerCount);
     void resetCache(const int thresholdForNextActiveDicNodes, const int maxWords);
+    bool restoreContinuationSnapshot();
+    void saveContinuationSnapshot();
+    void resetContinuationSnapshots();
 
     const DictionaryStructureWithBufferPolicy *getDictionaryStructurePolicy() const;
 
@@ -129,6 +146,10 @@ class DicTraverseSession {
         return mDicNodesCache.isCacheBorderForTyping(inputSize);
     }
 
+    AK_FORCE_INLINE bool isCacheBorder(const int cacheInputIndex) const {
+        return mDicNodesCache.isCacheBorder(cacheInputIndex);
+    }
+
     /**
      * Returns whether or not it is possible to continue suggestion from the previous search.
      */
@@ -157,11 +178,45 @@ class DicTraverseSession {
         return mMultiWordCostMultiplier;
     }
 
+    // Whether a newer request has superseded the request this session is searching for. Polled by
+    // the search loop, so a superseded search stops without finishing the traversal.
+    bool isCancelled() const {
+        if (!mSuggestOptions) {
+            return false;
+        }
+        const int requestGeneration = mSuggestOptions->requestGeneration();
+        if (requestGeneration == NOT_A_REQUEST_GENERATION) {
+            return false;
+        }
+        // Compare the difference so that overflowing generations are handled.
+        return requestGeneration - sLatestRequestGeneration.load(std::memory_order_relaxed) < 0;
+    }
+
+    int getSearchContinuation() const { return mSearchContinuation; }
+    void setSearchContinuation(const int searchContinuation) {
+        mSearchContinuation = searchContinuation;
+    }
+
  private:
     DISALLOW_IMPLICIT_CONSTRUCTORS(DicTraverseSession);
+
+    // The dicNodes cached for continuous suggestion by a typing search, together with the input
+    // size of that search. The snapshot can be restored as long as the input it was taken with is
+    // still a prefix of the current input.
+    struct ContinuationSnapshot {
+        int mInputSize;
+        int mCachedInputIndex;
+        std::vector<DicNode> mDicNodes;
+    };
+
     // threshold to start caching
     static const int CACHE_START_INPUT_LENGTH_THRESHOLD;
     static const int DICTIONARY_SIZE_THRESHOLD_TO_USE_LARGE_CACHE_FOR_SUGGESTION;
+    static const int MAX_CONTINUATION_SNAPSHOT_COUNT = 4;
+    static std::atomic<int> sLatestRequestGeneration;
+
+    void invalidateContinuationSnapshots(const int *const inputCodePoints,
+            const int *const inputXs, const int *const inputYs, const int inputSize);
     void initializeProximityInfoStates(const int *const inputCodePoints, const int *const inputXs,
             const int *const inputYs, const int *const times, const int *const pointerIds,
             const int inputSize, const float maxSpatialDistance, const int maxPointerCount);
@@ -184,6 +239,18 @@ class DicTraverseSession {
     // Configuration per dictionary
     float mMultiWordCostMultiplier;
 
+    /////////////////////////////////
+    // Snapshots for continuing typing searches after backspace
+    ContinuationSnapshot mContinuationSnapshots[MAX_CONTINUATION_SNAPSHOT_COUNT];
+    int mContinuationSnapshotCount;
+    const Dictionary *mSnapshotDictionary;
+    WordIdArray<MAX_PREV_WORD_COUNT_FOR_N_GRAM> mSnapshotPrevWordIdArray;
+    size_t mSnapshotPrevWordIdCount;
+    int mLastInputCodePoints[MAX_WORD_LENGTH];
+    int mLastInputXs[MAX_WORD_LENGTH];
+    int mLastInputYs[MAX_WORD_LENGTH];
+    int mLastInputSize;
+    int mSearchContinuation;
 };
 } // namespace latinime
 #endif // LATINIME_DIC_TRAVERSE_SESSION_H
@@ -63,11 +63,18 @@ void Suggest::getSuggestions(ProximityInfo *pInfo, void *traverseSession,
 
     // keep expanding search dicNodes until all have terminated.
     while (tSession->getDicTraverseCache()->activeSize() > 0) {
+        if (tSession->isCancelled()) {
+            // A newer request superseded this one, so its results won't be used.
+            tSession->getDicTraverseCache()->cancelSearch();
+            PROF_TIMER_END(1);
+            return;
+        }
         expandCurrentDicNodes(tSession);
         tSession->getDicTraverseCache()->advanceActiveDicNodes();
         tSession->getDicTraverseCache()->advanceInputIndex(inputSize);
     }
     PROF_TIMER_END(1);
+    tSession->saveContinuationSnapshot();
     PROF_TIMER_START(2);
     SuggestionsOutputUtils::outputSuggestions(
             SCORING, tSession, weightOfLangModelVsSpatialModel, outSuggestionResults);
@@ -83,10 +90,16 @@ void Suggest::initializeSearch(DicTraverseSession *traverseSession) const {
         return;
     }
 
-    if (traverseSession->getInputSize() > MIN_CONTINUOUS_SUGGESTION_INPUT_SIZE
-            && traverseSession->isContinuousSuggestionPossible()) {
+    const bool canContinue =
+            traverseSession->getInputSize() > MIN_CONTINUOUS_SUGGESTION_INPUT_SIZE;
+    if (canContinue && traverseSession->isContinuousSuggestionPossible()) {
         // Continue suggestion
         traverseSession->getDicTraverseCache()->continueSearch();
+        traverseSession->setSearchContinuation(DicTraverseSession::SEARCH_CONTINUED);
+    } else if (canContinue && traverseSession->restoreContinuationSnapshot()) {
+        // Continue suggestion from a shorter input, e.g. after backspace
+        traverseSession->setSearchContinuation(
+                DicTraverseSession::SEARCH_RESTORED_FROM_SNAPSHOT);
     } else {
         // Restart recognition at the root.
         traverseSession->resetCache(TRAVERSAL->getMaxCacheSize(traverseSession->getInputSize(),
@@ -222,6 +235,10 @@ void Suggest::expandCurrentDicNodes(DicTraverseSession *traverseSession) const {
             if (allowsErrorCorrections && canDoLookAheadCorrection) {
                 traverseSession->getDicTraverseCache()->copyPushNextActive(&dicNode);
             }
+            // Keep the dicNode on its current letter for the next touch point (gesture)
+            if (TRAVERSAL->canSkipInputPoint(traverseSession, &dicNode)) {
+                processDicNodeAsSkippedPoint(traverseSession, &dicNode);
+            }
         }
     }
 }
@@ -249,7 +266,15 @@ void Suggest::processTerminalDicNode(
     }
     Weighting::addCostAndForwardInputIndex(WEIGHTING, CT_TERMINAL, traverseSession, 0,
             &terminalDicNode, traverseSession->getMultiBigramMap());
-    traverseSession->getDicTraverseCache()->copyPushTerminal(&terminalDicNode);
+    if (terminalDicNode.getCompoundDistance() >= static_cast<float>(MAX_VALUE_FOR_WEIGHTING)) {
+        return;
+    }
+    if (TRAVERSAL->keepsOnlyBestTerminalOfWord()) {
+        traverseSession->getDicTraverseCache()->copyPushTerminalReplacingSameWord(
+                &terminalDicNode);
+    } else {
+        traverseSession->getDicTraverseCache()->copyPushTerminal(&terminalDicNode);
+    }
 }
 
 /**
@@ -353,6 +378,25 @@ void Suggest::processDicNodeAsInsertion(DicTraverseSession *traverseSession,
     }
 }
 
+/**
+ * Handle the current touch point as one that does not correspond to a letter, e.g. a point on the
+ * way between two keys of a gesture. The dicNode stays on its letter and consumes the point.
+ */
+void Suggest::processDicNodeAsSkippedPoint(DicTraverseSession *traverseSession,
+        DicNode *dicNode) const {
+    DicNode skippedDicNode;
+    skippedDicNode.initByCopy(dicNode);
+    Weighting::addCostAndForwardInputIndex(WEIGHTING, CT_SKIPPED_POINT, traverseSession,
+            dicNode, &skippedDicNode, 0 /* multiBigramMap */);
+    if (skippedDicNode.getCompoundDistance() < static_cast<float>(MAX_VALUE_FOR_WEIGHTING)) {
+        if (skippedDicNode.getInputIndex(0) >= traverseSession->getInputSize()) {
+            // The last letter was held until the end of the input.
+            processTerminalDicNode(traverseSession, &skippedDicNode);
+        }
+        traverseSession->getDicTraverseCache()->copyPushNextActive(&skippedDicNode);
+    }
+}
+
 /**
  * Handle the dicNode as a transposition error (e.g., thsi => this). Swap the next two touch points.
  */
@@ -66,6 +66,8 @@ class Suggest : public SuggestInterface {
     void processDicNodeAsTransposition(DicTraverseSession *traverseSession,
             DicNode *dicNode) const;
     void processDicNodeAsInsertion(DicTraverseSession *traverseSession, DicNode *dicNode) const;
+    void processDicNodeAsSkippedPoint(DicTraverseSession *traverseSession,
+            DicNode *dicNode) const;
     void processDicNodeAsAdditionalProximityChar(DicTraverseSession *traverseSession,
             DicNode *dicNode, DicNode *childDicNode) const;
     void processDicNodeAsSubstitution(DicTraverseSession *traverseSession, DicNode *dicNode,
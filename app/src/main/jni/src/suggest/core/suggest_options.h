@@ -48,6 +48,12 @@ class SuggestOptions{
         return static_cast<float>(getIntOption(WEIGHT_FOR_LOCALE_IN_THOUSANDS)) / 1000.0f;
     }
 
+    // Generation of the suggestion request, used to stop searches that were superseded by a newer
+    // request. NOT_A_REQUEST_GENERATION for requests that must not be cancelled.
+    AK_FORCE_INLINE int requestGeneration() const {
+        return getIntOption(REQUEST_GENERATION);
+    }
+
     AK_FORCE_INLINE bool getAdditionalFeaturesBoolOption(const int key) const {
         return getBoolOption(key + ADDITIONAL_FEATURES_OPTIONS);
     }
@@ -62,9 +68,10 @@ class SuggestOptions{
     static const int BLOCK_OFFENSIVE_WORDS = 2;
     static const int SPACE_AWARE_GESTURE_ENABLED = 3;
     static const int WEIGHT_FOR_LOCALE_IN_THOUSANDS = 4;
+    static const int REQUEST_GENERATION = 5;
     // Additional features options are stored after the other options and used as setting values of
     // experimental features.
-    static const int ADDITIONAL_FEATURES_OPTIONS = 5;
+    static const int ADDITIONAL_FEATURES_OPTIONS = 6;
 
     const int *const mOptions;
     const int mLength;
@@ -0,0 +1,24 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+#include "suggest/policyimpl/gesture/gesture_scoring_params.h"
+
+namespace latinime {
+// Spatial costs of a gesture are summed over all sampled points, so the language weight is larger
+// than for typing to keep both models comparable.
+const float GestureScoringParams::MAX_SPATIAL_DISTANCE = 2.0f;
+const int GestureScoringParams::MAX_CACHE_DIC_NODE_SIZE = 310;
+const int GestureScoringParams::MAX_CACHE_DIC_NODE_SIZE_FOR_LOW_PROBABILITY_LOCALE = 100;
+const float GestureScoringParams::LOCALE_WEIGHT_THRESHOLD_FOR_SMALL_CACHE_SIZE = 0.99f;
+
+const float GestureScoringParams::DISTANCE_WEIGHT_LANGUAGE = 6.0f;
+// squared distances are in units of the most common key width
+const float GestureScoringParams::DISTANCE_WEIGHT_POINT_TO_KEY = 1.0f;
+const float GestureScoringParams::MAX_POINT_TO_KEY_SQUARED_DISTANCE = 1.0f;
+const float GestureScoringParams::SKIPPED_TURN_COST_PER_RADIAN = 1.0f;
+const float GestureScoringParams::SKIPPED_END_POINT_COST = 2.0f;
+const float GestureScoringParams::INTENTIONAL_OMISSION_COST = 0.1f;
+const float GestureScoringParams::OMISSION_COST_SAME_CHAR = 0.5f;
+const float GestureScoringParams::COST_COMPLETION = 2.0f;
+const float GestureScoringParams::BASE_OUTPUT_SCORE = 1.0f;
+const float GestureScoringParams::MAX_OUTPUT_SCORE_PER_INPUT = 1.0f;
+} // namespace latinime
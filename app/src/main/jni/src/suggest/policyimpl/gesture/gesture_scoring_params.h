@@ -0,0 +1,34 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+#ifndef LATINIME_GESTURE_SCORING_PARAMS_H
+#define LATINIME_GESTURE_SCORING_PARAMS_H
+
+#include "defines.h"
+
+namespace latinime {
+
+class GestureScoringParams {
+ public:
+    // Fixed model parameters
+    static const float MAX_SPATIAL_DISTANCE;
+    static const int MAX_CACHE_DIC_NODE_SIZE;
+    static const int MAX_CACHE_DIC_NODE_SIZE_FOR_LOW_PROBABILITY_LOCALE;
+    static const float LOCALE_WEIGHT_THRESHOLD_FOR_SMALL_CACHE_SIZE;
+
+    // Numerically optimized parameters (currently for tuning)
+    static const float DISTANCE_WEIGHT_LANGUAGE;
+    static const float DISTANCE_WEIGHT_POINT_TO_KEY;
+    static const float MAX_POINT_TO_KEY_SQUARED_DISTANCE;
+    static const float SKIPPED_TURN_COST_PER_RADIAN;
+    static const float SKIPPED_END_POINT_COST;
+    static const float INTENTIONAL_OMISSION_COST;
+    static const float OMISSION_COST_SAME_CHAR;
+    static const float COST_COMPLETION;
+    static const float BASE_OUTPUT_SCORE;
+    static const float MAX_OUTPUT_SCORE_PER_INPUT;
+
+ private:
+    DISALLOW_IMPLICIT_CONSTRUCTORS(GestureScoringParams);
+};
+} // namespace latinime
+#endif // LATINIME_GESTURE_SCORING_PARAMS_H
@@ -0,0 +1,7 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+#include "suggest/policyimpl/gesture/gesture_suggest_policy.h"
+
+namespace latinime {
+const GestureSuggestPolicy GestureSuggestPolicy::sInstance;
+} // namespace latinime
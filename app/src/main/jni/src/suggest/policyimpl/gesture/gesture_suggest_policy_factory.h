@@ -18,6 +18,7 @@
 #define LATINIME_GESTURE_SUGGEST_POLICY_FACTORY_H
 
 #include "defines.h"
+#include "suggest/policyimpl/gesture/gesture_suggest_policy.h"
 
 namespace latinime {
 
@@ -31,7 +32,8 @@ class GestureSuggestPolicyFactory {
 
     static const SuggestPolicy *getGestureSuggestPolicy() {
         if (!sGestureSuggestFactoryMethod) {
-            return 0;
+            // No external gesture library provided its own policy.
+            return GestureSuggestPolicy::getInstance();
         }
         return sGestureSuggestFactoryMethod();
     }
@@ -0,0 +1,146 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+#ifndef LATINIME_GESTURE_TRAVERSAL_H
+#define LATINIME_GESTURE_TRAVERSAL_H
+
+#include "defines.h"
+#include "suggest/core/dicnode/dic_node.h"
+#include "suggest/core/dicnode/dic_node_vector.h"
+#include "suggest/core/layout/proximity_info_state.h"
+#include "suggest/core/layout/proximity_info_utils.h"
+#include "suggest/core/policy/traversal.h"
+#include "suggest/core/session/dic_traverse_session.h"
+#include "suggest/core/suggest_options.h"
+#include "suggest/policyimpl/gesture/gesture_scoring_params.h"
+#include "suggest/policyimpl/gesture/gesture_weighting.h"
+
+namespace latinime {
+
+/**
+ * Traversal for gesture input. The search consumes exactly one sampled point per iteration: every
+ * active dicNode either aligns the point to one of its child letters or skips it. Thus all active
+ * dicNodes have consumed the same points, which lets the depth level cache continue the search
+ * from the points that were already decoded when the stroke grows.
+ * Only the first pointer is decoded.
+ */
+class GestureTraversal : public Traversal {
+ public:
+    static const GestureTraversal *getInstance() { return &sInstance; }
+
+    AK_FORCE_INLINE int getMaxPointerCount() const {
+        return MAX_POINTER_COUNT_G;
+    }
+
+    AK_FORCE_INLINE bool allowsErrorCorrections(const DicNode *const dicNode) const {
+        // Skipped points already account for imprecise strokes.
+        return false;
+    }
+
+    AK_FORCE_INLINE bool isOmission(const DicTraverseSession *const traverseSession,
+            const DicNode *const dicNode, const DicNode *const childDicNode,
+            const bool allowsErrorCorrections) const {
+        if (dicNode->isCompletion(traverseSession->getInputSize())) {
+            return false;
+        }
+        // Apostrophes are not on the stroke, and the second letter of a double letter usually
+        // does not have a point of its own.
+        return childDicNode->canBeIntentionalOmission()
+                || (dicNode->getNodeCodePointCount() > 0
+                        && childDicNode->isSameNodeCodePoint(dicNode));
+    }
+
+    AK_FORCE_INLINE bool isSpaceSubstitutionTerminal(
+            const DicTraverseSession *const traverseSession, const DicNode *const dicNode) const {
+        return false;
+    }
+
+    AK_FORCE_INLINE bool isSpaceOmissionTerminal(
+            const DicTraverseSession *const traverseSession, const DicNode *const dicNode) const {
+        return false;
+    }
+
+    AK_FORCE_INLINE bool shouldDepthLevelCache(
+            const DicTraverseSession *const traverseSession) const {
+        // The search advances over sampled points, and ProximityInfoState resamples the last two
+        // of them when the stroke grows. The cached dicNodes must not have consumed any of them.
+        static const int CACHE_BACK_LENGTH = 3;
+        const int sampledInputSize = traverseSession->getProximityInfoState(0)->size();
+        return traverseSession->isCacheBorder(sampledInputSize - CACHE_BACK_LENGTH);
+    }
+
+    AK_FORCE_INLINE bool shouldNodeLevelCache(
+            const DicTraverseSession *const traverseSession, const DicNode *const dicNode) const {
+        return false;
+    }
+
+    AK_FORCE_INLINE bool canDoLookAheadCorrection(
+            const DicTraverseSession *const traverseSession, const DicNode *const dicNode) const {
+        return false;
+    }
+
+    AK_FORCE_INLINE ProximityType getProximityType(
+            const DicTraverseSession *const traverseSession, const DicNode *const dicNode,
+            const DicNode *const childDicNode) const {
+        // Keys are only considered near a point when they have a probability there.
+        const float cost = GestureWeighting::getPointToLetterCost(traverseSession,
+                dicNode->getInputIndex(0), childDicNode->getNodeCodePoint());
+        return cost < static_cast<float>(MAX_VALUE_FOR_WEIGHTING) ? MATCH_CHAR : UNRELATED_CHAR;
+    }
+
+    AK_FORCE_INLINE bool needsToTraverseAllUserInput() const {
+        return true;
+    }
+
+    AK_FORCE_INLINE float getMaxSpatialDistance() const {
+        return GestureScoringParams::MAX_SPATIAL_DISTANCE;
+    }
+
+    AK_FORCE_INLINE int getDefaultExpandDicNodeSize() const {
+        return DicNodeVector::DEFAULT_NODES_SIZE_FOR_OPTIMIZATION;
+    }
+
+    AK_FORCE_INLINE int getMaxCacheSize(const int inputSize, const float weightForLocale) const {
+        if (weightForLocale < GestureScoringParams::LOCALE_WEIGHT_THRESHOLD_FOR_SMALL_CACHE_SIZE) {
+            return GestureScoringParams::MAX_CACHE_DIC_NODE_SIZE_FOR_LOW_PROBABILITY_LOCALE;
+        }
+        return GestureScoringParams::MAX_CACHE_DIC_NODE_SIZE;
+    }
+
+    AK_FORCE_INLINE int getTerminalCacheSize() const {
+        return MAX_RESULTS;
+    }
+
+    AK_FORCE_INLINE bool isPossibleOmissionChildNode(
+            const DicTraverseSession *const traverseSession, const DicNode *const parentDicNode,
+            const DicNode *const dicNode) const {
+        const ProximityType proximityType =
+                getProximityType(traverseSession, parentDicNode, dicNode);
+        return ProximityInfoUtils::isMatchOrProximityChar(proximityType);
+    }
+
+    AK_FORCE_INLINE bool isGoodToTraverseNextWord(const DicNode *const dicNode,
+            const int probability) const {
+        // Multiple words in one stroke are not supported.
+        return false;
+    }
+
+    AK_FORCE_INLINE bool canSkipInputPoint(const DicTraverseSession *const traverseSession,
+            const DicNode *const dicNode) const {
+        return dicNode->getInputIndex(0) < traverseSession->getProximityInfoState(0)->size();
+    }
+
+    AK_FORCE_INLINE bool keepsOnlyBestTerminalOfWord() const {
+        // Skipped points give many alignments of the same word, which must not fill up the
+        // terminal queue.
+        return true;
+    }
+
+ private:
+    DISALLOW_COPY_AND_ASSIGN(GestureTraversal);
+    static const GestureTraversal sInstance;
+
+    GestureTraversal() {}
+    ~GestureTraversal() {}
+};
+} // namespace latinime
+#endif // LATINIME_GESTURE_TRAVERSAL_H
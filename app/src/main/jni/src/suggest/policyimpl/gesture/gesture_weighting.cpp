@@ -0,0 +1,34 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+#include "suggest/policyimpl/gesture/gesture_weighting.h"
+
+#include "suggest/core/dicnode/dic_node.h"
+
+namespace latinime {
+
+const GestureWeighting GestureWeighting::sInstance;
+
+ErrorTypeUtils::ErrorType GestureWeighting::getErrorType(const CorrectionType correctionType,
+        const DicTraverseSession *const traverseSession, const DicNode *const parentDicNode,
+        const DicNode *const dicNode) const {
+    switch (correctionType) {
+        case CT_MATCH:
+            // A letter aligned to a gesture is never exactly what the user typed.
+            return ErrorTypeUtils::PROXIMITY_CORRECTION;
+        case CT_OMISSION:
+            if (parentDicNode->canBeIntentionalOmission()) {
+                return ErrorTypeUtils::INTENTIONAL_OMISSION;
+            } else {
+                return ErrorTypeUtils::NOT_AN_ERROR;
+            }
+        case CT_COMPLETION:
+            return ErrorTypeUtils::COMPLETION;
+        case CT_TERMINAL:
+        case CT_TERMINAL_INSERTION:
+        case CT_SKIPPED_POINT:
+            return ErrorTypeUtils::NOT_AN_ERROR;
+        default:
+            return ErrorTypeUtils::EDIT_CORRECTION;
+    }
+}
+}  // namespace latinime
@@ -0,0 +1,193 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+#ifndef LATINIME_GESTURE_WEIGHTING_H
+#define LATINIME_GESTURE_WEIGHTING_H
+
+#include <algorithm>
+
+#include "defines.h"
+#include "suggest/core/dicnode/dic_node_utils.h"
+#include "suggest/core/dictionary/error_type_utils.h"
+#include "suggest/core/layout/geometry_utils.h"
+#include "suggest/core/layout/proximity_info.h"
+#include "suggest/core/layout/proximity_info_state.h"
+#include "suggest/core/policy/weighting.h"
+#include "suggest/core/session/dic_traverse_session.h"
+#include "suggest/policyimpl/gesture/gesture_scoring_params.h"
+#include "utils/char_utils.h"
+
+namespace latinime {
+
+class DicNode;
+struct DicNode_InputStateG;
+class MultiBigramMap;
+
+/**
+ * Weighting for gesture input. Each sampled point of the stroke is either aligned to the key of the
+ * next letter (a match) or skipped, so the spatial distance of a dicNode is the cost of the best
+ * alignment of its letters to the points it has consumed so far.
+ * Costs only depend on the point and its neighbors: aligning costs the squared distance to the
+ * key, skipping costs the turn of the stroke at the point, as the stroke turns at letters. Unlike
+ * the probabilities of ProximityInfoState, which depend on the average speed of the whole stroke,
+ * the cost of a point doesn't change when the stroke grows. Thus a continued search gives the same
+ * results as decoding the whole stroke.
+ */
+class GestureWeighting : public Weighting {
+ public:
+    static const GestureWeighting *getInstance() { return &sInstance; }
+
+    // Returns the cost of aligning the point to the key of the code point, or
+    // MAX_VALUE_FOR_WEIGHTING if the key is too far away.
+    static AK_FORCE_INLINE float getPointToLetterCost(
+            const DicTraverseSession *const traverseSession, const int pointIndex,
+            const int codePoint) {
+        const ProximityInfoState *const pInfoState = traverseSession->getProximityInfoState(0);
+        if (codePoint == NOT_A_CODE_POINT || pointIndex >= pInfoState->size()) {
+            return static_cast<float>(MAX_VALUE_FOR_WEIGHTING);
+        }
+        const int keyIndex = traverseSession->getProximityInfo()->getKeyIndexOf(
+                CharUtils::toBaseLowerCase(codePoint));
+        if (keyIndex == NOT_AN_INDEX) {
+            return static_cast<float>(MAX_VALUE_FOR_WEIGHTING);
+        }
+        const float squaredDistance = pInfoState->getPointToKeyByIdLength(pointIndex, keyIndex);
+        if (squaredDistance > GestureScoringParams::MAX_POINT_TO_KEY_SQUARED_DISTANCE) {
+            return static_cast<float>(MAX_VALUE_FOR_WEIGHTING);
+        }
+        return squaredDistance * GestureScoringParams::DISTANCE_WEIGHT_POINT_TO_KEY;
+    }
+
+ protected:
+    float getTerminalSpatialCost(const DicTraverseSession *const traverseSession,
+            const DicNode *const dicNode) const {
+        return 0.0f;
+    }
+
+    float getOmissionCost(const DicNode *const parentDicNode, const DicNode *const dicNode) const {
+        if (parentDicNode->isZeroCostOmission()) {
+            return 0.0f;
+        } else if (parentDicNode->canBeIntentionalOmission()) {
+            return GestureScoringParams::INTENTIONAL_OMISSION_COST;
+        }
+        // The second letter of a double letter does not need a point of its own.
+        return GestureScoringParams::OMISSION_COST_SAME_CHAR;
+    }
+
+    float getMatchedCost(const DicTraverseSession *const traverseSession,
+            const DicNode *const dicNode, DicNode_InputStateG *inputStateG) const {
+        return getPointToLetterCost(traverseSession, dicNode->getInputIndex(0),
+                dicNode->getNodeCodePoint());
+    }
+
+    bool isProximityDicNode(const DicTraverseSession *const traverseSession,
+            const DicNode *const dicNode) const {
+        return false;
+    }
+
+    float getTranspositionCost(const DicTraverseSession *const traverseSession,
+            const DicNode *const parentDicNode, const DicNode *const dicNode) const {
+        return static_cast<float>(MAX_VALUE_FOR_WEIGHTING);
+    }
+
+    float getInsertionCost(const DicTraverseSession *const traverseSession,
+            const DicNode *const parentDicNode, const DicNode *const dicNode) const {
+        return static_cast<float>(MAX_VALUE_FOR_WEIGHTING);
+    }
+
+    float getSpaceOmissionCost(const DicTraverseSession *const traverseSession,
+            const DicNode *const dicNode, DicNode_InputStateG *inputStateG) const {
+        return static_cast<float>(MAX_VALUE_FOR_WEIGHTING);
+    }
+
+    float getNewWordBigramLanguageCost(const DicTraverseSession *const traverseSession,
+            const DicNode *const dicNode,
+            MultiBigramMap *const multiBigramMap) const {
+        return DicNodeUtils::getBigramNodeImprobability(
+                traverseSession->getDictionaryStructurePolicy(),
+                dicNode, multiBigramMap) * GestureScoringParams::DISTANCE_WEIGHT_LANGUAGE;
+    }
+
+    float getCompletionCost(const DicTraverseSession *const traverseSession,
+            const DicNode *const dicNode) const {
+        // Completions are only useful to preview a word while the stroke is still being drawn.
+        return GestureScoringParams::COST_COMPLETION;
+    }
+
+    float getTerminalLanguageCost(const DicTraverseSession *const traverseSession,
+            const DicNode *const dicNode, const float dicNodeLanguageImprobability) const {
+        return dicNodeLanguageImprobability * GestureScoringParams::DISTANCE_WEIGHT_LANGUAGE;
+    }
+
+    float getTerminalInsertionCost(const DicTraverseSession *const traverseSession,
+            const DicNode *const dicNode) const {
+        // A word ending before the stroke reaches its terminal by skipping the rest of the stroke.
+        // Ending it here would make the result depend on the iterations a continued search skips.
+        return static_cast<float>(MAX_VALUE_FOR_WEIGHTING);
+    }
+
+    AK_FORCE_INLINE bool needsToNormalizeCompoundDistance() const {
+        return false;
+    }
+
+    AK_FORCE_INLINE float getAdditionalProximityCost() const {
+        return static_cast<float>(MAX_VALUE_FOR_WEIGHTING);
+    }
+
+    AK_FORCE_INLINE float getSubstitutionCost() const {
+        return static_cast<float>(MAX_VALUE_FOR_WEIGHTING);
+    }
+
+    AK_FORCE_INLINE float getSpaceSubstitutionCost(const DicTraverseSession *const traverseSession,
+            const DicNode *const dicNode) const {
+        return static_cast<float>(MAX_VALUE_FOR_WEIGHTING);
+    }
+
+    AK_FORCE_INLINE float getSkippedPointCost(const DicTraverseSession *const traverseSession,
+            const DicNode *const dicNode) const {
+        return getUnalignedPointCost(traverseSession, dicNode->getInputIndex(0),
+                dicNode->getNodeCodePointCount() > 0 ? dicNode->getNodeCodePoint()
+                        : NOT_A_CODE_POINT);
+    }
+
+    ErrorTypeUtils::ErrorType getErrorType(const CorrectionType correctionType,
+            const DicTraverseSession *const traverseSession,
+            const DicNode *const parentDicNode, const DicNode *const dicNode) const;
+
+ private:
+    DISALLOW_COPY_AND_ASSIGN(GestureWeighting);
+    static const GestureWeighting sInstance;
+
+    GestureWeighting() {}
+    ~GestureWeighting() {}
+
+    // Returns the cost of a point that does not start a new letter: the stroke either passes over
+    // it on the way to the next key, or still dwells on the key of the current letter.
+    static AK_FORCE_INLINE float getUnalignedPointCost(
+            const DicTraverseSession *const traverseSession, const int pointIndex,
+            const int currentCodePoint) {
+        return std::min(getPassingPointCost(traverseSession, pointIndex),
+                getPointToLetterCost(traverseSession, pointIndex, currentCodePoint));
+    }
+
+    // Returns the cost of passing over the point on the way to the next key. The stroke starts and
+    // ends at letters and turns mostly at letters, so this is the cost of not having a letter there.
+    // Only the point and its neighbors are used, and the neighbors of points the search continues
+    // from are not resampled.
+    static AK_FORCE_INLINE float getPassingPointCost(
+            const DicTraverseSession *const traverseSession, const int pointIndex) {
+        const ProximityInfoState *const pInfoState = traverseSession->getProximityInfoState(0);
+        if (pointIndex <= 0 || pointIndex >= pInfoState->size() - 1) {
+            return GestureScoringParams::SKIPPED_END_POINT_COST;
+        }
+        const float angleIn = GeometryUtils::getAngle(pInfoState->getInputX(pointIndex),
+                pInfoState->getInputY(pointIndex), pInfoState->getInputX(pointIndex - 1),
+                pInfoState->getInputY(pointIndex - 1));
+        const float angleOut = GeometryUtils::getAngle(pInfoState->getInputX(pointIndex + 1),
+                pInfoState->getInputY(pointIndex + 1), pInfoState->getInputX(pointIndex),
+                pInfoState->getInputY(pointIndex));
+        return GeometryUtils::getAngleDiff(angleIn, angleOut)
+                * GestureScoringParams::SKIPPED_TURN_COST_PER_RADIAN;
+    }
+};
+} // namespace latinime
+#endif // LATINIME_GESTURE_WEIGHTING_H
@@ -192,6 +192,16 @@ class TypingTraversal : public Traversal {
                 || probability >= ScoringParams::THRESHOLD_NEXT_WORD_PROBABILITY_FOR_CAPPED;
     }
 
+    AK_FORCE_INLINE bool canSkipInputPoint(const DicTraverseSession *const traverseSession,
+            const DicNode *const dicNode) const {
+        // Every typed point has to be matched, inserted or transposed.
+        return false;
+    }
+
+    AK_FORCE_INLINE bool keepsOnlyBestTerminalOfWord() const {
+        return false;
+    }
+
  private:
     DISALLOW_COPY_AND_ASSIGN(TypingTraversal);
     static const bool CORRECT_OMISSION;
@@ -210,6 +210,12 @@ class TypingWeighting : public Weighting {
         return cost * traverseSession->getMultiWordCostMultiplier();
     }
 
+    AK_FORCE_INLINE float getSkippedPointCost(const DicTraverseSession *const traverseSession,
+            const DicNode *const dicNode) const {
+        // Typing is handled as insertion errors instead.
+        return static_cast<float>(MAX_VALUE_FOR_WEIGHTING);
+    }
+
     ErrorTypeUtils::ErrorType getErrorType(const CorrectionType correctionType,
             const DicTraverseSession *const traverseSession,
             const DicNode *const parentDicNode, const DicNode *const dicNode) const;
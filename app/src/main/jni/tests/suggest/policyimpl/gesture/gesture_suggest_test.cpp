@@ -0,0 +1,313 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+#include "suggest/core/dictionary/dictionary.h"
+
+#include <gtest/gtest.h>
+
+#include <algorithm>
+#include <cmath>
+#include <memory>
+#include <string>
+#include <type_traits>
+#include <utility>
+#include <vector>
+
+#include "defines.h"
+#include "dictionary/property/ngram_context.h"
+#include "dictionary/property/unigram_property.h"
+#include "dictionary/structure/dictionary_structure_with_buffer_policy_factory.h"
+#include "dictionary/utils/format_utils.h"
+#include "suggest/core/layout/proximity_info.h"
+#include "suggest/core/result/suggestion_results.h"
+#include "suggest/core/session/dic_traverse_session.h"
+#include "suggest/core/suggest_options.h"
+#include "utils/int_array_view.h"
+
+namespace latinime {
+namespace {
+
+// A JNIEnv that only supports the primitive array functions and the class lookup used for
+// logging. Arrays are std::vectors passed as the jarray handle.
+class FakeJniEnv {
+ public:
+    FakeJniEnv() : mFunctions(), mEnv() {
+        mFunctions.GetArrayLength = getArrayLength;
+        mFunctions.GetIntArrayRegion = getArrayRegion<jintArray, jint>;
+        mFunctions.SetIntArrayRegion = setArrayRegion<jintArray, jint>;
+        mFunctions.GetFloatArrayRegion = getArrayRegion<jfloatArray, jfloat>;
+        mFunctions.SetFloatArrayRegion = setArrayRegion<jfloatArray, jfloat>;
+        mFunctions.FindClass = findClass;
+        mFunctions.ExceptionClear = exceptionClear;
+        mEnv.functions = &mFunctions;
+    }
+
+    JNIEnv *get() { return &mEnv; }
+
+    template<class T>
+    static std::vector<T> *toVector(const jarray array) {
+        return reinterpret_cast<std::vector<T> *>(array);
+    }
+
+    template<class JArray, class T>
+    static JArray toJArray(std::vector<T> *const vector) {
+        return reinterpret_cast<JArray>(vector);
+    }
+
+ private:
+    DISALLOW_COPY_AND_ASSIGN(FakeJniEnv);
+
+    // The name of the function table type differs between jni.h implementations.
+    typedef std::remove_const<std::remove_pointer<decltype(JNIEnv::functions)>::type>::type
+            FunctionTable;
+
+    // All arrays have 4 byte elements, so the length does not depend on the element type.
+    static jsize getArrayLength(JNIEnv *env, jarray array) {
+        return toVector<int>(array)->size();
+    }
+
+    template<class JArray, class T>
+    static void getArrayRegion(JNIEnv *env, JArray array, jsize start, jsize len, T *buf) {
+        const std::vector<T> *const vector = toVector<T>(array);
+        std::copy(vector->begin() + start, vector->begin() + start + len, buf);
+    }
+
+    template<class JArray, class T>
+    static void setArrayRegion(JNIEnv *env, JArray array, jsize start, jsize len, const T *buf) {
+        std::copy(buf, buf + len, toVector<T>(array)->begin() + start);
+    }
+
+    static jclass findClass(JNIEnv *env, const char *name) {
+        return nullptr;
+    }
+
+    static void exceptionClear(JNIEnv *env) {}
+
+    FunctionTable mFunctions;
+    JNIEnv mEnv;
+};
+
+static const int KEY_WIDTH = 100;
+static const int KEY_HEIGHT = 150;
+static const int KEYBOARD_WIDTH = 10 * KEY_WIDTH;
+static const int KEYBOARD_HEIGHT = 3 * KEY_HEIGHT;
+static const int GRID_WIDTH = 32;
+static const int GRID_HEIGHT = 16;
+static const char *const ROWS[] = { "qwertyuiop", "asdfghjkl", "zxcvbnm" };
+
+// The letter keys of a qwerty keyboard, each row indented by half a key more than the previous.
+class QwertyKeyboard {
+ public:
+    explicit QwertyKeyboard(JNIEnv *const env) : mKeyXs(), mKeyYs(), mCodePoints() {
+        for (int row = 0; row < 3; ++row) {
+            for (const char *c = ROWS[row]; *c; ++c) {
+                mKeyXs.push_back(row * KEY_WIDTH / 2 + (c - ROWS[row]) * KEY_WIDTH);
+                mKeyYs.push_back(row * KEY_HEIGHT);
+                mCodePoints.push_back(*c);
+            }
+        }
+        const int keyCount = mCodePoints.size();
+        std::vector<int> keyWidths(keyCount, KEY_WIDTH);
+        std::vector<int> keyHeights(keyCount, KEY_HEIGHT);
+        // Each grid cell lists the keys within one key width of its center.
+        std::vector<int> proximityChars(GRID_WIDTH * GRID_HEIGHT * MAX_PROXIMITY_CHARS_SIZE,
+                NOT_A_CODE_POINT);
+        const int cellWidth = (KEYBOARD_WIDTH + GRID_WIDTH - 1) / GRID_WIDTH;
+        const int cellHeight = (KEYBOARD_HEIGHT + GRID_HEIGHT - 1) / GRID_HEIGHT;
+        for (int cell = 0; cell < GRID_WIDTH * GRID_HEIGHT; ++cell) {
+            const int x = (cell % GRID_WIDTH) * cellWidth + cellWidth / 2;
+            const int y = (cell / GRID_WIDTH) * cellHeight + cellHeight / 2;
+            int count = 0;
+            for (int i = 0; i < keyCount && count < MAX_PROXIMITY_CHARS_SIZE; ++i) {
+                if (hypotf(getCenterX(i) - x, getCenterY(i) - y) < KEY_WIDTH) {
+                    proximityChars[cell * MAX_PROXIMITY_CHARS_SIZE + count++] = mCodePoints[i];
+                }
+            }
+        }
+        mProximityInfo.reset(new ProximityInfo(env, KEYBOARD_WIDTH, KEYBOARD_HEIGHT, GRID_WIDTH,
+                GRID_HEIGHT, KEY_WIDTH, KEY_HEIGHT,
+                FakeJniEnv::toJArray<jintArray>(&proximityChars), keyCount,
+                FakeJniEnv::toJArray<jintArray>(&mKeyXs), FakeJniEnv::toJArray<jintArray>(&mKeyYs),
+                FakeJniEnv::toJArray<jintArray>(&keyWidths),
+                FakeJniEnv::toJArray<jintArray>(&keyHeights),
+                FakeJniEnv::toJArray<jintArray>(&mCodePoints),
+                nullptr /* sweetSpotCenterXs */, nullptr /* sweetSpotCenterYs */,
+                nullptr /* sweetSpotRadii */));
+    }
+
+    ProximityInfo *getProximityInfo() const { return mProximityInfo.get(); }
+
+    int getCenterX(const int keyIndex) const { return mKeyXs[keyIndex] + KEY_WIDTH / 2; }
+    int getCenterY(const int keyIndex) const { return mKeyYs[keyIndex] + KEY_HEIGHT / 2; }
+
+    int getKeyIndex(const int codePoint) const {
+        return std::find(mCodePoints.begin(), mCodePoints.end(), codePoint) - mCodePoints.begin();
+    }
+
+ private:
+    DISALLOW_COPY_AND_ASSIGN(QwertyKeyboard);
+
+    std::vector<int> mKeyXs;
+    std::vector<int> mKeyYs;
+    std::vector<int> mCodePoints;
+    std::unique_ptr<ProximityInfo> mProximityInfo;
+};
+
+// A stroke through the key centers of the word, with a point every 10ms and 20px.
+struct Stroke {
+    std::vector<int> mXs;
+    std::vector<int> mYs;
+    std::vector<int> mTimes;
+    std::vector<int> mPointerIds;
+
+    Stroke(const QwertyKeyboard &keyboard, const std::string &word)
+            : mXs(), mYs(), mTimes(), mPointerIds() {
+        static const int STEP = 20;
+        static const int STEP_TIME = 10;
+        int lastX = keyboard.getCenterX(keyboard.getKeyIndex(word[0]));
+        int lastY = keyboard.getCenterY(keyboard.getKeyIndex(word[0]));
+        add(lastX, lastY, 0);
+        for (size_t i = 1; i < word.size(); ++i) {
+            const int x = keyboard.getCenterX(keyboard.getKeyIndex(word[i]));
+            const int y = keyboard.getCenterY(keyboard.getKeyIndex(word[i]));
+            const int steps = std::max(1, static_cast<int>(hypotf(x - lastX, y - lastY)) / STEP);
+            for (int step = 1; step <= steps; ++step) {
+                add(lastX + (x - lastX) * step / steps, lastY + (y - lastY) * step / steps,
+                        mTimes.back() + STEP_TIME);
+            }
+            lastX = x;
+            lastY = y;
+        }
+    }
+
+    void add(const int x, const int y, const int time) {
+        mXs.push_back(x);
+        mYs.push_back(y);
+        mTimes.push_back(time);
+        mPointerIds.push_back(0);
+    }
+
+    int size() const { return mXs.size(); }
+};
+
+struct Suggestion {
+    std::string mWord;
+    int mScore;
+};
+
+class GestureSuggestTest : public ::testing::Test {
+ protected:
+    GestureSuggestTest()
+            : mEnv(), mKeyboard(mEnv.get()), mDictionary(nullptr), mSession(nullptr) {}
+
+    virtual void SetUp() {
+        DictionaryHeaderStructurePolicy::AttributeMap attributeMap;
+        mDictionary.reset(new Dictionary(mEnv.get(),
+                DictionaryStructureWithBufferPolicyFactory::newPolicyForOnMemoryDict(
+                        FormatUtils::VERSION_403, std::vector<int>(), &attributeMap)));
+        static const char *const WORDS[] = { "word", "work", "world", "wore", "ward", "sword",
+                "hello", "help", "quick", "question" };
+        for (const char *const word : WORDS) {
+            const std::vector<int> codePoints(word, word + strlen(word));
+            const UnigramProperty unigramProperty(false /* representsBeginningOfSentence */,
+                    false /* isNotAWord */, false /* isBlacklisted */,
+                    false /* isPossiblyOffensive */, 200 /* probability */, HistoricalInfo());
+            ASSERT_TRUE(mDictionary->addUnigramEntry(CodePointArrayView(codePoints),
+                    &unigramProperty));
+        }
+        mSession.reset(newSession());
+    }
+
+    DicTraverseSession *newSession() {
+        return new DicTraverseSession(mEnv.get(), nullptr /* localeStr */,
+                false /* usesLargeCache */);
+    }
+
+    // Returns the suggestions for the first pointCount points of the stroke, best first.
+    std::vector<Suggestion> getSuggestions(DicTraverseSession *const session, Stroke *const stroke,
+            const int pointCount) {
+        int options[] = { 1 /* isGesture */, 0 /* useFullEditDistance */,
+                0 /* blockOffensiveWords */, 0 /* spaceAwareGestureEnabled */,
+                1000 /* weightForLocaleInThousands */, NOT_A_REQUEST_GENERATION };
+        const SuggestOptions suggestOptions(options, NELEMS(options));
+        const NgramContext ngramContext;
+        SuggestionResults suggestionResults(MAX_RESULTS);
+        int inputCodePoints[MAX_WORD_LENGTH];
+        std::fill(inputCodePoints, inputCodePoints + MAX_WORD_LENGTH, NOT_A_CODE_POINT);
+        mDictionary->getSuggestions(mKeyboard.getProximityInfo(), session, stroke->mXs.data(),
+                stroke->mYs.data(), stroke->mTimes.data(), stroke->mPointerIds.data(),
+                inputCodePoints, pointCount, &ngramContext, &suggestOptions,
+                NOT_A_WEIGHT_OF_LANG_MODEL_VS_SPATIAL_MODEL, &suggestionResults);
+
+        std::vector<int> count(1);
+        std::vector<int> codePoints(MAX_WORD_LENGTH * MAX_RESULTS);
+        std::vector<int> scores(MAX_RESULTS);
+        std::vector<int> spaceIndices(MAX_RESULTS);
+        std::vector<int> types(MAX_RESULTS);
+        std::vector<int> autoCommitFirstWordConfidence(1);
+        std::vector<float> weightOfLangModelVsSpatialModel(1);
+        suggestionResults.outputSuggestions(mEnv.get(), FakeJniEnv::toJArray<jintArray>(&count),
+                FakeJniEnv::toJArray<jintArray>(&codePoints),
+                FakeJniEnv::toJArray<jintArray>(&scores),
+                FakeJniEnv::toJArray<jintArray>(&spaceIndices),
+                FakeJniEnv::toJArray<jintArray>(&types),
+                FakeJniEnv::toJArray<jintArray>(&autoCommitFirstWordConfidence),
+                FakeJniEnv::toJArray<jfloatArray>(&weightOfLangModelVsSpatialModel));
+        std::vector<Suggestion> suggestions;
+        for (int i = 0; i < count[0]; ++i) {
+            std::string word;
+            for (int j = i * MAX_WORD_LENGTH; codePoints[j] != 0; ++j) {
+                word += static_cast<char>(codePoints[j]);
+            }
+            suggestions.push_back({ word, scores[i] });
+        }
+        std::stable_sort(suggestions.begin(), suggestions.end(),
+                [](const Suggestion &left, const Suggestion &right) {
+                    return left.mScore > right.mScore;
+                });
+        return suggestions;
+    }
+
+    FakeJniEnv mEnv;
+    QwertyKeyboard mKeyboard;
+    std::unique_ptr<Dictionary> mDictionary;
+    std::unique_ptr<DicTraverseSession> mSession;
+};
+
+TEST_F(GestureSuggestTest, TestDecodesStroke) {
+    for (const std::string word : { "word", "world", "hello", "quick" }) {
+        Stroke stroke(mKeyboard, word);
+        const std::vector<Suggestion> suggestions =
+                getSuggestions(mSession.get(), &stroke, stroke.size());
+        ASSERT_FALSE(suggestions.empty()) << word;
+        EXPECT_EQ(word, suggestions[0].mWord);
+    }
+}
+
+TEST_F(GestureSuggestTest, TestContinuesSearchWhenStrokeGrows) {
+    for (const std::string word : { "world", "hello", "question", "sword" }) {
+        Stroke stroke(mKeyboard, word);
+        std::unique_ptr<DicTraverseSession> session(newSession());
+        std::vector<Suggestion> suggestions;
+        for (int pointCount = 2; pointCount <= stroke.size(); ++pointCount) {
+            suggestions = getSuggestions(session.get(), &stroke, pointCount);
+        }
+        EXPECT_EQ(DicTraverseSession::SEARCH_CONTINUED, session->getSearchContinuation()) << word;
+
+        // Continuing the search must give the same results as decoding the whole stroke.
+        std::unique_ptr<DicTraverseSession> freshSession(newSession());
+        const std::vector<Suggestion> expectedSuggestions =
+                getSuggestions(freshSession.get(), &stroke, stroke.size());
+        EXPECT_EQ(DicTraverseSession::SEARCH_RESTARTED, freshSession->getSearchContinuation())
+                << word;
+        ASSERT_FALSE(expectedSuggestions.empty()) << word;
+        EXPECT_EQ(word, expectedSuggestions[0].mWord);
+        ASSERT_EQ(expectedSuggestions.size(), suggestions.size()) << word;
+        for (size_t i = 0; i < suggestions.size(); ++i) {
+            EXPECT_EQ(expectedSuggestions[i].mWord, suggestions[i].mWord) << word;
+            EXPECT_EQ(expectedSuggestions[i].mScore, suggestions[i].mScore) << word;
+        }
+    }
+}
+
+}  // namespace
+}  // namespace latinime
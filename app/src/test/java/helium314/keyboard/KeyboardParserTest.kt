@@ -13,12 +13,15 @@ import helium314.keyboard.keyboard.internal.KeyboardBuilder
 import helium314.keyboard.keyboard.internal.KeyboardParams
 import helium314.keyboard.keyboard.internal.TouchPositionCorrection
 import helium314.keyboard.keyboard.internal.UniqueKeysCache
+import helium314.keyboard.keyboard.internal.keyboard_parser.LayoutBinaryCache
 import helium314.keyboard.keyboard.internal.keyboard_parser.LayoutParser
 import helium314.keyboard.keyboard.internal.keyboard_parser.POPUP_KEYS_NORMAL
 import helium314.keyboard.keyboard.internal.keyboard_parser.addLocaleKeyTextsToParams
+import helium314.keyboard.keyboard.internal.keyboard_parser.floris.AbstractKeyData
 import helium314.keyboard.keyboard.internal.keyboard_parser.floris.KeyCode
 import helium314.keyboard.latin.LatinIME
 import helium314.keyboard.latin.RichInputMethodSubtype
+import helium314.keyboard.latin.utils.ExecutorUtils
 import helium314.keyboard.latin.utils.LayoutUtilsCustom
 import helium314.keyboard.latin.utils.POPUP_KEYS_LAYOUT
 import helium314.keyboard.latin.utils.SubtypeUtilsAdditional
@@ -30,6 +33,7 @@ import org.robolectric.annotation.Implementation
 import org.robolectric.annotation.Implements
 import org.robolectric.shadows.ShadowLog
 import java.util.Locale
+import java.util.concurrent.Executors
 import kotlin.test.BeforeTest
 import kotlin.test.Test
 import kotlin.test.assertEquals
@@ -466,6 +470,39 @@ f""", // no newline at the end
         }
     }
 
+    @Test fun `cached layouts are read like they were parsed`() {
+        val executor = Executors.newSingleThreadScheduledExecutor()
+        ExecutorUtils.setExecutorServiceForTests(executor)
+        try {
+            val layouts = latinIME.assets.list("layouts")!!.filter { it.endsWith(".json") }
+                .map { latinIME.assets.open("layouts/$it").reader().readText().trimStart() }
+            assertTrue(layouts.isNotEmpty())
+            layouts.forEach { LayoutBinaryCache.write(latinIME, it, LayoutParser.parseJsonString(it, false)) }
+            executor.submit { }.get()
+            // read from the files, not from the layouts kept in memory when writing
+            LayoutBinaryCache.clearLoaded()
+            LayoutBinaryCache.load(latinIME)
+            executor.submit { }.get()
+            layouts.forEach { layout ->
+                val cached = LayoutBinaryCache.read(latinIME, layout)
+                assertEquals(describeKeys(LayoutParser.parseJsonString(layout, false)), cached?.let { describeKeys(it) })
+            }
+            assertEquals(null, LayoutBinaryCache.read(latinIME, layouts.first() + " "))
+        } finally {
+            LayoutBinaryCache.clearLoaded()
+            executor.shutdownNow()
+            ExecutorUtils.setExecutorServiceForTests(null)
+        }
+    }
+
+    private fun describeKeys(layout: List<List<AbstractKeyData>>) = layout.map { row ->
+        row.mapNotNull { it.compute(params) }.map { keyData ->
+            val keyParams = keyData.toKeyParams(params)
+            listOf(keyParams.mLabel, keyParams.mIconName, keyParams.mCode, keyParams.outputText, keyParams.mWidth,
+                keyParams.mLabelFlags, keyParams.mBackgroundType, keyParams.mPopupKeys?.map { it.mLabel to it.mCode })
+        }
+    }
+
     private data class Expected(val code: Int, val label: String? = null, val icon: String? = null, val text: String? = null, val popups: List<Pair<String?, Int>>? = null)
 
     private fun assertIsExpected(json: String, expected: Expected) {
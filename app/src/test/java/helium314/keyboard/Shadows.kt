@@ -8,12 +8,17 @@ import android.view.inputmethod.InputMethodManager
 import android.view.inputmethod.InputMethodSubtype
 import androidx.core.app.LocaleManagerCompat
 import androidx.core.os.LocaleListCompat
+import com.android.inputmethod.latin.BinaryDictionary
 import com.android.inputmethod.latin.utils.BinaryDictionaryUtils
+import com.android.inputmethod.latin.utils.WordInputEventForPersonalization
 import helium314.keyboard.latin.BuildConfig
+import helium314.keyboard.latin.Dictionary
 import helium314.keyboard.latin.common.StringUtils
+import helium314.keyboard.latin.makedict.FormatSpec
 import org.robolectric.annotation.Implementation
 import org.robolectric.annotation.Implements
 import org.robolectric.shadows.ShadowInputMethodManager
+import java.io.File
 import java.util.*
 
 @Implements(LocaleManagerCompat::class)
@@ -100,3 +105,136 @@ object ShadowBinaryDictionaryUtils {
     }
 
 }
+
+// Replaces the native dictionary by words and n-grams in memory. Flushing keeps the content by file
+// path (and creates the file), so it can be opened again like after a restart.
+// Not thread safe, dictionaries must be used on a single thread executor.
+@Implements(BinaryDictionary::class)
+object ShadowBinaryDictionary {
+    class Content(
+        val words: MutableMap<String, Int> = hashMapOf(),
+        val ngrams: MutableSet<Pair<List<String>, String>> = hashSetOf(),
+    ) {
+        fun copy() = Content(HashMap(words), HashSet(ngrams))
+    }
+
+    private val dictionaries = hashMapOf<Long, Content>()
+    private val files = hashMapOf<String, Content>()
+    private val flushCounts = hashMapOf<String, Int>()
+    /** The number of words of each call that updated entries for several input events. */
+    val inputEventCounts = mutableListOf<Int>()
+    private var nextDictionary = 1L
+
+    fun reset() {
+        dictionaries.clear()
+        files.clear()
+        flushCounts.clear()
+        inputEventCounts.clear()
+    }
+
+    /** Returns the content last flushed to the file, or null if it was never flushed. */
+    fun getFlushedContent(file: File) = files[file.absolutePath]?.copy()
+
+    fun getFlushCount(file: File) = flushCounts[file.absolutePath] ?: 0
+
+    private fun toWord(codePoints: IntArray) = String(codePoints, 0, codePoints.size)
+
+    // empty previous words are not part of the n-gram
+    private fun toNgram(prevWords: Array<IntArray>, word: IntArray) =
+        prevWords.takeWhile { it.isNotEmpty() }.map { toWord(it) } to toWord(word)
+
+    private fun put(content: Content): Long {
+        dictionaries[nextDictionary] = content
+        return nextDictionary++
+    }
+
+    @Implementation
+    @JvmStatic
+    fun createOnMemoryNative(formatVersion: Long, locale: String, attributeKeyStringArray: Array<String>,
+            attributeValueStringArray: Array<String>) = put(Content())
+
+    @Implementation
+    @JvmStatic
+    fun openNative(sourceDir: String, dictOffset: Long, dictSize: Long, isUpdatable: Boolean): Long {
+        val content = files[sourceDir]?.copy() ?: return 0
+        return put(content)
+    }
+
+    @Implementation
+    @JvmStatic
+    fun flushNative(dict: Long, filePath: String): Boolean {
+        val content = dictionaries[dict] ?: return false
+        files[filePath] = content.copy()
+        flushCounts[filePath] = (flushCounts[filePath] ?: 0) + 1
+        File(filePath).writeText("")
+        return true
+    }
+
+    @Implementation
+    @JvmStatic
+    fun flushWithGCNative(dict: Long, filePath: String) = flushNative(dict, filePath)
+
+    @Implementation
+    @JvmStatic
+    fun needsToRunGCNative(dict: Long, mindsBlockByGC: Boolean) = false
+
+    @Implementation
+    @JvmStatic
+    fun closeNative(dict: Long) {
+        dictionaries.remove(dict)
+    }
+
+    @Implementation
+    @JvmStatic
+    fun getFormatVersionNative(dict: Long) = FormatSpec.VERSION4
+
+    @Implementation
+    @JvmStatic
+    fun getProbabilityNative(dict: Long, word: IntArray) =
+        dictionaries[dict]?.words?.get(toWord(word)) ?: Dictionary.NOT_A_PROBABILITY
+
+    @Implementation
+    @JvmStatic
+    fun addUnigramEntryNative(dict: Long, word: IntArray, probability: Int, shortcutTarget: IntArray?,
+            shortcutProbability: Int, isBeginningOfSentence: Boolean, isNotAWord: Boolean,
+            isPossiblyOffensive: Boolean, timestamp: Int): Boolean {
+        val content = dictionaries[dict] ?: return false
+        content.words[toWord(word)] = probability
+        return true
+    }
+
+    @Implementation
+    @JvmStatic
+    fun removeUnigramEntryNative(dict: Long, word: IntArray) =
+        dictionaries[dict]?.words?.remove(toWord(word)) != null
+
+    @Implementation
+    @JvmStatic
+    fun addNgramEntryNative(dict: Long, prevWordCodePointArrays: Array<IntArray>,
+            isBeginningOfSentenceArray: BooleanArray, word: IntArray, probability: Int, timestamp: Int): Boolean {
+        val content = dictionaries[dict] ?: return false
+        content.ngrams.add(toNgram(prevWordCodePointArrays, word))
+        return true
+    }
+
+    @Implementation
+    @JvmStatic
+    fun removeNgramEntryNative(dict: Long, prevWordCodePointArrays: Array<IntArray>,
+            isBeginningOfSentenceArray: BooleanArray, word: IntArray) =
+        dictionaries[dict]?.ngrams?.remove(toNgram(prevWordCodePointArrays, word)) == true
+
+    @Implementation
+    @JvmStatic
+    fun updateEntriesForInputEventsNative(dict: Long, inputEvents: Array<WordInputEventForPersonalization>,
+            startIndex: Int): Int {
+        val content = dictionaries[dict] ?: return 0
+        inputEventCounts.add(inputEvents.size - startIndex)
+        for (inputEvent in inputEvents.drop(startIndex)) {
+            val word = toWord(inputEvent.mTargetWord)
+            if (inputEvent.mIsValid) content.words[word] = (content.words[word] ?: 0) + 1
+            val prevWords = inputEvent.mPrevWordArray.take(inputEvent.mPrevWordsCount).toTypedArray()
+            content.ngrams.add(toNgram(prevWords, inputEvent.mTargetWord))
+        }
+        return inputEvents.size
+    }
+}
@@ -0,0 +1,73 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package helium314.keyboard.keyboard.emoji
+
+import org.junit.runner.RunWith
+import org.mockito.Mockito
+import org.robolectric.RobolectricTestRunner
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNotSame
+import kotlin.test.assertNull
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+@RunWith(RobolectricTestRunner::class)
+class EmojiPageCacheTest {
+    private val builtPages = mutableListOf<Pair<Int, Int>>()
+
+    // category 1 has 3 pages
+    private val cache = EmojiPageCache(2) { categoryId, pageId ->
+        if (categoryId != 1 || pageId !in 0..2) null
+        else {
+            builtPages.add(categoryId to pageId)
+            Mockito.mock(DynamicGridKeyboard::class.java)
+        }
+    }
+
+    @Test fun `pages are built once while cached`() {
+        val page = cache.getPage(1, 0)
+        assertSame(page, cache.getPage(1, 0))
+        assertTrue(cache.containsPage(1, 0))
+        assertFalse(cache.containsPage(1, 1))
+        assertEquals(listOf(1 to 0), builtPages)
+    }
+
+    @Test fun `least recently used page is evicted and rebuilt`() {
+        val page0 = cache.getPage(1, 0)
+        val page1 = cache.getPage(1, 1)
+        cache.getPage(1, 0) // page 1 is the least recently used now
+        cache.getPage(1, 2)
+        assertTrue(cache.containsPage(1, 0))
+        assertFalse(cache.containsPage(1, 1))
+        assertTrue(cache.containsPage(1, 2))
+        assertEquals(2, cache.getCachedPages().size)
+
+        assertSame(page0, cache.getPage(1, 0))
+        assertNotSame(page1, cache.getPage(1, 1))
+        assertEquals(listOf(1 to 0, 1 to 1, 1 to 2, 1 to 1), builtPages)
+    }
+
+    @Test fun `checking for a page does not change the eviction order`() {
+        cache.getPage(1, 0)
+        cache.getPage(1, 1)
+        assertTrue(cache.containsPage(1, 0))
+        cache.getPage(1, 2)
+        assertFalse(cache.containsPage(1, 0))
+        assertTrue(cache.containsPage(1, 1))
+    }
+
+    @Test fun `missing pages are not cached`() {
+        assertNull(cache.getPage(1, 3))
+        assertNull(cache.getPage(2, 0))
+        assertTrue(cache.getCachedPages().isEmpty())
+    }
+
+    @Test fun `pages are rebuilt after clearing`() {
+        val page = cache.getPage(1, 0)
+        cache.clear()
+        assertFalse(cache.containsPage(1, 0))
+        assertNotSame(page, cache.getPage(1, 0))
+        assertEquals(listOf(1 to 0, 1 to 0), builtPages)
+    }
+}
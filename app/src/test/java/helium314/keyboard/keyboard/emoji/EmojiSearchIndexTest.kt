@@ -0,0 +1,76 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package helium314.keyboard.keyboard.emoji
+
+import helium314.keyboard.latin.utils.ExecutorUtils
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import java.io.BufferedReader
+import java.io.StringReader
+import java.util.concurrent.Executors
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNotNull
+import kotlin.test.assertTrue
+
+@RunWith(RobolectricTestRunner::class)
+class EmojiSearchIndexTest {
+    private val names = """
+        1F600;grinning face
+        1F603;grinning face with big eyes
+        1F642;slightly smiling face
+        1F44B,1F3FD;waving hand: medium skin tone
+        1F60D;smiling face with heart-eyes
+        1F441;eye
+    """.trimIndent()
+
+    private val index = EmojiSearchIndex.fromNames(BufferedReader(StringReader(names)))
+
+    @Test fun `words are found by prefix`() {
+        assertEquals(listOf("😀", "😃"), index.search("grin", 10))
+        assertEquals(listOf("👋🏽"), index.search("Wav", 10))
+    }
+
+    @Test fun `exact words come before prefixes`() {
+        // words near the start of the name first
+        assertEquals(listOf("😍", "🙂"), index.search("smiling", 10))
+        // exact match "eye" before prefix matches of "eyes", then shorter names
+        assertEquals(listOf("👁", "😃", "😍"), index.search("eye", 10))
+    }
+
+    @Test fun `all query words must match`() {
+        assertEquals(listOf("😃"), index.search("grinning big", 10))
+        assertEquals(listOf("😍"), index.search("heart smil", 10))
+        assertTrue(index.search("grinning hand", 10).isEmpty())
+    }
+
+    @Test fun `results are limited`() {
+        assertEquals(4, index.search("face", 10).size)
+        assertEquals(listOf("😀", "😃"), index.search("face", 2))
+        assertTrue(index.search("face", 0).isEmpty())
+    }
+
+    @Test fun `no match gives no results`() {
+        assertTrue(index.search("cat", 10).isEmpty())
+        assertTrue(index.search("", 10).isEmpty())
+        assertTrue(index.search("!?", 10).isEmpty())
+    }
+
+    @Test fun `loading is tried again if it could not be started`() {
+        val context = RuntimeEnvironment.getApplication()
+        val shutDownExecutor = Executors.newSingleThreadScheduledExecutor()
+        shutDownExecutor.shutdown()
+        val executor = Executors.newSingleThreadScheduledExecutor()
+        try {
+            ExecutorUtils.setExecutorServiceForTests(shutDownExecutor)
+            EmojiSearchIndex.loadInBackground(context)
+            ExecutorUtils.setExecutorServiceForTests(executor)
+            EmojiSearchIndex.loadInBackground(context)
+            executor.submit { }.get()
+            assertNotNull(EmojiSearchIndex.getLoadedInstance())
+        } finally {
+            executor.shutdownNow()
+            ExecutorUtils.setExecutorServiceForTests(null)
+        }
+    }
+}
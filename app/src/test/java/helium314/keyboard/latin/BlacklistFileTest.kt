@@ -0,0 +1,176 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package helium314.keyboard.latin
+
+import helium314.keyboard.latin.utils.BlacklistFile
+import helium314.keyboard.latin.utils.ExecutorUtils
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.io.File
+import java.nio.file.Files
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import kotlin.test.AfterTest
+import kotlin.test.BeforeTest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+@RunWith(RobolectricTestRunner::class)
+class BlacklistFileTest {
+    private lateinit var executor: ScheduledExecutorService
+    private lateinit var dir: File
+    private val file get() = File(dir, "en.bin")
+    private val textFile get() = File(dir, "en.txt")
+
+    @BeforeTest fun setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor()
+        ExecutorUtils.setExecutorServiceForTests(executor)
+        dir = Files.createTempDirectory("blacklists").toFile()
+    }
+
+    @AfterTest fun tearDown() {
+        executor.shutdownNow()
+        ExecutorUtils.setExecutorServiceForTests(null)
+        dir.deleteRecursively()
+    }
+
+    private fun waitForCompaction() = executor.submit { }.get()
+
+    private fun load() = BlacklistFile.getInstance(file, textFile)
+
+    // loads the file again instead of returning the shared instance
+    private fun reload(): BlacklistFile {
+        BlacklistFile.onFilesReplaced()
+        return load()
+    }
+
+    @Test fun `added words are found after reload`() {
+        val blacklist = load()
+        assertTrue(blacklist.add("hello"))
+        assertTrue(blacklist.add("wörld"))
+        assertFalse(blacklist.add("hello"))
+        assertTrue(blacklist.contains("hello"))
+        waitForCompaction()
+        assertTrue(file.exists())
+
+        val reloaded = reload()
+        assertTrue(reloaded.contains("hello"))
+        assertTrue(reloaded.contains("wörld"))
+        assertFalse(reloaded.contains("other"))
+        assertEquals(setOf("hello", "wörld"), reloaded.words.toSet())
+    }
+
+    @Test fun `removed words are not found after reload`() {
+        val blacklist = load()
+        (0 until 10).forEach { blacklist.add("word$it") }
+        waitForCompaction()
+        assertTrue(blacklist.remove("word3"))
+        assertFalse(blacklist.remove("word3"))
+        assertFalse(blacklist.remove("other"))
+        assertFalse(blacklist.contains("word3"))
+        waitForCompaction()
+
+        val reloaded = reload()
+        assertFalse(reloaded.contains("word3"))
+        assertEquals(9, reloaded.words.size)
+    }
+
+    @Test fun `compaction drops removed words from the file`() {
+        val blacklist = load()
+        (0 until 8).forEach { blacklist.add("word$it") }
+        waitForCompaction()
+        val fullSize = file.length()
+        // a quarter of the words removed triggers compaction
+        assertTrue(blacklist.remove("word0"))
+        assertTrue(blacklist.remove("word1"))
+        waitForCompaction()
+        assertTrue(file.length() < fullSize)
+        assertTrue(blacklist.add("word0"))
+        assertTrue(blacklist.contains("word0"))
+        assertFalse(blacklist.contains("word1"))
+        waitForCompaction()
+
+        val reloaded = reload()
+        assertEquals((0 until 8).map { "word$it" }.filter { it != "word1" }.toSet(), reloaded.words.toSet())
+    }
+
+    @Test fun `changes while compaction is pending are written`() {
+        val blacklist = load()
+        val blocked = blockExecutor()
+        (0 until 8).forEach { blacklist.add("word$it") }
+        blocked.countDown()
+        waitForCompaction()
+        val compacting = blockExecutor()
+        blacklist.add("new")
+        blacklist.remove("word2")
+        compacting.countDown()
+        waitForCompaction()
+        assertFalse(blacklist.contains("word2"))
+        val reloaded = reload()
+        assertFalse(reloaded.contains("word2"))
+        assertTrue(reloaded.contains("new"))
+    }
+
+    @Test fun `text file is migrated`() {
+        textFile.writeText("hello\nworld\nhello")
+        val blacklist = load()
+        assertFalse(textFile.exists())
+        assertTrue(file.exists())
+        assertEquals(setOf("hello", "world"), blacklist.words.toSet())
+    }
+
+    @Test fun `changes of all users of a file are written`() {
+        val first = load()
+        first.add("hello")
+        waitForCompaction()
+        val blocked = blockExecutor()
+        first.add("first")
+        val second = load()
+        assertSame(first, second)
+        second.add("second")
+        assertTrue(first.contains("second"))
+        first.remove("hello")
+        assertFalse(second.contains("hello"))
+        blocked.countDown()
+        waitForCompaction()
+
+        val current = reload()
+        assertEquals(setOf("first", "second"), current.words.toSet())
+    }
+
+    @Test fun `compaction does not overwrite a restored file`() {
+        val blacklist = load()
+        blacklist.add("hello")
+        waitForCompaction()
+        val blocked = blockExecutor()
+        blacklist.add("old")
+        BlacklistFile.onFilesReplaced()
+        file.delete()
+        textFile.writeText("restored")
+        blocked.countDown()
+        waitForCompaction()
+        assertFalse(file.exists())
+
+        val restored = load()
+        assertEquals(listOf("restored"), restored.words)
+    }
+
+    @Test fun `blacklist without file is kept in memory`() {
+        val blacklist = BlacklistFile()
+        assertTrue(blacklist.add("hello"))
+        assertTrue(blacklist.contains("hello"))
+        assertTrue(blacklist.remove("hello"))
+        assertFalse(blacklist.contains("hello"))
+        assertTrue(dir.listFiles()!!.isEmpty())
+    }
+
+    // returns a latch that must be counted down for the executor to run the next tasks
+    private fun blockExecutor(): CountDownLatch {
+        val latch = CountDownLatch(1)
+        executor.execute { latch.await() }
+        return latch
+    }
+}
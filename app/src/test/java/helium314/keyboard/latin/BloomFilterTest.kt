@@ -0,0 +1,68 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package helium314.keyboard.latin
+
+import helium314.keyboard.latin.utils.BloomFilter
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class BloomFilterTest {
+    private val words = (0 until 1000).map { "word$it" }
+
+    @Test fun `no false negatives`() {
+        val filter = BloomFilter(words.size)
+        words.forEach { filter.add(it) }
+        assertTrue(words.all { filter.mightContain(it) })
+        assertTrue(words.all { BloomFilter.of(words).mightContain(it) })
+    }
+
+    @Test fun `few false positives at capacity`() {
+        val filter = BloomFilter(words.size)
+        words.forEach { filter.add(it) }
+        assertFalse(filter.isOverCapacity)
+        val falsePositives = (0 until 10000).count { filter.mightContain("other$it") }
+        // expected is about 1%
+        assertTrue(falsePositives < 300, "$falsePositives false positives")
+    }
+
+    @Test fun `empty filter contains nothing`() {
+        assertFalse(BloomFilter(10).mightContain(""))
+        assertFalse(BloomFilter(10).mightContain("word"))
+    }
+
+    @Test fun `size is power of 2 with at least 10 bits per word`() {
+        for (expectedSize in listOf(0, 1, 64, 100, 1000, 6554, 100000)) {
+            val bits = BloomFilter(expectedSize).bits.size * 64
+            assertEquals(1, Integer.bitCount(bits), "$bits bits for $expectedSize")
+            assertTrue(bits >= maxOf(expectedSize, 64) * 10, "$bits bits for $expectedSize")
+            assertTrue(bits < maxOf(expectedSize, 64) * 20, "$bits bits for $expectedSize")
+        }
+    }
+
+    @Test fun `each word sets 7 bits`() {
+        for (word in words.take(50)) {
+            val filter = BloomFilter(100)
+            filter.add(word)
+            assertEquals(7, filter.bits.sumOf { java.lang.Long.bitCount(it) }, word)
+        }
+    }
+
+    @Test fun `over capacity after adding more words than expected`() {
+        val filter = BloomFilter(100)
+        words.take(100).forEach { filter.add(it) }
+        assertFalse(filter.isOverCapacity)
+        filter.add("one more")
+        assertTrue(filter.isOverCapacity)
+    }
+
+    @Test fun `restored filter contains the same words`() {
+        val filter = BloomFilter.of(words)
+        val restored = BloomFilter.fromBits(filter.bits.copyOf(), words.size)
+        assertTrue(words.all { restored.mightContain(it) })
+        assertFalse(restored.isOverCapacity)
+        assertFailsWith<IllegalArgumentException> { BloomFilter.fromBits(LongArray(3), 0) }
+        assertFailsWith<IllegalArgumentException> { BloomFilter.fromBits(LongArray(0), 0) }
+    }
+}
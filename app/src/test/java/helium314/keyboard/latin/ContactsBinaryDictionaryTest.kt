@@ -0,0 +1,169 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package helium314.keyboard.latin
+
+import android.Manifest
+import android.content.ContentProvider
+import android.content.ContentValues
+import android.database.Cursor
+import android.database.MatrixCursor
+import android.net.Uri
+import android.provider.BaseColumns
+import android.provider.ContactsContract
+import android.provider.ContactsContract.Contacts
+import helium314.keyboard.ShadowBinaryDictionary
+import helium314.keyboard.latin.utils.ExecutorUtils
+import org.junit.runner.RunWith
+import org.robolectric.Robolectric
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import org.robolectric.Shadows.shadowOf
+import org.robolectric.annotation.Config
+import java.io.File
+import java.nio.file.Files
+import java.util.Locale
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import kotlin.test.AfterTest
+import kotlin.test.BeforeTest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+@RunWith(RobolectricTestRunner::class)
+@Config(shadows = [ShadowBinaryDictionary::class])
+class ContactsBinaryDictionaryTest {
+    private lateinit var executor: ScheduledExecutorService
+    private lateinit var dir: File
+    private lateinit var contacts: FakeContactsProvider
+    private val dictFile get() = File(dir, "contacts.dict")
+
+    @BeforeTest fun setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor()
+        ExecutorUtils.setExecutorServiceForTests(executor)
+        dir = Files.createTempDirectory("contacts").toFile()
+        ShadowBinaryDictionary.reset()
+        shadowOf(RuntimeEnvironment.getApplication()).grantPermissions(Manifest.permission.READ_CONTACTS)
+        contacts = Robolectric.buildContentProvider(FakeContactsProvider::class.java)
+            .create(ContactsContract.AUTHORITY).get()
+    }
+
+    @AfterTest fun tearDown() {
+        executor.shutdownNow()
+        ExecutorUtils.setExecutorServiceForTests(null)
+        dir.deleteRecursively()
+    }
+
+    private fun waitForTasks() {
+        executor.submit { }.get()
+    }
+
+    private fun open(): ContactsBinaryDictionary {
+        val dictionary = ContactsBinaryDictionary.getDictionary(RuntimeEnvironment.getApplication(),
+            Locale.ENGLISH, dictFile, "", null)
+        waitForTasks()
+        return dictionary
+    }
+
+    private fun ContactsBinaryDictionary.sync(vararg names: String) {
+        contacts.names = names.toList()
+        contacts.lastUpdatedTimestamp++
+        onContactsChange()
+        waitForTasks()
+    }
+
+    private fun flushedWords() = ShadowBinaryDictionary.getFlushedContent(dictFile)!!.words.keys
+
+    private fun flushedNgrams() = ShadowBinaryDictionary.getFlushedContent(dictFile)!!.ngrams
+
+    @Test fun `added names are written`() {
+        contacts.names = listOf("Alice Smith")
+        val dictionary = open()
+        assertEquals(setOf("Alice", "Smith"), flushedWords())
+
+        dictionary.sync("Alice Smith", "Bob Jones")
+        assertEquals(setOf("Alice", "Smith", "Bob", "Jones"), flushedWords())
+        assertEquals(setOf(listOf("Alice") to "Smith", listOf("Bob") to "Jones"), flushedNgrams())
+        assertTrue(dictionary.isInDictionary("Bob"))
+    }
+
+    @Test fun `removed names are written`() {
+        contacts.names = listOf("Alice Smith", "Bob Smith")
+        val dictionary = open()
+
+        dictionary.sync("Alice Smith")
+        // words of other names are kept
+        assertEquals(setOf("Alice", "Smith"), flushedWords())
+        assertEquals(setOf(listOf("Alice") to "Smith"), flushedNgrams())
+        assertFalse(dictionary.isInDictionary("Bob"))
+        assertTrue(dictionary.isInDictionary("Smith"))
+    }
+
+    @Test fun `renamed names are written`() {
+        contacts.names = listOf("Alice Smith")
+        val dictionary = open()
+
+        dictionary.sync("Alicia Smith")
+        assertEquals(setOf("Alicia", "Smith"), flushedWords())
+        assertEquals(setOf(listOf("Alicia") to "Smith"), flushedNgrams())
+        assertFalse(dictionary.isInDictionary("Alice"))
+    }
+
+    @Test fun `unchanged names are not written`() {
+        contacts.names = listOf("Alice Smith")
+        val dictionary = open()
+        val flushCount = ShadowBinaryDictionary.getFlushCount(dictFile)
+
+        dictionary.sync("Alice Smith")
+        assertEquals(flushCount, ShadowBinaryDictionary.getFlushCount(dictFile))
+    }
+
+    @Test fun `changes are kept after restart`() {
+        contacts.names = listOf("Alice Smith", "Bob Jones")
+        val dictionary = open()
+        dictionary.sync("Alice Smith")
+        dictionary.close()
+        waitForTasks()
+
+        val restarted = open()
+        assertTrue(restarted.isInDictionary("Alice"))
+        assertFalse(restarted.isInDictionary("Bob"))
+
+        // the names of a dictionary loaded from file are not known, so it's created again
+        restarted.sync("Alice Smith", "Carol White")
+        assertEquals(setOf("Alice", "Smith", "Carol", "White"), flushedWords())
+        assertTrue(restarted.isInDictionary("Carol"))
+    }
+
+    // Only the projections used by ContactsManager are supported, and the profile is empty.
+    class FakeContactsProvider : ContentProvider() {
+        var names = listOf<String>()
+        var lastUpdatedTimestamp = 1L
+
+        override fun onCreate() = true
+
+        override fun query(uri: Uri, projection: Array<String>?, selection: String?,
+                selectionArgs: Array<String>?, sortOrder: String?): Cursor {
+            val cursor = MatrixCursor(projection)
+            if (uri.pathSegments.firstOrNull() == "profile") return cursor
+            names.forEachIndexed { index, name ->
+                cursor.addRow(projection!!.map {
+                    when (it) {
+                        BaseColumns._ID -> index.toLong()
+                        Contacts.DISPLAY_NAME -> name
+                        Contacts.IN_VISIBLE_GROUP -> 1
+                        Contacts.CONTACT_LAST_UPDATED_TIMESTAMP -> lastUpdatedTimestamp
+                        else -> 0
+                    }
+                })
+            }
+            return cursor
+        }
+
+        override fun getType(uri: Uri): String? = null
+        override fun insert(uri: Uri, values: ContentValues?): Uri? = null
+        override fun delete(uri: Uri, selection: String?, selectionArgs: Array<String>?) = 0
+        override fun update(uri: Uri, values: ContentValues?, selection: String?,
+                selectionArgs: Array<String>?) = 0
+    }
+}
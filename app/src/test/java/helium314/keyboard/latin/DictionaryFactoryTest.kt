@@ -0,0 +1,92 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package helium314.keyboard.latin
+
+import helium314.keyboard.latin.SuggestedWords.SuggestedWordInfo
+import helium314.keyboard.latin.common.ComposedData
+import helium314.keyboard.latin.settings.SettingsValuesForSuggestion
+import helium314.keyboard.latin.utils.ExecutorUtils
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.io.File
+import java.util.Locale
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import kotlin.test.AfterTest
+import kotlin.test.BeforeTest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+
+@RunWith(RobolectricTestRunner::class)
+class DictionaryFactoryTest {
+    private lateinit var executor: ScheduledExecutorService
+    private val assets = mapOf(Dictionary.TYPE_MAIN to "main_en.dict", "emoji" to "emoji_en.dict")
+    private val assetsLoaded = mutableListOf<String>()
+
+    @BeforeTest fun setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor()
+        ExecutorUtils.setExecutorServiceForTests(executor)
+    }
+
+    @AfterTest fun tearDown() {
+        executor.shutdownNow()
+        ExecutorUtils.setExecutorServiceForTests(null)
+    }
+
+    // files named "broken" can't be loaded, others result in a dictionary named like the file
+    private fun create(vararg cachedDicts: Pair<String, String>): List<String> {
+        val collection = createMainDictionary(Locale.ENGLISH, cachedDicts.map { it.first to File(it.second) },
+            { assets },
+            { file, dictType -> if (file.name == "broken") null else NamedDict(file.name, dictType) },
+            { assetName, dictType -> assetsLoaded.add(assetName); NamedDict(assetName, dictType) }
+        )
+        if (!executor.isShutdown) executor.submit { }.get()
+        return collection.mDictionaries.map { (it as NamedDict).name }
+    }
+
+    @Test fun `assets are used without cached dictionaries`() {
+        assertEquals(listOf("main_en.dict", "emoji_en.dict"), create())
+    }
+
+    @Test fun `user main dictionary replaces assets`() {
+        assertEquals(listOf("user_main"), create(Dictionary.TYPE_MAIN to "user_main"))
+        assertEquals(emptyList(), assetsLoaded)
+    }
+
+    @Test fun `user dictionary is preferred over extracted dictionary`() {
+        assertEquals(listOf("user_main", "user_emoji"), create(Dictionary.TYPE_MAIN to "user_main",
+            "emoji" to "user_emoji", Dictionary.TYPE_MAIN to "extracted_main", "emoji" to "extracted_emoji"))
+    }
+
+    @Test fun `extracted dictionary is used if user dictionary fails to load`() {
+        assertEquals(listOf("extracted_main"), create(Dictionary.TYPE_MAIN to "broken",
+            Dictionary.TYPE_MAIN to "extracted_main"))
+    }
+
+    @Test fun `asset main dictionary is used if user main dictionary fails to load`() {
+        assertEquals(listOf("main_en.dict", "emoji_en.dict"), create(Dictionary.TYPE_MAIN to "broken"))
+    }
+
+    @Test fun `assets are only used for types without cached dictionary`() {
+        assertEquals(listOf("main_en.dict", "user_emoji"), create("emoji" to "user_emoji"))
+        assertEquals(listOf("main_en.dict", "emoji_en.dict"), create("emoji" to "broken"))
+    }
+
+    @Test fun `other types are loaded while the executor is shut down`() {
+        executor.shutdown()
+        assertEquals(listOf("main_en.dict", "emoji_en.dict"), create())
+    }
+
+    private class NamedDict(val name: String, dictType: String) : Dictionary(dictType, Locale.ENGLISH) {
+        override fun getSuggestions(
+            composedData: ComposedData?,
+            ngramContext: NgramContext?,
+            proximityInfoHandle: Long,
+            settingsValuesForSuggestion: SettingsValuesForSuggestion?,
+            sessionId: Int,
+            weightForLocale: Float,
+            inOutWeightOfLangModelVsSpatialModel: FloatArray?
+        ): ArrayList<SuggestedWordInfo>? = null
+
+        override fun isInDictionary(word: String?) = false
+    }
+}
@@ -0,0 +1,72 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package helium314.keyboard.latin
+
+import helium314.keyboard.event.HangulCombiner
+import helium314.keyboard.event.HangulJamoTables
+import java.text.Normalizer
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class HangulJamoTablesTest {
+    private val syllables = (HangulJamoTables.SYLLABLE_BASE..HangulJamoTables.SYLLABLE_LAST).map { it.toChar().toString() }
+    private val compatJamo = (HangulJamoTables.COMPAT_CONSONANT_FIRST..HangulJamoTables.COMPAT_VOWEL_LAST).map { it.toChar().toString() }
+
+    // how KoreanDictionary decomposed input with the Normalizer
+    private fun decomposeWithNormalizer(text: String): String {
+        val compatJamo = HangulCombiner.HangulJamo.COMPAT_CONSONANTS + HangulCombiner.HangulJamo.COMPAT_VOWELS
+        val standardJamo = HangulCombiner.HangulJamo.CONVERT_INITIALS + HangulCombiner.HangulJamo.CONVERT_MEDIALS
+        return Normalizer.normalize(text, Normalizer.Form.NFD).map {
+            val index = compatJamo.indexOf(it)
+            if (index == -1) it else standardJamo[index]
+        }.joinToString("")
+    }
+
+    @Test fun `all syllables decompose like the Normalizer`() {
+        assertEquals(11172, syllables.size)
+        for (syllable in syllables) {
+            assertEquals(Normalizer.normalize(syllable, Normalizer.Form.NFD), HangulJamoTables.decomposeForDictionary(syllable), syllable)
+        }
+    }
+
+    @Test fun `all syllables compose like the Normalizer`() {
+        for (syllable in syllables) {
+            val decomposed = Normalizer.normalize(syllable, Normalizer.Form.NFD)
+            assertEquals(syllable, HangulJamoTables.compose(decomposed), syllable)
+            // a syllable without final and a separate final, and incomplete syllables
+            val partial = decomposed.substring(0, 2) + " " + decomposed.substring(0, 1) + syllable
+            assertEquals(Normalizer.normalize(partial, Normalizer.Form.NFC), HangulJamoTables.compose(partial), partial)
+        }
+    }
+
+    @Test fun `all syllables are the same as their decomposition`() {
+        for ((i, syllable) in syllables.withIndex()) {
+            val word = (syllable + syllable).toCharArray()
+            val decomposed = Normalizer.normalize(syllable, Normalizer.Form.NFD)
+            assertTrue(HangulJamoTables.sameDecomposed(word, 1, syllable), syllable)
+            assertTrue(HangulJamoTables.sameDecomposed(word, 1, decomposed), syllable)
+            assertTrue(HangulJamoTables.sameDecomposed(word, 2, decomposed + decomposed), syllable)
+            assertFalse(HangulJamoTables.sameDecomposed(word, 2, decomposed), syllable)
+            val other = syllables[(i + 1) % syllables.size]
+            assertFalse(HangulJamoTables.sameDecomposed(word, 1, other), syllable)
+            assertFalse(HangulJamoTables.sameDecomposed(word, 1, Normalizer.normalize(other, Normalizer.Form.NFD)), syllable)
+        }
+    }
+
+    @Test fun `compatibility jamo are converted like before`() {
+        for (jamo in compatJamo) {
+            val expected = decomposeWithNormalizer(jamo)
+            assertEquals(expected, HangulJamoTables.decomposeForDictionary(jamo), jamo)
+            assertTrue(HangulJamoTables.sameDecomposed(jamo.toCharArray(), 1, expected), jamo)
+        }
+    }
+
+    @Test fun `other text is decomposed and composed like the Normalizer`() {
+        for (text in listOf("한국어 abc", "ㄱ한ㅏ", "café 한글", "é한", "")) {
+            assertEquals(decomposeWithNormalizer(text), HangulJamoTables.decomposeForDictionary(text), text)
+            val decomposed = Normalizer.normalize(text, Normalizer.Form.NFD)
+            assertEquals(Normalizer.normalize(decomposed, Normalizer.Form.NFC), HangulJamoTables.compose(decomposed), text)
+        }
+    }
+}
@@ -9,6 +9,7 @@ import android.text.InputType
 import android.view.KeyEvent
 import android.view.inputmethod.*
 import androidx.core.content.edit
+import com.android.inputmethod.latin.DicTraverseSession
 import helium314.keyboard.ShadowInputMethodManager2
 import helium314.keyboard.ShadowLocaleManagerCompat
 import helium314.keyboard.event.Event
@@ -46,6 +47,7 @@ import kotlin.test.assertEquals
     ShadowKeyboardSwitcher::class,
     ShadowHandler::class,
     ShadowFacilitator2::class,
+    ShadowDicTraverseSession::class,
 ])
 class InputLogicTest {
     private lateinit var latinIME: LatinIME
@@ -1112,3 +1114,11 @@ class ShadowFacilitator2 {
         var lastAddedWord = ""
     }
 }
+
+@Implements(DicTraverseSession::class)
+object ShadowDicTraverseSession {
+    @Implementation
+    @JvmStatic
+    // native library is not available in tests
+    fun setLatestRequestGeneration(requestGeneration: Int) = Unit
+}
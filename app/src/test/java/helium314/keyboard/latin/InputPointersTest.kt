@@ -0,0 +1,126 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package helium314.keyboard.latin
+
+import helium314.keyboard.latin.common.InputPointers
+import helium314.keyboard.latin.common.ResizableIntArray
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNotSame
+import kotlin.test.assertSame
+
+class InputPointersTest {
+    // point i has x = i, y = 10 * i, pointer id 1 and time 100 * i
+    private fun pointers(size: Int, capacity: Int = 4) = InputPointers(capacity).apply {
+        (0 until size).forEach { addPointer(it, 10 * it, 1, 100 * it) }
+    }
+
+    private fun InputPointers.xs() = (0 until pointerSize).map { getX(it) }
+
+    private fun InputPointers.ys() = (0 until pointerSize).map { getY(it) }
+
+    private fun InputPointers.times() = (0 until pointerSize).map { getTime(it) }
+
+    private fun InputPointers.appendPoints(vararg xs: Int) {
+        val times = ResizableIntArray(xs.size)
+        val xCoordinates = ResizableIntArray(xs.size)
+        val yCoordinates = ResizableIntArray(xs.size)
+        xs.forEach {
+            times.add(100 * it)
+            xCoordinates.add(it)
+            yCoordinates.add(10 * it)
+        }
+        append(2, times, xCoordinates, yCoordinates, 0, xs.size)
+    }
+
+    @Test fun `append after set does not change the other instance`() {
+        val source = pointers(3)
+        val copy = InputPointers(4)
+        copy.set(source)
+        copy.appendPoints(3, 4)
+        assertEquals(listOf(0, 1, 2), source.xs())
+        assertEquals(listOf(0, 1, 2, 3, 4), copy.xs())
+        assertEquals(listOf(0, 10, 20, 30, 40), copy.ys())
+        assertEquals(listOf(1, 1, 1, 2, 2), (0 until 5).map { copy.getPointerId(it) })
+
+        // the source is behind the written length now, so appending must not overwrite 3 and 4
+        source.addPointer(7, 70, 1, 700)
+        assertEquals(listOf(0, 1, 2, 7), source.xs())
+        assertEquals(listOf(0, 1, 2, 3, 4), copy.xs())
+    }
+
+    @Test fun `appending to the longest holder of a store is in place`() {
+        val source = pointers(2)
+        val copy = InputPointers(4)
+        copy.set(source)
+        copy.addPointer(2, 20, 1, 200)
+        assertSame(source.pointerBuffer, copy.pointerBuffer)
+        assertEquals(listOf(0, 1), source.xs())
+    }
+
+    @Test fun `changes after set are isolated`() {
+        val source = pointers(3)
+        val copy = InputPointers(4)
+        copy.copy(source)
+        copy.addPointerAt(1, 5, 50, 1, 500)
+        assertEquals(listOf(0, 1, 2), source.xs())
+        assertEquals(listOf(0, 5, 2), copy.xs())
+
+        source.addPointerAt(0, 9, 90, 1, 900)
+        assertEquals(listOf(9, 1, 2), source.xs())
+        assertEquals(listOf(0, 5, 2), copy.xs())
+
+        source.reset()
+        assertEquals(0, source.pointerSize)
+        assertEquals(listOf(0, 5, 2), copy.xs())
+    }
+
+    @Test fun `store is changed in place when no other instance holds it`() {
+        val source = pointers(3)
+        val copy = InputPointers(4)
+        copy.set(source)
+        copy.reset()
+        val buffer = source.pointerBuffer
+        source.addPointerAt(0, 9, 90, 1, 900)
+        assertSame(buffer, source.pointerBuffer)
+
+        copy.set(source)
+        copy.set(pointers(1))
+        source.shift(1)
+        assertSame(buffer, source.pointerBuffer)
+        source.reset()
+        source.addPointer(4, 40, 1, 400)
+        assertSame(buffer, source.pointerBuffer)
+        assertEquals(listOf(4), source.xs())
+    }
+
+    @Test fun `shift discards the first points`() {
+        val ip = pointers(10)
+        val buffer = ip.pointerBuffer
+        ip.shift(3)
+        assertSame(buffer, ip.pointerBuffer)
+        assertEquals((3 until 10).toList(), ip.xs())
+        assertEquals((3 until 10).map { 10 * it }, ip.ys())
+        assertEquals((3 until 10).map { 100 * it }, ip.times())
+        ip.addPointer(10, 100, 1, 1000)
+        assertEquals((3..10).toList(), ip.xs())
+        ip.shift(20)
+        assertEquals(0, ip.pointerSize)
+    }
+
+    @Test fun `shift of a shared store keeps the points of the other instance`() {
+        val source = pointers(5)
+        val copy = InputPointers(4)
+        copy.set(source)
+        copy.shift(2)
+        assertNotSame(source.pointerBuffer, copy.pointerBuffer)
+        assertEquals(listOf(2, 3, 4), copy.xs())
+        assertEquals(listOf(0, 1, 2, 3, 4), source.xs())
+
+        // the source is the only holder of its store again
+        val buffer = source.pointerBuffer
+        source.shift(1)
+        assertSame(buffer, source.pointerBuffer)
+        assertEquals(listOf(1, 2, 3, 4), source.xs())
+        assertEquals(listOf(2, 3, 4), copy.xs())
+    }
+}
@@ -5,6 +5,7 @@ import androidx.core.content.edit
 import helium314.keyboard.ShadowBinaryDictionaryUtils
 import helium314.keyboard.ShadowInputMethodManager2
 import helium314.keyboard.ShadowLocaleManagerCompat
+import helium314.keyboard.keyboard.Keyboard
 import helium314.keyboard.latin.SuggestedWords.SuggestedWordInfo
 import helium314.keyboard.latin.SuggestedWords.SuggestedWordInfo.KIND_FLAG_APPROPRIATE_FOR_AUTO_CORRECTION
 import helium314.keyboard.latin.SuggestedWords.SuggestedWordInfo.KIND_SHORTCUT
@@ -17,6 +18,7 @@ import helium314.keyboard.latin.utils.DeviceProtectedUtils
 import helium314.keyboard.latin.utils.SuggestionResults
 import helium314.keyboard.latin.utils.prefs
 import org.junit.runner.RunWith
+import org.mockito.Mockito
 import org.robolectric.Robolectric
 import org.robolectric.RobolectricTestRunner
 import org.robolectric.annotation.Config
@@ -25,6 +27,8 @@ import org.robolectric.annotation.Implements
 import org.robolectric.shadows.ShadowLog
 import java.util.*
 import kotlin.test.BeforeTest
+import kotlin.test.assertEquals
+import kotlin.test.assertSame
 import kotlin.test.Test
 
 @Suppress("NonAsciiCharacters")
@@ -268,6 +272,51 @@ class SuggestTest {
         assert(!result.last()) // should not be corrected
     }
 
+    @Test fun `next word suggestions are cached per context`() {
+        val dicts = FakeNextWordDicts()
+        val suggest = Suggest(dicts.facilitator)
+        val first = suggest.nextWordSuggestions(contextOf("hello"))
+        assertSame(first, suggest.nextWordSuggestions(contextOf("hello")))
+        assertEquals(1, dicts.lookups)
+        suggest.nextWordSuggestions(contextOf("world"))
+        assertEquals(2, dicts.lookups)
+        suggest.nextWordSuggestions(NgramContext.BEGINNING_OF_SENTENCE)
+        assertEquals(3, dicts.lookups)
+    }
+
+    @Test fun `learning a word invalidates next word suggestions with the same previous word`() {
+        val dicts = FakeNextWordDicts()
+        val suggest = Suggest(dicts.facilitator)
+        suggest.nextWordSuggestions(contextOf("hello"))
+        suggest.nextWordSuggestions(contextOf("world"))
+        dicts.listener!!.onDictionaryContentChanged("there", contextOf("hello"))
+        suggest.nextWordSuggestions(contextOf("world"))
+        assertEquals(2, dicts.lookups)
+        suggest.nextWordSuggestions(contextOf("hello"))
+        assertEquals(3, dicts.lookups)
+    }
+
+    @Test fun `any dictionary change invalidates all next word suggestions`() {
+        val dicts = FakeNextWordDicts()
+        val suggest = Suggest(dicts.facilitator)
+        suggest.nextWordSuggestions(contextOf("hello"))
+        suggest.nextWordSuggestions(contextOf("world"))
+        dicts.listener!!.onDictionaryContentChanged(null, null)
+        suggest.nextWordSuggestions(contextOf("hello"))
+        suggest.nextWordSuggestions(contextOf("world"))
+        assertEquals(4, dicts.lookups)
+    }
+
+    @Test fun `next word suggestions are not cached if dictionaries change during lookup`() {
+        val dicts = FakeNextWordDicts()
+        val suggest = Suggest(dicts.facilitator)
+        dicts.onLookup = { dicts.listener!!.onDictionaryContentChanged("there", contextOf("other")) }
+        suggest.nextWordSuggestions(contextOf("hello"))
+        dicts.onLookup = {}
+        suggest.nextWordSuggestions(contextOf("hello"))
+        assertEquals(2, dicts.lookups)
+    }
+
     private fun shouldBeAutoCorrected(word: String, // typed word
                               suggestions: List<SuggestedWordInfo>, // suggestions ordered by score, including suggestion for typed word if in dictionary
                               firstSuggestionForEmpty: SuggestedWordInfo?, // first suggestion if typed word would be empty (null if none)
@@ -306,6 +355,31 @@ class SuggestTest {
 
 private var currentTypingLocale = Locale.ENGLISH
 
+private fun contextOf(prevWord: String) = NgramContext(NgramContext.WordInfo(prevWord))
+
+private fun Suggest.nextWordSuggestions(ngramContext: NgramContext) = getNextWordSuggestions(ngramContext,
+    Mockito.mock(Keyboard::class.java), SuggestedWords.INPUT_STYLE_TYPING, SettingsValuesForSuggestion(false, false))
+
+/** Counts next word lookups, and provides the content listener set by [Suggest]. */
+private class FakeNextWordDicts {
+    var lookups = 0
+    var listener: DictionaryFacilitator.DictionaryContentListener? = null
+    var onLookup: () -> Unit = {}
+    val facilitator: DictionaryFacilitator = Mockito.mock(DictionaryFacilitator::class.java) { invocation ->
+        when (invocation.method.name) {
+            "getLocales" -> listOf(Locale.ENGLISH)
+            "setDictionaryContentListener" -> { listener = invocation.getArgument(0); null }
+            "getSuggestionResults" -> {
+                lookups++
+                onLookup()
+                SuggestionResults(1, false, false).apply { add(suggestion("word$lookups", 100, Locale.ENGLISH)) }
+            }
+            else -> Mockito.RETURNS_DEFAULTS.answer(invocation)
+        }
+    }
+}
+
+
 fun suggestion(word: String, score: Int, locale: Locale, shortcut: Boolean = false) =
     SuggestedWordInfo(
         /* word */ word,
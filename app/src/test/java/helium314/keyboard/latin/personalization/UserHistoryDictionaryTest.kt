@@ -0,0 +1,98 @@
+// SPDX-License-Identifier: GPL-3.0-only
+package helium314.keyboard.latin.personalization
+
+import helium314.keyboard.ShadowBinaryDictionary
+import helium314.keyboard.latin.NgramContext
+import helium314.keyboard.latin.utils.ExecutorUtils
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import org.robolectric.annotation.Config
+import java.util.Locale
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import kotlin.test.AfterTest
+import kotlin.test.BeforeTest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+@RunWith(RobolectricTestRunner::class)
+@Config(shadows = [ShadowBinaryDictionary::class])
+class UserHistoryDictionaryTest {
+    private lateinit var executor: ScheduledExecutorService
+    private lateinit var dictionary: UserHistoryDictionary
+
+    @BeforeTest fun setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor()
+        ExecutorUtils.setExecutorServiceForTests(executor)
+        ShadowBinaryDictionary.reset()
+        dictionary = UserHistoryDictionary(RuntimeEnvironment.getApplication(), Locale.ENGLISH, null)
+        waitForTasks()
+    }
+
+    @AfterTest fun tearDown() {
+        executor.shutdownNow()
+        ExecutorUtils.setExecutorServiceForTests(null)
+    }
+
+    private fun waitForTasks() {
+        executor.submit { }.get()
+    }
+
+    // runs the block while the executor is busy, so the tasks it submits are only started afterwards
+    private fun whileBusy(block: () -> Unit) {
+        val latch = CountDownLatch(1)
+        executor.execute { latch.await() }
+        try {
+            block()
+        } finally {
+            latch.countDown()
+        }
+        waitForTasks()
+    }
+
+    private fun learn(word: String, ngramContext: NgramContext = NgramContext.BEGINNING_OF_SENTENCE) =
+        UserHistoryDictionary.addToDictionary(dictionary, ngramContext, word, true, 0)
+
+    @Test fun `words are learned`() {
+        learn("hello")
+        waitForTasks()
+        assertTrue(dictionary.isInDictionary("hello"))
+    }
+
+    @Test fun `words learned while the dictionary is busy are added together`() {
+        whileBusy {
+            learn("hello")
+            learn("world", NgramContext(NgramContext.WordInfo("hello")))
+            learn("again")
+        }
+        assertEquals(listOf(3), ShadowBinaryDictionary.inputEventCounts)
+        assertTrue(dictionary.isInDictionary("hello"))
+        assertTrue(dictionary.isInDictionary("world"))
+        assertTrue(dictionary.isInDictionary("again"))
+    }
+
+    @Test fun `removed word is not added again by a later update`() {
+        whileBusy {
+            learn("hello")
+            dictionary.removeUnigramEntryDynamically("hello")
+            learn("world")
+        }
+        assertFalse(dictionary.isInDictionary("hello"))
+        assertTrue(dictionary.isInDictionary("world"))
+    }
+
+    @Test fun `words learned before clearing are dropped`() {
+        whileBusy {
+            learn("hello")
+            dictionary.clear()
+        }
+        learn("world")
+        waitForTasks()
+        assertFalse(dictionary.isInDictionary("hello"))
+        assertTrue(dictionary.isInDictionary("world"))
+    }
+}
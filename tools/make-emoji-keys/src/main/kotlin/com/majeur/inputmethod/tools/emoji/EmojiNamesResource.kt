@@ -0,0 +1,49 @@
+// SPDX-License-Identifier: GPL-3.0-only
+
+package com.majeur.inputmethod.tools.emoji
+
+import com.majeur.inputmethod.tools.emoji.model.EmojiData
+import com.majeur.inputmethod.tools.emoji.model.EmojiGroup
+import java.io.File
+import java.io.IOException
+import java.io.PrintStream
+import java.nio.charset.Charset
+
+/**
+ * Writes the names of the base emojis as lines of `<code points>;<name>`, with the code points
+ * formatted as in the emoji categories resource. They are used for searching emojis by name.
+ */
+class EmojiNamesResource {
+
+    fun writeToAndroidAssets(outDir: String?, emojiData: EmojiData) {
+        var ps: PrintStream? = null
+        try {
+            ps = if (outDir == null) {
+                System.out
+            } else {
+                val outputFile = File(outDir, ANDROID_ASSET_FILE)
+                outputFile.parentFile.mkdirs()
+                println("Building android asset file into ${outputFile.absoluteFile}")
+                PrintStream(outputFile, Charset.forName("UTF-8"))
+            }
+            EmojiGroup.values().forEach { group ->
+                // components are only used for building variants, they are not in the palettes
+                if (group == EmojiGroup.COMPONENT) return@forEach
+                emojiData[group].forEach { emoji ->
+                    val cps = emoji.codes.joinToString(separator = ",") {
+                        it.toString(radix = 16).uppercase()
+                    }
+                    ps!!.println("$cps;${emoji.name}")
+                }
+            }
+        } catch (e: IOException) {
+            throw RuntimeException(e)
+        } finally {
+            JarUtils.close(ps)
+        }
+    }
+
+    companion object {
+        private const val ANDROID_ASSET_FILE = "emoji/emoji_names.txt"
+    }
+}
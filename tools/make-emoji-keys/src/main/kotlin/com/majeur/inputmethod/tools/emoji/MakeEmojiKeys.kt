@@ -10,8 +10,10 @@ class MakeEmojiKeys {
     class Options(argsArray: Array<String>) {
 
         private val OPTION_RES = "-res"
+        private val OPTION_ASSETS = "-assets"
 
         var resPath: String? = null
+        var assetsPath: String? = null
 
         init {
             val args = listOf(*argsArray).toMutableList()
@@ -21,6 +23,8 @@ class MakeEmojiKeys {
                     arg = args.removeFirst()
                     if (arg == OPTION_RES) {
                         resPath = args.removeFirst()
+                    } else if (arg == OPTION_ASSETS) {
+                        assetsPath = args.removeFirst()
                     } else {
                         usage("Unknown option: $arg")
                     }
@@ -32,7 +36,7 @@ class MakeEmojiKeys {
 
         fun usage(message: String?) {
             message?.let { System.err.println(it) }
-            System.err.println("usage: make-emoji-keys $OPTION_RES <res_output_dir>")
+            System.err.println("usage: make-emoji-keys $OPTION_RES <res_output_dir> [$OPTION_ASSETS <assets_output_dir>]")
             exitProcess(1)
         }
     }
@@ -52,6 +56,7 @@ class MakeEmojiKeys {
             val supportData = parser2.getParsedData()
 
             EmojiCategoriesResource(jar).writeToAndroidRes(options.resPath, emojis, supportData)
+            options.assetsPath?.let { EmojiNamesResource().writeToAndroidAssets(it, emojis) }
         }
 
     }